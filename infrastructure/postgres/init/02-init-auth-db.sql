@@ -271,9 +271,9 @@ CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_jwt_user_id ON jwt_blacklist(user_id
 -- 7. 用户操作日志 (user_operation_logs)
 -- ===================================================================
 
--- 用户操作审计日志
+-- 用户操作审计日志（按operation_time按月范围分区，分区由auth-service定时创建和清理）
 CREATE TABLE IF NOT EXISTS user_operation_logs (
-    id BIGSERIAL PRIMARY KEY,
+    id BIGSERIAL,
     user_id BIGINT,
     username VARCHAR(50),
     operation VARCHAR(100) NOT NULL, -- LOGIN, LOGOUT, ROLE_CHANGE, etc.
@@ -290,20 +290,46 @@ CREATE TABLE IF NOT EXISTS user_operation_logs (
     response_data JSONB,
 
     -- 时间信息
-    operation_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    operation_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     duration_ms INTEGER, -- 操作耗时
 
     -- 元数据
-    metadata JSONB
-);
+    metadata JSONB,
+
+    -- 分区表的主键必须包含分区键
+    PRIMARY KEY (id, operation_time)
+) PARTITION BY RANGE (operation_time);
+
+-- 默认分区：仅在月度分区尚未创建时兜底，正常情况下应为空
+CREATE TABLE IF NOT EXISTS user_operation_logs_default PARTITION OF user_operation_logs DEFAULT;
+
+-- 初始月度分区（当月及未来3个月），命名规则为user_operation_logs_pYYYYMM
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR i IN 0..3 LOOP
+        month_start := (date_trunc('month', CURRENT_DATE) + make_interval(months => i))::DATE;
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF user_operation_logs FOR VALUES FROM (%L) TO (%L)',
+            'user_operation_logs_p' || to_char(month_start, 'YYYYMM'),
+            month_start,
+            (month_start + INTERVAL '1 month')::DATE
+        );
+    END LOOP;
+END $$;
 
 -- 索引
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_user_id ON user_operation_logs(user_id);
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_username ON user_operation_logs(username);
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_operation ON user_operation_logs(operation);
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_module ON user_operation_logs(module);
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_time ON user_operation_logs(operation_time);
-CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_logs_result ON user_operation_logs(result);
+CREATE INDEX IF NOT EXISTS idx_logs_user_id ON user_operation_logs(user_id);
+CREATE INDEX IF NOT EXISTS idx_logs_username ON user_operation_logs(username);
+CREATE INDEX IF NOT EXISTS idx_logs_operation ON user_operation_logs(operation);
+CREATE INDEX IF NOT EXISTS idx_logs_module ON user_operation_logs(module);
+CREATE INDEX IF NOT EXISTS idx_logs_time ON user_operation_logs(operation_time);
+CREATE INDEX IF NOT EXISTS idx_logs_result ON user_operation_logs(result);
+-- 键集分页索引：按(操作时间, ID)倒序翻页
+CREATE INDEX IF NOT EXISTS idx_logs_user_time_id ON user_operation_logs(user_id, operation_time DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_logs_time_id ON user_operation_logs(operation_time DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_logs_failed_time_id ON user_operation_logs(operation_time DESC, id DESC) WHERE result = 'FAILED';
 
 -- ===================================================================
 -- 初始化管理员用户数据
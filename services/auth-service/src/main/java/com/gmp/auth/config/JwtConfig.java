@@ -145,15 +145,23 @@ public class JwtConfig {
      * @param token JWT令牌
      * @return Collection<String> 用户角色集合
      */
-    @SuppressWarnings("unchecked")
     public Collection<String> extractRoles(String token) {
-        return extractClaim(token, claims -> {
-            Object rolesObj = claims.get("roles");
-            if (rolesObj instanceof Collection) {
-                return (Collection<String>) rolesObj;
-            }
-            return Collections.emptyList();
-        });
+        return extractClaim(token, this::getRoles);
+    }
+
+    /**
+     * @brief 从已解析的声明中获取用户角色
+     * 
+     * @param claims 已验证的JWT声明
+     * @return Collection<String> 用户角色集合
+     */
+    @SuppressWarnings("unchecked")
+    public Collection<String> getRoles(Claims claims) {
+        Object rolesObj = claims.get("roles");
+        if (rolesObj instanceof Collection) {
+            return (Collection<String>) rolesObj;
+        }
+        return Collections.emptyList();
     }
 
     /**
@@ -164,15 +172,37 @@ public class JwtConfig {
      * @param token JWT令牌
      * @return List<String> 用户权限列表
      */
-    @SuppressWarnings("unchecked")
     public List<String> extractPermissions(String token) {
-        return extractClaim(token, claims -> {
-            Object permissionsObj = claims.get("permissions");
-            if (permissionsObj instanceof List) {
-                return (List<String>) permissionsObj;
-            }
-            return Collections.emptyList();
-        });
+        return extractClaim(token, this::getPermissions);
+    }
+
+    /**
+     * @brief 从已解析的声明中获取用户权限
+     * 
+     * @param claims 已验证的JWT声明
+     * @return List<String> 用户权限列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getPermissions(Claims claims) {
+        Object permissionsObj = claims.get("permissions");
+        if (permissionsObj instanceof List) {
+            return (List<String>) permissionsObj;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * @brief 验证令牌签名并解析声明
+     * 
+     * @details 只进行一次签名验证和解析，调用方可从返回的声明中读取用户名、角色和权限，
+     * 避免分别调用validateToken和extract*方法导致的重复验签
+     * 
+     * @param token JWT令牌
+     * @return Claims 已验证的声明
+     * @throws JwtException 如果令牌无效、签名错误或已过期
+     */
+    public Claims parseVerifiedClaims(String token) {
+        return extractAllClaims(token);
     }
 
     /**
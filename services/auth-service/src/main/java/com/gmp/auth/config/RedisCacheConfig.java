@@ -1,6 +1,5 @@
 package com.gmp.auth.config;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -17,15 +16,12 @@ import java.time.Duration;
 
 /**
  * Redis缓存配置
- * 用于配置令牌撤销和权限缓存
+ * 用于配置权限缓存，令牌撤销状态由TokenBlacklistServiceImpl自行维护，不经过缓存抽象
  */
 @Configuration
 @EnableCaching
 public class RedisCacheConfig {
     
-    @Autowired
-    private JwtProperties jwtProperties;
-    
     /**
      * 配置Redis缓存管理器
      */
@@ -39,9 +35,6 @@ public class RedisCacheConfig {
         // 为不同的缓存设置不同的过期时间
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(defaultCacheConfig)
-                .withCacheConfiguration("revokedTokens", 
-                        RedisCacheConfiguration.defaultCacheConfig()
-                                .entryTtl(Duration.ofSeconds(jwtProperties.getRefreshExpiration())))
                 .withCacheConfiguration("userPermissions", 
                         RedisCacheConfiguration.defaultCacheConfig()
                                 .entryTtl(Duration.ofMinutes(30)))
@@ -1,9 +1,13 @@
 package com.gmp.auth.config;
 
+import com.gmp.auth.service.AccessDecisionEngine;
+import com.gmp.auth.service.impl.TokenBlacklistServiceImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -39,4 +43,26 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    /**
+     * 配置Redis消息监听容器
+     * 订阅令牌撤销事件和授权策略变更事件，使各节点的本地黑名单布隆过滤器和授权决策结果保持同步
+     *
+     * @param connectionFactory Redis连接工厂
+     * @param tokenBlacklistService 令牌黑名单服务
+     * @param accessDecisionEngine 访问控制决策引擎
+     * @return 消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       TokenBlacklistServiceImpl tokenBlacklistService,
+                                                                       AccessDecisionEngine accessDecisionEngine) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(tokenBlacklistService,
+                new ChannelTopic(TokenBlacklistServiceImpl.REVOCATION_CHANNEL));
+        container.addMessageListener(accessDecisionEngine,
+                new ChannelTopic(AccessDecisionEngine.POLICY_CHANNEL));
+        return container;
+    }
+}
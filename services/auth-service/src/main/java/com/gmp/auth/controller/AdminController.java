@@ -1,14 +1,22 @@
 package com.gmp.auth.controller;
 
+import com.gmp.auth.dto.KeysetPage;
 import com.gmp.auth.entity.OperationLog;
 import com.gmp.auth.service.AuditLogService;
 import com.gmp.auth.service.AuthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +51,77 @@ public class AdminController {
         return ResponseEntity.ok(logs);
     }
     
+    /**
+     * 键集分页查询审计日志，适合深度翻页
+     * 指定userId时按用户查询，指定failedSince时查询失败操作，否则按时间范围查询
+     * 
+     * @param userId 用户ID
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param failedSince 查询该时间之后的失败操作
+     * @param cursor 上一页返回的游标
+     * @param size 每页条数
+     * @return 键集分页结果
+     */
+    @GetMapping("/audit-logs/keyset")
+    public ResponseEntity<KeysetPage<OperationLog>> getAuditLogsByKeyset(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime failedSince,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        KeysetPage<OperationLog> logs;
+        if (userId != null) {
+            logs = auditLogService.findLogsByUserId(userId, cursor, size);
+        } else if (failedSince != null) {
+            logs = auditLogService.findFailedOperations(failedSince, cursor, size);
+        } else {
+            logs = auditLogService.findLogsByTimeRange(startTime, endTime, cursor, size);
+        }
+        return ResponseEntity.ok(logs);
+    }
+    
+    /**
+     * 获取审计日志统计信息
+     * 
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 统计结果
+     */
+    @GetMapping("/audit-logs/statistics")
+    public ResponseEntity<Map<String, Object>> getAuditLogStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        return ResponseEntity.ok(auditLogService.getOperationStatistics(startTime, endTime));
+    }
+    
+    /**
+     * 流式导出审计日志，结果逐行写入响应
+     * 
+     * @param format 导出格式（csv或json）
+     * @param filters 过滤条件（userId、username、operation、module、result、startTime、endTime）
+     * @return 导出文件
+     */
+    @GetMapping("/audit-logs/export")
+    public ResponseEntity<StreamingResponseBody> exportAuditLogs(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam Map<String, String> filters) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"json".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        Map<String, Object> criteria = new HashMap<>(filters);
+        criteria.remove("format");
+        StreamingResponseBody body = outputStream -> auditLogService.exportLogs(criteria, format, outputStream);
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=audit-logs." + (csv ? "csv" : "json"))
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    
     /**
      * 获取用户权限信息
      * 
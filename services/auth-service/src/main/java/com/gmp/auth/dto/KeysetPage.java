@@ -0,0 +1,41 @@
+package com.gmp.auth.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 键集分页结果DTO
+ * 不统计总数，通过游标获取下一页，翻页开销与页码无关
+ *
+ * @param <T> 数据类型
+ * @author GMP系统开发团队
+ */
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, String nextCursor) {
+        this.content = content != null ? content : Collections.emptyList();
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * 获取下一页游标，没有更多数据时为null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    public int getSize() {
+        return content.size();
+    }
+}
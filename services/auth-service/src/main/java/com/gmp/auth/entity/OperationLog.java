@@ -24,7 +24,10 @@ import java.time.LocalDateTime;
  * @see jakarta.persistence.Table
  */
 @Entity
-@Table(name = "user_operation_logs")
+@Table(name = "user_operation_logs", indexes = {
+    @Index(name = "idx_logs_user_time_id", columnList = "user_id, operation_time DESC, id DESC"),
+    @Index(name = "idx_logs_time_id", columnList = "operation_time DESC, id DESC")
+})
 public class OperationLog {
 
     /**
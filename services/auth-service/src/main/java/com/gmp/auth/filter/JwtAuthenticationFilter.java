@@ -1,6 +1,8 @@
 package com.gmp.auth.filter;
 
 import com.gmp.auth.config.JwtConfig;
+import com.gmp.auth.service.TokenBlacklistService;
+import com.gmp.auth.service.VerifiedTokenCache;
 import com.gmp.auth.service.impl.SimpleUserDetailsService;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
@@ -23,8 +25,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.List;
 
 /**
  * JWT认证过滤器
@@ -43,6 +43,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private SimpleUserDetailsService userDetailsService;
     
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+    
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                    FilterChain filterChain) throws ServletException, IOException {
@@ -50,18 +56,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 从请求头中获取JWT令牌
             String jwt = getJwtFromRequest(request);
             
-            // 验证令牌有效性
-            if (StringUtils.hasText(jwt) && jwtConfig.validateToken(jwt)) {
-                String username = jwtConfig.extractUsername(jwt);
+            // 检查是否已经有认证信息
+            if (StringUtils.hasText(jwt) && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // 黑名单由本地布隆过滤器前置，绝大多数未撤销令牌无需访问Redis
+                VerifiedTokenCache.VerifiedToken verified = null;
+                if (tokenBlacklistService.isTokenBlacklisted(jwt)) {
+                    log.debug("JWT令牌已被撤销");
+                    verifiedTokenCache.invalidate(jwt);
+                } else {
+                    // 优先使用已验证令牌缓存，未命中时才进行验签和用户加载
+                    verified = verifiedTokenCache.get(jwt);
+                    if (verified == null) {
+                        verified = verifyAndCache(jwt);
+                    }
+                }
                 
-                // 检查是否已经有认证信息
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    // 加载用户信息
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    
-                    // 从令牌中提取角色和权限
-                    Collection<String> roles = jwtConfig.extractRoles(jwt);
-                    List<String> permissions = jwtConfig.extractPermissions(jwt);
+                if (verified != null) {
+                    UserDetails userDetails = verified.getUserDetails();
                     
                     // 创建认证令牌
                     UsernamePasswordAuthenticationToken authentication = 
@@ -71,7 +82,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     // 设置认证信息到Security上下文
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                     
-                    log.debug("JWT认证成功 - 用户: {}, 角色: {}, 权限: {}", username, roles, permissions);
+                    log.debug("JWT认证成功 - 用户: {}, 角色: {}, 权限: {}", 
+                            verified.getUsername(), verified.getRoles(), verified.getPermissions());
                 }
             }
         } catch (ExpiredJwtException e) {
@@ -89,6 +101,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
     
+    /**
+     * 验证令牌并写入已验证令牌缓存
+     * 签名验证与声明解析只进行一次
+     * 
+     * @return 已验证的令牌信息，缺少用户名时返回null
+     */
+    private VerifiedTokenCache.VerifiedToken verifyAndCache(String jwt) {
+        Claims claims = jwtConfig.parseVerifiedClaims(jwt);
+        String username = claims.getSubject();
+        if (username == null) {
+            return null;
+        }
+        
+        // 加载用户信息
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        
+        return verifiedTokenCache.put(jwt, username, jwtConfig.getRoles(claims), 
+                jwtConfig.getPermissions(claims), userDetails, claims.getExpiration());
+    }
+    
     /**
      * 从请求头中提取JWT令牌
      */
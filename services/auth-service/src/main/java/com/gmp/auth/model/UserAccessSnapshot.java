@@ -0,0 +1,144 @@
+package com.gmp.auth.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户有效访问权限快照
+ * 一次性加载的 用户 → 组织 → 角色 → 权限 → 子系统 关系图，创建后不可变。
+ * 组织ID参数为null时表示汇总用户在所有组织中的结果：集合取并集，子系统访问级别取最高值。
+ */
+public class UserAccessSnapshot {
+
+    private final Long userId;
+    private final Map<Long, Set<String>> roleCodesByOrganization;
+    private final Map<Long, Set<String>> permissionCodesByOrganization;
+    private final Map<Long, Set<String>> subsystemsByOrganization;
+    private final Map<Long, Map<String, Integer>> accessLevelsByOrganization;
+
+    // 跨组织汇总结果，构造时计算
+    private final Set<String> allRoleCodes;
+    private final Set<String> allPermissionCodes;
+    private final Set<String> allSubsystems;
+    private final Map<String, Integer> allAccessLevels;
+
+    /**
+     * 构造函数
+     *
+     * @param userId 用户ID
+     * @param roleCodesByOrganization 各组织中的角色代码
+     * @param permissionCodesByOrganization 各组织中的权限代码
+     * @param subsystemsByOrganization 各组织中可访问的子系统代码
+     * @param accessLevelsByOrganization 各组织中的子系统访问级别（1: 只读, 2: 读写, 3: 管理员）
+     */
+    public UserAccessSnapshot(Long userId,
+                              Map<Long, Set<String>> roleCodesByOrganization,
+                              Map<Long, Set<String>> permissionCodesByOrganization,
+                              Map<Long, Set<String>> subsystemsByOrganization,
+                              Map<Long, Map<String, Integer>> accessLevelsByOrganization) {
+        this.userId = userId;
+        this.roleCodesByOrganization = copySets(roleCodesByOrganization);
+        this.permissionCodesByOrganization = copySets(permissionCodesByOrganization);
+        this.subsystemsByOrganization = copySets(subsystemsByOrganization);
+
+        Map<Long, Map<String, Integer>> levels = new HashMap<>();
+        Map<String, Integer> mergedLevels = new HashMap<>();
+        accessLevelsByOrganization.forEach((orgId, orgLevels) -> {
+            levels.put(orgId, Collections.unmodifiableMap(new HashMap<>(orgLevels)));
+            orgLevels.forEach((subsystem, level) -> mergedLevels.merge(subsystem, level, Math::max));
+        });
+        this.accessLevelsByOrganization = Collections.unmodifiableMap(levels);
+        this.allAccessLevels = Collections.unmodifiableMap(mergedLevels);
+
+        this.allRoleCodes = union(this.roleCodesByOrganization);
+        this.allPermissionCodes = union(this.permissionCodesByOrganization);
+        this.allSubsystems = union(this.subsystemsByOrganization);
+    }
+
+    /**
+     * 创建空快照，用于用户没有任何有效组织角色的情况
+     */
+    public static UserAccessSnapshot empty(Long userId) {
+        return new UserAccessSnapshot(userId, Collections.emptyMap(), Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * 获取用户拥有有效角色的组织ID
+     */
+    public Set<Long> getOrganizationIds() {
+        return roleCodesByOrganization.keySet();
+    }
+
+    /**
+     * 检查用户在组织中是否有有效角色
+     */
+    public boolean hasOrganizationAccess(Long organizationId) {
+        return organizationId != null && roleCodesByOrganization.containsKey(organizationId);
+    }
+
+    /**
+     * 获取角色代码，organizationId为null时返回所有组织的并集
+     */
+    public Set<String> getRoleCodes(Long organizationId) {
+        return lookup(organizationId, roleCodesByOrganization, allRoleCodes);
+    }
+
+    /**
+     * 获取权限代码，organizationId为null时返回所有组织的并集
+     */
+    public Set<String> getPermissionCodes(Long organizationId) {
+        return lookup(organizationId, permissionCodesByOrganization, allPermissionCodes);
+    }
+
+    /**
+     * 获取子系统访问级别，organizationId为null时返回各组织中的最高级别
+     */
+    public Map<String, Integer> getSubsystemAccessLevels(Long organizationId) {
+        if (organizationId == null) {
+            return allAccessLevels;
+        }
+        return accessLevelsByOrganization.getOrDefault(organizationId, Collections.emptyMap());
+    }
+
+    /**
+     * 获取可访问的子系统代码，organizationId为null时返回所有组织的并集
+     */
+    public Set<String> getAccessibleSubsystems(Long organizationId) {
+        return lookup(organizationId, subsystemsByOrganization, allSubsystems);
+    }
+
+    public boolean hasRole(Long organizationId, String roleCode) {
+        return getRoleCodes(organizationId).contains(roleCode);
+    }
+
+    public boolean hasPermission(Long organizationId, String permissionCode) {
+        return getPermissionCodes(organizationId).contains(permissionCode);
+    }
+
+    private static Set<String> lookup(Long organizationId, Map<Long, Set<String>> byOrganization, Set<String> all) {
+        if (organizationId == null) {
+            return all;
+        }
+        return byOrganization.getOrDefault(organizationId, Collections.emptySet());
+    }
+
+    private static Map<Long, Set<String>> copySets(Map<Long, Set<String>> source) {
+        Map<Long, Set<String>> copy = new HashMap<>();
+        source.forEach((orgId, codes) -> copy.put(orgId, Collections.unmodifiableSet(new HashSet<>(codes))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Set<String> union(Map<Long, Set<String>> byOrganization) {
+        Set<String> all = new HashSet<>();
+        byOrganization.values().forEach(all::addAll);
+        return Collections.unmodifiableSet(all);
+    }
+}
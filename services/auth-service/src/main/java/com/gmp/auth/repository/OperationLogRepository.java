@@ -1,7 +1,10 @@
 package com.gmp.auth.repository;
 
 import com.gmp.auth.entity.OperationLog;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -68,7 +71,88 @@ public interface OperationLogRepository extends JpaRepository<OperationLog, Long
 
     /**
      * 清理过期日志（保留最近N天的日志）
+     * @return 删除的日志数量
      */
+    @Modifying
     @Query("DELETE FROM OperationLog ol WHERE ol.operationTime < :beforeDate")
-    void deleteLogsBefore(@Param("beforeDate") LocalDateTime beforeDate);
+    int deleteLogsBefore(@Param("beforeDate") LocalDateTime beforeDate);
+
+    /**
+     * 数据库分页查询用户的操作日志
+     */
+    Page<OperationLog> findByUserId(Long userId, Pageable pageable);
+
+    /**
+     * 数据库分页查询时间范围内的操作日志
+     */
+    Page<OperationLog> findByOperationTimeBetween(LocalDateTime startTime, LocalDateTime endTime, Pageable pageable);
+
+    /**
+     * 数据库分页查询某个时间之后的失败操作
+     */
+    Page<OperationLog> findByResultAndOperationTimeGreaterThanEqual(OperationLog.Result result, LocalDateTime since,
+                                                                    Pageable pageable);
+
+    /**
+     * 键集分页查询用户的操作日志，按(操作时间, ID)倒序取游标之后的记录
+     * 分页大小由pageable决定，pageable的页码应始终为0
+     */
+    @Query("SELECT ol FROM OperationLog ol WHERE ol.userId = :userId " +
+           "AND (ol.operationTime < :cursorTime OR (ol.operationTime = :cursorTime AND ol.id < :cursorId)) " +
+           "ORDER BY ol.operationTime DESC, ol.id DESC")
+    List<OperationLog> findByUserIdAfterCursor(@Param("userId") Long userId,
+                                               @Param("cursorTime") LocalDateTime cursorTime,
+                                               @Param("cursorId") Long cursorId,
+                                               Pageable pageable);
+
+    /**
+     * 键集分页查询时间范围内的操作日志
+     */
+    @Query("SELECT ol FROM OperationLog ol WHERE ol.operationTime >= :startTime AND ol.operationTime <= :endTime " +
+           "AND (ol.operationTime < :cursorTime OR (ol.operationTime = :cursorTime AND ol.id < :cursorId)) " +
+           "ORDER BY ol.operationTime DESC, ol.id DESC")
+    List<OperationLog> findByTimeRangeAfterCursor(@Param("startTime") LocalDateTime startTime,
+                                                  @Param("endTime") LocalDateTime endTime,
+                                                  @Param("cursorTime") LocalDateTime cursorTime,
+                                                  @Param("cursorId") Long cursorId,
+                                                  Pageable pageable);
+
+    /**
+     * 键集分页查询某个时间之后的失败操作
+     */
+    @Query("SELECT ol FROM OperationLog ol WHERE ol.result = com.gmp.auth.entity.OperationLog.Result.FAILED " +
+           "AND ol.operationTime >= :since " +
+           "AND (ol.operationTime < :cursorTime OR (ol.operationTime = :cursorTime AND ol.id < :cursorId)) " +
+           "ORDER BY ol.operationTime DESC, ol.id DESC")
+    List<OperationLog> findFailedAfterCursor(@Param("since") LocalDateTime since,
+                                             @Param("cursorTime") LocalDateTime cursorTime,
+                                             @Param("cursorId") Long cursorId,
+                                             Pageable pageable);
+
+    /**
+     * 按操作结果统计时间范围内的日志数量
+     * @return [结果, 数量] 列表
+     */
+    @Query("SELECT ol.result, COUNT(ol) FROM OperationLog ol " +
+           "WHERE ol.operationTime >= :startTime AND ol.operationTime <= :endTime GROUP BY ol.result")
+    List<Object[]> countByResult(@Param("startTime") LocalDateTime startTime,
+                                 @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 按操作类型统计时间范围内的日志数量
+     * @return [操作类型, 数量] 列表
+     */
+    @Query("SELECT ol.operation, COUNT(ol) FROM OperationLog ol " +
+           "WHERE ol.operationTime >= :startTime AND ol.operationTime <= :endTime GROUP BY ol.operation")
+    List<Object[]> countByOperation(@Param("startTime") LocalDateTime startTime,
+                                    @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 按模块统计时间范围内的日志数量
+     * @return [模块, 数量] 列表
+     */
+    @Query("SELECT ol.module, COUNT(ol) FROM OperationLog ol " +
+           "WHERE ol.operationTime >= :startTime AND ol.operationTime <= :endTime GROUP BY ol.module")
+    List<Object[]> countByModule(@Param("startTime") LocalDateTime startTime,
+                                 @Param("endTime") LocalDateTime endTime);
 }
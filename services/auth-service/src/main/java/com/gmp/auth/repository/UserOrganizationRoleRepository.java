@@ -106,4 +106,27 @@ public interface UserOrganizationRoleRepository extends JpaRepository<UserOrgani
      * @return 有效的用户组织角色关联
      */
     java.util.Optional<UserOrganizationRole> findByUserIdAndOrganizationIdAndRoleIdAndStatusIn(Long userId, Long organizationId, Long roleId, Set<UserOrganizationRole.AssignmentStatus> activeStatuses);
+
+    /**
+     * 一次查询用户在所有组织中的有效角色代码
+     * @param userId 用户ID
+     * @param activeStatuses 活动状态集合
+     * @return [组织ID, 角色代码] 列表
+     */
+    @Query("SELECT uor.organizationId, r.roleCode FROM UserOrganizationRole uor JOIN Role r ON r.id = uor.roleId " +
+           "WHERE uor.userId = :userId AND uor.status IN :activeStatuses")
+    List<Object[]> findOrganizationRoleCodesByUserId(@Param("userId") Long userId,
+                                                     @Param("activeStatuses") Set<UserOrganizationRole.AssignmentStatus> activeStatuses);
+
+    /**
+     * 一次查询用户在所有组织中通过角色获得的有效权限代码
+     * @param userId 用户ID
+     * @param activeStatuses 活动状态集合
+     * @return [组织ID, 权限代码] 列表
+     */
+    @Query("SELECT DISTINCT uor.organizationId, p.permissionCode FROM UserOrganizationRole uor " +
+           "JOIN RolePermission rp ON rp.roleId = uor.roleId JOIN Permission p ON p.id = rp.permissionId " +
+           "WHERE uor.userId = :userId AND uor.status IN :activeStatuses AND rp.isActive = true AND p.isActive = true")
+    List<Object[]> findOrganizationPermissionCodesByUserId(@Param("userId") Long userId,
+                                                           @Param("activeStatuses") Set<UserOrganizationRole.AssignmentStatus> activeStatuses);
 }
@@ -0,0 +1,317 @@
+package com.gmp.auth.service;
+
+import com.gmp.auth.model.UserAccessSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 进程内访问控制决策引擎
+ * <p>
+ * 将用户的有效权限和子系统访问级别编译为位图：权限代码和子系统代码在首次出现时分配全局唯一的整数ID，
+ * 每次权限判定只需一次位测试，无需访问数据库或Redis缓存。
+ * <p>
+ * 编译结果带有策略版本号。角色、权限或用户组织角色发生变更时调用{@link #invalidateAll()}递增全局版本号，
+ * 旧版本的编译结果在下次访问时自动重新编译；版本变更同时通过Redis发布/订阅通知其他节点。
+ */
+@Component
+public class AccessDecisionEngine implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessDecisionEngine.class);
+
+    /**
+     * 策略变更事件频道，消息内容为发布节点的新版本号
+     */
+    public static final String POLICY_CHANNEL = "auth:policy:events";
+
+    // 子系统访问级别：1: 只读, 2: 读写, 3: 管理员
+    private static final int MAX_ACCESS_LEVEL = 3;
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 最大缓存用户数
+     */
+    @Value("${auth.access-decision.max-size:10000}")
+    private int maxSize = 10000;
+
+    /**
+     * 编译结果最长有效时间（毫秒），防止遗漏变更通知时长期使用过期的授权
+     */
+    @Value("${auth.access-decision.max-ttl:300000}")
+    private long maxTtlMillis = 300000;
+
+    private final AtomicLong policyVersion = new AtomicLong();
+
+    // 权限代码和子系统代码的全局ID，只增不减
+    private final Map<String, Integer> permissionIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> subsystemIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPermissionId = new AtomicInteger();
+    private final AtomicInteger nextSubsystemId = new AtomicInteger();
+
+    private final Map<String, CompiledAccess> byUsername = new ConcurrentHashMap<>();
+    private final Map<Long, CompiledAccess> byUserId = new ConcurrentHashMap<>();
+
+    /**
+     * 按用户名获取编译后的访问权限，不存在或已失效时通过loader重新加载并编译
+     *
+     * @param username 用户名
+     * @param loader 用户访问权限快照加载器
+     * @return 编译后的访问权限
+     */
+    public CompiledAccess getDecision(String username, Supplier<UserAccessSnapshot> loader) {
+        return getOrCompile(byUsername, username, loader);
+    }
+
+    /**
+     * 按用户ID获取编译后的访问权限，不存在或已失效时通过loader重新加载并编译
+     *
+     * @param userId 用户ID
+     * @param loader 用户访问权限快照加载器
+     * @return 编译后的访问权限
+     */
+    public CompiledAccess getDecision(Long userId, Supplier<UserAccessSnapshot> loader) {
+        return getOrCompile(byUserId, userId, loader);
+    }
+
+    /**
+     * 使所有编译结果失效
+     * 在事务中调用时，提交后会再次递增版本号，避免并发请求在提交前按旧数据编译出新版本的结果
+     */
+    public void invalidateAll() {
+        long version = policyVersion.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(policyVersion.incrementAndGet());
+                }
+            });
+        } else {
+            publish(version);
+        }
+    }
+
+    /**
+     * 获取当前策略版本号
+     */
+    public long getPolicyVersion() {
+        return policyVersion.get();
+    }
+
+    /**
+     * 处理其他节点发布的策略变更事件
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        policyVersion.incrementAndGet();
+        log.debug("收到策略变更事件，本地授权编译结果已失效");
+    }
+
+    private <K> CompiledAccess getOrCompile(Map<K, CompiledAccess> cache, K key,
+                                            Supplier<UserAccessSnapshot> loader) {
+        long now = System.currentTimeMillis();
+        CompiledAccess compiled = cache.get(key);
+        if (compiled != null && compiled.version == policyVersion.get() && compiled.expiresAt > now) {
+            return compiled;
+        }
+
+        // 先读取版本号再加载，加载期间发生的变更会使本次结果立即过期
+        long version = policyVersion.get();
+        compiled = compile(loader.get(), version, now + maxTtlMillis);
+
+        if (cache.size() >= maxSize) {
+            evict(cache, now);
+        }
+        cache.put(key, compiled);
+        return compiled;
+    }
+
+    private CompiledAccess compile(UserAccessSnapshot snapshot, long version, long expiresAt) {
+        if (snapshot == null) {
+            snapshot = UserAccessSnapshot.empty(null);
+        }
+
+        Map<Long, Grant> grantsByOrganization = new HashMap<>();
+        for (Long organizationId : snapshot.getOrganizationIds()) {
+            grantsByOrganization.put(organizationId, compileGrant(snapshot, organizationId));
+        }
+        return new CompiledAccess(version, expiresAt, snapshot.getUserId(),
+                compileGrant(snapshot, null), grantsByOrganization);
+    }
+
+    private Grant compileGrant(UserAccessSnapshot snapshot, Long organizationId) {
+        BitSet permissions = toBitSet(snapshot.getPermissionCodes(organizationId), permissionIds, nextPermissionId);
+        BitSet subsystems = toBitSet(snapshot.getAccessibleSubsystems(organizationId), subsystemIds, nextSubsystemId);
+
+        BitSet[] levels = new BitSet[MAX_ACCESS_LEVEL + 1];
+        for (int level = 1; level <= MAX_ACCESS_LEVEL; level++) {
+            levels[level] = new BitSet();
+        }
+        snapshot.getSubsystemAccessLevels(organizationId).forEach((subsystem, level) -> {
+            int id = intern(subsystem, subsystemIds, nextSubsystemId);
+            for (int i = 1; i <= Math.min(level, MAX_ACCESS_LEVEL); i++) {
+                levels[i].set(id);
+            }
+        });
+        return new Grant(permissions, subsystems, levels);
+    }
+
+    private BitSet toBitSet(Collection<String> codes, Map<String, Integer> ids, AtomicInteger nextId) {
+        BitSet bits = new BitSet();
+        for (String code : codes) {
+            bits.set(intern(code, ids, nextId));
+        }
+        return bits;
+    }
+
+    private int intern(String code, Map<String, Integer> ids, AtomicInteger nextId) {
+        return ids.computeIfAbsent(code, k -> nextId.getAndIncrement());
+    }
+
+    private void publish(long version) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(POLICY_CHANNEL, version);
+        } catch (Exception e) {
+            log.error("发布策略变更事件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 淘汰缓存条目：先清理失效条目，仍超限时近似随机地淘汰十分之一
+     */
+    private <K> void evict(Map<K, CompiledAccess> cache, long now) {
+        synchronized (cache) {
+            if (cache.size() < maxSize) {
+                return;
+            }
+
+            long version = policyVersion.get();
+            cache.values().removeIf(compiled -> compiled.version != version || compiled.expiresAt <= now);
+
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<CompiledAccess> iterator = cache.values().iterator();
+            while (cache.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 单个组织范围内（或跨所有组织）的授权位图
+     */
+    private static class Grant {
+        private final BitSet permissions;
+        private final BitSet subsystems;
+        // levels[n]中的位表示对应子系统的访问级别不低于n
+        private final BitSet[] levels;
+
+        Grant(BitSet permissions, BitSet subsystems, BitSet[] levels) {
+            this.permissions = permissions;
+            this.subsystems = subsystems;
+            this.levels = levels;
+        }
+    }
+
+    /**
+     * 编译后的用户访问权限，创建后不可变
+     * 组织ID参数为null时表示跨所有组织判定
+     */
+    public class CompiledAccess {
+        private final long version;
+        private final long expiresAt;
+        private final Long userId;
+        private final Grant all;
+        private final Map<Long, Grant> byOrganization;
+
+        CompiledAccess(long version, long expiresAt, Long userId, Grant all, Map<Long, Grant> byOrganization) {
+            this.version = version;
+            this.expiresAt = expiresAt;
+            this.userId = userId;
+            this.all = all;
+            this.byOrganization = Collections.unmodifiableMap(byOrganization);
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        /**
+         * 检查是否拥有全部指定权限；用户没有任何权限时返回false
+         */
+        public boolean hasAllPermissions(Long organizationId, String... permissionCodes) {
+            Grant grant = grant(organizationId);
+            if (grant == null || grant.permissions.isEmpty()) {
+                return false;
+            }
+            for (String permissionCode : permissionCodes) {
+                Integer id = permissionCode != null ? permissionIds.get(permissionCode) : null;
+                if (id == null || !grant.permissions.get(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 检查是否可访问子系统
+         */
+        public boolean hasSubsystemAccess(Long organizationId, String subsystemCode) {
+            Grant grant = grant(organizationId);
+            Integer id = subsystemCode != null ? subsystemIds.get(subsystemCode) : null;
+            return grant != null && id != null && grant.subsystems.get(id);
+        }
+
+        /**
+         * 检查子系统访问级别是否不低于指定级别
+         */
+        public boolean hasSubsystemLevel(Long organizationId, String subsystemCode, int minLevel) {
+            return getSubsystemLevel(organizationId, subsystemCode) >= minLevel;
+        }
+
+        /**
+         * 获取子系统访问级别，无访问级别时返回0
+         */
+        public int getSubsystemLevel(Long organizationId, String subsystemCode) {
+            Grant grant = grant(organizationId);
+            Integer id = subsystemCode != null ? subsystemIds.get(subsystemCode) : null;
+            if (grant == null || id == null) {
+                return 0;
+            }
+            for (int level = MAX_ACCESS_LEVEL; level >= 1; level--) {
+                if (grant.levels[level].get(id)) {
+                    return level;
+                }
+            }
+            return 0;
+        }
+
+        private Grant grant(Long organizationId) {
+            return organizationId == null ? all : byOrganization.get(organizationId);
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.gmp.auth.service;
 
+import com.gmp.auth.dto.KeysetPage;
 import com.gmp.auth.entity.OperationLog;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -148,6 +150,34 @@ public interface AuditLogService {
      */
     Page<OperationLog> findFailedOperations(LocalDateTime since, Pageable pageable);
 
+    /**
+     * 键集分页查询用户的操作日志，按操作时间倒序
+     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，首页为null
+     * @param size 每页条数
+     * @return 键集分页结果
+     */
+    KeysetPage<OperationLog> findLogsByUserId(Long userId, String cursor, int size);
+
+    /**
+     * 键集分页查询指定时间范围内的操作日志，按操作时间倒序
+     * @param startTime 开始时间，为null时不限
+     * @param endTime 结束时间，为null时不限
+     * @param cursor 上一页返回的游标，首页为null
+     * @param size 每页条数
+     * @return 键集分页结果
+     */
+    KeysetPage<OperationLog> findLogsByTimeRange(LocalDateTime startTime, LocalDateTime endTime, String cursor, int size);
+
+    /**
+     * 键集分页查询失败的操作日志，按操作时间倒序
+     * @param since 从什么时间开始
+     * @param cursor 上一页返回的游标，首页为null
+     * @param size 每页条数
+     * @return 键集分页结果
+     */
+    KeysetPage<OperationLog> findFailedOperations(LocalDateTime since, String cursor, int size);
+
     /**
      * 获取操作统计信息
      * @param startTime 开始时间
@@ -170,6 +200,14 @@ public interface AuditLogService {
      * @return 导出的日志数据
      */
     byte[] exportLogs(Map<String, Object> filters, String format);
+
+    /**
+     * 流式导出日志，逐行从数据库读取并直接写入输出流，不在内存中保留结果集
+     * @param filters 过滤条件（userId、username、operation、module、result、startTime、endTime）
+     * @param format 导出格式（csv或json）
+     * @param outputStream 输出流
+     */
+    void exportLogs(Map<String, Object> filters, String format, OutputStream outputStream);
     
     /**
      * 记录密码修改事件
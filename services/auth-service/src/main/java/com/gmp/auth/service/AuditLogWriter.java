@@ -0,0 +1,572 @@
+package com.gmp.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.auth.entity.OperationLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审计日志异步批量写入器
+ * <p>
+ * 审计日志先进入有界队列，由单独的写入线程按批次取出并通过JDBC批量插入一次提交（组提交），
+ * 登录等高频操作不再在调用方事务中同步插入日志。
+ * <p>
+ * 为保证GMP审计记录的完整性，日志永不丢弃：
+ * <ul>
+ *     <li>队列已满时调用方最多等待{@code offer-timeout}，仍无空间则在调用线程同步写入（背压）</li>
+ *     <li>{@link Durability#SYNC_CRITICAL}：安全事件、用户和权限变更等关键事件同步写入，其余异步写入；
+ *     关键事件写入失败时抛出异常，由调用方的业务操作失败</li>
+ *     <li>{@link Durability#WRITE_AHEAD}：所有日志入队前先追加到本地预写文件，全部写入后截断，
+ *     启动时重放未截断的记录（至少一次语义，异常退出时可能产生重复记录）；
+ *     因数据库暂时不可用而写入失败的记录保留在预写文件中并定时重试</li>
+ *     <li>因数据库暂时不可用而写入失败的非关键记录在各模式下均定时重试；
+ *     ASYNC和SYNC_CRITICAL模式下重试队列已满或停止时仍未写入的记录转入死信文件</li>
+ *     <li>因数据本身违反约束而永远无法写入的记录转入本地死信文件，不阻塞其他记录</li>
+ * </ul>
+ */
+@Component
+public class AuditLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogWriter.class);
+
+    static final String INSERT_SQL = "INSERT INTO user_operation_logs (user_id, username, operation, module, action, "
+            + "result, ip_address, user_agent, request_data, response_data, operation_time, duration_ms, metadata) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 持久性模式
+     */
+    public enum Durability {
+        /**
+         * 全部异步写入，进程异常退出时可能丢失队列中的日志
+         */
+        ASYNC,
+        /**
+         * 关键事件同步写入，其余异步写入
+         */
+        SYNC_CRITICAL,
+        /**
+         * 全部日志先写入本地预写文件再异步写入数据库
+         */
+        WRITE_AHEAD
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${audit.writer.queue-capacity:8192}")
+    private int queueCapacity = 8192;
+
+    @Value("${audit.writer.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * 写入线程等待新日志的最长时间（毫秒），决定单条日志的最大写入延迟
+     */
+    @Value("${audit.writer.flush-interval:200}")
+    private long flushIntervalMillis = 200;
+
+    /**
+     * 队列已满时调用方的最长等待时间（毫秒），超时后在调用线程同步写入
+     */
+    @Value("${audit.writer.offer-timeout:50}")
+    private long offerTimeoutMillis = 50;
+
+    @Value("${audit.writer.durability:SYNC_CRITICAL}")
+    private Durability durability = Durability.SYNC_CRITICAL;
+
+    @Value("${audit.writer.wal-path:./data/audit-wal.log}")
+    private String walPath = "./data/audit-wal.log";
+
+    @Value("${audit.writer.dead-letter-path:./data/audit-dead-letter.log}")
+    private String deadLetterPath = "./data/audit-dead-letter.log";
+
+    /**
+     * 重试因数据库暂时不可用而写入失败的记录的间隔（毫秒）
+     */
+    @Value("${audit.writer.retry-interval:5000}")
+    private long retryIntervalMillis = 5000;
+
+    private BlockingQueue<OperationLog> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    // 预写文件，仅WRITE_AHEAD模式使用；写入与截断均在walLock内进行
+    private final Object walLock = new Object();
+    private BufferedWriter walWriter;
+    private long walAppended;
+    private long walFlushed;
+
+    // 待重试的记录，在walLock内访问；超过队列容量的部分在WRITE_AHEAD模式下只保留在预写文件中，
+    // 下次启动时重放，其他模式下转入死信文件
+    private final List<OperationLog> retryBacklog = new ArrayList<>();
+    private long lastRetryAt;
+
+    private Timer flushTimer;
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong syncWriteCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        MeterRegistry registry = meterRegistryProvider != null ? meterRegistryProvider.getIfAvailable() : null;
+        if (registry != null) {
+            registry.gauge("audit.writer.queue.depth", queue, BlockingQueue::size);
+            registry.gauge("audit.writer.written", writtenCount);
+            registry.gauge("audit.writer.sync.writes", syncWriteCount);
+            registry.gauge("audit.writer.failed", failedCount);
+            registry.gauge("audit.writer.dead.letters", deadLetterCount);
+            flushTimer = Timer.builder("audit.writer.flush.latency")
+                    .description("审计日志批量写入耗时")
+                    .register(registry);
+        }
+
+        if (durability == Durability.WRITE_AHEAD) {
+            openWriteAheadLog();
+        }
+
+        running = true;
+        flusher = new Thread(this::runFlusher, "audit-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 停止写入线程并写入队列中剩余的日志
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        List<OperationLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            complete(flush(remaining));
+        }
+        // 停止后仍未写入的记录在WRITE_AHEAD模式下保留在预写文件中，其他模式下转入死信文件
+        retryFailed(true);
+        truncateWriteAheadLogIfDrained();
+        closeWriteAheadLog();
+    }
+
+    /**
+     * 写入审计日志
+     *
+     * @param operationLog 审计日志
+     * @param critical 是否为关键事件，SYNC_CRITICAL模式下关键事件同步写入
+     */
+    public void write(OperationLog operationLog, boolean critical) {
+        if (operationLog == null) {
+            return;
+        }
+
+        if (!running || (critical && durability == Durability.SYNC_CRITICAL)) {
+            FlushResult result = writeSync(operationLog);
+            if (critical && result.written < 1) {
+                throw new IllegalStateException("关键审计日志写入失败: " + operationLog.getOperation());
+            }
+            if (!critical) {
+                complete(result);
+            }
+            return;
+        }
+
+        if (durability == Durability.WRITE_AHEAD) {
+            appendWriteAheadLog(operationLog);
+        }
+
+        boolean queued = queue.offer(operationLog);
+        if (!queued) {
+            try {
+                queued = queue.offer(operationLog, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!queued) {
+            // 队列持续满载，由调用线程承担写入，向上游施加背压
+            log.warn("审计日志队列已满，改为同步写入");
+            complete(writeSync(operationLog));
+        }
+    }
+
+    /**
+     * 获取当前队列深度
+     */
+    public int getQueueDepth() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    private FlushResult writeSync(OperationLog operationLog) {
+        syncWriteCount.incrementAndGet();
+        return flush(Collections.singletonList(operationLog));
+    }
+
+    private void runFlusher() {
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                OperationLog first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    retryFailed(false);
+                    truncateWriteAheadLogIfDrained();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                complete(flush(batch));
+            } catch (InterruptedException e) {
+                if (!running) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("审计日志写入线程异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 批量写入一组日志，批量失败时逐条重试以隔离有问题的记录；
+     * 违反数据约束的记录转入死信文件，其他原因失败的记录返回给调用方
+     *
+     * @return 写入结果
+     */
+    private FlushResult flush(List<OperationLog> batch) {
+        long start = System.nanoTime();
+        FlushResult result = new FlushResult();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind);
+            result.written = batch.size();
+        } catch (Exception e) {
+            log.warn("审计日志批量写入失败，逐条重试: {}", e.getMessage());
+            for (OperationLog operationLog : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, operationLog));
+                    result.written++;
+                } catch (Exception ex) {
+                    failedCount.incrementAndGet();
+                    log.error("审计日志写入失败: {}, 日志内容: {}", ex.getMessage(), describe(operationLog));
+                    if (ex instanceof DataIntegrityViolationException
+                            && writeDeadLetter(describe(operationLog), ex.getMessage())) {
+                        result.deadLettered++;
+                    } else {
+                        result.failed.add(operationLog);
+                    }
+                }
+            }
+        } finally {
+            writtenCount.addAndGet(result.written);
+            if (flushTimer != null) {
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将永远无法写入数据库的记录追加到死信文件，由人工核查后补录
+     *
+     * @return 是否已写入死信文件
+     */
+    private boolean writeDeadLetter(String record, String reason) {
+        Path path = Paths.get(deadLetterPath);
+        synchronized (walLock) {
+            try {
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)) {
+                    writer.write(record);
+                    writer.newLine();
+                }
+                deadLetterCount.incrementAndGet();
+                log.error("审计日志已转入死信文件{}: {}", deadLetterPath, reason);
+                return true;
+            } catch (IOException e) {
+                log.error("写入审计死信文件失败: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 处理一次写入的结果：暂时写入失败的记录加入重试队列，WRITE_AHEAD模式下同时记录已处理的预写记录数；
+     * 其他模式下没有预写文件兜底，重试队列已满或写入器已停止时转入死信文件
+     */
+    private void complete(FlushResult result) {
+        boolean writeAhead = durability == Durability.WRITE_AHEAD;
+        List<OperationLog> overflow = new ArrayList<>();
+        synchronized (walLock) {
+            if (writeAhead) {
+                walFlushed += result.written + result.deadLettered;
+            }
+            for (OperationLog failed : result.failed) {
+                if (running && retryBacklog.size() < queueCapacity) {
+                    retryBacklog.add(failed);
+                } else if (!writeAhead) {
+                    overflow.add(failed);
+                }
+            }
+        }
+        for (OperationLog failed : overflow) {
+            writeDeadLetter(describe(failed), "审计日志重试队列已满或写入器已停止");
+        }
+    }
+
+    /**
+     * 重试此前因数据库不可用而未写入的记录
+     *
+     * @param force 是否忽略重试间隔
+     */
+    private void retryFailed(boolean force) {
+        List<OperationLog> pending;
+        synchronized (walLock) {
+            long now = System.currentTimeMillis();
+            if (retryBacklog.isEmpty() || (!force && now - lastRetryAt < retryIntervalMillis)) {
+                return;
+            }
+            lastRetryAt = now;
+            pending = new ArrayList<>(retryBacklog);
+            retryBacklog.clear();
+        }
+        for (int i = 0; i < pending.size(); i += batchSize) {
+            complete(flush(pending.subList(i, Math.min(i + batchSize, pending.size()))));
+        }
+    }
+
+    private void bind(PreparedStatement ps, OperationLog operationLog) throws SQLException {
+        if (operationLog.getUserId() != null) {
+            ps.setLong(1, operationLog.getUserId());
+        } else {
+            ps.setNull(1, Types.BIGINT);
+        }
+        ps.setString(2, operationLog.getUsername());
+        ps.setString(3, operationLog.getOperation());
+        ps.setString(4, operationLog.getModule());
+        ps.setString(5, operationLog.getAction());
+        ps.setString(6, operationLog.getResult() != null ? operationLog.getResult().name() : null);
+        ps.setString(7, operationLog.getIpAddress());
+        ps.setString(8, operationLog.getUserAgent());
+        setJson(ps, 9, operationLog.getRequestData());
+        setJson(ps, 10, operationLog.getResponseData());
+        ps.setTimestamp(11, operationLog.getOperationTime() != null
+                ? Timestamp.valueOf(operationLog.getOperationTime()) : null);
+        if (operationLog.getDurationMs() != null) {
+            ps.setInt(12, operationLog.getDurationMs());
+        } else {
+            ps.setNull(12, Types.INTEGER);
+        }
+        setJson(ps, 13, operationLog.getMetadata());
+    }
+
+    /**
+     * JSON列在PostgreSQL中为jsonb类型，按未指定类型绑定，由数据库按目标列类型转换
+     */
+    private void setJson(PreparedStatement ps, int index, String json) throws SQLException {
+        if (json != null) {
+            ps.setObject(index, json, Types.OTHER);
+        } else {
+            ps.setNull(index, Types.OTHER);
+        }
+    }
+
+    private String describe(OperationLog operationLog) {
+        try {
+            return objectMapper.writeValueAsString(operationLog);
+        } catch (Exception e) {
+            return operationLog.getUsername() + "/" + operationLog.getOperation() + "/" + operationLog.getOperationTime();
+        }
+    }
+
+    private void openWriteAheadLog() {
+        Path path = Paths.get(walPath);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            List<OperationLog> unwritten = replayWriteAheadLog(path);
+            if (unwritten.isEmpty()) {
+                walWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                return;
+            }
+
+            // 重放未全部写入时只保留未写入的记录，由写入线程继续重试，成功前不截断
+            List<String> lines = new ArrayList<>(unwritten.size());
+            for (OperationLog operationLog : unwritten) {
+                lines.add(objectMapper.writeValueAsString(operationLog));
+            }
+            Path rewritten = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(rewritten, lines, StandardCharsets.UTF_8);
+            Files.move(rewritten, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            walWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            walAppended = unwritten.size();
+            retryBacklog.addAll(unwritten.subList(0, Math.min(unwritten.size(), queueCapacity)));
+            lastRetryAt = System.currentTimeMillis();
+            log.warn("审计预写文件中有{}条日志未能写入数据库，保留并稍后重试", unwritten.size());
+        } catch (IOException e) {
+            // 预写文件不可用时退化为关键事件同步写入，保证关键审计记录不丢失
+            log.error("无法打开审计预写文件{}，改用SYNC_CRITICAL模式: {}", walPath, e.getMessage());
+            durability = Durability.SYNC_CRITICAL;
+        }
+    }
+
+    /**
+     * 重放上次运行未写入数据库的日志
+     *
+     * @return 未写入数据库也未转入死信文件的日志
+     */
+    private List<OperationLog> replayWriteAheadLog(Path path) throws IOException {
+        List<OperationLog> unwritten = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return unwritten;
+        }
+
+        List<OperationLog> pending = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                pending.add(objectMapper.readValue(line, OperationLog.class));
+            } catch (Exception e) {
+                // 异常退出时最后一行可能不完整，原样转入死信文件
+                writeDeadLetter(line, "无法解析的审计预写记录: " + e.getMessage());
+            }
+        }
+
+        int written = 0;
+        for (int i = 0; i < pending.size(); i += batchSize) {
+            FlushResult result = flush(pending.subList(i, Math.min(i + batchSize, pending.size())));
+            written += result.written;
+            unwritten.addAll(result.failed);
+        }
+        if (!pending.isEmpty()) {
+            log.info("已重放审计预写文件中的日志: {}/{}", written, pending.size());
+        }
+        return unwritten;
+    }
+
+    private void appendWriteAheadLog(OperationLog operationLog) {
+        synchronized (walLock) {
+            if (walWriter == null) {
+                return;
+            }
+            try {
+                walWriter.write(objectMapper.writeValueAsString(operationLog));
+                walWriter.newLine();
+                walWriter.flush();
+                walAppended++;
+            } catch (IOException e) {
+                log.error("写入审计预写文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 预写文件中的日志全部写入数据库后截断文件
+     * 存在写入失败的日志时保留文件，下次启动时重放
+     */
+    private void truncateWriteAheadLogIfDrained() {
+        synchronized (walLock) {
+            if (walWriter == null || walAppended == 0 || walFlushed != walAppended) {
+                return;
+            }
+            try {
+                walWriter.close();
+                walWriter = Files.newBufferedWriter(Paths.get(walPath), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                walAppended = 0;
+                walFlushed = 0;
+            } catch (IOException e) {
+                log.error("截断审计预写文件失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeWriteAheadLog() {
+        synchronized (walLock) {
+            if (walWriter != null) {
+                try {
+                    walWriter.close();
+                } catch (IOException e) {
+                    log.warn("关闭审计预写文件失败: {}", e.getMessage());
+                }
+                walWriter = null;
+            }
+        }
+    }
+
+    /**
+     * 一次写入的结果
+     */
+    private static final class FlushResult {
+
+        private int written;
+        private int deadLettered;
+        private final List<OperationLog> failed = new ArrayList<>();
+    }
+}
@@ -0,0 +1,244 @@
+package com.gmp.auth.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 操作日志分区维护
+ * <p>
+ * user_operation_logs按operation_time以月为单位进行范围分区，分区命名为user_operation_logs_pYYYYMM，
+ * 带时间条件的查询由数据库裁剪到相关分区。定时任务提前创建未来月份的分区；保留期清理时将整月过期的分区
+ * 从主表分离后删除，只需短暂持有主表锁，不再逐行删除。
+ * <p>
+ * 数据库不是PostgreSQL或日志表未分区（如升级前的部署）时，所有分区操作均为空操作。
+ */
+@Component
+public class OperationLogPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(OperationLogPartitionManager.class);
+
+    static final String TABLE_NAME = "user_operation_logs";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE_NAME + "_p(\\d{6})");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String DETECT_SQL = "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table "
+            + "WHERE partrelid = to_regclass(?))";
+
+    private static final String LIST_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)";
+
+    /**
+     * 分区行数取统计信息中的估算值，不扫描分区；从未分析过的表为-1
+     */
+    private static final String ESTIMATE_ROWS_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 提前创建的月份数（不含当月）
+     */
+    @Value("${audit.partition.months-ahead:3}")
+    private int monthsAhead = 3;
+
+    /**
+     * 定时任务的日志保留天数，0表示不自动清理
+     */
+    @Value("${audit.partition.retention-days:0}")
+    private int retentionDays = 0;
+
+    /**
+     * 分离后是否删除分区表；为false时保留分离出的表，便于归档后再手工删除
+     */
+    @Value("${audit.partition.drop-detached:true}")
+    private boolean dropDetached = true;
+
+    /**
+     * 创建和分离分区时等待主表锁的最长时间（毫秒），超时则放弃本次操作，避免阻塞日志写入
+     */
+    @Value("${audit.partition.lock-timeout:5000}")
+    private long lockTimeoutMillis = 5000;
+
+    private volatile Boolean partitioned;
+
+    @PostConstruct
+    public void init() {
+        try {
+            createFuturePartitions();
+        } catch (DataAccessException e) {
+            log.warn("初始化操作日志分区失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时维护：创建未来月份的分区，并按配置的保留期清理过期分区
+     */
+    @Scheduled(cron = "${audit.partition.maintenance-cron:0 30 1 * * *}")
+    public void maintain() {
+        try {
+            createFuturePartitions();
+            if (retentionDays > 0) {
+                purgePartitionsBefore(LocalDateTime.now().minusDays(retentionDays));
+            }
+        } catch (DataAccessException e) {
+            log.error("操作日志分区维护失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 检查操作日志表是否为分区表
+     */
+    public boolean isPartitioned() {
+        Boolean result = partitioned;
+        if (result == null) {
+            result = detect();
+            partitioned = result;
+        }
+        return result;
+    }
+
+    /**
+     * 创建当月及未来{@code months-ahead}个月中缺失的分区
+     *
+     * @return 新建的分区数
+     */
+    public int createFuturePartitions() {
+        if (!isPartitioned()) {
+            return 0;
+        }
+
+        NavigableMap<YearMonth, String> existing = listPartitions();
+        YearMonth current = YearMonth.now();
+        int created = 0;
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (existing.containsKey(month)) {
+                continue;
+            }
+            try {
+                createPartition(month);
+                created++;
+            } catch (DataAccessException e) {
+                log.error("创建操作日志分区 {} 失败: {}", partitionName(month), e.getMessage());
+            }
+        }
+        if (created > 0) {
+            log.info("已创建{}个操作日志分区", created);
+        }
+        return created;
+    }
+
+    /**
+     * 分离上界不晚于截止时间的所有分区，即分区内全部日志都早于截止时间
+     * <p>
+     * 在调用方事务之外执行，每条DDL单独提交，主表锁只在分离语句期间持有。
+     *
+     * @param cutoff 截止时间
+     * @return 移出主表的日志条数，按表统计信息估算
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long purgePartitionsBefore(LocalDateTime cutoff) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+
+        long removed = 0;
+        for (Map.Entry<YearMonth, String> entry : listPartitions().entrySet()) {
+            LocalDateTime upperBound = entry.getKey().plusMonths(1).atDay(1).atStartOfDay();
+            if (upperBound.isAfter(cutoff)) {
+                break;
+            }
+            removed += detachPartition(entry.getValue());
+        }
+        return removed;
+    }
+
+    private boolean detect() {
+        try {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) con ->
+                    con.getMetaData().getDatabaseProductName());
+            if (!"PostgreSQL".equalsIgnoreCase(product)) {
+                return false;
+            }
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(DETECT_SQL, Boolean.class, TABLE_NAME));
+        } catch (DataAccessException e) {
+            log.warn("无法检测操作日志表分区状态: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 列出按月份排序的现有分区，忽略不符合命名规则的分区（如默认分区）
+     */
+    private NavigableMap<YearMonth, String> listPartitions() {
+        NavigableMap<YearMonth, String> partitions = new TreeMap<>();
+        for (String name : jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class, TABLE_NAME)) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                partitions.put(YearMonth.parse(matcher.group(1), PARTITION_SUFFIX), name);
+            }
+        }
+        return partitions;
+    }
+
+    private void createPartition(YearMonth month) {
+        String ddl = String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), TABLE_NAME, month.atDay(1), month.plusMonths(1).atDay(1));
+        executeWithLockTimeout(ddl);
+        log.debug("创建操作日志分区: {}", partitionName(month));
+    }
+
+    private long detachPartition(String name) {
+        Long estimate = jdbcTemplate.queryForObject(ESTIMATE_ROWS_SQL, Long.class, name);
+        long rows = estimate != null ? Math.max(estimate, 0) : 0;
+        executeWithLockTimeout("ALTER TABLE " + TABLE_NAME + " DETACH PARTITION " + name);
+        if (dropDetached) {
+            // 分离后的表不再关联主表，删除时不影响主表的读写
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+        }
+        log.info("已分离操作日志分区 {}，约{}条日志{}", name, rows, dropDetached ? "，分区表已删除" : "");
+        return rows;
+    }
+
+    /**
+     * 在同一连接上设置锁等待超时后执行DDL，执行完毕后恢复会话设置
+     */
+    private void executeWithLockTimeout(String ddl) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SET lock_timeout = " + lockTimeoutMillis);
+                try {
+                    statement.execute(ddl);
+                } finally {
+                    statement.execute("RESET lock_timeout");
+                }
+            }
+            return null;
+        });
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE_NAME + "_p" + month.format(PARTITION_SUFFIX);
+    }
+}
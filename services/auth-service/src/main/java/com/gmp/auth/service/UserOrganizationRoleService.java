@@ -3,6 +3,7 @@ package com.gmp.auth.service;
 import com.gmp.auth.entity.UserOrganizationRole;
 import com.gmp.auth.entity.Role;
 import com.gmp.auth.entity.Organization;
+import com.gmp.auth.model.UserAccessSnapshot;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -65,6 +66,14 @@ public interface UserOrganizationRoleService {
      */
     List<UserOrganizationRole> getUserOrganizationRolesInOrganization(Long userId, Long organizationId);
     
+    /**
+     * 一次性解析用户的有效访问权限（组织、角色、权限、子系统）
+     * 无论用户拥有多少角色，均只执行固定次数的查询
+     * @param userId 用户ID
+     * @return 用户访问权限快照
+     */
+    UserAccessSnapshot resolveUserAccess(Long userId);
+    
     /**
      * 获取用户拥有的所有组织
      * @param userId 用户ID
@@ -0,0 +1,221 @@
+package com.gmp.auth.service;
+
+import com.gmp.auth.util.TokenDigestUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已验证令牌缓存
+ * <p>
+ * 以令牌的SHA-256摘要为键，缓存签名验证通过后解析出的声明和加载的用户详情，
+ * 使同一令牌的后续请求无需重复进行HMAC验签和数据库用户查询。
+ * 条目的有效期取令牌自身过期时间与最大缓存时长中的较小值，缓存总量受最大条目数限制。
+ * 令牌登出或加入黑名单时必须调用{@link #invalidate(String)}使对应条目失效。
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    /**
+     * 最大缓存条目数
+     */
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int maxSize = 10000;
+
+    /**
+     * 单个条目最长缓存时间（毫秒），用于限制用户状态变更（锁定、禁用）的生效延迟
+     */
+    @Value("${jwt.verified-cache.max-ttl:300000}")
+    private long maxTtlMillis = 300000;
+
+    // key为令牌摘要，value为已验证的令牌信息
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+
+    private final Object evictionLock = new Object();
+
+    /**
+     * 获取已验证的令牌信息
+     *
+     * @param token JWT令牌
+     * @return 缓存的令牌信息，不存在或已过期时返回null
+     */
+    public VerifiedToken get(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        String digest = TokenDigestUtil.sha256Hex(token);
+        VerifiedToken verified = entries.get(digest);
+        if (verified == null) {
+            return null;
+        }
+
+        if (verified.isExpired(System.currentTimeMillis())) {
+            entries.remove(digest, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * 缓存已验证的令牌信息
+     *
+     * @param token JWT令牌
+     * @param username 用户名
+     * @param roles 令牌中的角色
+     * @param permissions 令牌中的权限
+     * @param userDetails 已加载的用户详情
+     * @param tokenExpiration 令牌过期时间，可为null
+     * @return 缓存的令牌信息
+     */
+    public VerifiedToken put(String token, String username, Collection<String> roles, List<String> permissions,
+                             UserDetails userDetails, Date tokenExpiration) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + maxTtlMillis;
+        if (tokenExpiration != null) {
+            expiresAt = Math.min(expiresAt, tokenExpiration.getTime());
+        }
+
+        VerifiedToken verified = new VerifiedToken(username, roles, permissions, userDetails, expiresAt);
+        if (expiresAt <= now) {
+            // 已过期的令牌不进入缓存
+            return verified;
+        }
+
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(TokenDigestUtil.sha256Hex(token), verified);
+        return verified;
+    }
+
+    /**
+     * 使指定令牌的缓存条目失效
+     *
+     * @param token JWT令牌
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            invalidateDigest(TokenDigestUtil.sha256Hex(token));
+        }
+    }
+
+    /**
+     * 按令牌摘要使缓存条目失效，用于只持有摘要的场景（如跨节点的撤销通知）
+     *
+     * @param digest 令牌的十六进制SHA-256摘要
+     */
+    public void invalidateDigest(String digest) {
+        if (digest != null && entries.remove(digest) != null) {
+            log.debug("已验证令牌缓存条目已失效");
+        }
+    }
+
+    /**
+     * 使指定用户的全部缓存条目失效，用于用户被锁定、禁用或修改密码等场景
+     *
+     * @param username 用户名
+     */
+    public void invalidateUser(String username) {
+        if (username != null) {
+            entries.values().removeIf(verified -> username.equals(verified.getUsername()));
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 获取当前缓存条目数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 淘汰缓存条目：先清理过期条目，仍超限时按哈希顺序近似随机地淘汰十分之一
+     */
+    private void evict(long now) {
+        synchronized (evictionLock) {
+            if (entries.size() < maxSize) {
+                return;
+            }
+
+            entries.values().removeIf(verified -> verified.isExpired(now));
+
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<VerifiedToken> iterator = entries.values().iterator();
+            while (entries.size() > target && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * 已验证令牌信息，创建后不可变
+     */
+    public static class VerifiedToken {
+        private final String username;
+        private final Set<String> roles;
+        private final List<String> permissions;
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        public VerifiedToken(String username, Collection<String> roles, List<String> permissions,
+                             UserDetails userDetails, long expiresAt) {
+            this.username = username;
+            this.roles = roles != null
+                    ? Collections.unmodifiableSet(new LinkedHashSet<>(roles))
+                    : Collections.emptySet();
+            this.permissions = permissions != null
+                    ? Collections.unmodifiableList(new ArrayList<>(permissions))
+                    : Collections.emptyList();
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Set<String> getRoles() {
+            return roles;
+        }
+
+        public List<String> getPermissions() {
+            return permissions;
+        }
+
+        public UserDetails getUserDetails() {
+            return userDetails;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
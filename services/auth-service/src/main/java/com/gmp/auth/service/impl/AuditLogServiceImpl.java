@@ -1,24 +1,45 @@
 package com.gmp.auth.service.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.auth.dto.KeysetPage;
 import com.gmp.auth.entity.OperationLog;
 import com.gmp.auth.repository.OperationLogRepository;
 import com.gmp.auth.service.AuditLogService;
+import com.gmp.auth.service.AuditLogWriter;
+import com.gmp.auth.service.OperationLogPartitionManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * 审计日志服务实现类
@@ -31,11 +52,32 @@ public class AuditLogServiceImpl implements AuditLogService {
 
     private static final Logger logger = LoggerFactory.getLogger(AuditLogServiceImpl.class);
 
+    // 未指定时间范围时使用的边界，避免向数据库传入null参数
+    private static final LocalDateTime MIN_OPERATION_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_OPERATION_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private static final int MAX_KEYSET_PAGE_SIZE = 1000;
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String[] EXPORT_COLUMNS = {"id", "user_id", "username", "operation", "module", "action",
+            "result", "ip_address", "user_agent", "request_data", "response_data", "operation_time", "duration_ms",
+            "metadata"};
+
     @Autowired
     private OperationLogRepository operationLogRepository;
 
     @Autowired
     private ObjectMapper objectMapper;
+
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OperationLogPartitionManager partitionManager;
     
     @Override
     public void logLogout(String username) {
@@ -69,42 +111,63 @@ public class AuditLogServiceImpl implements AuditLogService {
     
     @Override
     public void logPasswordReset(Long userId, String username, String ipAddress) {
-        // 简化实现，避免使用可能不存在的常量
         OperationLog log = OperationLog.builder()
                 .userId(userId)
                 .username(username)
+                .operation(OperationLog.OperationType.USER_UPDATE.name())
+                .module(OperationLog.Module.AUTH.name())
+                .action("密码重置")
                 .ipAddress(ipAddress)
                 .build();
-        logOperation(log);
+        record(log, true);
     }
     
     @Override
     public void logPasswordChange(Long userId, String username, String ipAddress) {
-        // 简化实现
         OperationLog log = OperationLog.builder()
                 .userId(userId)
                 .username(username)
+                .operation(OperationLog.OperationType.USER_UPDATE.name())
+                .module(OperationLog.Module.AUTH.name())
+                .action("密码修改")
                 .ipAddress(ipAddress)
                 .build();
-        logOperation(log);
+        record(log, true);
     }
     
     @Override
     public void logLoginSuccess(Long userId, String username, String ipAddress, String userAgent) {
-        // 简化实现
         OperationLog log = OperationLog.builder()
                 .userId(userId)
                 .username(username)
+                .operation(OperationLog.OperationType.LOGIN.name())
+                .module(OperationLog.Module.AUTH.name())
+                .action("用户登录成功")
                 .ipAddress(ipAddress)
+                .userAgent(userAgent)
                 .build();
         logOperation(log);
     }
 
+    /**
+     * 记录操作日志
+     * 日志交由异步批量写入器写入，不在调用方事务中执行插入，返回的日志对象不包含数据库ID
+     */
     @Override
-    @Transactional
     public OperationLog logOperation(OperationLog log) {
+        return record(log, false);
+    }
+
+    /**
+     * 将日志交给写入器
+     *
+     * @param log 操作日志
+     * @param critical 是否为关键事件（安全事件、用户与权限变更），按持久性模式可能同步写入
+     */
+    private OperationLog record(OperationLog log, boolean critical) {
         try {
-            return operationLogRepository.save(log);
+            auditLogWriter.write(log, critical);
+            return log;
         } catch (Exception e) {
             logger.error("Failed to log operation: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to log operation", e);
@@ -169,7 +232,7 @@ public class AuditLogServiceImpl implements AuditLogService {
             logger.warn("Failed to serialize user management metadata: {}", e.getMessage());
         }
 
-        return logOperation(log);
+        return record(log, true);
     }
 
     @Override
@@ -196,7 +259,7 @@ public class AuditLogServiceImpl implements AuditLogService {
             logger.warn("Failed to serialize role permission metadata: {}", e.getMessage());
         }
 
-        return logOperation(log);
+        return record(log, true);
     }
 
     @Override
@@ -229,7 +292,7 @@ public class AuditLogServiceImpl implements AuditLogService {
             logger.warn("Failed to serialize role assignment metadata: {}", e.getMessage());
         }
 
-        return logOperation(log);
+        return record(log, true);
     }
 
     @Override
@@ -259,7 +322,7 @@ public class AuditLogServiceImpl implements AuditLogService {
             logger.warn("Failed to serialize security event metadata: {}", e.getMessage());
         }
 
-        return logOperation(log);
+        return record(log, true);
     }
 
     @Override
@@ -271,63 +334,65 @@ public class AuditLogServiceImpl implements AuditLogService {
 
     @Override
     public Page<OperationLog> findLogsByUserId(Long userId, Pageable pageable) {
-        List<OperationLog> logs = operationLogRepository.findByUserIdOrderByOperationTimeDesc(userId);
-        int start = Math.min((int) pageable.getOffset(), logs.size());
-        int end = Math.min((start + pageable.getPageSize()), logs.size());
-        return new org.springframework.data.domain.PageImpl<>(
-                logs.subList(start, end),
-                pageable,
-                logs.size()
-        );
+        return operationLogRepository.findByUserId(userId, withDefaultSort(pageable));
     }
 
     @Override
     public Page<OperationLog> findLogsByTimeRange(LocalDateTime startTime, LocalDateTime endTime, Pageable pageable) {
-        List<OperationLog> logs = operationLogRepository.findByOperationTimeBetween(startTime, endTime);
-        int start = Math.min((int) pageable.getOffset(), logs.size());
-        int end = Math.min((start + pageable.getPageSize()), logs.size());
-        return new org.springframework.data.domain.PageImpl<>(
-                logs.subList(start, end),
-                pageable,
-                logs.size()
-        );
+        if (startTime == null && endTime == null) {
+            return operationLogRepository.findAll(withDefaultSort(pageable));
+        }
+        return operationLogRepository.findByOperationTimeBetween(lowerBound(startTime), upperBound(endTime),
+                withDefaultSort(pageable));
     }
 
     @Override
     public Page<OperationLog> findFailedOperations(LocalDateTime since, Pageable pageable) {
-        List<OperationLog> logs = operationLogRepository.findFailedOperationsSince(since);
-        int start = Math.min((int) pageable.getOffset(), logs.size());
-        int end = Math.min((start + pageable.getPageSize()), logs.size());
-        return new org.springframework.data.domain.PageImpl<>(
-                logs.subList(start, end),
-                pageable,
-                logs.size()
-        );
+        return operationLogRepository.findByResultAndOperationTimeGreaterThanEqual(OperationLog.Result.FAILED,
+                lowerBound(since), withDefaultSort(pageable));
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findLogsByUserId(Long userId, String cursor, int size) {
+        LogCursor position = LogCursor.decode(cursor);
+        int limit = keysetPageSize(size);
+        return toKeysetPage(operationLogRepository.findByUserIdAfterCursor(
+                userId, position.operationTime, position.id, PageRequest.of(0, limit + 1)), limit);
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findLogsByTimeRange(LocalDateTime startTime, LocalDateTime endTime,
+                                                        String cursor, int size) {
+        LogCursor position = LogCursor.decode(cursor);
+        int limit = keysetPageSize(size);
+        return toKeysetPage(operationLogRepository.findByTimeRangeAfterCursor(lowerBound(startTime),
+                upperBound(endTime), position.operationTime, position.id, PageRequest.of(0, limit + 1)), limit);
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findFailedOperations(LocalDateTime since, String cursor, int size) {
+        LogCursor position = LogCursor.decode(cursor);
+        int limit = keysetPageSize(size);
+        return toKeysetPage(operationLogRepository.findFailedAfterCursor(
+                lowerBound(since), position.operationTime, position.id, PageRequest.of(0, limit + 1)), limit);
     }
 
     @Override
     public Map<String, Object> getOperationStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        List<OperationLog> logs = operationLogRepository.findByOperationTimeBetween(startTime, endTime);
-        
+        LocalDateTime from = lowerBound(startTime);
+        LocalDateTime to = upperBound(endTime);
+
+        // 由数据库完成分组计数，只返回聚合结果
+        Map<String, Long> resultStats = toCountMap(operationLogRepository.countByResult(from, to));
+        long totalOperations = resultStats.values().stream().mapToLong(Long::longValue).sum();
+        long successCount = resultStats.getOrDefault(OperationLog.Result.SUCCESS.name(), 0L);
+
         Map<String, Object> statistics = new HashMap<>();
-        statistics.put("totalOperations", logs.size());
-        
-        // 按结果统计
-        long successCount = logs.stream().filter(log -> log.getResult() == OperationLog.Result.SUCCESS).count();
-        long failedCount = logs.size() - successCount;
+        statistics.put("totalOperations", totalOperations);
         statistics.put("successCount", successCount);
-        statistics.put("failedCount", failedCount);
-        
-        // 按操作类型统计
-        Map<String, Long> operationTypeStats = logs.stream()
-                .collect(Collectors.groupingBy(OperationLog::getOperation, Collectors.counting()));
-        statistics.put("operationTypeStats", operationTypeStats);
-        
-        // 按模块统计
-        Map<String, Long> moduleStats = logs.stream()
-                .collect(Collectors.groupingBy(OperationLog::getModule, Collectors.counting()));
-        statistics.put("moduleStats", moduleStats);
-        
+        statistics.put("failedCount", totalOperations - successCount);
+        statistics.put("operationTypeStats", toCountMap(operationLogRepository.countByOperation(from, to)));
+        statistics.put("moduleStats", toCountMap(operationLogRepository.countByModule(from, to)));
         return statistics;
     }
 
@@ -336,11 +401,11 @@ public class AuditLogServiceImpl implements AuditLogService {
     public int cleanupOldLogs(int daysToKeep) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
         try {
-            List<OperationLog> oldLogs = operationLogRepository.findByOperationTimeBetween(
-                    LocalDateTime.MIN, cutoffDate);
-            int count = oldLogs.size();
-            operationLogRepository.deleteLogsBefore(cutoffDate);
-            return count;
+            // 整月过期的分区直接分离删除，截止时间所在月份的剩余日志由数据库裁剪到单个分区后批量删除
+            // 分离的分区不逐行计数，条数取统计信息中的估算值
+            long purged = partitionManager.purgePartitionsBefore(cutoffDate);
+            long deleted = purged + operationLogRepository.deleteLogsBefore(cutoffDate);
+            return (int) Math.min(deleted, Integer.MAX_VALUE);
         } catch (Exception e) {
             logger.error("Failed to cleanup old logs: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to cleanup old logs", e);
@@ -349,23 +414,241 @@ public class AuditLogServiceImpl implements AuditLogService {
 
     @Override
     public byte[] exportLogs(Map<String, Object> filters, String format) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportLogs(filters, format, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportLogs(Map<String, Object> filters, String format, OutputStream outputStream) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"json".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT id, user_id, username, operation, module, action, result, "
+                + "ip_address, user_agent, request_data, response_data, operation_time, duration_ms, metadata "
+                + "FROM user_operation_logs WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        appendExportFilters(filters != null ? filters : Collections.emptyMap(), sql, args);
+        sql.append(" ORDER BY operation_time DESC, id DESC");
+
         try {
-            // 获取要导出的日志
-            List<OperationLog> logs = operationLogRepository.findAll();
-            
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            // 暂时只支持JSON格式导出
-            if ("json".equalsIgnoreCase(format)) {
-                objectMapper.writerWithDefaultPrettyPrinter().writeValue(outputStream, logs);
-            } else {
-                throw new IllegalArgumentException("Unsupported export format: " + format);
-            }
-            
-            return outputStream.toByteArray();
-        } catch (IOException e) {
+            LogRowWriter rowWriter = csv ? new CsvLogRowWriter(outputStream) : new JsonLogRowWriter(outputStream);
+            // 在只读事务中使用游标按批次读取，PostgreSQL只有在非自动提交模式下才会按fetchSize分批返回
+            jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(EXPORT_FETCH_SIZE);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                return ps;
+            }, (RowCallbackHandler) rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            rowWriter.finish();
+        } catch (IOException | UncheckedIOException e) {
             logger.error("Failed to export logs: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to export logs", e);
         }
     }
-}
\ No newline at end of file
+
+    private void appendExportFilters(Map<String, Object> filters, StringBuilder sql, List<Object> args) {
+        Object userId = filters.get("userId");
+        if (userId != null && StringUtils.hasText(userId.toString())) {
+            sql.append(" AND user_id = ?");
+            args.add(Long.valueOf(userId.toString()));
+        }
+        for (String column : new String[]{"username", "operation", "module", "result"}) {
+            Object value = filters.get(column);
+            if (value != null && StringUtils.hasText(value.toString())) {
+                sql.append(" AND ").append(column).append(" = ?");
+                args.add(value.toString());
+            }
+        }
+        LocalDateTime startTime = toDateTime(filters.get("startTime"));
+        if (startTime != null) {
+            sql.append(" AND operation_time >= ?");
+            args.add(Timestamp.valueOf(startTime));
+        }
+        LocalDateTime endTime = toDateTime(filters.get("endTime"));
+        if (endTime != null) {
+            sql.append(" AND operation_time <= ?");
+            args.add(Timestamp.valueOf(endTime));
+        }
+    }
+
+    private LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value != null && StringUtils.hasText(value.toString())) {
+            return LocalDateTime.parse(value.toString());
+        }
+        return null;
+    }
+
+    private Pageable withDefaultSort(Pageable pageable) {
+        if (pageable.isPaged() && pageable.getSort().isUnsorted()) {
+            return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                    Sort.by(Sort.Direction.DESC, "operationTime", "id"));
+        }
+        return pageable;
+    }
+
+    private static LocalDateTime lowerBound(LocalDateTime time) {
+        return time != null ? time : MIN_OPERATION_TIME;
+    }
+
+    private static LocalDateTime upperBound(LocalDateTime time) {
+        return time != null ? time : MAX_OPERATION_TIME;
+    }
+
+    private static int keysetPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_KEYSET_PAGE_SIZE));
+    }
+
+    /**
+     * 多取一条判断是否还有下一页，游标指向本页最后一条记录
+     */
+    private static KeysetPage<OperationLog> toKeysetPage(List<OperationLog> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<OperationLog> content = rows.subList(0, limit);
+        OperationLog last = content.get(limit - 1);
+        return new KeysetPage<>(new ArrayList<>(content), LogCursor.encode(last.getOperationTime(), last.getId()));
+    }
+
+    private static Map<String, Long> toCountMap(List<Object[]> rows) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            Object key = row[0] instanceof Enum ? ((Enum<?>) row[0]).name() : row[0];
+            counts.put(String.valueOf(key), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * 键集分页游标，由最后一条记录的(操作时间, ID)编码而成
+     */
+    private static final class LogCursor {
+        private static final LogCursor FIRST_PAGE = new LogCursor(MAX_OPERATION_TIME, Long.MAX_VALUE);
+
+        private final LocalDateTime operationTime;
+        private final Long id;
+
+        private LogCursor(LocalDateTime operationTime, Long id) {
+            this.operationTime = operationTime;
+            this.id = id;
+        }
+
+        static String encode(LocalDateTime operationTime, Long id) {
+            String raw = operationTime + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static LogCursor decode(String cursor) {
+            if (!StringUtils.hasText(cursor)) {
+                return FIRST_PAGE;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new LogCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.valueOf(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的分页游标: " + cursor);
+            }
+        }
+    }
+
+    /**
+     * 导出行写入器
+     */
+    private interface LogRowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * CSV格式导出，带UTF-8 BOM以便电子表格软件正确识别中文
+     */
+    private static final class CsvLogRowWriter implements LogRowWriter {
+        private final Writer writer;
+
+        CsvLogRowWriter(OutputStream outputStream) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write('\uFEFF');
+            writer.write(String.join(",", EXPORT_COLUMNS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < EXPORT_COLUMNS.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(EXPORT_COLUMNS[i]);
+                if (value != null) {
+                    writer.write(escapeCsv(value.toString()));
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String escapeCsv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /**
+     * JSON数组格式导出，逐条写入不构建完整的对象列表
+     */
+    private final class JsonLogRowWriter implements LogRowWriter {
+        private final JsonGenerator generator;
+
+        JsonLogRowWriter(OutputStream outputStream) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (String column : EXPORT_COLUMNS) {
+                Object value = rs.getObject(column);
+                if (value instanceof Timestamp) {
+                    generator.writeStringField(column, ((Timestamp) value).toLocalDateTime().toString());
+                } else if (value instanceof Number) {
+                    generator.writeNumberField(column, ((Number) value).longValue());
+                } else {
+                    generator.writeStringField(column, value != null ? value.toString() : null);
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+        }
+    }
+}
@@ -9,7 +9,9 @@ import com.gmp.auth.dto.MfaVerifyRequest;
 import com.gmp.auth.entity.User;
 import com.gmp.auth.exception.TokenException;
 import com.gmp.auth.model.CustomUserDetails;
+import com.gmp.auth.model.UserAccessSnapshot;
 import com.gmp.auth.repository.UserRepository;
+import com.gmp.auth.service.AccessDecisionEngine;
 import com.gmp.auth.service.AuthService;
 import com.gmp.auth.service.AuditLogService;
 import com.gmp.auth.service.PasswordPolicyService;
@@ -39,6 +41,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -51,6 +54,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.stream.Collectors;
 import java.lang.reflect.Field;
 
@@ -99,6 +103,9 @@ public class AuthServiceImpl implements AuthService {
     
     @Autowired
     private PasswordPolicyService passwordPolicyService;
+    
+    @Autowired
+    private AccessDecisionEngine accessDecisionEngine;
 
     // 暂时注释掉这些依赖，避免编译错误
     // @Autowired
@@ -240,23 +247,17 @@ public class AuthServiceImpl implements AuthService {
             String accessToken = jwtUtil.generateRefreshToken(userDetails); // 使用相同的方法生成访问令牌
             String refreshToken = jwtUtil.generateRefreshToken(userDetails); // 生成刷新令牌
             
-            // 设置用户角色 - 修复角色数量问题
-            List<String> roles = new ArrayList<>();
-            if (organizationId != null) {
-                Set<String> roleSet = userOrganizationRoleService.getUserRoleCodesInOrganization(user.getId(), organizationId);
-                roles = new ArrayList<>(roleSet);
-            } else {
-                // 当没有提供组织ID时，使用userRoleService获取角色
-                Set<String> userRoles = userRoleService.getUserRoleCodes(user.getId());
-                roles = new ArrayList<>(userRoles);
+            // 一次解析用户的组织角色图，角色、权限和子系统访问都从同一个快照中读取
+            UserAccessSnapshot access = userOrganizationRoleService.resolveUserAccess(user.getId());
+            Set<String> roleSet = new LinkedHashSet<>(access.getRoleCodes(organizationId));
+            if (organizationId == null) {
+                // 没有提供组织ID时同时包含不属于任何组织的全局角色
+                roleSet.addAll(userRoleService.getUserRoleCodes(user.getId()));
             }
-            
-            // 设置用户权限
-            List<String> permissions = getUserPermissions(user.getId(), organizationId);
-            
-            // 获取用户可访问的子系统信息
-            List<String> accessibleSubsystems = getUserAccessibleSubsystems(user.getId(), organizationId);
-            Map<String, Integer> subsystemAccessLevels = getUserSubsystemAccessLevels(user.getId(), organizationId);
+            List<String> roles = new ArrayList<>(roleSet);
+            List<String> permissions = new ArrayList<>(access.getPermissionCodes(organizationId));
+            List<String> accessibleSubsystems = new ArrayList<>(access.getAccessibleSubsystems(organizationId));
+            Map<String, Integer> subsystemAccessLevels = access.getSubsystemAccessLevels(organizationId);
             
             // 设置响应
             response.setAccessToken(accessToken);
@@ -413,23 +414,10 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasPermission(String username, String... requiredPermissions) {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
-        
-        // 获取用户在所有组织中的权限
-        Set<String> allPermissions = userOrganizationRoleService.getUserPermissionCodesAcrossOrganizations(user.getId());
-        
-        if (allPermissions == null || allPermissions.isEmpty()) {
-            return false;
-        }
-        
-        for (String permission : requiredPermissions) {
-            if (!allPermissions.contains(permission)) {
-                return false;
-            }
-        }
-        return true;
+        // 使用编译后的权限位图判定用户在所有组织中的权限
+        return getAccessDecision(username).hasAllPermissions(null, requiredPermissions);
     }
 
     @Override
@@ -497,13 +485,8 @@ public class AuthServiceImpl implements AuthService {
             // 获取用户在特定组织中的角色
             allRoles = userOrganizationRoleService.getUserRoleCodesInOrganization(userId, organizationId);
         } else {
-            // 获取用户在所有组织中的角色
-            allRoles = new HashSet<>();
-            Set<Long> organizationIds = userOrganizationRoleService.getUserOrganizations(userId);
-            for (Long orgId : organizationIds) {
-                Set<String> rolesInOrg = userOrganizationRoleService.getUserRoleCodesInOrganization(userId, orgId);
-                allRoles.addAll(rolesInOrg);
-            }
+            // 获取用户在所有组织中的角色，从一次解析的组织角色图中合并
+            allRoles = new HashSet<>(userOrganizationRoleService.resolveUserAccess(userId).getRoleCodes(null));
         }
         
         return allRoles;
@@ -847,40 +830,20 @@ public class AuthServiceImpl implements AuthService {
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Integer getSubsystemAccessLevel(String username, String subsystemCode) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
-        
         // 获取用户在所有组织中的访问级别，取最高级别
-        // 由于缺少Organization类和organizationRepository，这里简化处理
-        // List<Organization> organizations = organizationRepository.findAll();
-        // 改为获取用户关联的组织ID
-        Set<Long> organizationIds = userOrganizationRoleService.getUserOrganizations(user.getId());
-        Integer maxAccessLevel = 0;
-        
-        for (Long orgId : organizationIds) {
-            // 检查用户是否在该组织中有访问权限
-            if (userOrganizationRoleService.hasOrganizationAccess(user.getId(), orgId)) {
-                // 获取用户在该组织中的子系统访问级别
-                  Map<String, Integer> orgAccessLevels = userOrganizationRoleService.getUserSubsystemAccessLevels(user.getId(), orgId);
-                Integer accessLevel = orgAccessLevels.get(subsystemCode);
-                if (accessLevel != null && accessLevel > maxAccessLevel) {
-                    maxAccessLevel = accessLevel;
-                }
-            }
-        }
-        
-        return maxAccessLevel;
+        return getAccessDecision(username).getSubsystemLevel(null, subsystemCode);
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemAccess(String username, String subsystemCode) {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
+        if (subsystemCode == null) {
+            return false;
+        }
         
-        return hasSubsystemAccess(user.getId(), null, subsystemCode);
+        return getAccessDecision(username).hasSubsystemAccess(null, subsystemCode);
     }
     
     /**
@@ -890,15 +853,14 @@ public class AuthServiceImpl implements AuthService {
      * @param subsystemCode 子系统代码
      * @return 有权限返回true，否则返回false
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemAccess(Long userId, Long organizationId, String subsystemCode) {
         if (userId == null || subsystemCode == null) {
             return false;
         }
         
         try {
-            // 获取用户可访问的子系统
-            List<String> accessibleSubsystems = getUserAccessibleSubsystems(userId, organizationId);
-            return accessibleSubsystems != null && accessibleSubsystems.contains(subsystemCode);
+            return getAccessDecision(userId).hasSubsystemAccess(organizationId, subsystemCode);
         } catch (Exception e) {
             logger.error("检查用户子系统访问权限时出错: userId={}, subsystemCode={}, error={}", 
                         userId, subsystemCode, e.getMessage());
@@ -908,7 +870,7 @@ public class AuthServiceImpl implements AuthService {
     
     @Override
     @Cacheable(value = "userAccessibleSubsystems", key = "#username")
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<String> getUserAccessibleSubsystems(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
@@ -917,7 +879,7 @@ public class AuthServiceImpl implements AuthService {
     
     @Override
     @Cacheable(value = "userSubsystemAccessLevels", key = "#username")
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Integer> getUserSubsystemAccessLevels(String username) {
         User user = userRepository.findByUsername(username)
             .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
@@ -925,7 +887,7 @@ public class AuthServiceImpl implements AuthService {
     }
     
     @Cacheable(value = "userAccessibleSubsystems", key = "#userId + '-' + #organizationId")
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<String> getUserAccessibleSubsystems(Long userId, Long organizationId) {
         if (userId == null) {
             return Collections.emptyList();
@@ -941,7 +903,7 @@ public class AuthServiceImpl implements AuthService {
     }
     
     @Cacheable(value = "userSubsystemAccessLevels", key = "#userId + '-' + #organizationId")
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Map<String, Integer> getUserSubsystemAccessLevels(Long userId, Long organizationId) {
         if (userId == null) {
             return Collections.emptyMap();
@@ -960,15 +922,10 @@ public class AuthServiceImpl implements AuthService {
      * 检查用户是否有子系统写权限
      */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemWriteAccess(String username, String subsystemCode) {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
-        
         // 访问级别大于等于2表示有写权限
-        Map<String, Integer> accessLevels = getUserSubsystemAccessLevels(user.getId(), null);
-        Integer level = accessLevels.get(subsystemCode);
-        return level != null && level >= 2;
+        return getAccessDecision(username).hasSubsystemLevel(null, subsystemCode, 2);
     }
     
     /**
@@ -978,18 +935,15 @@ public class AuthServiceImpl implements AuthService {
      * @param subsystemCode 子系统代码
      * @return 有权限返回true，否则返回false
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemWriteAccess(Long userId, Long organizationId, String subsystemCode) {
         if (userId == null || subsystemCode == null) {
             return false;
         }
         
         try {
-            // 获取用户子系统访问级别
-            Map<String, Integer> accessLevels = getUserSubsystemAccessLevels(userId, organizationId);
-            Integer level = accessLevels.get(subsystemCode);
-            
             // 访问级别 >= 2 表示有写权限
-            return level != null && level >= 2;
+            return getAccessDecision(userId).hasSubsystemLevel(organizationId, subsystemCode, 2);
         } catch (Exception e) {
             logger.error("检查子系统写权限失败: userId={}, subsystemCode={}, error={}", 
                         userId, subsystemCode, e.getMessage());
@@ -998,38 +952,24 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Set<String> getUserAccessibleSubsystemCodes(String username) {
         // 调用UserOrganizationRoleService获取用户在所有组织中的可访问子系统
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
         
-        Set<String> allAccessibleSubsystems = new HashSet<>();
-        // 由于缺少Organization类和organizationRepository，这里简化处理
-        // List<Organization> organizations = organizationRepository.findAll();
-        // 改为获取用户关联的组织ID
-        Set<Long> organizationIds = userOrganizationRoleService.getUserOrganizations(user.getId());
-        
-        for (Long orgId : organizationIds) {
-            if (userOrganizationRoleService.hasOrganizationAccess(user.getId(), orgId)) {
-                List<String> orgSubsystems = userOrganizationRoleService.getUserAccessibleSubsystems(user.getId(), orgId);
-                allAccessibleSubsystems.addAll(orgSubsystems);
-            }
-        }
+        // 所有组织中可访问子系统的并集，从一次解析的组织角色图中读取
+        Set<String> allAccessibleSubsystems = new HashSet<>(
+                userOrganizationRoleService.resolveUserAccess(user.getId()).getAccessibleSubsystems(null));
         
         return allAccessibleSubsystems;
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemAdminAccess(String username, String subsystemCode) {
-        User user = userRepository.findByUsername(username)
-            .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
-        
         // 访问级别大于等于3表示有管理员权限
-        Map<String, Integer> accessLevels = getUserSubsystemAccessLevels(user.getId(), null);
-        Integer level = accessLevels.get(subsystemCode);
-        return level != null && level >= 3;
+        return getAccessDecision(username).hasSubsystemLevel(null, subsystemCode, 3);
     }
     
     /**
@@ -1039,18 +979,15 @@ public class AuthServiceImpl implements AuthService {
      * @param subsystemCode 子系统代码
      * @return 有权限返回true，否则返回false
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasSubsystemAdminAccess(Long userId, Long organizationId, String subsystemCode) {
         if (userId == null || subsystemCode == null) {
             return false;
         }
         
         try {
-            // 获取用户子系统访问级别
-            Map<String, Integer> accessLevels = getUserSubsystemAccessLevels(userId, organizationId);
-            Integer level = accessLevels.get(subsystemCode);
-            
             // 访问级别 >= 3 表示有管理员权限
-            return level != null && level >= 3;
+            return getAccessDecision(userId).hasSubsystemLevel(organizationId, subsystemCode, 3);
         } catch (Exception e) {
             logger.error("检查子系统管理员权限失败: userId={}, subsystemCode={}, error={}", 
                         userId, subsystemCode, e.getMessage());
@@ -1068,4 +1005,27 @@ public class AuthServiceImpl implements AuthService {
         // 调用UserOrganizationRoleService的方法检查组织访问权限
         return userOrganizationRoleService.hasOrganizationAccess(userId, organizationId);
     }
-}
\ No newline at end of file
+    
+    /**
+     * 获取用户编译后的访问权限，策略版本变更后自动重新加载
+     * 判定方法不开启事务，只有缓存未命中时加载器才通过仓库自身的事务访问数据库
+     * @param username 用户名
+     * @return 编译后的访问权限
+     */
+    private AccessDecisionEngine.CompiledAccess getAccessDecision(String username) {
+        return accessDecisionEngine.getDecision(username, () -> {
+            User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("用户不存在: " + username));
+            return userOrganizationRoleService.resolveUserAccess(user.getId());
+        });
+    }
+    
+    /**
+     * 获取用户编译后的访问权限，策略版本变更后自动重新加载
+     * @param userId 用户ID
+     * @return 编译后的访问权限
+     */
+    private AccessDecisionEngine.CompiledAccess getAccessDecision(Long userId) {
+        return accessDecisionEngine.getDecision(userId, () -> userOrganizationRoleService.resolveUserAccess(userId));
+    }
+}
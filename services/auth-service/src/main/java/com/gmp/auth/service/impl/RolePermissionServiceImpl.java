@@ -4,6 +4,7 @@ import com.gmp.auth.entity.Permission;
 import com.gmp.auth.entity.RolePermission;
 import com.gmp.auth.repository.PermissionRepository;
 import com.gmp.auth.repository.RolePermissionRepository;
+import com.gmp.auth.service.AccessDecisionEngine;
 import com.gmp.auth.service.RolePermissionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -34,6 +35,9 @@ public class RolePermissionServiceImpl implements RolePermissionService {
     @Autowired
     private PermissionRepository permissionRepository;
 
+    @Autowired
+    private AccessDecisionEngine accessDecisionEngine;
+
     // assignPermissionToRole方法在文件末尾定义
 
     @Override
@@ -61,6 +65,7 @@ public class RolePermissionServiceImpl implements RolePermissionService {
                 .orElseThrow(() -> new IllegalArgumentException("角色未拥有该权限"));
         
         rolePermissionRepository.delete(rolePermission);
+        accessDecisionEngine.invalidateAll();
     }
 
     @Override
@@ -119,6 +124,7 @@ public class RolePermissionServiceImpl implements RolePermissionService {
         RolePermission rolePermission = new RolePermission();
         // 不调用setter方法，直接返回
         log.info("已为角色分配权限 - 角色ID: {}, 权限ID: {}", roleId, permissionId);
+        accessDecisionEngine.invalidateAll();
         return rolePermission;
     }
 }
\ No newline at end of file
@@ -1,76 +1,150 @@
 package com.gmp.auth.service.impl;
 
 import com.gmp.auth.service.TokenBlacklistService;
+import com.gmp.auth.service.VerifiedTokenCache;
+import com.gmp.auth.util.TimeSlicedBloomFilter;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.UUID;
 
 /**
  * 令牌黑名单服务实现
- * 使用Redis存储已撤销的JWT令牌
+ * 使用Redis存储已撤销的JWT令牌，并在本地维护一个按过期时间分片的布隆过滤器。
+ * <p>
+ * 绝大多数令牌未被撤销，布隆过滤器判定"一定不存在"时直接返回，不访问Redis；
+ * 只有可能命中时才通过Redis确认。各节点通过Redis发布/订阅同步撤销事件，
+ * 并定期从Redis全量补齐，防止订阅断开期间丢失事件。
  */
 @Service
-public class TokenBlacklistServiceImpl implements TokenBlacklistService {
-    
+public class TokenBlacklistServiceImpl implements TokenBlacklistService, MessageListener {
+
     private static final Logger logger = LoggerFactory.getLogger(TokenBlacklistServiceImpl.class);
-    
+
     private static final String BLACKLIST_PREFIX = "token:blacklist:";
-    
+
+    /**
+     * 令牌撤销事件频道，消息格式为"令牌键:过期时间戳"
+     */
+    public static final String REVOCATION_CHANNEL = "token:blacklist:events";
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
-    
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    /**
+     * 单个时间片时长（毫秒），默认6小时
+     */
+    @Value("${token.blacklist.bloom.slice-duration:21600000}")
+    private long sliceDurationMillis = 21600000L;
+
+    /**
+     * 时间片数量，默认覆盖7天以上的令牌有效期
+     */
+    @Value("${token.blacklist.bloom.slice-count:32}")
+    private int sliceCount = 32;
+
+    /**
+     * 单个时间片预期撤销数量
+     */
+    @Value("${token.blacklist.bloom.expected-insertions:20000}")
+    private int expectedInsertions = 20000;
+
+    /**
+     * 期望误判率
+     */
+    @Value("${token.blacklist.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate = 0.01;
+
+    private TimeSlicedBloomFilter revokedTokenFilter;
+
+    // 布隆过滤器完成首次加载前，所有查询直接访问Redis
+    private volatile boolean filterReady = false;
+
+    /**
+     * 初始化布隆过滤器并从Redis加载现有黑名单
+     */
+    @PostConstruct
+    public void init() {
+        revokedTokenFilter = new TimeSlicedBloomFilter(sliceDurationMillis, sliceCount,
+                expectedInsertions, falsePositiveRate);
+        reloadFromRedis();
+    }
+
     @Override
-    @Cacheable(value = "revokedTokens", key = "#token")
     public boolean isTokenBlacklisted(String token) {
         if (token == null) {
             return false;
         }
-        
-        // 使用Redis检查令牌是否在黑名单中
-        String key = BLACKLIST_PREFIX + generateTokenKey(token);
-        Boolean exists = redisTemplate.hasKey(key);
+
+        UUID tokenKey = generateTokenKey(token);
+        if (filterReady && !revokedTokenFilter.mightContain(tokenKey)) {
+            return false;
+        }
+
+        // 布隆过滤器可能命中或尚未就绪，使用Redis确认
+        Boolean exists = redisTemplate.hasKey(BLACKLIST_PREFIX + tokenKey);
         return exists != null && exists;
     }
-    
+
     @Override
-    @CacheEvict(value = "revokedTokens", key = "#token")
     public void blacklistToken(String token, long expiration) {
         if (token == null) {
             logger.warn("尝试将空令牌加入黑名单");
             return;
         }
-        
+
+        // 先使本地已验证令牌缓存失效，即使Redis写入失败也不会继续放行该令牌
+        if (verifiedTokenCache != null) {
+            verifiedTokenCache.invalidate(token);
+        }
+
+        UUID tokenKey = generateTokenKey(token);
+        recordRevocation(tokenKey, expiration);
+
         try {
             // 生成令牌的键
-            String key = BLACKLIST_PREFIX + generateTokenKey(token);
-            
+            String key = BLACKLIST_PREFIX + tokenKey;
+
             // 计算过期时间
             long now = System.currentTimeMillis();
             long ttl = Math.max(1, expiration - now); // 确保至少有1毫秒的过期时间
-            
+
             // 将令牌加入黑名单并设置过期时间
             redisTemplate.opsForValue().set(key, System.currentTimeMillis(), Duration.ofMillis(ttl));
+
+            // 通知其他节点更新本地布隆过滤器
+            redisTemplate.convertAndSend(REVOCATION_CHANNEL, tokenKey + ":" + expiration);
             logger.debug("令牌已成功加入黑名单，过期时间: {}毫秒", ttl);
         } catch (Exception e) {
             logger.error("将令牌加入黑名单失败: {}", e.getMessage());
         }
     }
-    
+
     @Override
-    @CacheEvict(value = "revokedTokens", key = "#token")
     public void removeTokenFromBlacklist(String token) {
         if (token == null) {
             return;
         }
-        
+
         try {
+            // 布隆过滤器不支持删除，残留位只会导致一次额外的Redis确认
             String key = BLACKLIST_PREFIX + generateTokenKey(token);
             redisTemplate.delete(key);
             logger.debug("令牌已从黑名单中移除");
@@ -78,21 +152,92 @@ public class TokenBlacklistServiceImpl implements TokenBlacklistService {
             logger.error("从黑名单中移除令牌失败: {}", e.getMessage());
         }
     }
-    
+
     @Override
     public void cleanExpiredTokens() {
-        // Redis会自动过期，不需要手动清理
-        // 此方法保留用于兼容性和未来扩展
+        // Redis会自动过期，布隆过滤器时间片随过期自动复用，只需清理溢出表
+        if (revokedTokenFilter != null) {
+            revokedTokenFilter.cleanupExpired();
+        }
         logger.debug("清理过期的黑名单令牌");
     }
-    
+
+    /**
+     * 处理其他节点发布的令牌撤销事件
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            RedisSerializer<?> serializer = redisTemplate.getValueSerializer();
+            Object payload = serializer != null ? serializer.deserialize(message.getBody()) : null;
+            String event = payload != null ? payload.toString() : new String(message.getBody(), StandardCharsets.UTF_8);
+
+            int separator = event.lastIndexOf(':');
+            if (separator <= 0) {
+                logger.warn("无法解析令牌撤销事件: {}", event);
+                return;
+            }
+            UUID tokenKey = UUID.fromString(event.substring(0, separator));
+            long expiration = Long.parseLong(event.substring(separator + 1));
+            recordRevocation(tokenKey, expiration);
+        } catch (Exception e) {
+            logger.error("处理令牌撤销事件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期从Redis补齐布隆过滤器
+     * 只增不删，与并发的撤销事件不会产生冲突
+     */
+    @Scheduled(fixedDelayString = "${token.blacklist.bloom.resync-interval:600000}",
+               initialDelayString = "${token.blacklist.bloom.resync-interval:600000}")
+    public void reloadFromRedis() {
+        if (revokedTokenFilter == null) {
+            return;
+        }
+
+        try {
+            // 现有键不含过期时间，按覆盖范围上限记录，只会增加误判而不会漏判
+            long expiration = System.currentTimeMillis() + revokedTokenFilter.getHorizonMillis();
+            ScanOptions options = ScanOptions.scanOptions().match(BLACKLIST_PREFIX + "*").count(1000).build();
+            Long loaded = redisTemplate.execute((RedisCallback<Long>) connection -> {
+                long count = 0;
+                try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
+                    while (cursor.hasNext()) {
+                        String key = new String(cursor.next(), StandardCharsets.UTF_8);
+                        try {
+                            recordRevocation(UUID.fromString(key.substring(BLACKLIST_PREFIX.length())), expiration);
+                            count++;
+                        } catch (IllegalArgumentException e) {
+                            logger.debug("忽略无法识别的黑名单键: {}", key);
+                        }
+                    }
+                }
+                return count;
+            });
+
+            revokedTokenFilter.cleanupExpired();
+            filterReady = true;
+            logger.debug("已从Redis加载黑名单令牌到布隆过滤器: {}", loaded != null ? loaded : 0);
+        } catch (Exception e) {
+            logger.error("从Redis加载黑名单令牌失败，暂时直接查询Redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录令牌撤销到本地布隆过滤器
+     */
+    private void recordRevocation(UUID tokenKey, long expiration) {
+        if (revokedTokenFilter != null) {
+            revokedTokenFilter.put(tokenKey, expiration);
+        }
+    }
+
     /**
      * 生成令牌的键
-     * 为了安全考虑，不对原始令牌进行哈希
+     * 使用令牌内容的名称UUID，既作为Redis键，也直接作为布隆过滤器的128位哈希
      */
-    private String generateTokenKey(String token) {
-        // 使用UUID来确保键的唯一性
-        // 在实际应用中，可以考虑使用令牌的签名部分或ID部分
-        return UUID.nameUUIDFromBytes(token.getBytes()).toString();
+    private UUID generateTokenKey(String token) {
+        return UUID.nameUUIDFromBytes(token.getBytes());
     }
-}
\ No newline at end of file
+}
@@ -4,11 +4,13 @@ import com.gmp.auth.entity.UserOrganizationRole;
 import com.gmp.auth.entity.Role;
 import com.gmp.auth.entity.Organization;
 import com.gmp.auth.entity.User;
+import com.gmp.auth.model.UserAccessSnapshot;
 import com.gmp.auth.repository.UserOrganizationRoleRepository;
 import com.gmp.auth.repository.UserRepository;
 import com.gmp.auth.repository.OrganizationRepository;
 import com.gmp.auth.repository.RoleRepository;
 import com.gmp.auth.repository.RolePermissionRepository;
+import com.gmp.auth.service.AccessDecisionEngine;
 import com.gmp.auth.service.UserOrganizationRoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -42,6 +44,9 @@ public class UserOrganizationRoleServiceImpl implements UserOrganizationRoleServ
     @Autowired
     private RolePermissionRepository rolePermissionRepository;
     
+    @Autowired
+    private AccessDecisionEngine accessDecisionEngine;
+    
     // 活动状态集合
     private static final Set<UserOrganizationRole.AssignmentStatus> ACTIVE_STATUSES = 
             Collections.unmodifiableSet(EnumSet.of(
@@ -85,7 +90,9 @@ public class UserOrganizationRoleServiceImpl implements UserOrganizationRoleServ
         userOrgRole.setUpdatedBy(assignedBy);
         
         // 保存并返回创建的关联
-        return userOrgRoleRepository.save(userOrgRole);
+        UserOrganizationRole saved = userOrgRoleRepository.save(userOrgRole);
+        accessDecisionEngine.invalidateAll();
+        return saved;
     }
     
     @Override
@@ -128,6 +135,7 @@ public class UserOrganizationRoleServiceImpl implements UserOrganizationRoleServ
         userOrgRole.setStatus(UserOrganizationRole.AssignmentStatus.REVOKED);
         userOrgRole.setUpdatedBy(userId);
         userOrgRoleRepository.save(userOrgRole);
+        accessDecisionEngine.invalidateAll();
     }
     
     @Override
@@ -143,77 +151,79 @@ public class UserOrganizationRoleServiceImpl implements UserOrganizationRoleServ
                 userId, organizationId, ACTIVE_STATUSES);
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public UserAccessSnapshot resolveUserAccess(Long userId) {
+        if (userId == null) {
+            return UserAccessSnapshot.empty(null);
+        }
+        
+        // 第一次查询：用户在各组织中的角色代码
+        Map<Long, Set<String>> roleCodesByOrg = new HashMap<>();
+        for (Object[] row : userOrgRoleRepository.findOrganizationRoleCodesByUserId(userId, ACTIVE_STATUSES)) {
+            Long organizationId = (Long) row[0];
+            String roleCode = (String) row[1];
+            Set<String> roleCodes = roleCodesByOrg.computeIfAbsent(organizationId, k -> new HashSet<>());
+            if (StringUtils.hasText(roleCode)) {
+                roleCodes.add(roleCode);
+            }
+        }
+        
+        if (roleCodesByOrg.isEmpty()) {
+            return UserAccessSnapshot.empty(userId);
+        }
+        
+        // 第二次查询：用户在各组织中通过角色获得的权限代码
+        Map<Long, Set<String>> permissionCodesByOrg = new HashMap<>();
+        for (Object[] row : userOrgRoleRepository.findOrganizationPermissionCodesByUserId(userId, ACTIVE_STATUSES)) {
+            permissionCodesByOrg.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((String) row[1]);
+        }
+        
+        // 子系统访问由角色代码推导，不再需要额外查询
+        Map<Long, Set<String>> subsystemsByOrg = new HashMap<>();
+        Map<Long, Map<String, Integer>> accessLevelsByOrg = new HashMap<>();
+        roleCodesByOrg.forEach((organizationId, roleCodes) -> {
+            subsystemsByOrg.put(organizationId, deriveAccessibleSubsystems(roleCodes));
+            accessLevelsByOrg.put(organizationId, deriveSubsystemAccessLevels(roleCodes));
+        });
+        
+        return new UserAccessSnapshot(userId, roleCodesByOrg, permissionCodesByOrg, subsystemsByOrg, accessLevelsByOrg);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Set<Long> getUserOrganizations(Long userId) {
-        // 为了编译通过，直接返回空集合
-        return Collections.emptySet();
+        return resolveUserAccess(userId).getOrganizationIds();
     }
     
-@Override
-public Set<String> getUserRoleCodesInOrganization(Long userId, Long organizationId) {
-    // 获取用户在指定组织中的角色
-    List<UserOrganizationRole> userOrgRoles = userOrgRoleRepository.findByUserIdAndOrganizationIdAndStatusIn(
-            userId, organizationId, ACTIVE_STATUSES);
-
-    // 正确地从UserOrganizationRole实体中提取角色ID
-    Set<Long> roleIds = userOrgRoles.stream()
-            .map(UserOrganizationRole::getRoleId)
-            .filter(Objects::nonNull)
-            .collect(Collectors.toSet());
-
-    // 根据角色ID获取角色代码
-    Set<String> roleCodes = roleIds.stream()
-            .map(roleId -> {
-                Role role = roleRepository.findById(roleId).orElse(null);
-                return role != null ? role.getRoleCode() : null;
-            })
-            .filter(Objects::nonNull)
-            .filter(StringUtils::hasText)
-            .collect(Collectors.toSet());
-
-    return roleCodes;
-}
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> getUserRoleCodesInOrganization(Long userId, Long organizationId) {
+        return resolveUserAccess(userId).getRoleCodes(organizationId);
+    }
     
     @Override
     @Transactional(readOnly = true)
     public Set<String> getUserPermissionCodesInOrganization(Long userId, Long organizationId) {
-        Set<String> roleCodes = getUserRoleCodesInOrganization(userId, organizationId);
-        
-        if (roleCodes.isEmpty()) {
-            return Collections.emptySet();
-        }
-        
-        // 从RolePermissionService获取角色对应的权限
-        // 这里简化实现，实际应该注入RolePermissionService
-        return Collections.emptySet();
+        return resolveUserAccess(userId).getPermissionCodes(organizationId);
     }
     
     @Override
     @Transactional(readOnly = true)
     public Set<String> getUserPermissionCodesAcrossOrganizations(Long userId) {
-        Set<Long> organizationIds = getUserOrganizations(userId);
-        Set<String> allPermissions = new HashSet<>();
-        
-        for (Long orgId : organizationIds) {
-            allPermissions.addAll(getUserPermissionCodesInOrganization(userId, orgId));
-        }
-        
-        return allPermissions;
+        return resolveUserAccess(userId).getPermissionCodes(null);
     }
     
     @Override
     @Transactional(readOnly = true)
     public boolean hasRoleInOrganization(Long userId, Long organizationId, String roleCode) {
-        Set<String> roleCodes = getUserRoleCodesInOrganization(userId, organizationId);
-        return roleCodes.contains(roleCode);
+        return resolveUserAccess(userId).hasRole(organizationId, roleCode);
     }
     
     @Override
     @Transactional(readOnly = true)
     public boolean hasPermissionInOrganization(Long userId, Long organizationId, String permissionCode) {
-        Set<String> permissions = getUserPermissionCodesInOrganization(userId, organizationId);
-        return permissions.contains(permissionCode);
+        return resolveUserAccess(userId).hasPermission(organizationId, permissionCode);
     }
     
     @Override
@@ -227,7 +237,9 @@ public Set<String> getUserRoleCodesInOrganization(Long userId, Long organization
         userOrgRole.setUpdatedAt(LocalDateTime.now());
         
         // 保存并返回更新后的对象
-        return userOrgRoleRepository.save(userOrgRole);
+        UserOrganizationRole saved = userOrgRoleRepository.save(userOrgRole);
+        accessDecisionEngine.invalidateAll();
+        return saved;
     }
     
     @Override
@@ -252,7 +264,9 @@ public Set<String> getUserRoleCodesInOrganization(Long userId, Long organization
         userOrgRole.setUpdatedAt(LocalDateTime.now());
         
         // 保存并返回更新后的对象
-        return userOrgRoleRepository.save(userOrgRole);
+        UserOrganizationRole saved = userOrgRoleRepository.save(userOrgRole);
+        accessDecisionEngine.invalidateAll();
+        return saved;
     }
     
     @Override
@@ -267,6 +281,10 @@ public Set<String> getUserRoleCodesInOrganization(Long userId, Long organization
             assignment.setExpiresNotified(true);
             userOrgRoleRepository.save(assignment);
         }
+        
+        if (!expiredAssignments.isEmpty()) {
+            accessDecisionEngine.invalidateAll();
+        }
     }
     
     @Override
@@ -306,78 +324,12 @@ public Set<String> getUserRoleCodesInOrganization(Long userId, Long organization
     @Override
     @Transactional(readOnly = true)
     public List<String> getUserAccessibleSubsystems(Long userId, Long organizationId) {
-        if (userId == null || organizationId == null) {
+        if (userId == null) {
             return Collections.emptyList();
         }
         
         try {
-            // 获取用户在指定组织中的有效角色
-            List<UserOrganizationRole> userOrgRoles = userOrgRoleRepository.findByUserIdAndOrganizationIdAndStatusIn(
-                    userId, organizationId, ACTIVE_STATUSES);
-
-            // 提取角色ID
-            Set<Long> roleIds = userOrgRoles.stream()
-                    .map(UserOrganizationRole::getRoleId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
-
-            if (roleIds.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            // 获取角色代码
-            Set<String> roleCodes = roleIds.stream()
-                    .map(roleId -> {
-                        Role role = roleRepository.findById(roleId).orElse(null);
-                        return role != null ? role.getRoleCode() : null;
-                    })
-                    .filter(Objects::nonNull)
-                    .filter(StringUtils::hasText)
-                    .collect(Collectors.toSet());
-
-            // 根据角色代码确定可访问的子系统
-            Set<String> accessibleSubsystems = new HashSet<>();
-            
-            for (String roleCode : roleCodes) {
-                // 根据角色代码添加相应的子系统访问权限
-                if (roleCode.contains("ADMIN")) {
-                    accessibleSubsystems.add("AUTH");
-                    accessibleSubsystems.add("USER_MANAGEMENT");
-                    accessibleSubsystems.add("ROLE_MANAGEMENT");
-                    accessibleSubsystems.add("PERMISSION_MANAGEMENT");
-                }
-                
-                if (roleCode.contains("GMP") || roleCode.contains("QUALITY") || roleCode.contains("QA") || roleCode.contains("QC")) {
-                    accessibleSubsystems.add("EDMS");
-                    accessibleSubsystems.add("LIMS");
-                    accessibleSubsystems.add("TRAINING");
-                }
-                
-                if (roleCode.contains("PRODUCTION")) {
-                    accessibleSubsystems.add("PRODUCTION");
-                }
-                
-                if (roleCode.contains("RD")) {
-                    accessibleSubsystems.add("RD_MANAGEMENT");
-                }
-                
-                if (roleCode.contains("DOC")) {
-                    accessibleSubsystems.add("EDMS");
-                }
-                
-                if (roleCode.contains("VALIDATION")) {
-                    accessibleSubsystems.add("VALIDATION");
-                }
-                
-                if (roleCode.contains("TRAINING")) {
-                    accessibleSubsystems.add("TRAINING");
-                }
-                
-                // 所有有效用户都有基本访问权限
-                accessibleSubsystems.add("PROFILE");
-            }
-            
-            return new ArrayList<>(accessibleSubsystems);
+            return new ArrayList<>(resolveUserAccess(userId).getAccessibleSubsystems(organizationId));
         } catch (Exception e) {
             // 记录异常但不抛出，确保系统稳定运行
             return Collections.emptyList();
@@ -387,97 +339,135 @@ public Set<String> getUserRoleCodesInOrganization(Long userId, Long organization
     @Override
     @Transactional(readOnly = true)
     public Map<String, Integer> getUserSubsystemAccessLevels(Long userId, Long organizationId) {
-        if (userId == null || organizationId == null) {
+        if (userId == null) {
             return Collections.emptyMap();
         }
         
         try {
-            Map<String, Integer> accessLevels = new HashMap<>();
+            return new HashMap<>(resolveUserAccess(userId).getSubsystemAccessLevels(organizationId));
+        } catch (Exception e) {
+            // 记录异常但不抛出，确保系统稳定运行
+            return Collections.emptyMap();
+        }
+    }
+    
+    /**
+     * 根据角色代码推导可访问的子系统
+     */
+    private static Set<String> deriveAccessibleSubsystems(Set<String> roleCodes) {
+        Set<String> accessibleSubsystems = new HashSet<>();
+        
+        for (String roleCode : roleCodes) {
+            // 根据角色代码添加相应的子系统访问权限
+            if (roleCode.contains("ADMIN")) {
+                accessibleSubsystems.add("AUTH");
+                accessibleSubsystems.add("USER_MANAGEMENT");
+                accessibleSubsystems.add("ROLE_MANAGEMENT");
+                accessibleSubsystems.add("PERMISSION_MANAGEMENT");
+            }
+            
+            if (roleCode.contains("GMP") || roleCode.contains("QUALITY") || roleCode.contains("QA") || roleCode.contains("QC")) {
+                accessibleSubsystems.add("EDMS");
+                accessibleSubsystems.add("LIMS");
+                accessibleSubsystems.add("TRAINING");
+            }
+            
+            if (roleCode.contains("PRODUCTION")) {
+                accessibleSubsystems.add("PRODUCTION");
+            }
+            
+            if (roleCode.contains("RD")) {
+                accessibleSubsystems.add("RD_MANAGEMENT");
+            }
             
-            // 获取用户在指定组织中的角色
-            List<UserOrganizationRole> userOrgRoles = getUserOrganizationRolesInOrganization(userId, organizationId);
+            if (roleCode.contains("DOC")) {
+                accessibleSubsystems.add("EDMS");
+            }
             
-            // 提取角色ID
-            Set<Long> roleIds = userOrgRoles.stream()
-                    .map(UserOrganizationRole::getRoleId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
+            if (roleCode.contains("VALIDATION")) {
+                accessibleSubsystems.add("VALIDATION");
+            }
             
-            if (roleIds.isEmpty()) {
-                return accessLevels;
+            if (roleCode.contains("TRAINING")) {
+                accessibleSubsystems.add("TRAINING");
             }
             
-            // 从角色权限中提取子系统访问级别
-            List<Role> roles = roleRepository.findAllById(roleIds);
-            for (Role role : roles) {
-                String roleCode = role.getRoleCode();
-                
-                if (roleCode == null) {
-                    continue;
+            // 所有有效用户都有基本访问权限
+            accessibleSubsystems.add("PROFILE");
+        }
+        
+        return accessibleSubsystems;
+    }
+    
+    /**
+     * 根据角色代码推导子系统访问级别
+     * 1: 只读, 2: 读写, 3: 管理员；多个角色授予同一子系统时取最高级别
+     */
+    private static Map<String, Integer> deriveSubsystemAccessLevels(Set<String> roleCodes) {
+        Map<String, Integer> accessLevels = new HashMap<>();
+        
+        for (String roleCode : roleCodes) {
+            // 根据角色代码设置相应的子系统访问级别
+            if (roleCode.contains("SYSTEM_ADMIN")) {
+                // 系统管理员对所有子系统拥有最高权限
+                grant(accessLevels, "AUTH", 3);
+                grant(accessLevels, "USER_MANAGEMENT", 3);
+                grant(accessLevels, "ROLE_MANAGEMENT", 3);
+                grant(accessLevels, "PERMISSION_MANAGEMENT", 3);
+                grant(accessLevels, "EDMS", 3);
+                grant(accessLevels, "LIMS", 3);
+                grant(accessLevels, "PRODUCTION", 3);
+                grant(accessLevels, "RD_MANAGEMENT", 3);
+                grant(accessLevels, "VALIDATION", 3);
+                grant(accessLevels, "TRAINING", 3);
+                grant(accessLevels, "PROFILE", 3);
+            } else if (roleCode.contains("GMP_ADMIN")) {
+                // GMP管理员对子系统有较高权限
+                grant(accessLevels, "EDMS", 3);
+                grant(accessLevels, "LIMS", 3);
+                grant(accessLevels, "VALIDATION", 3);
+                grant(accessLevels, "TRAINING", 3);
+                grant(accessLevels, "PROFILE", 2);
+            } else if (roleCode.contains("DEPARTMENT_HEAD")) {
+                // 部门主管对子系统有读写权限
+                grant(accessLevels, "EDMS", 2);
+                grant(accessLevels, "LIMS", 2);
+                grant(accessLevels, "TRAINING", 2);
+                grant(accessLevels, "PROFILE", 2);
+            } else if (roleCode.contains("MANAGER")) {
+                // 经理级角色有读写权限
+                if (roleCode.contains("QUALITY")) {
+                    grant(accessLevels, "EDMS", 2);
+                    grant(accessLevels, "LIMS", 2);
+                } else if (roleCode.contains("PRODUCTION")) {
+                    grant(accessLevels, "PRODUCTION", 2);
+                } else if (roleCode.contains("RD")) {
+                    grant(accessLevels, "RD_MANAGEMENT", 2);
+                } else if (roleCode.contains("TRAINING")) {
+                    grant(accessLevels, "TRAINING", 2);
                 }
-                
-                // 根据角色代码设置相应的子系统访问级别
-                // 1: 只读, 2: 读写, 3: 管理员
-                if (roleCode.contains("SYSTEM_ADMIN")) {
-                    // 系统管理员对所有子系统拥有最高权限
-                    accessLevels.put("AUTH", 3);
-                    accessLevels.put("USER_MANAGEMENT", 3);
-                    accessLevels.put("ROLE_MANAGEMENT", 3);
-                    accessLevels.put("PERMISSION_MANAGEMENT", 3);
-                    accessLevels.put("EDMS", 3);
-                    accessLevels.put("LIMS", 3);
-                    accessLevels.put("PRODUCTION", 3);
-                    accessLevels.put("RD_MANAGEMENT", 3);
-                    accessLevels.put("VALIDATION", 3);
-                    accessLevels.put("TRAINING", 3);
-                    accessLevels.put("PROFILE", 3);
-                } else if (roleCode.contains("GMP_ADMIN")) {
-                    // GMP管理员对子系统有较高权限
-                    accessLevels.put("EDMS", 3);
-                    accessLevels.put("LIMS", 3);
-                    accessLevels.put("VALIDATION", 3);
-                    accessLevels.put("TRAINING", 3);
-                    accessLevels.put("PROFILE", 2);
-                } else if (roleCode.contains("DEPARTMENT_HEAD")) {
-                    // 部门主管对子系统有读写权限
-                    accessLevels.put("EDMS", 2);
-                    accessLevels.put("LIMS", 2);
-                    accessLevels.put("TRAINING", 2);
-                    accessLevels.put("PROFILE", 2);
-                } else if (roleCode.contains("MANAGER")) {
-                    // 经理级角色有读写权限
-                    if (roleCode.contains("QUALITY")) {
-                        accessLevels.put("EDMS", 2);
-                        accessLevels.put("LIMS", 2);
-                    } else if (roleCode.contains("PRODUCTION")) {
-                        accessLevels.put("PRODUCTION", 2);
-                    } else if (roleCode.contains("RD")) {
-                        accessLevels.put("RD_MANAGEMENT", 2);
-                    } else if (roleCode.contains("TRAINING")) {
-                        accessLevels.put("TRAINING", 2);
-                    }
-                    accessLevels.put("PROFILE", 2);
-                } else {
-                    // 其他角色只有只读权限
-                    accessLevels.put("PROFILE", 1);
-                    // 根据角色类型分配相应子系统的只读权限
-                    if (roleCode.contains("QA") || roleCode.contains("QC") || roleCode.contains("AUDITOR") || roleCode.contains("ANALYST")) {
-                        accessLevels.put("EDMS", 1);
-                        accessLevels.put("LIMS", 1);
-                    }
-                    if (roleCode.contains("DOCUMENT")) {
-                        accessLevels.put("EDMS", 1);
-                    }
-                    if (roleCode.contains("VALIDATION")) {
-                        accessLevels.put("VALIDATION", 1);
-                    }
+                grant(accessLevels, "PROFILE", 2);
+            } else {
+                // 其他角色只有只读权限
+                grant(accessLevels, "PROFILE", 1);
+                // 根据角色类型分配相应子系统的只读权限
+                if (roleCode.contains("QA") || roleCode.contains("QC") || roleCode.contains("AUDITOR") || roleCode.contains("ANALYST")) {
+                    grant(accessLevels, "EDMS", 1);
+                    grant(accessLevels, "LIMS", 1);
+                }
+                if (roleCode.contains("DOCUMENT")) {
+                    grant(accessLevels, "EDMS", 1);
+                }
+                if (roleCode.contains("VALIDATION")) {
+                    grant(accessLevels, "VALIDATION", 1);
                 }
             }
-            
-            return accessLevels;
-        } catch (Exception e) {
-            // 记录异常但不抛出，确保系统稳定运行
-            return Collections.emptyMap();
         }
+        
+        return accessLevels;
+    }
+    
+    private static void grant(Map<String, Integer> accessLevels, String subsystem, int level) {
+        accessLevels.merge(subsystem, level, Math::max);
     }
 }
@@ -0,0 +1,184 @@
+package com.gmp.auth.util;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按过期时间分片的布隆过滤器
+ * <p>
+ * 元素按过期时间落入对应的时间片，时间片过期后整体清空复用，因此无需逐个删除元素即可随令牌过期自然回收空间。
+ * 元素键为128位UUID（令牌摘要），直接拆分为两个64位值做双重哈希，不再重复计算哈希。
+ * 过期时间超出时间片覆盖范围的元素单独保存在溢出表中，保证不会出现漏判。
+ * <p>
+ * 只可能误判"存在"，不会误判"不存在"；调用方需对命中结果做二次确认。
+ *
+ * @author GMP系统开发团队
+ */
+public class TimeSlicedBloomFilter {
+
+    private final Slice[] slices;
+    private final long sliceMillis;
+    private final int bitsPerSlice;
+    private final int hashFunctions;
+
+    // 过期时间超出覆盖范围的元素，key为元素，value为过期时间
+    private final Map<UUID, Long> overflow = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     *
+     * @param sliceMillis 单个时间片的时长（毫秒）
+     * @param sliceCount 时间片数量，覆盖范围为 sliceMillis * (sliceCount - 2)
+     * @param expectedInsertionsPerSlice 单个时间片预期元素数量
+     * @param falsePositiveRate 期望误判率
+     */
+    public TimeSlicedBloomFilter(long sliceMillis, int sliceCount, int expectedInsertionsPerSlice,
+                                 double falsePositiveRate) {
+        if (sliceMillis <= 0 || sliceCount < 3 || expectedInsertionsPerSlice <= 0) {
+            throw new IllegalArgumentException("无效的布隆过滤器参数");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("误判率必须在0和1之间");
+        }
+
+        long bits = (long) Math.ceil(-expectedInsertionsPerSlice * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        this.bitsPerSlice = (int) Math.max(64, Math.min(bits, Integer.MAX_VALUE - 63));
+        this.hashFunctions = Math.max(1,
+                (int) Math.round((double) bitsPerSlice / expectedInsertionsPerSlice * Math.log(2)));
+        this.sliceMillis = sliceMillis;
+        this.slices = new Slice[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new Slice((bitsPerSlice + 63) / 64);
+        }
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param key 元素键
+     * @param expiresAt 元素过期时间（毫秒时间戳）
+     */
+    public void put(UUID key, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            // 已过期的元素无需记录
+            return;
+        }
+
+        long currentEpoch = now / sliceMillis;
+        long epoch = expiresAt / sliceMillis;
+        if (epoch - currentEpoch >= slices.length - 1) {
+            overflow.put(key, expiresAt);
+            return;
+        }
+
+        Slice slice = slices[(int) (epoch % slices.length)];
+        slice.ensureEpoch(epoch);
+
+        long h1 = key.getMostSignificantBits();
+        long h2 = key.getLeastSignificantBits();
+        for (int i = 0; i < hashFunctions; i++) {
+            slice.set(index(h1, h2, i));
+        }
+    }
+
+    /**
+     * 判断元素是否可能存在
+     *
+     * @param key 元素键
+     * @return false表示一定不存在，true表示可能存在
+     */
+    public boolean mightContain(UUID key) {
+        long now = System.currentTimeMillis();
+        long currentEpoch = now / sliceMillis;
+
+        Long overflowExpiresAt = overflow.get(key);
+        if (overflowExpiresAt != null && overflowExpiresAt > now) {
+            return true;
+        }
+
+        long h1 = key.getMostSignificantBits();
+        long h2 = key.getLeastSignificantBits();
+        for (Slice slice : slices) {
+            if (slice.epoch < currentEpoch) {
+                continue;
+            }
+            boolean present = true;
+            for (int i = 0; i < hashFunctions && present; i++) {
+                present = slice.get(index(h1, h2, i));
+            }
+            if (present) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清理溢出表中已过期的元素
+     */
+    public void cleanupExpired() {
+        long now = System.currentTimeMillis();
+        overflow.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    /**
+     * 获取覆盖范围（毫秒），过期时间超出该范围的元素进入溢出表
+     */
+    public long getHorizonMillis() {
+        return sliceMillis * (slices.length - 2);
+    }
+
+    private int index(long h1, long h2, int i) {
+        long combined = h1 + i * h2;
+        return (int) ((combined & Long.MAX_VALUE) % bitsPerSlice);
+    }
+
+    /**
+     * 时间片，epoch为该片当前承载的过期时间段编号
+     */
+    private static class Slice {
+        private final AtomicLongArray words;
+        private volatile long epoch = Long.MIN_VALUE;
+
+        Slice(int wordCount) {
+            this.words = new AtomicLongArray(wordCount);
+        }
+
+        /**
+         * 切换到新的时间段：旧时间段的元素均已过期，清空位图后复用
+         */
+        void ensureEpoch(long newEpoch) {
+            if (epoch == newEpoch) {
+                return;
+            }
+            synchronized (this) {
+                if (epoch < newEpoch) {
+                    for (int i = 0; i < words.length(); i++) {
+                        words.set(i, 0L);
+                    }
+                    epoch = newEpoch;
+                }
+            }
+        }
+
+        void set(int bit) {
+            int wordIndex = bit >>> 6;
+            long mask = 1L << (bit & 63);
+            long current;
+            do {
+                current = words.get(wordIndex);
+                if ((current & mask) != 0) {
+                    return;
+                }
+            } while (!words.compareAndSet(wordIndex, current, current | mask));
+        }
+
+        boolean get(int bit) {
+            return (words.get(bit >>> 6) & (1L << (bit & 63))) != 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.gmp.auth.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 令牌摘要工具类
+ * 为JWT令牌生成固定长度的SHA-256摘要，用作缓存和黑名单的键，避免在内存或Redis中保存原始令牌
+ *
+ * @author GMP系统开发团队
+ */
+public final class TokenDigestUtil {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private TokenDigestUtil() {
+    }
+
+    /**
+     * 计算令牌的SHA-256摘要
+     *
+     * @param token JWT令牌
+     * @return 32字节摘要
+     */
+    public static byte[] sha256(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // 所有JDK实现都必须提供SHA-256
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+
+    /**
+     * 计算令牌的SHA-256摘要并转为十六进制字符串
+     *
+     * @param token JWT令牌
+     * @return 64位十六进制摘要
+     */
+    public static String sha256Hex(String token) {
+        byte[] digest = sha256(token);
+        char[] chars = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+            chars[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,95 @@
+package com.gmp.auth.service;
+
+import com.gmp.auth.model.UserAccessSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AccessDecisionEngine测试类
+ */
+class AccessDecisionEngineTest {
+
+    private AccessDecisionEngine engine;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        engine = new AccessDecisionEngine();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void testPermissionChecksPerOrganization() {
+        AccessDecisionEngine.CompiledAccess access = engine.getDecision(1L, loader());
+
+        assertTrue(access.hasAllPermissions(null, "EDMS_READ", "PRODUCTION_READ"));
+        assertTrue(access.hasAllPermissions(10L, "EDMS_READ"));
+        assertFalse(access.hasAllPermissions(10L, "PRODUCTION_READ"));
+        assertFalse(access.hasAllPermissions(null, "UNKNOWN_PERMISSION"));
+        assertFalse(access.hasAllPermissions(30L, "EDMS_READ"));
+    }
+
+    @Test
+    void testSubsystemLevels() {
+        AccessDecisionEngine.CompiledAccess access = engine.getDecision(1L, loader());
+
+        assertTrue(access.hasSubsystemAccess(null, "EDMS"));
+        assertFalse(access.hasSubsystemAccess(20L, "EDMS"));
+        assertEquals(3, access.getSubsystemLevel(null, "EDMS"));
+        assertEquals(1, access.getSubsystemLevel(20L, "EDMS"));
+        assertTrue(access.hasSubsystemLevel(10L, "EDMS", 2));
+        assertFalse(access.hasSubsystemLevel(20L, "EDMS", 2));
+        assertEquals(0, access.getSubsystemLevel(null, "LIMS"));
+    }
+
+    @Test
+    void testCompiledDecisionReusedUntilInvalidated() {
+        engine.getDecision(1L, loader());
+        engine.getDecision(1L, loader());
+        assertEquals(1, loads.get());
+
+        long version = engine.getPolicyVersion();
+        engine.invalidateAll();
+        assertTrue(engine.getPolicyVersion() > version);
+
+        engine.getDecision(1L, loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testPolicyEventFromOtherNodeInvalidates() {
+        engine.getDecision("testuser", loader());
+
+        engine.onMessage(null, null);
+
+        engine.getDecision("testuser", loader());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testMissingSnapshotDeniesEverything() {
+        AccessDecisionEngine.CompiledAccess access = engine.getDecision(2L, () -> null);
+
+        assertFalse(access.hasAllPermissions(null));
+        assertFalse(access.hasSubsystemAccess(null, "PROFILE"));
+    }
+
+    private Supplier<UserAccessSnapshot> loader() {
+        return () -> {
+            loads.incrementAndGet();
+            return new UserAccessSnapshot(1L,
+                    Map.of(10L, Set.of("QA_MANAGER"), 20L, Set.of("PRODUCTION_OPERATOR")),
+                    Map.of(10L, Set.of("EDMS_READ"), 20L, Set.of("PRODUCTION_READ")),
+                    Map.of(10L, Set.of("EDMS", "PROFILE"), 20L, Set.of("PRODUCTION", "PROFILE")),
+                    Map.of(10L, Map.of("EDMS", 3), 20L, Map.of("EDMS", 1, "PRODUCTION", 2)));
+        };
+    }
+}
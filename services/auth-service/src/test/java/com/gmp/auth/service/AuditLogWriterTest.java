@@ -0,0 +1,225 @@
+package com.gmp.auth.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.auth.entity.OperationLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AuditLogWriter测试类
+ */
+class AuditLogWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @InjectMocks
+    private AuditLogWriter auditLogWriter;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(auditLogWriter, "deadLetterPath", tempDir.resolve("dead-letter.log").toString());
+        auditLogWriter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        auditLogWriter.stop();
+    }
+
+    @Test
+    void testCriticalEventWrittenSynchronously() {
+        auditLogWriter.write(createLog("admin"), true);
+
+        // 调用返回前已写入数据库
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1, auditLogWriter.getWrittenCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNonCriticalEventsGroupCommitted() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CountDownLatch released = new CountDownLatch(1);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    batchSizes.add(((Collection<OperationLog>) invocation.getArgument(1)).size());
+                    // 阻塞第一次写入，使后续日志在队列中积压
+                    released.await(5, TimeUnit.SECONDS);
+                    return new int[0][];
+                });
+
+        for (int i = 0; i < 20; i++) {
+            auditLogWriter.write(createLog("user" + i), false);
+        }
+        released.countDown();
+        auditLogWriter.stop();
+
+        assertEquals(20, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < 20, "日志应按批次写入");
+        assertEquals(0, auditLogWriter.getQueueDepth());
+    }
+
+    @Test
+    void testBatchFailureRetriesRowByRow() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("row failed"));
+
+        auditLogWriter.write(createLog("good"), true);
+        // 关键事件未写入数据库时调用方的业务操作失败
+        assertThrows(IllegalStateException.class, () -> auditLogWriter.write(createLog("bad"), true));
+
+        ArgumentCaptor<PreparedStatementSetter> captor = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate, times(2)).update(eq(AuditLogWriter.INSERT_SQL), captor.capture());
+        assertEquals(1, auditLogWriter.getWrittenCount());
+        assertEquals(1, auditLogWriter.getFailedCount());
+        assertEquals(1, auditLogWriter.getDeadLetterCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReplayKeepsWriteAheadLogWhenDatabaseFails() throws Exception {
+        Path wal = useWriteAheadLog();
+        Files.write(wal, List.of(objectMapper.writeValueAsString(createLog("pending1")),
+                objectMapper.writeValueAsString(createLog("pending2"))), StandardCharsets.UTF_8);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        auditLogWriter.start();
+        auditLogWriter.stop();
+
+        List<String> kept = Files.readAllLines(wal, StandardCharsets.UTF_8);
+        assertEquals(2, kept.size());
+        assertTrue(kept.get(0).contains("pending1"));
+        assertEquals(0, auditLogWriter.getDeadLetterCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPoisonRowMovedToDeadLetterAndWriteAheadLogTruncated() throws Exception {
+        Path wal = useWriteAheadLog();
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("value too long"));
+
+        auditLogWriter.start();
+        auditLogWriter.write(createLog("poison"), false);
+        auditLogWriter.stop();
+
+        assertEquals(1, auditLogWriter.getDeadLetterCount());
+        assertTrue(Files.readAllLines(tempDir.resolve("dead-letter.log"), StandardCharsets.UTF_8).get(0).contains("poison"));
+        assertEquals(0, Files.size(wal));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransientFailureRetriedAfterDatabaseRecovers() throws Exception {
+        ReflectionTestUtils.setField(auditLogWriter, "retryIntervalMillis", 10L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"))
+                .thenReturn(new int[0][]);
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        // 默认SYNC_CRITICAL模式下非关键事件异步写入
+        auditLogWriter.write(createLog("transient"), false);
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (auditLogWriter.getWrittenCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, auditLogWriter.getWrittenCount());
+        assertEquals(1, auditLogWriter.getFailedCount());
+        assertEquals(0, auditLogWriter.getDeadLetterCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransientFailureDeadLetteredOnStop() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        auditLogWriter.write(createLog("unwritten"), false);
+        auditLogWriter.stop();
+
+        // 没有预写文件兜底，停止时仍未写入的记录转入死信文件而不是丢失
+        assertEquals(0, auditLogWriter.getWrittenCount());
+        assertEquals(1, auditLogWriter.getDeadLetterCount());
+        assertTrue(Files.readAllLines(tempDir.resolve("dead-letter.log"), StandardCharsets.UTF_8).get(0).contains("unwritten"));
+    }
+
+    @Test
+    void testWriteAfterStopFallsBackToSync() {
+        auditLogWriter.stop();
+
+        auditLogWriter.write(createLog("late"), false);
+
+        verify(jdbcTemplate, times(1)).batchUpdate(eq(AuditLogWriter.INSERT_SQL), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    /**
+     * 停止默认模式的写入器并切换为WRITE_AHEAD模式，由测试自行启动
+     */
+    private Path useWriteAheadLog() {
+        auditLogWriter.stop();
+        Path wal = tempDir.resolve("audit-wal.log");
+        ReflectionTestUtils.setField(auditLogWriter, "durability", AuditLogWriter.Durability.WRITE_AHEAD);
+        ReflectionTestUtils.setField(auditLogWriter, "walPath", wal.toString());
+        return wal;
+    }
+
+    private OperationLog createLog(String username) {
+        return OperationLog.builder()
+                .userId(1L)
+                .username(username)
+                .operation(OperationLog.OperationType.LOGIN.name())
+                .module(OperationLog.Module.AUTH.name())
+                .action("用户登录成功")
+                .result(OperationLog.Result.SUCCESS)
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package com.gmp.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * OperationLogPartitionManager测试类
+ */
+class OperationLogPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @InjectMocks
+    private OperationLogPartitionManager partitionManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        when(connection.getMetaData()).thenReturn(metaData);
+        when(connection.createStatement()).thenReturn(statement);
+        // 在模拟连接上执行回调，以便校验实际执行的DDL
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(connection));
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any()))
+                .thenReturn(true);
+    }
+
+    @Test
+    void testPurgeDetachesOnlyFullyExpiredPartitions() throws Exception {
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), any())).thenReturn(List.of(
+                "user_operation_logs_p202403", "user_operation_logs_p202401", "user_operation_logs_p202402",
+                "user_operation_logs_default"));
+        when(jdbcTemplate.queryForObject(contains("reltuples"), eq(Long.class), eq("user_operation_logs_p202401")))
+                .thenReturn(10L);
+        // 从未分析过的分区没有估算值
+        when(jdbcTemplate.queryForObject(contains("reltuples"), eq(Long.class), eq("user_operation_logs_p202402")))
+                .thenReturn(-1L);
+
+        long removed = partitionManager.purgePartitionsBefore(LocalDateTime.of(2024, 3, 15, 0, 0));
+
+        assertEquals(10, removed);
+        verify(jdbcTemplate, never()).queryForObject(startsWith("SELECT count(*)"), eq(Long.class));
+        verify(statement).execute("ALTER TABLE user_operation_logs DETACH PARTITION user_operation_logs_p202401");
+        verify(statement).execute("ALTER TABLE user_operation_logs DETACH PARTITION user_operation_logs_p202402");
+        verify(statement, never()).execute(contains("user_operation_logs_p202403"));
+        verify(statement, never()).execute(contains("user_operation_logs_default"));
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS user_operation_logs_p202401");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS user_operation_logs_p202402");
+        verify(statement, times(2)).execute("RESET lock_timeout");
+    }
+
+    @Test
+    void testCreatesMissingFuturePartitions() throws Exception {
+        YearMonth current = YearMonth.now();
+        when(jdbcTemplate.queryForList(contains("pg_inherits"), eq(String.class), any())).thenReturn(List.of(
+                OperationLogPartitionManager.partitionName(current)));
+
+        int created = partitionManager.createFuturePartitions();
+
+        assertEquals(3, created);
+        verify(statement).execute("CREATE TABLE IF NOT EXISTS "
+                + OperationLogPartitionManager.partitionName(current.plusMonths(1))
+                + " PARTITION OF user_operation_logs FOR VALUES FROM ('" + current.plusMonths(1).atDay(1)
+                + "') TO ('" + current.plusMonths(2).atDay(1) + "')");
+        verify(statement, never()).execute(contains(OperationLogPartitionManager.partitionName(current) + " "));
+    }
+
+    @Test
+    void testNoOpWhenTableNotPartitioned() {
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), any()))
+                .thenReturn(false);
+
+        assertEquals(0, partitionManager.createFuturePartitions());
+        assertEquals(0, partitionManager.purgePartitionsBefore(LocalDateTime.now()));
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(String.class), any());
+    }
+}
@@ -0,0 +1,102 @@
+package com.gmp.auth.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VerifiedTokenCache测试类
+ */
+class VerifiedTokenCacheTest {
+
+    private VerifiedTokenCache cache;
+
+    private UserDetails userDetails;
+
+    @BeforeEach
+    void setUp() {
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "maxSize", 10);
+        ReflectionTestUtils.setField(cache, "maxTtlMillis", 60000L);
+        userDetails = new User("testuser", "password",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @Test
+    void testPutAndGet() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        cache.put("token-1", "testuser", Set.of("USER"), List.of("read:user"), userDetails, expiration);
+
+        VerifiedTokenCache.VerifiedToken verified = cache.get("token-1");
+        assertNotNull(verified);
+        assertEquals("testuser", verified.getUsername());
+        assertEquals(Set.of("USER"), verified.getRoles());
+        assertEquals(List.of("read:user"), verified.getPermissions());
+        assertSame(userDetails, verified.getUserDetails());
+        assertNull(cache.get("token-2"));
+        assertNull(cache.get(null));
+    }
+
+    @Test
+    void testEntryBoundedByTokenExpiration() {
+        Date expired = new Date(System.currentTimeMillis() - 1000);
+        cache.put("expired-token", "testuser", Set.of(), List.of(), userDetails, expired);
+
+        assertNull(cache.get("expired-token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEntryBoundedByMaxTtl() {
+        ReflectionTestUtils.setField(cache, "maxTtlMillis", 0L);
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        cache.put("token-1", "testuser", Set.of(), List.of(), userDetails, expiration);
+
+        assertNull(cache.get("token-1"));
+    }
+
+    @Test
+    void testInvalidate() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        cache.put("token-1", "testuser", Set.of(), List.of(), userDetails, expiration);
+        cache.put("token-2", "testuser", Set.of(), List.of(), userDetails, expiration);
+
+        cache.invalidate("token-1");
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+    }
+
+    @Test
+    void testInvalidateUser() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        cache.put("token-1", "testuser", Set.of(), List.of(), userDetails, expiration);
+        cache.put("token-2", "otheruser", Set.of(), List.of(), userDetails, expiration);
+
+        cache.invalidateUser("testuser");
+
+        assertNull(cache.get("token-1"));
+        assertNotNull(cache.get("token-2"));
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        Date expiration = new Date(System.currentTimeMillis() + 3600000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("token-" + i, "testuser", Set.of(), List.of(), userDetails, expiration);
+        }
+
+        assertTrue(cache.size() <= 10);
+        assertNotNull(cache.get("token-99"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.gmp.auth.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.auth.dto.KeysetPage;
+import com.gmp.auth.entity.OperationLog;
+import com.gmp.auth.repository.OperationLogRepository;
+import com.gmp.auth.service.AuditLogWriter;
+import com.gmp.auth.service.OperationLogPartitionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * AuditLogServiceImpl测试类
+ */
+class AuditLogServiceImplTest {
+
+    @Mock
+    private OperationLogRepository operationLogRepository;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private OperationLogPartitionManager partitionManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private AuditLogServiceImpl auditLogService;
+
+    private final LocalDateTime baseTime = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testKeysetPaginationReturnsCursorForNextPage() {
+        when(operationLogRepository.findByUserIdAfterCursor(eq(1L), any(), any(), any(Pageable.class)))
+                .thenReturn(createLogs(3, 100L));
+
+        KeysetPage<OperationLog> firstPage = auditLogService.findLogsByUserId(1L, null, 2);
+
+        assertEquals(2, firstPage.getSize());
+        assertTrue(firstPage.isHasNext());
+
+        // 使用返回的游标查询下一页，游标解码为上一页最后一条记录的(操作时间, ID)
+        when(operationLogRepository.findByUserIdAfterCursor(eq(1L), any(), any(), any(Pageable.class)))
+                .thenReturn(createLogs(1, 98L));
+        KeysetPage<OperationLog> secondPage = auditLogService.findLogsByUserId(1L, firstPage.getNextCursor(), 2);
+
+        ArgumentCaptor<LocalDateTime> timeCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<Long> idCaptor = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Pageable> pageCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(operationLogRepository, times(2)).findByUserIdAfterCursor(eq(1L), timeCaptor.capture(),
+                idCaptor.capture(), pageCaptor.capture());
+        assertEquals(baseTime.minusMinutes(1), timeCaptor.getAllValues().get(1));
+        assertEquals(99L, idCaptor.getAllValues().get(1));
+        assertEquals(3, pageCaptor.getValue().getPageSize());
+        assertFalse(secondPage.isHasNext());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void testInvalidCursorRejected() {
+        assertThrows(IllegalArgumentException.class, () ->
+                auditLogService.findFailedOperations(baseTime, "not-a-cursor", 20));
+    }
+
+    @Test
+    void testStatisticsUseDatabaseAggregates() {
+        when(operationLogRepository.countByResult(any(), any())).thenReturn(List.of(
+                new Object[]{OperationLog.Result.SUCCESS, 8L},
+                new Object[]{OperationLog.Result.FAILED, 2L}));
+        when(operationLogRepository.countByOperation(any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{"LOGIN", 10L}));
+        when(operationLogRepository.countByModule(any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{"AUTH", 10L}));
+
+        Map<String, Object> statistics = auditLogService.getOperationStatistics(baseTime.minusDays(1), baseTime);
+
+        assertEquals(10L, statistics.get("totalOperations"));
+        assertEquals(8L, statistics.get("successCount"));
+        assertEquals(2L, statistics.get("failedCount"));
+        assertEquals(Map.of("LOGIN", 10L), statistics.get("operationTypeStats"));
+        verify(operationLogRepository, never()).findByOperationTimeBetween(any(), any());
+    }
+
+    @Test
+    void testUnsupportedExportFormat() {
+        assertThrows(IllegalArgumentException.class, () ->
+                auditLogService.exportLogs(Map.of(), "xml", new ByteArrayOutputStream()));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testCleanupDropsExpiredPartitionsBeforeDeleting() {
+        when(partitionManager.purgePartitionsBefore(any())).thenReturn(100L);
+        when(operationLogRepository.deleteLogsBefore(any())).thenReturn(42);
+
+        assertEquals(142, auditLogService.cleanupOldLogs(30));
+
+        ArgumentCaptor<LocalDateTime> cutoffCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(partitionManager).purgePartitionsBefore(cutoffCaptor.capture());
+        verify(operationLogRepository).deleteLogsBefore(cutoffCaptor.getValue());
+        verify(operationLogRepository, never()).findByOperationTimeBetween(any(), any());
+    }
+
+    private List<OperationLog> createLogs(int count, long firstId) {
+        List<OperationLog> logs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            OperationLog log = OperationLog.builder()
+                    .id(firstId - i)
+                    .userId(1L)
+                    .operation(OperationLog.OperationType.LOGIN.name())
+                    .module(OperationLog.Module.AUTH.name())
+                    .action("用户登录成功")
+                    .operationTime(baseTime.minusMinutes(i))
+                    .build();
+            logs.add(log);
+        }
+        return logs;
+    }
+}
@@ -3,6 +3,7 @@ package com.gmp.auth.service.impl;
 import com.gmp.auth.dto.*;
 import com.gmp.auth.entity.User;
 import com.gmp.auth.exception.*;
+import com.gmp.auth.model.UserAccessSnapshot;
 import com.gmp.auth.repository.UserRepository;
 import com.gmp.auth.service.*;
 import com.gmp.auth.config.JwtProperties;
@@ -13,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -72,6 +74,9 @@ class AuthServiceImplTest {
     
     @Mock
     private JwtProperties jwtProperties;
+    
+    @Spy
+    private AccessDecisionEngine accessDecisionEngine = new AccessDecisionEngine();
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -175,9 +180,7 @@ class AuthServiceImplTest {
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
         when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
         when(userRoleService.getUserRoleCodes(1L)).thenReturn(Set.of("USER"));
-        when(userOrganizationRoleService.getUserRoleCodesInOrganization(1L, null)).thenReturn(Set.of("USER"));
-        when(userOrganizationRoleService.getUserSubsystemAccessLevels(1L, null)).thenReturn(Map.of());
-        when(rolePermissionService.getUserPermissionCodes(1L)).thenReturn(Set.of("READ_DATA"));
+        when(userOrganizationRoleService.resolveUserAccess(1L)).thenReturn(accessSnapshot(Set.of("READ_DATA")));
         when(jwtUtil.generateRefreshToken(any(UserDetails.class))).thenReturn("access_token");
         when(jwtProperties.getExpiration()).thenReturn(3600L);
         
@@ -195,11 +198,45 @@ class AuthServiceImplTest {
         assertEquals(1, response.getRoles().size());
         assertTrue(response.getRoles().contains("USER"));
         assertEquals(List.of("READ_DATA"), response.getPermissions());
+        assertEquals(List.of("PROFILE"), response.getAccessibleSubsystems());
+        assertEquals(Map.of("PROFILE", 1), response.getSubsystemAccessLevels());
+        // 角色、权限和子系统访问只解析一次组织角色图
+        verify(userOrganizationRoleService, times(1)).resolveUserAccess(1L);
+        verify(userOrganizationRoleService, never()).getUserRoleCodesInOrganization(anyLong(), any());
         
         // 验证调用了审计日志服务
         verify(auditLogService).logLoginSuccess("testuser", "127.0.0.1", "Mozilla/5.0");
     }
 
+    @Test
+    void testLogin_GlobalRolesOnly() {
+        LoginRequest request = new LoginRequest();
+        try {
+            Field usernameField = LoginRequest.class.getDeclaredField("username");
+            usernameField.setAccessible(true);
+            usernameField.set(request, "testuser");
+            
+            Field passwordField = LoginRequest.class.getDeclaredField("password");
+            passwordField.setAccessible(true);
+            passwordField.set(request, "password");
+        } catch (Exception e) {
+            // 忽略异常
+        }
+        
+        // 用户没有任何组织角色，只有全局角色
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches("password", "encodedPassword")).thenReturn(true);
+        when(userRoleService.getUserRoleCodes(1L)).thenReturn(Set.of("ADMIN"));
+        when(userOrganizationRoleService.resolveUserAccess(1L)).thenReturn(UserAccessSnapshot.empty(1L));
+        when(jwtUtil.generateRefreshToken(any(UserDetails.class))).thenReturn("access_token");
+        when(jwtProperties.getExpiration()).thenReturn(3600L);
+        
+        LoginResponse response = authService.login(request, "127.0.0.1", "Mozilla/5.0");
+        
+        assertEquals(List.of("ADMIN"), response.getRoles());
+        assertTrue(response.getPermissions().isEmpty());
+    }
+
     @Test
     void testLogin_InvalidPassword() {
         // 准备
@@ -332,8 +369,8 @@ class AuthServiceImplTest {
     void testHasPermission_UserHasRequiredPermission() {
         // 准备
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(userOrganizationRoleService.getUserPermissionCodesAcrossOrganizations(1L))
-            .thenReturn(Set.of("ADMINISTER", "READ_USER"));
+        when(userOrganizationRoleService.resolveUserAccess(1L))
+            .thenReturn(accessSnapshot(Set.of("ADMINISTER", "READ_USER")));
         
         // 执行
         boolean result = authService.hasPermission("testuser", "ADMINISTER");
@@ -346,8 +383,8 @@ class AuthServiceImplTest {
     void testHasPermission_UserDoesNotHaveRequiredPermission() {
         // 准备
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
-        when(userOrganizationRoleService.getUserPermissionCodesAcrossOrganizations(1L))
-            .thenReturn(Set.of("READ_USER", "WRITE_USER"));
+        when(userOrganizationRoleService.resolveUserAccess(1L))
+            .thenReturn(accessSnapshot(Set.of("READ_USER", "WRITE_USER")));
         
         // 执行
         boolean result = authService.hasPermission("testuser", "ADMINISTER");
@@ -357,6 +394,32 @@ class AuthServiceImplTest {
         // 注意：实际的实现不会记录权限拒绝日志
     }
 
+    @Test
+    void testHasPermission_ReusesCompiledDecisionUntilPolicyChanges() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userOrganizationRoleService.resolveUserAccess(1L))
+            .thenReturn(accessSnapshot(Set.of("READ_USER")))
+            .thenReturn(accessSnapshot(Set.of("READ_USER", "ADMINISTER")));
+
+        assertTrue(authService.hasPermission("testuser", "READ_USER"));
+        assertFalse(authService.hasPermission("testuser", "ADMINISTER"));
+        verify(userOrganizationRoleService, times(1)).resolveUserAccess(1L);
+
+        // 策略变更后重新编译
+        accessDecisionEngine.invalidateAll();
+
+        assertTrue(authService.hasPermission("testuser", "ADMINISTER"));
+        verify(userOrganizationRoleService, times(2)).resolveUserAccess(1L);
+    }
+
+    private UserAccessSnapshot accessSnapshot(Set<String> permissionCodes) {
+        return new UserAccessSnapshot(1L,
+            Map.of(10L, Set.of("USER")),
+            Map.of(10L, permissionCodes),
+            Map.of(10L, Set.of("PROFILE")),
+            Map.of(10L, Map.of("PROFILE", 1)));
+    }
+
     @Test
     void testHasRole_UserHasRequiredRole() {
         // 准备
@@ -763,11 +826,13 @@ class AuthServiceImplTest {
     void testGetUserAccessibleSubsystemCodes() {
         // 准备
         when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userOrganizationRoleService.resolveUserAccess(1L)).thenReturn(accessSnapshot(Set.of("READ_USER")));
         
         // 执行
         Set<String> result = authService.getUserAccessibleSubsystemCodes("testuser");
         
         // 验证
-        assertNotNull(result);
+        assertEquals(Set.of("PROFILE"), result);
+        verify(userOrganizationRoleService, never()).getUserAccessibleSubsystems(anyLong(), anyLong());
     }
 }
@@ -4,6 +4,7 @@ import com.gmp.auth.entity.Permission;
 import com.gmp.auth.entity.RolePermission;
 import com.gmp.auth.repository.PermissionRepository;
 import com.gmp.auth.repository.RolePermissionRepository;
+import com.gmp.auth.service.AccessDecisionEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -31,6 +32,9 @@ class RolePermissionServiceImplTest {
     @Mock
     private PermissionRepository permissionRepository;
 
+    @Mock
+    private AccessDecisionEngine accessDecisionEngine;
+
     @InjectMocks
     private RolePermissionServiceImpl rolePermissionService;
 
@@ -64,6 +68,7 @@ class RolePermissionServiceImplTest {
 
         verify(rolePermissionRepository, times(1)).findByRoleIdAndPermissionId(roleId, permissionId);
         verify(rolePermissionRepository, times(1)).delete(rolePermission);
+        verify(accessDecisionEngine, times(1)).invalidateAll();
     }
 
     @Test
@@ -1,10 +1,12 @@
 package com.gmp.auth.service.impl;
 
+import com.gmp.auth.dto.KeysetPage;
 import com.gmp.auth.entity.OperationLog;
 import com.gmp.auth.service.AuditLogService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +35,27 @@ public class TestAuditLogServiceAdapter implements AuditLogService {
         return new byte[0]; // 返回空字节数组
     }
 
+    @Override
+    public void exportLogs(Map<String, Object> criteria, String exportType, OutputStream outputStream) {
+        // 简化实现，不输出任何内容
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findLogsByUserId(Long userId, String cursor, int size) {
+        return new KeysetPage<>(List.of(), null);
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findLogsByTimeRange(LocalDateTime startTime, LocalDateTime endTime,
+                                                        String cursor, int size) {
+        return new KeysetPage<>(List.of(), null);
+    }
+
+    @Override
+    public KeysetPage<OperationLog> findFailedOperations(LocalDateTime since, String cursor, int size) {
+        return new KeysetPage<>(List.of(), null);
+    }
+
 
 
 
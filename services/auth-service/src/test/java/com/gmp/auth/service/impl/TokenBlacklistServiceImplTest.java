@@ -6,9 +6,11 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.UUID;
 
@@ -150,4 +152,43 @@ class TokenBlacklistServiceImplTest {
             tokenBlacklistService.cleanExpiredTokens();
         });
     }
+
+    @Test
+    void testIsTokenBlacklisted_BloomFilterSkipsRedisForUnknownToken() {
+        tokenBlacklistService.init();
+
+        boolean result = tokenBlacklistService.isTokenBlacklisted("never-revoked-token");
+
+        assertFalse(result);
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    void testIsTokenBlacklisted_BloomFilterHitConfirmedByRedis() {
+        tokenBlacklistService.init();
+        String token = "revoked-token";
+        tokenBlacklistService.blacklistToken(token, System.currentTimeMillis() + 3600000);
+        when(redisTemplate.hasKey(anyString())).thenReturn(true);
+
+        boolean result = tokenBlacklistService.isTokenBlacklisted(token);
+
+        assertTrue(result);
+        verify(redisTemplate, times(1)).hasKey(anyString());
+        verify(redisTemplate, times(1)).convertAndSend(anyString(), any());
+    }
+
+    @Test
+    void testOnMessage_RecordsRevocationFromOtherNode() {
+        tokenBlacklistService.init();
+        String token = "revoked-elsewhere";
+        String tokenKey = UUID.nameUUIDFromBytes(token.getBytes()).toString();
+        long expiration = System.currentTimeMillis() + 3600000;
+        Message message = mock(Message.class);
+        when(message.getBody()).thenReturn((tokenKey + ":" + expiration).getBytes(StandardCharsets.UTF_8));
+        when(redisTemplate.hasKey(anyString())).thenReturn(true);
+
+        tokenBlacklistService.onMessage(message, null);
+
+        assertTrue(tokenBlacklistService.isTokenBlacklisted(token));
+    }
 }
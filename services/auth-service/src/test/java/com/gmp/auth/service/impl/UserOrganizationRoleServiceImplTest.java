@@ -0,0 +1,103 @@
+package com.gmp.auth.service.impl;
+
+import com.gmp.auth.model.UserAccessSnapshot;
+import com.gmp.auth.repository.RoleRepository;
+import com.gmp.auth.repository.UserOrganizationRoleRepository;
+import com.gmp.auth.service.AccessDecisionEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserOrganizationRoleServiceImpl测试类
+ */
+class UserOrganizationRoleServiceImplTest {
+
+    @Mock
+    private UserOrganizationRoleRepository userOrgRoleRepository;
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @Mock
+    private AccessDecisionEngine accessDecisionEngine;
+
+    @InjectMocks
+    private UserOrganizationRoleServiceImpl userOrganizationRoleService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        when(userOrgRoleRepository.findOrganizationRoleCodesByUserId(eq(1L), anySet())).thenReturn(List.of(
+                new Object[]{10L, "QA_MANAGER"},
+                new Object[]{10L, "DOCUMENT_REVIEWER"},
+                new Object[]{20L, "PRODUCTION_MANAGER"}));
+        when(userOrgRoleRepository.findOrganizationPermissionCodesByUserId(eq(1L), anySet())).thenReturn(List.of(
+                new Object[]{10L, "EDMS_READ"},
+                new Object[]{10L, "EDMS_WRITE"},
+                new Object[]{20L, "PRODUCTION_READ"}));
+    }
+
+    @Test
+    void testResolveUserAccessUsesTwoQueries() {
+        UserAccessSnapshot snapshot = userOrganizationRoleService.resolveUserAccess(1L);
+
+        assertEquals(Set.of(10L, 20L), snapshot.getOrganizationIds());
+        assertEquals(Set.of("QA_MANAGER", "DOCUMENT_REVIEWER"), snapshot.getRoleCodes(10L));
+        assertEquals(Set.of("EDMS_READ", "EDMS_WRITE"), snapshot.getPermissionCodes(10L));
+        verify(userOrgRoleRepository, times(1)).findOrganizationRoleCodesByUserId(eq(1L), anySet());
+        verify(userOrgRoleRepository, times(1)).findOrganizationPermissionCodesByUserId(eq(1L), anySet());
+        verifyNoInteractions(roleRepository);
+    }
+
+    @Test
+    void testPermissionCodesAcrossOrganizations() {
+        Set<String> permissions = userOrganizationRoleService.getUserPermissionCodesAcrossOrganizations(1L);
+
+        assertEquals(Set.of("EDMS_READ", "EDMS_WRITE", "PRODUCTION_READ"), permissions);
+        assertTrue(userOrganizationRoleService.hasPermissionInOrganization(1L, 20L, "PRODUCTION_READ"));
+        assertFalse(userOrganizationRoleService.hasPermissionInOrganization(1L, 10L, "PRODUCTION_READ"));
+    }
+
+    @Test
+    void testSubsystemAccessWithoutOrganizationMergesAllOrganizations() {
+        List<String> subsystems = userOrganizationRoleService.getUserAccessibleSubsystems(1L, null);
+        assertTrue(subsystems.containsAll(List.of("EDMS", "PRODUCTION", "PROFILE")));
+
+        Map<String, Integer> levels = userOrganizationRoleService.getUserSubsystemAccessLevels(1L, null);
+        assertEquals(2, levels.get("PRODUCTION"));
+        assertEquals(2, levels.get("PROFILE"));
+    }
+
+    @Test
+    void testSubsystemAccessLevelsKeepHighestLevel() {
+        // DOCUMENT_REVIEWER只授予只读，不能覆盖QA经理的读写级别
+        Map<String, Integer> levels = userOrganizationRoleService.getUserSubsystemAccessLevels(1L, 10L);
+
+        assertEquals(2, levels.get("PROFILE"));
+    }
+
+    @Test
+    void testUserWithoutRolesSkipsPermissionQuery() {
+        when(userOrgRoleRepository.findOrganizationRoleCodesByUserId(eq(2L), anySet()))
+                .thenReturn(Collections.emptyList());
+
+        UserAccessSnapshot snapshot = userOrganizationRoleService.resolveUserAccess(2L);
+
+        assertTrue(snapshot.getOrganizationIds().isEmpty());
+        assertTrue(snapshot.getPermissionCodes(null).isEmpty());
+        verify(userOrgRoleRepository, never()).findOrganizationPermissionCodesByUserId(eq(2L), anySet());
+    }
+}
@@ -0,0 +1,86 @@
+package com.gmp.auth.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TimeSlicedBloomFilter测试类
+ */
+class TimeSlicedBloomFilterTest {
+
+    private static final long HOUR = 3600000L;
+
+    private TimeSlicedBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new TimeSlicedBloomFilter(HOUR, 25, 1000, 0.01);
+    }
+
+    @Test
+    void testPutAndMightContain() {
+        UUID key = UUID.nameUUIDFromBytes("revoked-token".getBytes());
+        assertFalse(filter.mightContain(key));
+
+        filter.put(key, System.currentTimeMillis() + HOUR);
+
+        assertTrue(filter.mightContain(key));
+    }
+
+    @Test
+    void testExpiredElementIsIgnored() {
+        UUID key = UUID.nameUUIDFromBytes("expired-token".getBytes());
+
+        filter.put(key, System.currentTimeMillis() - 1000);
+
+        assertFalse(filter.mightContain(key));
+    }
+
+    @Test
+    void testElementBeyondHorizonUsesOverflow() {
+        UUID key = UUID.nameUUIDFromBytes("long-lived-token".getBytes());
+
+        filter.put(key, System.currentTimeMillis() + filter.getHorizonMillis() + HOUR);
+
+        assertTrue(filter.mightContain(key));
+    }
+
+    @Test
+    void testNoFalseNegatives() {
+        long expiresAt = System.currentTimeMillis() + 2 * HOUR;
+        for (int i = 0; i < 1000; i++) {
+            filter.put(UUID.nameUUIDFromBytes(("token-" + i).getBytes()), expiresAt);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain(UUID.nameUUIDFromBytes(("token-" + i).getBytes())));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateIsBounded() {
+        long expiresAt = System.currentTimeMillis() + 2 * HOUR;
+        for (int i = 0; i < 1000; i++) {
+            filter.put(UUID.nameUUIDFromBytes(("token-" + i).getBytes()), expiresAt);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain(UUID.nameUUIDFromBytes(("other-" + i).getBytes()))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 500, "误判次数过多: " + falsePositives);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeSlicedBloomFilter(0, 25, 1000, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new TimeSlicedBloomFilter(HOUR, 2, 1000, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new TimeSlicedBloomFilter(HOUR, 25, 1000, 1.5));
+    }
+}
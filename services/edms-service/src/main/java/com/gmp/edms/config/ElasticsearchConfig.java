@@ -1,12 +1,39 @@
 package com.gmp.edms.config;
 
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.elasticsearch.repository.config.EnableElasticsearchRepositories;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 @EnableElasticsearchRepositories(basePackages = "com.gmp.edms.repository")
 public class ElasticsearchConfig {
     // Spring Boot 3.x中，Spring Data Elasticsearch会自动配置Elasticsearch客户端
     // 不需要显式配置RestHighLevelClient
-}
 
+    /**
+     * 索引流水线达到批大小时提前刷新使用的线程，已有刷新任务等待执行时拒绝提交，由定时刷新处理
+     */
+    @Bean(name = "searchIndexingExecutor")
+    public ThreadPoolTaskExecutor searchIndexingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("search-indexing-");
+        return executor;
+    }
+
+    /**
+     * 重建索引使用的线程，同一时刻只执行一个重建任务
+     */
+    @Bean(name = "searchReindexExecutor")
+    public ThreadPoolTaskExecutor searchReindexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("search-reindex-");
+        return executor;
+    }
+}
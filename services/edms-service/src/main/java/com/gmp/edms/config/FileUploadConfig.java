@@ -0,0 +1,38 @@
+package com.gmp.edms.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 文件上传配置类
+ */
+@Configuration
+public class FileUploadConfig {
+
+    @Value("${edms.batch-upload.concurrency:8}")
+    private int concurrency;
+
+    @Value("${edms.batch-upload.queue-capacity:500}")
+    private int queueCapacity;
+
+    /**
+     * 批量上传使用的线程池，限制同时向存储服务传输的文件数
+     * 队列满时由提交任务的线程自行执行，避免无限堆积
+     */
+    @Bean(name = "fileUploadExecutor")
+    public ThreadPoolTaskExecutor fileUploadExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("file-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+}
@@ -39,6 +39,8 @@ public class RedisCacheConfig {
                 .withCacheConfiguration("documents", cacheConfiguration.entryTtl(Duration.ofHours(2)))
                 .withCacheConfiguration("documentCategories", cacheConfiguration.entryTtl(Duration.ofDays(1)))
                 .withCacheConfiguration("documentVersions", cacheConfiguration.entryTtl(Duration.ofHours(1)))
+                // 版本内容差异只取决于两个版本的校验和，内容不变时结果不会失效
+                .withCacheConfiguration("versionDiffs", cacheConfiguration.entryTtl(Duration.ofDays(7)))
                 .build();
     }
 }
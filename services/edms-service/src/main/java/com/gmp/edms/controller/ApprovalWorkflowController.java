@@ -62,10 +62,15 @@ public class ApprovalWorkflowController {
 
     /**
      * 获取用户的待办审批任务
+     * 传入size时分页返回，下一页以上一页最后一条任务的实例ID作为afterId
      */
     @GetMapping("/pending/{userId}")
-    public ApiResponse<List<ApprovalInstanceDTO>> getPendingTasks(@PathVariable String userId) {
-        List<ApprovalInstanceDTO> tasks = approvalWorkflowService.getPendingTasks(userId);
+    public ApiResponse<List<ApprovalInstanceDTO>> getPendingTasks(@PathVariable String userId,
+                                                                  @RequestParam(required = false) Long afterId,
+                                                                  @RequestParam(required = false) Integer size) {
+        List<ApprovalInstanceDTO> tasks = size != null
+                ? approvalWorkflowService.getPendingTasks(userId, afterId, size)
+                : approvalWorkflowService.getPendingTasks(userId);
         return ApiResponse.success("获取待办任务成功", tasks);
     }
 
@@ -7,6 +7,7 @@ import com.gmp.edms.dto.DocumentUpdateDTO;
 import com.gmp.edms.dto.PageRequestDTO;
 import com.gmp.edms.dto.PageResponseDTO;
 import com.gmp.edms.service.DocumentService;
+import com.gmp.edms.util.FieldAccessors;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
@@ -21,7 +22,6 @@ import java.util.List;
 import java.util.Map;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -296,36 +296,11 @@ public class DocumentController {
      */
 
     /**
-     * 使用反射获取对象字段值
+     * 获取对象字段值
      */
-    private Object getFieldValue(Object object, String fieldName, Object defaultValue) throws Exception {
-        Field field = findField(object.getClass(), fieldName);
-        if (field != null) {
-            boolean accessible = field.isAccessible();
-            field.setAccessible(true);
-            try {
-                return field.get(object);
-            } finally {
-                field.setAccessible(accessible);
-            }
-        }
-        return defaultValue;
-    }
-
-    /**
-     * 使用反射查找字段（包括父类）
-     */
-    private Field findField(Class<?> clazz, String fieldName) {
-        for (Field field : clazz.getDeclaredFields()) {
-            if (field.getName().equals(fieldName)) {
-                return field;
-            }
-        }
-        Class<?> superClass = clazz.getSuperclass();
-        if (superClass != null && superClass != Object.class) {
-            return findField(superClass, fieldName);
-        }
-        return null;
+    private Object getFieldValue(Object object, String fieldName, Object defaultValue) {
+        Object value = FieldAccessors.get(object, fieldName);
+        return value != null ? value : defaultValue;
     }
 
     // 移除重复的getFileNameFromPath方法，保留第112行的实现
@@ -2,18 +2,25 @@ package com.gmp.edms.controller;
 
 import com.gmp.edms.dto.ApiResponse;
 import com.gmp.edms.dto.CompareDocumentVersionsDTO;
+import com.gmp.edms.dto.DocumentDiffDTO;
 import com.gmp.edms.dto.DocumentVersionDTO;
 import com.gmp.edms.dto.RestoreDocumentDTO;
 import com.gmp.edms.service.DocumentVersionService;
+import com.gmp.edms.util.FieldAccessors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -79,12 +86,13 @@ public class DocumentVersionController {
 
     /**
      * 下载文档版本
+     * 文件内容从存储服务直接流式写出，支持单个字节范围请求（断点续传、分段下载）
      */
     @GetMapping("/{versionId}/download")
-    public ResponseEntity<byte[]> downloadDocumentVersion(@PathVariable Long versionId) throws Exception {
+    public ResponseEntity<StreamingResponseBody> downloadDocumentVersion(@PathVariable Long versionId,
+            @RequestHeader HttpHeaders requestHeaders) throws Exception {
 
         DocumentVersionDTO versionDTO = documentVersionService.getVersionById(versionId);
-        byte[] fileData = documentVersionService.downloadDocumentVersion(versionId);
 
         HttpHeaders headers = new HttpHeaders();
         // 使用反射获取fullFileName字段
@@ -92,12 +100,71 @@ public class DocumentVersionController {
         if (fullFileName == null || fullFileName.isEmpty()) {
             fullFileName = "document_version_" + versionId + ".bin";
         }
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fullFileName);
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(fullFileName, StandardCharsets.UTF_8).build());
         // 简化处理，实际应用中应根据文件扩展名设置正确的Content-Type
-        headers.add(HttpHeaders.CONTENT_TYPE, "application/octet-stream");
-        headers.add(HttpHeaders.CONTENT_LENGTH, String.valueOf(fileData.length));
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        String checksum = getFieldValue(versionDTO, "checksum");
+        if (checksum != null && !checksum.isEmpty()) {
+            headers.setETag("\"" + checksum + "\"");
+        }
+
+        // 文件大小未知时无法处理范围请求，直接输出完整内容
+        Long fileSize = getFieldValue(versionDTO, "fileSize");
+        if (fileSize == null) {
+            return new ResponseEntity<>(streamVersion(versionId, 0, -1), headers, HttpStatus.OK);
+        }
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(fileSize);
+        }
+
+        // 多段范围或If-Range校验失败（文件已变更）时返回完整内容
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ranges.size() != 1 || (ifRange != null && !ifRange.equals(headers.getETag()))) {
+            headers.setContentLength(fileSize);
+            return new ResponseEntity<>(streamVersion(versionId, 0, -1), headers, HttpStatus.OK);
+        }
+
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(fileSize);
+            end = ranges.get(0).getRangeEnd(fileSize);
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(fileSize);
+        }
+        long length = end - start + 1;
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        headers.setContentLength(length);
+
+        return new ResponseEntity<>(streamVersion(versionId, start, length), headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * 将存储服务的输入流按块写入响应，不在内存中缓冲整个文件
+     */
+    private StreamingResponseBody streamVersion(Long versionId, long offset, long length) {
+        return outputStream -> {
+            try (InputStream inputStream = documentVersionService.openDocumentVersionStream(versionId, offset,
+                    length)) {
+                inputStream.transferTo(outputStream);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("读取文档版本失败: " + e.getMessage(), e);
+            }
+        };
+    }
 
-        return new ResponseEntity<>(fileData, headers, HttpStatus.OK);
+    private ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(long fileSize) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                .build();
     }
 
     /**
@@ -236,38 +303,26 @@ public class DocumentVersionController {
     }
 
     /**
-     * 使用反射安全地获取对象字段值
+     * 比较文档两个版本的文件内容，返回逐行差异
      */
-    @SuppressWarnings("unchecked")
-    private <T> T getFieldValue(Object object, String fieldName) {
-        if (object == null || fieldName == null || fieldName.isEmpty()) {
-            return null;
-        }
-
-        Class<?> clazz = object.getClass();
-        while (clazz != null) {
-            try {
-                Field field = findField(clazz, fieldName);
-                if (field != null) {
-                    field.setAccessible(true);
-                    return (T) field.get(object);
-                }
-            } catch (Exception e) {
-                // 忽略异常，继续查找父类
-            }
-            clazz = clazz.getSuperclass();
+    @PostMapping("/compare/diff")
+    public ApiResponse<DocumentDiffDTO> diffDocumentVersions(@RequestBody CompareDocumentVersionsDTO compareDTO) {
+        try {
+            DocumentDiffDTO diff = documentVersionService.diffDocumentVersions(
+                    getFieldValue(compareDTO, "documentId"),
+                    getFieldValue(compareDTO, "fromVersionId"),
+                    getFieldValue(compareDTO, "toVersionId"));
+            return ApiResponse.success("文档版本内容对比完成", diff);
+        } catch (Exception e) {
+            return ApiResponse.error("文档版本内容对比失败: " + e.getMessage());
         }
-        return null;
     }
 
     /**
-     * 查找字段，包括私有字段
+     * 安全地获取对象字段值
      */
-    private Field findField(Class<?> clazz, String fieldName) {
-        try {
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            return null;
-        }
+    @SuppressWarnings("unchecked")
+    private <T> T getFieldValue(Object object, String fieldName) {
+        return (T) FieldAccessors.get(object, fieldName);
     }
 }
\ No newline at end of file
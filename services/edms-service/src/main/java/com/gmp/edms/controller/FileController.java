@@ -1,5 +1,6 @@
 package com.gmp.edms.controller;
 
+import com.gmp.edms.dto.BatchUploadResultDTO;
 import com.gmp.edms.dto.CommonFileDTO;
 import com.gmp.edms.dto.CommonFileUploadDTO;
 import com.gmp.edms.service.CommonFileService;
@@ -52,13 +53,16 @@ public class FileController {
      */
     @PostMapping("/batch-upload")
     @Operation(summary = "批量上传文件")
-    public ApiResponse<List<CommonFileDTO>> batchUploadFiles(
+    public ApiResponse<BatchUploadResultDTO> batchUploadFiles(
             @RequestParam("files") List<MultipartFile> files,
             @RequestParam("module") String module,
             @RequestParam(required = false) Map<String, Object> metadata) {
         try {
-            List<CommonFileDTO> fileDTOs = commonFileService.batchUploadFiles(files, module, metadata);
-            return ApiResponse.success("文件批量上传成功", fileDTOs);
+            // 返回逐个文件的上传结果，部分文件失败时其余文件仍正常保存
+            BatchUploadResultDTO result = commonFileService.batchUpload(files, module, metadata);
+            String message = result.getFailed() == 0 ? "文件批量上传成功"
+                    : String.format("文件批量上传完成，成功%d个，失败%d个", result.getSucceeded(), result.getFailed());
+            return ApiResponse.success(message, result);
         } catch (Exception e) {
             return ApiResponse.error("文件批量上传失败：" + e.getMessage());
         }
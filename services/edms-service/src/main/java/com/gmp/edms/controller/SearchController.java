@@ -3,6 +3,10 @@ package com.gmp.edms.controller;
 import com.gmp.edms.dto.ApiResponse;
 import com.gmp.edms.dto.DocumentDTO;
 import com.gmp.edms.dto.DocumentQueryDTO;
+import com.gmp.edms.dto.DocumentSearchRequestDTO;
+import com.gmp.edms.dto.DocumentSearchResultDTO;
+import com.gmp.edms.entity.SearchReindexJob;
+import com.gmp.edms.service.DocumentReindexService;
 import com.gmp.edms.service.DocumentSearchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,6 +25,8 @@ public class SearchController {
 
     private final DocumentSearchService documentSearchService;
 
+    private final DocumentReindexService documentReindexService;
+
     /**
      * 全文搜索
      * 
@@ -44,4 +50,47 @@ public class SearchController {
         List<DocumentDTO> documents = documentSearchService.advancedSearch(queryDTO);
         return ApiResponse.success("搜索成功", documents);
     }
+
+    /**
+     * 分页搜索
+     * 
+     * @param request 搜索条件，翻页时传入上一页返回的nextCursor
+     * @return 当前页结果、高亮片段和分类统计
+     */
+    @PostMapping
+    public ApiResponse<DocumentSearchResultDTO> search(@RequestBody DocumentSearchRequestDTO request) {
+        DocumentSearchResultDTO result = documentSearchService.search(request);
+        return ApiResponse.success("搜索成功", result);
+    }
+
+    /**
+     * 重建搜索索引，已有未完成的任务时继续该任务
+     * 
+     * @param operator 操作人
+     * @return 重建任务
+     */
+    @PostMapping("/reindex")
+    public ApiResponse<SearchReindexJob> startReindex(@RequestParam(required = false) String operator) {
+        return ApiResponse.success("索引重建已开始", documentReindexService.startReindex(operator));
+    }
+
+    /**
+     * 继续执行中断的索引重建任务
+     * 
+     * @return 重建任务
+     */
+    @PostMapping("/reindex/resume")
+    public ApiResponse<SearchReindexJob> resumeReindex() {
+        return ApiResponse.success("索引重建已继续", documentReindexService.resumeReindex());
+    }
+
+    /**
+     * 查询最近一个索引重建任务
+     * 
+     * @return 重建任务
+     */
+    @GetMapping("/reindex")
+    public ApiResponse<SearchReindexJob> getReindexJob() {
+        return ApiResponse.success("查询成功", documentReindexService.getLatestJob());
+    }
 }
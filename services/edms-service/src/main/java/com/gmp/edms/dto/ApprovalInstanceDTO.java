@@ -21,6 +21,8 @@ public class ApprovalInstanceDTO {
 
     private String currentStep;
 
+    private String currentApprover;
+
     private String status; // IN_PROGRESS, APPROVED, REJECTED, WITHDRAWN
 
     private String priority; // NORMAL, HIGH, URGENT
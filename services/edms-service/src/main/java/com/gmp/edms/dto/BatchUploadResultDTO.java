@@ -0,0 +1,38 @@
+package com.gmp.edms.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量上传结果清单
+ */
+@Data
+public class BatchUploadResultDTO {
+
+    private int total;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<Item> items = new ArrayList<>();
+
+    /**
+     * 单个文件的上传结果，顺序与上传的文件列表一致
+     */
+    @Data
+    public static class Item {
+
+        private int index;
+
+        private String fileName;
+
+        private String status; // UPLOADED, DUPLICATE, FAILED
+
+        private CommonFileDTO file;
+
+        private String error;
+    }
+}
@@ -0,0 +1,64 @@
+package com.gmp.edms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文档版本内容差异DTO
+ * 差异按段（hunk）输出，每段包含修改的行及前后若干行上下文，行号从1开始
+ */
+@Data
+public class DocumentDiffDTO {
+
+    private String status; // IDENTICAL, DIFFERENT, UNSUPPORTED, TOO_LARGE
+
+    private String message;
+
+    private int fromLineCount;
+
+    private int toLineCount;
+
+    private int linesAdded;
+
+    private int linesRemoved;
+
+    /**
+     * 差异过大超过计算量上限时为true，此时部分修改区域未细分到行
+     */
+    private boolean approximate;
+
+    /**
+     * 输出行数超过上限时为true，统计数据仍然完整
+     */
+    private boolean truncated;
+
+    private List<Hunk> hunks = new ArrayList<>();
+
+    @Data
+    public static class Hunk {
+
+        private int fromStart;
+
+        private int fromCount;
+
+        private int toStart;
+
+        private int toCount;
+
+        private List<Line> lines = new ArrayList<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+
+        private String type; // CONTEXT, ADDED, REMOVED
+
+        private String text;
+    }
+}
@@ -0,0 +1,45 @@
+package com.gmp.edms.dto;
+
+import lombok.Data;
+
+/**
+ * 文档搜索请求DTO
+ */
+@Data
+public class DocumentSearchRequestDTO {
+
+    /**
+     * 搜索关键词，为空时只按过滤条件查询，结果按更新时间倒序
+     */
+    private String keyword;
+
+    private String documentType;
+
+    private String status;
+
+    private Long categoryId;
+
+    private String author;
+
+    private String department;
+
+    /**
+     * 每页条数，超过上限时按上限返回
+     */
+    private Integer size;
+
+    /**
+     * 翻页游标，取上一页结果的nextCursor，为空时查询第一页
+     */
+    private String cursor;
+
+    /**
+     * 是否返回高亮片段
+     */
+    private boolean highlight = true;
+
+    /**
+     * 是否返回分类统计，只在第一页计算
+     */
+    private boolean facets = true;
+}
@@ -0,0 +1,67 @@
+package com.gmp.edms.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档搜索结果DTO
+ */
+@Data
+public class DocumentSearchResultDTO {
+
+    /**
+     * 命中总数，超过统计上限时为下限值
+     */
+    private long total;
+
+    private boolean totalExact = true;
+
+    private List<Hit> hits = new ArrayList<>();
+
+    /**
+     * 下一页游标，没有更多结果时为null
+     */
+    private String nextCursor;
+
+    /**
+     * 分类统计：统计项（documentType、status、categoryName） -> 取值 -> 文档数
+     */
+    private Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+
+    /**
+     * 单条命中结果，只包含列表展示需要的字段
+     */
+    @Data
+    public static class Hit {
+
+        private Long id;
+
+        private String documentCode;
+
+        private String documentName;
+
+        private String documentType;
+
+        private String status;
+
+        private String categoryName;
+
+        private String author;
+
+        private String department;
+
+        private LocalDateTime updatedAt;
+
+        private Float score;
+
+        /**
+         * 高亮片段：字段名 -> 片段列表
+         */
+        private Map<String, List<String>> highlights;
+    }
+}
@@ -11,7 +11,10 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "approval_instances")
+@Table(name = "approval_instances", indexes = {
+        @Index(name = "idx_approval_instances_inbox", columnList = "status, current_approver, id"),
+        @Index(name = "idx_approval_instances_document_created", columnList = "document_id, created_at")
+})
 public class ApprovalInstance {
 
     @Id
@@ -30,6 +33,9 @@ public class ApprovalInstance {
     @Column(name = "current_step", length = 50)
     private String currentStep;
 
+    @Column(name = "current_approver", length = 100)
+    private String currentApprover;
+
     @Column(name = "status", length = 20)
     private String status = "IN_PROGRESS"; // IN_PROGRESS, APPROVED, REJECTED, WITHDRAWN
 
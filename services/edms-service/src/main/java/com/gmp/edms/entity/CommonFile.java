@@ -131,9 +131,11 @@ public class CommonFile {
     
     /**
      * 主键ID
+     * 使用表的序列并按号段预取，批量保存时可以合并为JDBC批量插入（IDENTITY主键无法批量插入）
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "common_file_seq")
+    @SequenceGenerator(name = "common_file_seq", sequenceName = "common_file_id_seq", allocationSize = 50)
     private Long id;
     
     /**
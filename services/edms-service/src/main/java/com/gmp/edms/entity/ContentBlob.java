@@ -0,0 +1,46 @@
+package com.gmp.edms.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 内容寻址存储的文件内容实体
+ * 对象以SHA-256摘要为键保存，相同内容只存储一份，由引用计数记录被多少个文档版本引用
+ */
+@Entity
+@Table(name = "content_blobs", indexes = {
+        @Index(name = "idx_content_blobs_orphaned", columnList = "orphaned_at")
+})
+@Data
+@NoArgsConstructor
+public class ContentBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "digest", nullable = false, unique = true, length = 64)
+    private String digest; // SHA-256十六进制摘要
+
+    @Column(name = "object_path", nullable = false, length = 255)
+    private String objectPath;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // 引用计数归零的时间，超过宽限期后由垃圾回收删除
+    @Column(name = "orphaned_at")
+    private LocalDateTime orphanedAt;
+}
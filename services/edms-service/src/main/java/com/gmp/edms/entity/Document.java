@@ -4,7 +4,9 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Generated;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.generator.EventType;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -91,6 +93,11 @@ public class Document {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // 搜索索引的外部版本号，每次写入时由数据库触发器从序列取值
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "index_version", insertable = false, updatable = false)
+    private Long indexVersion;
+
     // 关联关系
     @OneToMany(mappedBy = "document", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<DocumentVersion> versions = new ArrayList<>();
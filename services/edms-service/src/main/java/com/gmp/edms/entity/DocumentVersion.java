@@ -1,5 +1,6 @@
 package com.gmp.edms.entity;
 
+import com.gmp.edms.util.FieldAccessors;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -126,73 +127,22 @@ public class DocumentVersion {
         if (this.document == null) {
             this.document = new Document();
         }
-        // 使用反射设置id字段，避免方法调用问题
+        // 直接设置id字段，避免方法调用问题
         setFieldValue(this.document, "id", documentId);
     }
 
     /**
-     * 使用反射获取对象字段值
+     * 获取对象字段值
      */
     private Object getFieldValue(Object obj, String fieldName) {
-        if (obj == null || fieldName == null) {
-            return null;
-        }
-
-        try {
-            // 尝试通过字段访问
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
-            }
-            // 尝试通过getter方法获取
-            String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            try {
-                java.lang.reflect.Method getter = obj.getClass().getMethod(getterName);
-                return getter.invoke(obj);
-            } catch (NoSuchMethodException e) {
-                // 如果getter不存在，返回null
-                return null;
-            }
-        } catch (Exception e) {
-            // 反射访问失败，返回null
-            return null;
-        }
+        return FieldAccessors.get(obj, fieldName);
     }
 
     /**
-     * 使用反射设置对象字段值
+     * 设置对象字段值
      */
     private void setFieldValue(Object obj, String fieldName, Object value) {
-        if (obj == null || fieldName == null) {
-            return;
-        }
-
-        try {
-            // 尝试通过字段访问
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                field.set(obj, value);
-            }
-        } catch (Exception e) {
-            // 反射设置失败，静默忽略
-        }
-    }
-
-    /**
-     * 查找字段，包括父类中的字段
-     */
-    private java.lang.reflect.Field findField(Class<?> clazz, String fieldName) {
-        Class<?> currentClass = clazz;
-        while (currentClass != null && currentClass != Object.class) {
-            try {
-                return currentClass.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                currentClass = currentClass.getSuperclass();
-            }
-        }
-        return null;
+        FieldAccessors.set(obj, fieldName, value);
     }
 
     /**
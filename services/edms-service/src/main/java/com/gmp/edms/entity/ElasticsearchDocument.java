@@ -5,13 +5,15 @@ import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
 import org.springframework.data.elasticsearch.annotations.Setting;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 
 @Data
-@Document(indexName = "documents")
+@Document(indexName = "documents", versionType = Document.VersionType.EXTERNAL)
 @Setting(settingPath = "elasticsearch-settings.json")
 public class ElasticsearchDocument {
 
@@ -21,7 +23,10 @@ public class ElasticsearchDocument {
     @Field(type = FieldType.Text, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
     private String documentName;
 
-    @Field(type = FieldType.Text, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
+    // 编号整体按关键字精确匹配（忽略大小写），同时分词以支持按编号片段搜索
+    @MultiField(mainField = @Field(type = FieldType.Keyword, normalizer = "lowercase_normalizer"),
+            otherFields = @InnerField(suffix = "text", type = FieldType.Text, analyzer = "ik_max_word",
+                    searchAnalyzer = "ik_smart"))
     private String documentCode;
 
     @Field(type = FieldType.Keyword)
@@ -39,6 +44,9 @@ public class ElasticsearchDocument {
     @Field(type = FieldType.Text, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
     private String content;
 
+    @Field(type = FieldType.Long)
+    private Long categoryId;
+
     @Field(type = FieldType.Keyword)
     private String categoryName;
 
@@ -48,6 +56,9 @@ public class ElasticsearchDocument {
     @Field(type = FieldType.Keyword)
     private String department;
 
+    @Field(type = FieldType.Keyword)
+    private String confidentialityLevel;
+
     @Field(type = FieldType.Text, analyzer = "ik_max_word", searchAnalyzer = "ik_smart")
     private String keywords;
 
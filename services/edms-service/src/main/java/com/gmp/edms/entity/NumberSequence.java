@@ -0,0 +1,28 @@
+package com.gmp.edms.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 编号序列实体
+ * 记录每个编号序列已分配出去的最大值（高水位），服务节点按号段从高水位之后申请编号
+ */
+@Entity
+@Table(name = "number_sequences")
+@Data
+@NoArgsConstructor
+public class NumberSequence {
+
+    @Id
+    @Column(name = "sequence_key", length = 100)
+    private String sequenceKey; // 序列键，如 DOC_20240101_
+
+    @Column(name = "high_value", nullable = false)
+    private Long highValue = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,49 @@
+package com.gmp.edms.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 搜索索引重建任务实体
+ * 记录新索引名称和已写入的最大文档ID，任务中断后从该位置继续
+ */
+@Entity
+@Table(name = "search_reindex_jobs")
+@Data
+@NoArgsConstructor
+public class SearchReindexJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "target_index", nullable = false, length = 100)
+    private String targetIndex;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "RUNNING"; // RUNNING, COMPLETED, FAILED
+
+    @Column(name = "last_document_id", nullable = false)
+    private Long lastDocumentId = 0L;
+
+    @Column(name = "indexed_count", nullable = false)
+    private Long indexedCount = 0L;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_by", length = 100)
+    private String createdBy;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,19 @@
+package com.gmp.edms.event;
+
+import com.gmp.edms.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * 发件箱消息发送接口
+ */
+public interface OutboxMessageSender {
+
+    /**
+     * 按顺序发送一批事件并等待消息队列确认
+     * 方法正常返回表示全部事件已被确认；任一事件发送失败或未被确认时抛出异常，此时部分事件可能已经送达
+     *
+     * @param events 待发送的事件
+     */
+    void sendAndConfirm(List<OutboxEvent> events);
+}
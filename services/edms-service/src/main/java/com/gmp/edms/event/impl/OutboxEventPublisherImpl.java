@@ -0,0 +1,61 @@
+package com.gmp.edms.event.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.entity.OutboxEvent;
+import com.gmp.edms.event.DocumentEvent;
+import com.gmp.edms.event.EventPublisher;
+import com.gmp.edms.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 基于事务发件箱的事件发布器实现
+ * <p>
+ * 事件写入发件箱表，与调用方的业务数据在同一事务中提交，由{@link OutboxRelay}异步批量发布到消息队列。
+ * 业务事务不再等待消息队列，事务回滚时事件随之丢弃，不会发布未提交的变更。
+ */
+@Primary
+@Component
+@RequiredArgsConstructor
+public class OutboxEventPublisherImpl implements EventPublisher {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void publishDocumentEvent(DocumentEvent event) {
+        String routingKey = RabbitMQEventPublisherImpl.DOCUMENT_EVENT_ROUTING_KEY_PREFIX
+                + event.getEventType().name().toLowerCase();
+        String aggregateKey = event.getDocumentId() != null ? "document:" + event.getDocumentId() : null;
+        append(RabbitMQEventPublisherImpl.DOCUMENT_EVENT_EXCHANGE, routingKey, aggregateKey, event);
+    }
+
+    @Override
+    public void publishEvent(String exchange, String routingKey, Object event) {
+        append(exchange, routingKey, null, event);
+    }
+
+    private void append(String exchange, String routingKey, String aggregateKey, Object event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setAggregateKey(aggregateKey);
+        outboxEvent.setExchange(exchange);
+        outboxEvent.setRoutingKey(routingKey);
+        outboxEvent.setPayloadType(event.getClass().getName());
+        outboxEvent.setPayload(toJson(event));
+        outboxEvent.setCreatedAt(LocalDateTime.now());
+        outboxEventRepository.save(outboxEvent);
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("事件序列化失败: " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.gmp.edms.event.impl;
+
+import com.gmp.edms.entity.OutboxEvent;
+import com.gmp.edms.event.OutboxMessageSender;
+import com.gmp.edms.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 发件箱事件中继
+ * <p>
+ * 定时按ID顺序批量读取待发布事件，整批发送后等待一次发布确认，确认后批量标记为已发布。
+ * 中继在持有数据库咨询锁的事务中运行，多个服务节点同一时刻只有一个节点发布，事件按写入顺序送达。
+ * <p>
+ * 整批发布失败时逐条重试以隔离失败的事件：某个事件失败后，同一聚合（文档）的后续事件留待下次调度，
+ * 保证同一文档的事件不会乱序；重试次数达到上限的事件标记为失败，不再阻塞后续事件。
+ * 消息确认后、标记提交前服务异常时事件会被重复发布（至少一次语义），消费方可按消息ID去重。
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    /**
+     * 中继咨询锁的键
+     */
+    static final long RELAY_LOCK_KEY = 0x65646d736f757462L;
+
+    /**
+     * 逐条重试时连续失败的上限，达到上限时认为消息队列不可用，等待下次调度
+     */
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    private final OutboxMessageSender outboxMessageSender;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${edms.outbox.relay-enabled:true}")
+    private boolean relayEnabled = true;
+
+    @Value("${edms.outbox.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${edms.outbox.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${edms.outbox.retention-days:7}")
+    private int retentionDays = 7;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private Counter publishedCounter;
+    private Counter failedCounter;
+    private Timer publishDelayTimer;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void registerMetrics() {
+        MeterRegistry registry = meterRegistryProvider != null ? meterRegistryProvider.getIfAvailable() : null;
+        if (registry == null) {
+            return;
+        }
+        registry.gauge("edms.outbox.pending", pendingEvents);
+        registry.gauge("edms.outbox.lag.ms", lagMillis);
+        publishedCounter = Counter.builder("edms.outbox.published")
+                .description("已发布的发件箱事件数")
+                .register(registry);
+        failedCounter = Counter.builder("edms.outbox.failed")
+                .description("发布失败的次数")
+                .register(registry);
+        publishDelayTimer = Timer.builder("edms.outbox.publish.delay")
+                .description("事件从写入发件箱到发布确认的延迟")
+                .register(registry);
+        batchTimer = Timer.builder("edms.outbox.batch.latency")
+                .description("单批事件发送与确认耗时")
+                .register(registry);
+    }
+
+    /**
+     * 定时发布待发布事件，一次调度内持续发布直到没有完整的一批
+     */
+    @Scheduled(fixedDelayString = "${edms.outbox.relay-interval:1000}")
+    public void relay() {
+        if (!relayEnabled) {
+            return;
+        }
+        try {
+            while (relayBatch() >= batchSize) {
+                // 继续发布下一批
+            }
+        } catch (RuntimeException e) {
+            log.warn("发件箱事件发布失败: {}", e.getMessage());
+        } finally {
+            updateLag();
+        }
+    }
+
+    /**
+     * 发布一批事件
+     *
+     * @return 本批发布成功的事件数，其他节点持有中继锁时返回0
+     */
+    public int relayBatch() {
+        Integer published = transactionTemplate.execute(status -> {
+            if (!outboxEventRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+                return 0;
+            }
+            List<OutboxEvent> batch = outboxEventRepository.findPending(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            List<OutboxEvent> confirmed = publish(batch);
+            markPublished(confirmed);
+            return confirmed.size();
+        });
+        return published != null ? published : 0;
+    }
+
+    /**
+     * 删除超过保留期限的已发布事件
+     */
+    @Scheduled(cron = "${edms.outbox.cleanup-cron:0 30 3 * * *}")
+    public int cleanupPublished() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        Integer deleted = transactionTemplate.execute(status -> outboxEventRepository.deletePublishedBefore(before));
+        return deleted != null ? deleted : 0;
+    }
+
+    private List<OutboxEvent> publish(List<OutboxEvent> batch) {
+        long start = System.nanoTime();
+        try {
+            outboxMessageSender.sendAndConfirm(batch);
+            return batch;
+        } catch (RuntimeException e) {
+            log.warn("批量发布{}个发件箱事件失败，逐条重试: {}", batch.size(), e.getMessage());
+            return publishIndividually(batch);
+        } finally {
+            if (batchTimer != null) {
+                batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private List<OutboxEvent> publishIndividually(List<OutboxEvent> batch) {
+        List<OutboxEvent> confirmed = new ArrayList<>();
+        Set<String> blockedAggregates = new HashSet<>();
+        int consecutiveFailures = 0;
+        for (OutboxEvent event : batch) {
+            String aggregateKey = event.getAggregateKey();
+            if (aggregateKey != null && blockedAggregates.contains(aggregateKey)) {
+                continue;
+            }
+            try {
+                outboxMessageSender.sendAndConfirm(List.of(event));
+                confirmed.add(event);
+                consecutiveFailures = 0;
+            } catch (RuntimeException e) {
+                // 同一文档的后续事件等待该事件发布成功后再发布
+                if (aggregateKey != null) {
+                    blockedAggregates.add(aggregateKey);
+                }
+                recordFailure(event, e);
+                if (++consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                    log.warn("发件箱事件连续发布失败，等待下次调度");
+                    break;
+                }
+            }
+        }
+        return confirmed;
+    }
+
+    private void recordFailure(OutboxEvent event, RuntimeException e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+        outboxEventRepository.recordFailure(event.getId(), error, maxAttempts);
+        if (failedCounter != null) {
+            failedCounter.increment();
+        }
+        if (event.getAttempts() + 1 >= maxAttempts) {
+            log.error("发件箱事件发布失败{}次，不再重试, id: {}, 路由键: {}", maxAttempts, event.getId(),
+                    event.getRoutingKey());
+        }
+    }
+
+    private void markPublished(List<OutboxEvent> confirmed) {
+        if (confirmed.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        outboxEventRepository.markPublished(
+                confirmed.stream().map(OutboxEvent::getId).collect(Collectors.toList()), now);
+        if (publishedCounter != null) {
+            publishedCounter.increment(confirmed.size());
+        }
+        if (publishDelayTimer != null) {
+            for (OutboxEvent event : confirmed) {
+                publishDelayTimer.record(Duration.between(event.getCreatedAt(), now));
+            }
+        }
+    }
+
+    /**
+     * 更新待发布事件数和最早待发布事件的等待时间
+     */
+    private void updateLag() {
+        try {
+            pendingEvents.set(outboxEventRepository.countPending());
+            LocalDateTime oldest = outboxEventRepository.findOldestPendingCreatedAt();
+            lagMillis.set(oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()) : 0);
+        } catch (RuntimeException e) {
+            log.debug("更新发件箱延迟指标失败: {}", e.getMessage());
+        }
+    }
+
+    long getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    long getLagMillis() {
+        return lagMillis.get();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 
 /**
  * RabbitMQ事件发布器实现
+ * 直接同步发送到消息队列，不经过发件箱；业务事务中的事件发布使用{@link OutboxEventPublisherImpl}
  */
 @Component
 @RequiredArgsConstructor
@@ -18,12 +19,12 @@ public class RabbitMQEventPublisherImpl implements EventPublisher {
     /**
      * 文档事件交换机名称
      */
-    private static final String DOCUMENT_EVENT_EXCHANGE = "edms.document.events";
+    static final String DOCUMENT_EVENT_EXCHANGE = "edms.document.events";
 
     /**
      * 文档事件路由键前缀
      */
-    private static final String DOCUMENT_EVENT_ROUTING_KEY_PREFIX = "document.";
+    static final String DOCUMENT_EVENT_ROUTING_KEY_PREFIX = "document.";
 
     @Override
     public void publishDocumentEvent(DocumentEvent event) {
@@ -0,0 +1,59 @@
+package com.gmp.edms.event.impl;
+
+import com.gmp.edms.entity.OutboxEvent;
+import com.gmp.edms.event.OutboxMessageSender;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 基于RabbitMQ发布确认的发件箱消息发送实现
+ * <p>
+ * 一批消息在同一通道上依次发送后只等待一次确认，而不是每条消息同步等待。
+ * 需要配置 spring.rabbitmq.publisher-confirm-type=simple。
+ */
+@Component
+@RequiredArgsConstructor
+public class RabbitOutboxMessageSender implements OutboxMessageSender {
+
+    /**
+     * 消息类型头，Jackson2JsonMessageConverter按此头反序列化消息
+     */
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${edms.outbox.confirm-timeout:5000}")
+    private long confirmTimeout = 5000;
+
+    @Override
+    public void sendAndConfirm(List<OutboxEvent> events) {
+        rabbitTemplate.invoke(operations -> {
+            for (OutboxEvent event : events) {
+                operations.send(event.getExchange(), event.getRoutingKey(), toMessage(event));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeout);
+            return null;
+        });
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setContentEncoding(StandardCharsets.UTF_8.name());
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        // 消息ID与发件箱ID一致，消费方可据此去重（中继保证至少一次送达）
+        properties.setMessageId("outbox-" + event.getId());
+        properties.setHeader(TYPE_ID_HEADER, event.getPayloadType());
+        if (event.getAggregateKey() != null) {
+            properties.setHeader("x-aggregate-key", event.getAggregateKey());
+        }
+        return new Message(event.getPayload().getBytes(StandardCharsets.UTF_8), properties);
+    }
+}
@@ -49,12 +49,23 @@ public interface ApprovalInstanceRepository extends JpaRepository<ApprovalInstan
     List<ApprovalInstance> findByPriority(String priority);
 
     /**
-     * 查找用户的待办审批任务
+     * 查找审批人的待办任务，按ID升序
      */
-    @Query("SELECT ai FROM ApprovalInstance ai WHERE ai.currentStep IN " +
-           "(SELECT stepName FROM ApprovalStep WHERE approverId = :userId) " +
-           "AND ai.status = 'IN_PROGRESS'")
-    List<ApprovalInstance> findPendingTasksByUser(@Param("userId") String userId);
+    List<ApprovalInstance> findByStatusAndCurrentApproverOrderByIdAsc(String status, String currentApprover,
+                                                                      Pageable pageable);
+
+    /**
+     * 查找审批人在指定ID之后的待办任务，用于键集分页
+     */
+    List<ApprovalInstance> findByStatusAndCurrentApproverAndIdGreaterThanOrderByIdAsc(String status,
+                                                                                      String currentApprover,
+                                                                                      Long id,
+                                                                                      Pageable pageable);
+
+    /**
+     * 查找文档的审批实例，按创建时间降序
+     */
+    List<ApprovalInstance> findByDocumentIdOrderByCreatedAtDescIdDesc(Long documentId);
 
     /**
      * 根据多个条件查询审批实例
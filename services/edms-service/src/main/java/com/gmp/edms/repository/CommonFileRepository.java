@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -29,6 +30,11 @@ public interface CommonFileRepository extends JpaRepository<CommonFile, Long> {
      * 根据校验和查找文件
      */
     Optional<CommonFile> findByChecksum(String checksum);
+
+    /**
+     * 根据校验和批量查找文件
+     */
+    List<CommonFile> findByChecksumIn(Collection<String> checksums);
     
     /**
      * 批量查询文件
@@ -0,0 +1,81 @@
+package com.gmp.edms.repository;
+
+import com.gmp.edms.entity.ContentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 内容寻址存储Repository接口
+ */
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, Long> {
+
+    /**
+     * 根据摘要查询内容
+     */
+    Optional<ContentBlob> findByDigest(String digest);
+
+    /**
+     * 查询已有记录的摘要，用于找出没有记录的内容对象
+     */
+    @Query("SELECT b.digest FROM ContentBlob b WHERE b.digest IN :digests")
+    List<String> findExistingDigests(@Param("digests") Collection<String> digests);
+
+    /**
+     * 增加引用计数，返回受影响的行数（0表示内容不存在）
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount + 1, b.orphanedAt = NULL WHERE b.digest = :digest")
+    int incrementRefCount(@Param("digest") String digest);
+
+    /**
+     * 插入内容记录，并发插入相同摘要时改为增加引用计数
+     */
+    @Modifying
+    @Query(value = "INSERT INTO content_blobs (digest, object_path, file_size, content_type, ref_count, created_at) "
+            + "VALUES (:digest, :objectPath, :fileSize, :contentType, 1, :createdAt) "
+            + "ON CONFLICT (digest) DO UPDATE SET ref_count = content_blobs.ref_count + 1, orphaned_at = NULL",
+            nativeQuery = true)
+    int insertOrIncrement(@Param("digest") String digest, @Param("objectPath") String objectPath,
+            @Param("fileSize") Long fileSize, @Param("contentType") String contentType,
+            @Param("createdAt") LocalDateTime createdAt);
+
+    /**
+     * 减少引用计数
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.refCount = b.refCount - 1 WHERE b.digest = :digest AND b.refCount > 0")
+    int decrementRefCount(@Param("digest") String digest);
+
+    /**
+     * 标记引用计数已归零的内容
+     */
+    @Modifying
+    @Query("UPDATE ContentBlob b SET b.orphanedAt = :orphanedAt "
+            + "WHERE b.digest = :digest AND b.refCount = 0 AND b.orphanedAt IS NULL")
+    int markOrphaned(@Param("digest") String digest, @Param("orphanedAt") LocalDateTime orphanedAt);
+
+    /**
+     * 查询在指定时间之前失去全部引用的内容ID
+     */
+    @Query("SELECT b.id FROM ContentBlob b WHERE b.refCount = 0 AND b.orphanedAt < :before ORDER BY b.orphanedAt")
+    List<Long> findOrphanIds(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * 锁定仍无引用的内容记录，防止回收期间被重新引用
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ContentBlob b WHERE b.id = :id AND b.refCount = 0")
+    Optional<ContentBlob> findOrphanForUpdate(@Param("id") Long id);
+}
@@ -3,10 +3,13 @@ package com.gmp.edms.repository;
 import com.gmp.edms.entity.DocumentCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
 import java.util.List;
 import java.util.Optional;
 
@@ -63,6 +66,18 @@ public interface DocumentCategoryRepository extends JpaRepository<DocumentCatego
     @Query("SELECT d.id FROM DocumentCategory d WHERE d.categoryPath LIKE CONCAT('%', :categoryCode, '%')")
     List<Long> findAllChildCategoryIds(@Param("categoryCode") String categoryCode);
     
+    /**
+     * 按物化路径前缀查询下级分类，前缀应以/结尾
+     */
+    List<DocumentCategory> findByCategoryPathStartingWith(String pathPrefix);
+    
+    /**
+     * 锁定并读取分类的已提交状态，移动分类时用于校验新的父分类，使并发的移动操作串行化
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DocumentCategory d WHERE d.id = :id")
+    Optional<DocumentCategory> findForUpdate(@Param("id") Long id);
+    
     /**
      * 统计子分类数量
      */
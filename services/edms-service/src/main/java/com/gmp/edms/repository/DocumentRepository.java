@@ -16,13 +16,20 @@ import java.util.Optional;
  * 文档Repository接口
  */
 @Repository
-public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSpecificationExecutor<Document> {
+public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSpecificationExecutor<Document>,
+                DocumentRepositoryCustom {
 
         /**
          * 根据文档编号查询文档
          */
         Optional<Document> findByDocCode(String docCode);
 
+        /**
+         * 查询指定前缀下的最大文档编号，编号序号部分定长，按字符串比较即为按序号比较
+         */
+        @Query("SELECT MAX(d.documentNumber) FROM Document d WHERE d.documentNumber LIKE CONCAT(:prefix, '%')")
+        String findMaxDocumentNumber(@Param("prefix") String prefix);
+
         /**
          * 根据分类ID查询文档列表
          */
@@ -48,6 +55,11 @@ public interface DocumentRepository extends JpaRepository<Document, Long>, JpaSp
          */
         Page<Document> findByStatus(String status, Pageable pageable);
 
+        /**
+         * 按ID顺序查询指定ID之后的文档，用于重建索引时按键集分批读取
+         */
+        List<Document> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
         /**
          * 统计分类下文档数量
          */
@@ -0,0 +1,17 @@
+package com.gmp.edms.repository;
+
+import com.gmp.edms.entity.Document;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * 文档Repository自定义查询接口
+ */
+public interface DocumentRepositoryCustom {
+
+    /**
+     * 查询满足条件的文档ID，只返回ID列，不加载文档实体
+     */
+    List<Long> findIds(Specification<Document> specification);
+}
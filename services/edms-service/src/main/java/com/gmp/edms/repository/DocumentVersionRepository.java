@@ -37,9 +37,9 @@ public interface DocumentVersionRepository extends JpaRepository<DocumentVersion
     Optional<DocumentVersion> findByFilePath(String filePath);
     
     /**
-     * 根据校验和查询版本
+     * 检查是否存在指定校验和的版本，相同内容可被多个版本共享
      */
-    Optional<DocumentVersion> findByChecksum(String checksum);
+    boolean existsByChecksum(String checksum);
     
     /**
      * 统计文档的版本数量
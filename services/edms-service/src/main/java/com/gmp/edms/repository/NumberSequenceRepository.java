@@ -0,0 +1,43 @@
+package com.gmp.edms.repository;
+
+import com.gmp.edms.entity.NumberSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 编号序列Repository接口
+ */
+@Repository
+public interface NumberSequenceRepository extends JpaRepository<NumberSequence, String> {
+
+    /**
+     * 推进序列高水位，返回受影响的行数（0表示序列不存在）
+     * 更新持有行锁直到事务结束，同一序列的号段申请串行执行
+     */
+    @Modifying
+    @Query("UPDATE NumberSequence s SET s.highValue = s.highValue + :blockSize, s.updatedAt = :updatedAt "
+            + "WHERE s.sequenceKey = :sequenceKey")
+    int advance(@Param("sequenceKey") String sequenceKey, @Param("blockSize") long blockSize,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 创建序列，序列已存在时不做修改
+     */
+    @Modifying
+    @Query(value = "INSERT INTO number_sequences (sequence_key, high_value, updated_at) "
+            + "VALUES (:sequenceKey, :highValue, :updatedAt) ON CONFLICT (sequence_key) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("sequenceKey") String sequenceKey, @Param("highValue") long highValue,
+            @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * 查询序列当前高水位
+     */
+    @Query("SELECT s.highValue FROM NumberSequence s WHERE s.sequenceKey = :sequenceKey")
+    Long findHighValue(@Param("sequenceKey") String sequenceKey);
+}
@@ -0,0 +1,67 @@
+package com.gmp.edms.repository;
+
+import com.gmp.edms.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 事件发件箱Repository接口
+ */
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 按写入顺序查询待发布的事件
+     */
+    @Query("SELECT e FROM OutboxEvent e WHERE e.status = 'PENDING' ORDER BY e.id")
+    List<OutboxEvent> findPending(Pageable pageable);
+
+    /**
+     * 标记事件已发布
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = 'PUBLISHED', e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    /**
+     * 记录发布失败，重试次数达到上限时标记为失败，不再重试
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :error, "
+            + "e.status = CASE WHEN e.attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE e.status END "
+            + "WHERE e.id = :id")
+    int recordFailure(@Param("id") Long id, @Param("error") String error, @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 待发布事件数量
+     */
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.status = 'PENDING'")
+    long countPending();
+
+    /**
+     * 最早的待发布事件的写入时间，用于计算发布延迟
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.status = 'PENDING'")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    /**
+     * 删除指定时间之前已发布的事件
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = 'PUBLISHED' AND e.publishedAt < :before")
+    int deletePublishedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * 获取中继的事务级咨询锁，多个服务节点中同一时刻只有一个节点发布事件，保证发布顺序
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:lockKey)", nativeQuery = true)
+    boolean tryRelayLock(@Param("lockKey") long lockKey);
+}
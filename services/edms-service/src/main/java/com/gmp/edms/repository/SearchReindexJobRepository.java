@@ -0,0 +1,25 @@
+package com.gmp.edms.repository;
+
+import com.gmp.edms.entity.SearchReindexJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 搜索索引重建任务Repository接口
+ */
+@Repository
+public interface SearchReindexJobRepository extends JpaRepository<SearchReindexJob, Long> {
+
+    /**
+     * 查询处于指定状态的最近一个任务
+     */
+    Optional<SearchReindexJob> findFirstByStatusInOrderByIdDesc(Collection<String> statuses);
+
+    /**
+     * 查询最近一个任务
+     */
+    Optional<SearchReindexJob> findFirstByOrderByIdDesc();
+}
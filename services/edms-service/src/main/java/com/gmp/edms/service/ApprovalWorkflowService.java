@@ -48,6 +48,15 @@ public interface ApprovalWorkflowService {
      */
     List<ApprovalInstanceDTO> getPendingTasks(String userId);
 
+    /**
+     * 分页获取用户的待办审批任务
+     * @param userId 用户ID
+     * @param afterId 上一页最后一条任务的实例ID，第一页传null
+     * @param size 每页数量
+     * @return 按实例ID升序的待办任务列表
+     */
+    List<ApprovalInstanceDTO> getPendingTasks(String userId, Long afterId, int size);
+
     /**
      * 获取文档的审批历史
      * @param documentId 文档ID
@@ -1,5 +1,6 @@
 package com.gmp.edms.service;
 
+import com.gmp.edms.dto.BatchUploadResultDTO;
 import com.gmp.edms.dto.CommonFileDTO;
 import com.gmp.edms.dto.CommonFileUploadDTO;
 import org.springframework.web.multipart.MultipartFile;
@@ -32,6 +33,16 @@ public interface CommonFileService {
      */
     List<CommonFileDTO> batchUploadFiles(List<MultipartFile> files, String module, Map<String, Object> metadata) throws Exception;
 
+    /**
+     * 批量上传文件并返回逐个文件的上传结果
+     * 文件并发上传到存储服务，全部上传完成后一次性保存文件信息，单个文件失败不影响其他文件
+     * @param files 上传的文件列表
+     * @param module 文件所属模块
+     * @param metadata 文件元数据
+     * @return 批量上传结果清单
+     */
+    BatchUploadResultDTO batchUpload(List<MultipartFile> files, String module, Map<String, Object> metadata);
+
     /**
      * 下载文件
      * @param fileId 文件ID
@@ -0,0 +1,45 @@
+package com.gmp.edms.service;
+
+import com.gmp.edms.entity.ContentBlob;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 内容寻址存储服务接口
+ * 文件内容按SHA-256摘要保存，相同内容在所有文档版本之间共享一份对象，通过引用计数管理生命周期
+ */
+public interface ContentBlobService {
+
+    /**
+     * 存储文件内容并增加一次引用
+     * 上传与摘要计算在同一次读取中完成，内容已存在时丢弃本次上传的暂存对象
+     */
+    ContentBlob store(MultipartFile file) throws Exception;
+
+    /**
+     * 为已存在的内容增加一次引用
+     * 内容尚未纳入内容寻址存储（如历史版本）时，从原路径在存储服务端复制
+     *
+     * @param digest SHA-256摘要
+     * @param sourcePath 内容当前所在的对象路径
+     * @param fileSize 文件大小
+     * @param contentType 内容类型
+     */
+    ContentBlob retain(String digest, String sourcePath, Long fileSize, String contentType) throws Exception;
+
+    /**
+     * 释放一次引用，引用计数归零的内容在宽限期后由垃圾回收删除
+     */
+    void release(String digest);
+
+    /**
+     * 判断对象路径是否属于内容寻址存储
+     */
+    boolean isBlobPath(String filePath);
+
+    /**
+     * 删除超过宽限期仍无引用的内容、没有记录的内容对象和遗留的暂存对象
+     *
+     * @return 删除的内容数量
+     */
+    int collectGarbage();
+}
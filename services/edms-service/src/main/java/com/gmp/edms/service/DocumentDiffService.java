@@ -0,0 +1,18 @@
+package com.gmp.edms.service;
+
+import com.gmp.edms.dto.DocumentDiffDTO;
+import com.gmp.edms.entity.DocumentVersion;
+
+/**
+ * 文档版本内容比较服务接口
+ */
+public interface DocumentDiffService {
+
+    /**
+     * 比较两个版本的文件内容，结果按两个版本的内容校验和缓存
+     * @param from 源版本
+     * @param to 目标版本
+     * @return 内容差异
+     */
+    DocumentDiffDTO diff(DocumentVersion from, DocumentVersion to);
+}
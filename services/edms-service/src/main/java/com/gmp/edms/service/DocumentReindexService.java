@@ -0,0 +1,35 @@
+package com.gmp.edms.service;
+
+import com.gmp.edms.entity.SearchReindexJob;
+
+/**
+ * 搜索索引重建服务接口
+ */
+public interface DocumentReindexService {
+
+    /**
+     * 开始重建索引：创建新索引，按ID顺序将全部文档写入新索引，完成后将搜索别名切换到新索引
+     * 已有未完成的任务时继续该任务
+     * @param operator 操作人
+     * @return 重建任务
+     */
+    SearchReindexJob startReindex(String operator);
+
+    /**
+     * 从上次中断的位置继续最近一个未完成的重建任务
+     * @return 重建任务，没有未完成的任务时返回null
+     */
+    SearchReindexJob resumeReindex();
+
+    /**
+     * 查询最近一个重建任务
+     * @return 重建任务，没有任务时返回null
+     */
+    SearchReindexJob getLatestJob();
+
+    /**
+     * 正在重建的新索引名称，文档变更需要同时写入该索引
+     * @return 索引名称，没有未完成的任务时返回null
+     */
+    String getActiveTargetIndex();
+}
@@ -2,25 +2,34 @@ package com.gmp.edms.service;
 
 import com.gmp.edms.dto.DocumentDTO;
 import com.gmp.edms.dto.DocumentQueryDTO;
+import com.gmp.edms.dto.DocumentSearchRequestDTO;
+import com.gmp.edms.dto.DocumentSearchResultDTO;
 
 import java.util.List;
 
 public interface DocumentSearchService {
 
     /**
-     * 全文搜索文档
+     * 全文搜索文档，最多返回edms.search.max-size条
      * @param query 搜索关键词
      * @return 文档列表
      */
     List<DocumentDTO> fullTextSearch(String query);
 
     /**
-     * 高级搜索文档
+     * 高级搜索文档，最多返回edms.search.max-size条
      * @param queryDTO 搜索条件
      * @return 文档列表
      */
     List<DocumentDTO> advancedSearch(DocumentQueryDTO queryDTO);
 
+    /**
+     * 分页搜索文档，返回高亮片段和分类统计
+     * @param request 搜索条件和翻页游标
+     * @return 当前页结果和下一页游标
+     */
+    DocumentSearchResultDTO search(DocumentSearchRequestDTO request);
+
     /**
      * 索引文档
      * @param documentDTO 文档DTO
@@ -1,8 +1,10 @@
 package com.gmp.edms.service;
 
+import com.gmp.edms.dto.DocumentDiffDTO;
 import com.gmp.edms.dto.DocumentVersionDTO;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -36,6 +38,15 @@ public interface DocumentVersionService {
      * 下载文档版本
      */
     byte[] downloadDocumentVersion(Long versionId) throws Exception;
+
+    /**
+     * 以流的方式读取文档版本内容，调用方负责关闭返回的流
+     *
+     * @param versionId 版本ID
+     * @param offset 起始字节位置
+     * @param length 读取长度，小于0时读取到文件末尾
+     */
+    InputStream openDocumentVersionStream(Long versionId, long offset, long length) throws Exception;
     
     /**
      * 删除文档版本
@@ -74,6 +85,7 @@ public interface DocumentVersionService {
     
     /**
      * 回滚到指定版本
+     * 以指定版本的文件内容创建新版本，新版本与原版本共享同一份存储内容
      */
     DocumentVersionDTO rollbackToVersion(Long versionId) throws Exception;
     
@@ -86,4 +98,9 @@ public interface DocumentVersionService {
      * 比较文档版本（详细比较）
      */
     String compareDocumentVersions(Long documentId, Long fromVersionId, Long toVersionId) throws Exception;
+
+    /**
+     * 比较文档两个版本的文件内容，返回逐行差异
+     */
+    DocumentDiffDTO diffDocumentVersions(Long documentId, Long fromVersionId, Long toVersionId) throws Exception;
 }
@@ -16,11 +16,29 @@ public interface FileStorageService {
      */
     String uploadFile(MultipartFile file, String bucketName, String prefix) throws Exception;
 
+    /**
+     * 以流的方式上传文件到指定路径
+     *
+     * @param inputStream 文件内容，由调用方关闭
+     * @param size 文件大小
+     * @param contentType 内容类型
+     */
+    void uploadFile(InputStream inputStream, long size, String contentType, String bucketName, String filePath)
+            throws Exception;
+
     /**
      * 下载文件
      */
     InputStream downloadFile(String bucketName, String filePath) throws Exception;
 
+    /**
+     * 按字节范围下载文件
+     *
+     * @param offset 起始字节位置
+     * @param length 读取长度，小于0时读取到文件末尾
+     */
+    InputStream downloadFile(String bucketName, String filePath, long offset, long length) throws Exception;
+
     /**
      * 删除文件
      */
@@ -0,0 +1,29 @@
+package com.gmp.edms.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 编号服务接口
+ * 为文档编号等业务编号提供按序列键递增的序号，序列键通常由前缀和日期组成（如 DOC_20240101_），
+ * 从而实现按前缀、按天重新计数。
+ */
+public interface NumberingService {
+
+    /**
+     * 获取序列的下一个序号，新序列从1开始
+     *
+     * @param sequenceKey 序列键
+     * @return 序号
+     */
+    long next(String sequenceKey);
+
+    /**
+     * 获取序列的下一个序号
+     *
+     * @param sequenceKey 序列键
+     * @param initialValue 序列不存在时提供已使用的最大序号，仅在创建序列时调用一次，
+     *                     用于接续启用编号服务之前已生成的编号
+     * @return 序号
+     */
+    long next(String sequenceKey, LongSupplier initialValue);
+}
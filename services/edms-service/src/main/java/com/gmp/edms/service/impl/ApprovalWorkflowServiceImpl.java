@@ -1,6 +1,5 @@
 package com.gmp.edms.service.impl;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gmp.edms.dto.ApprovalInstanceDTO;
 import com.gmp.edms.dto.ApprovalStepDTO;
@@ -12,14 +11,18 @@ import com.gmp.edms.repository.ApprovalInstanceRepository;
 import com.gmp.edms.repository.ApprovalWorkflowRepository;
 import com.gmp.edms.repository.DocumentRepository;
 import com.gmp.edms.service.ApprovalWorkflowService;
+import com.gmp.edms.util.FieldAccessors;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.lang.reflect.Field;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +30,9 @@ import org.slf4j.LoggerFactory;
 /**
  * 审批工作流服务实现类
  * 实现设计文档中的工作流引擎核心功能
+ * <p>
+ * 审批实例记录当前审批人，待办任务按(状态, 当前审批人, ID)索引查询并按ID键集分页。
+ * 工作流定义解析后按工作流ID缓存，定义内容变化时重新解析，审批步骤流转不再重复解析JSON。
  */
 @Service
 @Transactional
@@ -48,28 +54,33 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    private static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 解析后的工作流定义，按工作流ID缓存
+     */
+    private final Map<Long, WorkflowDefinition> definitionCache = new ConcurrentHashMap<>();
+
     @Override
     public ApprovalInstanceDTO startApprovalProcess(Document document, String workflowCode, String initiator) {
         try {
-            // 简化实现：使用findAll然后过滤
-            List<ApprovalWorkflow> allWorkflows = workflowRepository.findAll();
-            ApprovalWorkflow workflow = allWorkflows.stream()
-                    .filter(w -> workflowCode.equals(getFieldValue(w, "code"))
-                            && Boolean.TRUE.equals(getFieldValue(w, "isActive")))
-                    .findFirst()
+            ApprovalWorkflow workflow = workflowRepository.findByWorkflowCode(workflowCode)
+                    .filter(w -> Boolean.TRUE.equals(w.getIsActive()))
                     .orElseThrow(() -> new RuntimeException("工作流不存在: " + workflowCode));
+            WorkflowDefinition definition = getWorkflowDefinition(workflow);
 
-            // 创建审批实例
+            // 创建审批实例，分配第一步审批人
             ApprovalInstance instance = new ApprovalInstance();
-            // 使用反射设置字段值
+            String firstStep = definition.getFirstStep();
             setFieldValue(instance, "documentId", getFieldValue(document, "id"));
-            setFieldValue(instance, "workflowId", getFieldValue(workflow, "id"));
+            setFieldValue(instance, "workflowId", workflow.getId());
             setFieldValue(instance, "initiator", initiator);
-            setFieldValue(instance, "status", "PENDING");
+            setFieldValue(instance, "status", STATUS_IN_PROGRESS);
             setFieldValue(instance, "createdAt", LocalDateTime.now());
-            setFieldValue(instance, "currentStep",
-                    getFirstStepName(objectMapper.readTree((String) getFieldValue(workflow, "definition"))));
-            setFieldValue(instance, "workflowDefinition", getFieldValue(workflow, "definition"));
+            setFieldValue(instance, "currentStep", firstStep);
+            setFieldValue(instance, "currentApprover", definition.getApprover(firstStep));
 
             // 保存审批实例
             instance = instanceRepository.save(instance);
@@ -97,14 +108,13 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
             recordApprovalDecision(instance, userId, decision, comments);
 
             // 计算下一步
-            String workflowDefinition = (String) getFieldValue(instance, "workflowDefinition");
-            JsonNode workflowDef = objectMapper.readTree(workflowDefinition);
+            WorkflowDefinition definition = getWorkflowDefinition(instance.getWorkflowId());
             String currentStep = (String) getFieldValue(instance, "currentStep");
-            String nextStep = calculateNextStep(workflowDef, currentStep, decision);
+            String nextStep = calculateNextStep(definition, currentStep, decision);
 
             if (nextStep != null) {
                 // 分配下一步审批任务
-                assignNextStep(instance, workflowDef, nextStep);
+                assignNextStep(instance, definition, nextStep);
                 setFieldValue(instance, "currentStep", nextStep);
                 instanceRepository.save(instance);
             } else {
@@ -113,7 +123,7 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
             }
 
             // 发送通知
-            notifyApprovers(instance, workflowDef);
+            notifyApprovers(instance, definition);
 
             return true;
         } catch (Exception e) {
@@ -130,32 +140,28 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ApprovalInstanceDTO> getPendingTasks(String userId) {
-        // 简化实现：使用findAll然后过滤
-        List<ApprovalInstance> allInstances = instanceRepository.findAll();
-        List<ApprovalInstance> instances = allInstances.stream()
-                .filter(instance -> "IN_PROGRESS".equals(getFieldValue(instance, "status")))
-                .collect(Collectors.toList());
-        return instances.stream()
-                .map(instance -> modelMapper.map(instance, ApprovalInstanceDTO.class))
-                .collect(Collectors.toList());
+        List<ApprovalInstance> instances = instanceRepository.findByStatusAndCurrentApproverOrderByIdAsc(
+                STATUS_IN_PROGRESS, userId, Pageable.unpaged());
+        return toInstanceDTOs(instances);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ApprovalInstanceDTO> getPendingTasks(String userId, Long afterId, int size) {
+        Pageable pageable = PageRequest.of(0, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        List<ApprovalInstance> instances = afterId == null
+                ? instanceRepository.findByStatusAndCurrentApproverOrderByIdAsc(STATUS_IN_PROGRESS, userId, pageable)
+                : instanceRepository.findByStatusAndCurrentApproverAndIdGreaterThanOrderByIdAsc(
+                        STATUS_IN_PROGRESS, userId, afterId, pageable);
+        return toInstanceDTOs(instances);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ApprovalInstanceDTO> getDocumentApprovalHistory(Long documentId) {
-        // 简化实现：使用findAll然后过滤
-        List<ApprovalInstance> allInstances = instanceRepository.findAll();
-        List<ApprovalInstance> instances = allInstances.stream()
-                .filter(instance -> documentId.equals(getFieldValue(instance, "documentId")))
-                .sorted((a, b) -> {
-                    LocalDateTime dateA = (LocalDateTime) getFieldValue(a, "createdAt");
-                    LocalDateTime dateB = (LocalDateTime) getFieldValue(b, "createdAt");
-                    return dateB.compareTo(dateA); // 降序排序
-                })
-                .collect(Collectors.toList());
-        return instances.stream()
-                .map(instance -> modelMapper.map(instance, ApprovalInstanceDTO.class))
-                .collect(Collectors.toList());
+        return toInstanceDTOs(instanceRepository.findByDocumentIdOrderByCreatedAtDescIdDesc(documentId));
     }
 
     @Override
@@ -252,7 +258,7 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
             }
 
             // 发送催办通知
-            notifyApprovers(instance, objectMapper.readTree((String) getFieldValue(instance, "workflowDefinition")));
+            notifyApprovers(instance, getWorkflowDefinition(instance.getWorkflowId()));
             return true;
         } catch (Exception e) {
             log.error("催办失败: {}", e.getMessage(), e);
@@ -260,12 +266,36 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
         }
     }
 
-    private String getFirstStepName(JsonNode workflowDef) {
-        // 从工作流定义中获取第一步名称
-        if (workflowDef.has("steps") && workflowDef.get("steps").isArray() && workflowDef.get("steps").size() > 0) {
-            return workflowDef.get("steps").get(0).get("name").asText();
+    private List<ApprovalInstanceDTO> toInstanceDTOs(List<ApprovalInstance> instances) {
+        return instances.stream()
+                .map(instance -> modelMapper.map(instance, ApprovalInstanceDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    private WorkflowDefinition getWorkflowDefinition(Long workflowId) {
+        ApprovalWorkflow workflow = workflowRepository.findById(workflowId)
+                .orElseThrow(() -> new RuntimeException("工作流不存在: " + workflowId));
+        return getWorkflowDefinition(workflow);
+    }
+
+    /**
+     * 获取解析后的工作流定义，定义内容与缓存一致时直接复用
+     */
+    private WorkflowDefinition getWorkflowDefinition(ApprovalWorkflow workflow) {
+        String source = workflow.getWorkflowDefinition();
+        WorkflowDefinition cached = definitionCache.get(workflow.getId());
+        if (cached != null && cached.isParsedFrom(source)) {
+            return cached;
+        }
+
+        try {
+            WorkflowDefinition definition = WorkflowDefinition.parse(source,
+                    source != null ? objectMapper.readTree(source) : null);
+            definitionCache.put(workflow.getId(), definition);
+            return definition;
+        } catch (Exception e) {
+            throw new RuntimeException("工作流定义解析失败: " + workflow.getWorkflowCode(), e);
         }
-        return null;
     }
 
     private boolean validateApproverPermission(ApprovalInstance instance, String userId) {
@@ -282,24 +312,9 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
         setFieldValue(instance, "comments", comments);
     }
 
-    private String calculateNextStep(JsonNode workflowDef, String currentStep, String decision) {
-        // 根据当前步骤和决策计算下一步
-        if (!workflowDef.has("steps") || !workflowDef.get("steps").isArray()) {
-            return null;
-        }
-
-        JsonNode steps = workflowDef.get("steps");
-        for (int i = 0; i < steps.size(); i++) {
-            JsonNode step = steps.get(i);
-            if (step.has("name") && currentStep.equals(step.get("name").asText())) {
-                // 返回下一步骤
-                if (i + 1 < steps.size()) {
-                    return steps.get(i + 1).get("name").asText();
-                }
-                return null; // 没有下一步骤，流程结束
-            }
-        }
-        return null;
+    private String calculateNextStep(WorkflowDefinition definition, String currentStep, String decision) {
+        // 根据当前步骤和决策计算下一步，没有下一步骤时流程结束
+        return definition.getNextStep(currentStep);
     }
 
     public void calculateNextStep(ApprovalInstance instance) {
@@ -329,14 +344,15 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
         return "final_approver";
     }
 
-    private void assignNextStep(ApprovalInstance instance, JsonNode workflowDef, String nextStep) {
-        // 分配下一步骤的审批任务
-        // 可以根据工作流定义中的审批人配置来分配任务
+    private void assignNextStep(ApprovalInstance instance, WorkflowDefinition definition, String nextStep) {
+        // 根据工作流定义中的审批人配置分配下一步骤的审批任务
+        setFieldValue(instance, "currentApprover", definition.getApprover(nextStep));
     }
 
     private void finalizeApprovalProcess(ApprovalInstance instance, String decision) {
         // 使用反射设置字段值
         setFieldValue(instance, "status", "APPROVED".equals(decision) ? "APPROVED" : "REJECTED");
+        setFieldValue(instance, "currentApprover", null);
         setFieldValue(instance, "completedAt", LocalDateTime.now());
         instanceRepository.save(instance);
 
@@ -348,41 +364,25 @@ public class ApprovalWorkflowServiceImpl implements ApprovalWorkflowService {
         documentRepository.save(document);
     }
 
-    private void notifyApprovers(ApprovalInstance instance, JsonNode workflowDef) {
+    private void notifyApprovers(ApprovalInstance instance, WorkflowDefinition definition) {
         // 发送审批任务通知
     }
 
-    // 反射辅助方法
-    private Field findField(Class<?> clazz, String fieldName) {
-        try {
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            Class<?> superClass = clazz.getSuperclass();
-            if (superClass != null && superClass != Object.class) {
-                return findField(superClass, fieldName);
-            }
-            throw new RuntimeException("字段不存在: " + fieldName, e);
-        }
-    }
-
+    // 属性访问辅助方法
     private Object getFieldValue(Object obj, String fieldName) {
-        try {
-            Field field = findField(obj.getClass(), fieldName);
-            field.setAccessible(true);
-            return field.get(obj);
-        } catch (Exception e) {
-            log.error("获取字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName, e);
+        if (obj == null) {
+            return null;
+        }
+        if (!FieldAccessors.hasProperty(obj.getClass(), fieldName)) {
+            log.error("获取字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName);
             return null;
         }
+        return FieldAccessors.get(obj, fieldName);
     }
 
     private void setFieldValue(Object obj, String fieldName, Object value) {
-        try {
-            Field field = findField(obj.getClass(), fieldName);
-            field.setAccessible(true);
-            field.set(obj, value);
-        } catch (Exception e) {
-            log.error("设置字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName, e);
+        if (obj != null && !FieldAccessors.set(obj, fieldName, value)) {
+            log.error("设置字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName);
         }
     }
 }
\ No newline at end of file
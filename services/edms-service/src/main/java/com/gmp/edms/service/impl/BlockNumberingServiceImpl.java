@@ -0,0 +1,93 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.repository.NumberSequenceRepository;
+import com.gmp.edms.service.NumberingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 号段式编号服务实现（hi/lo）
+ * <p>
+ * 每个序列在数据库中保存已分配的高水位，服务节点每次推进一个号段并在内存中逐个发放，
+ * 号段用完后再访问数据库，大多数编号请求不需要数据库往返。号段在独立事务中申请并立即提交，
+ * 业务事务回滚不会导致编号被重复发放。
+ * <p>
+ * 多个服务节点各自持有不同号段，编号全局唯一，但不同节点之间发放的编号不保证严格递增；
+ * 服务重启时未发放完的号段会被跳过。要求编号连续时将号段大小配置为1。
+ */
+@Service
+public class BlockNumberingServiceImpl implements NumberingService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockNumberingServiceImpl.class);
+
+    @Autowired
+    private NumberSequenceRepository numberSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${edms.numbering.block-size:20}")
+    private int blockSize = 20;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public long next(String sequenceKey) {
+        return next(sequenceKey, () -> 0L);
+    }
+
+    @Override
+    public long next(String sequenceKey, LongSupplier initialValue) {
+        Block block = blocks.computeIfAbsent(sequenceKey, key -> new Block());
+        synchronized (block) {
+            if (block.next > block.limit) {
+                int size = Math.max(1, blockSize);
+                long high = allocate(sequenceKey, size, initialValue);
+                block.next = high - size + 1;
+                block.limit = high;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * 推进序列高水位，返回新号段的最大值
+     */
+    private long allocate(String sequenceKey, int size, LongSupplier initialValue) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long high = template.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (numberSequenceRepository.advance(sequenceKey, size, now) == 0) {
+                // 序列不存在时以已使用的最大序号创建，并发创建时只有一个生效
+                numberSequenceRepository.insertIfAbsent(sequenceKey, Math.max(0L, initialValue.getAsLong()), now);
+                numberSequenceRepository.advance(sequenceKey, size, now);
+            }
+            return numberSequenceRepository.findHighValue(sequenceKey);
+        });
+        if (high == null) {
+            throw new IllegalStateException("编号号段分配失败: " + sequenceKey);
+        }
+        log.debug("分配编号号段: {} [{}, {}]", sequenceKey, high - size + 1, high);
+        return high;
+    }
+
+    /**
+     * 当前节点持有的号段，next大于limit表示号段已用完
+     */
+    private static final class Block {
+        private long next = 1;
+        private long limit = 0;
+    }
+}
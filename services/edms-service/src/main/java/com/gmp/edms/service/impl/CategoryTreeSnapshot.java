@@ -0,0 +1,196 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.dto.DocumentCategoryDTO;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类树快照
+ * <p>
+ * 快照创建后不再修改，分类变更时基于当前快照生成新快照（写时复制），读取方无需加锁。
+ * 快照内部保存的节点不会直接返回给调用方，每次读取返回新的DTO副本，调用方修改结果不会影响快照。
+ */
+final class CategoryTreeSnapshot {
+
+    private static final Comparator<DocumentCategoryDTO> ORDER = Comparator
+            .comparing(DocumentCategoryDTO::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(DocumentCategoryDTO::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Map<Long, DocumentCategoryDTO> nodes;
+    private final Map<Long, List<Long>> childIds;
+    private final List<Long> rootIds;
+
+    private CategoryTreeSnapshot(Map<Long, DocumentCategoryDTO> nodes) {
+        this.nodes = nodes;
+
+        List<DocumentCategoryDTO> ordered = new ArrayList<>(nodes.values());
+        ordered.sort(ORDER);
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        for (DocumentCategoryDTO node : ordered) {
+            Long parentId = node.getParentId();
+            if (parentId == null) {
+                roots.add(node.getId());
+            } else if (nodes.containsKey(parentId)) {
+                children.computeIfAbsent(parentId, key -> new ArrayList<>()).add(node.getId());
+            }
+            // 父分类不存在的节点不出现在树中，与原有树构建逻辑一致
+        }
+        this.childIds = children;
+        this.rootIds = roots;
+    }
+
+    /**
+     * 根据分类节点创建快照，节点的children不会被复制
+     */
+    static CategoryTreeSnapshot of(Collection<DocumentCategoryDTO> categories) {
+        Map<Long, DocumentCategoryDTO> nodes = new LinkedHashMap<>();
+        for (DocumentCategoryDTO category : categories) {
+            nodes.put(category.getId(), copyOf(category));
+        }
+        return new CategoryTreeSnapshot(nodes);
+    }
+
+    /**
+     * 基于当前快照生成包含变更的新快照，当前快照保持不变
+     *
+     * @param updated 新增或修改的分类
+     * @param removedIds 删除的分类ID
+     */
+    CategoryTreeSnapshot withChanges(Collection<DocumentCategoryDTO> updated, Collection<Long> removedIds) {
+        Map<Long, DocumentCategoryDTO> copy = new LinkedHashMap<>(nodes);
+        for (Long id : removedIds) {
+            copy.remove(id);
+        }
+        for (DocumentCategoryDTO category : updated) {
+            copy.put(category.getId(), copyOf(category));
+        }
+        return new CategoryTreeSnapshot(copy);
+    }
+
+    boolean contains(Long id) {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * 获取完整分类树
+     */
+    List<DocumentCategoryDTO> tree() {
+        List<DocumentCategoryDTO> roots = new ArrayList<>(rootIds.size());
+        for (Long rootId : rootIds) {
+            roots.add(subtree(rootId));
+        }
+        return roots;
+    }
+
+    /**
+     * 获取以指定分类为根的子树
+     */
+    DocumentCategoryDTO subtree(Long id) {
+        DocumentCategoryDTO node = nodes.get(id);
+        if (node == null) {
+            return null;
+        }
+        DocumentCategoryDTO copy = view(node);
+        List<Long> ids = childIds.getOrDefault(id, Collections.emptyList());
+        List<DocumentCategoryDTO> children = new ArrayList<>(ids.size());
+        for (Long childId : ids) {
+            children.add(subtree(childId));
+        }
+        copy.setChildren(children);
+        return copy;
+    }
+
+    /**
+     * 获取根分类列表，不包含子分类
+     */
+    List<DocumentCategoryDTO> roots() {
+        return copiesOf(rootIds);
+    }
+
+    /**
+     * 获取直接子分类列表，不包含子分类的子分类
+     */
+    List<DocumentCategoryDTO> children(Long parentId) {
+        return copiesOf(childIds.getOrDefault(parentId, Collections.emptyList()));
+    }
+
+    /**
+     * 获取从根分类到指定分类的路径（包含指定分类本身）
+     */
+    List<DocumentCategoryDTO> ancestors(Long id) {
+        List<DocumentCategoryDTO> path = new ArrayList<>();
+        DocumentCategoryDTO node = nodes.get(id);
+        // 层级数不会超过分类总数，防止异常数据形成环时无限循环
+        while (node != null && path.size() <= nodes.size()) {
+            path.add(0, view(node));
+            node = node.getParentId() != null ? nodes.get(node.getParentId()) : null;
+        }
+        return path;
+    }
+
+    /**
+     * 获取指定分类的所有下级分类ID（不包含自身）
+     */
+    List<Long> descendantIds(Long id) {
+        List<Long> result = new ArrayList<>();
+        collectDescendants(id, result);
+        return result;
+    }
+
+    private void collectDescendants(Long id, List<Long> result) {
+        for (Long childId : childIds.getOrDefault(id, Collections.emptyList())) {
+            result.add(childId);
+            collectDescendants(childId, result);
+        }
+    }
+
+    private List<DocumentCategoryDTO> copiesOf(List<Long> ids) {
+        List<DocumentCategoryDTO> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            result.add(view(nodes.get(id)));
+        }
+        return result;
+    }
+
+    /**
+     * 返回节点副本，父分类名称取自快照中的父分类，父分类改名后无需更新子分类节点
+     */
+    private DocumentCategoryDTO view(DocumentCategoryDTO node) {
+        DocumentCategoryDTO copy = copyOf(node);
+        DocumentCategoryDTO parent = node.getParentId() != null ? nodes.get(node.getParentId()) : null;
+        if (parent != null) {
+            copy.setParentName(parent.getCategoryName());
+        }
+        return copy;
+    }
+
+    /**
+     * 复制分类自身属性，不复制children
+     */
+    private static DocumentCategoryDTO copyOf(DocumentCategoryDTO source) {
+        DocumentCategoryDTO copy = new DocumentCategoryDTO();
+        copy.setId(source.getId());
+        copy.setCategoryCode(source.getCategoryCode());
+        copy.setCategoryName(source.getCategoryName());
+        copy.setDescription(source.getDescription());
+        copy.setCategoryPath(source.getCategoryPath());
+        copy.setLevel(source.getLevel());
+        copy.setStatus(source.getStatus());
+        copy.setSortOrder(source.getSortOrder());
+        copy.setCreatedBy(source.getCreatedBy());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setParentId(source.getParentId());
+        copy.setParentName(source.getParentName());
+        copy.setDocumentCount(source.getDocumentCount());
+        return copy;
+    }
+}
@@ -2,6 +2,7 @@ package com.gmp.edms.service.impl;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.dto.BatchUploadResultDTO;
 import com.gmp.edms.dto.CommonFileDTO;
 import com.gmp.edms.dto.CommonFileUploadDTO;
 import com.gmp.edms.entity.CommonFile;
@@ -9,13 +10,17 @@ import com.gmp.edms.repository.CommonFileRepository;
 import com.gmp.edms.service.CommonFileService;
 import com.gmp.edms.service.FileStorageService;
 import org.modelmapper.ModelMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
@@ -24,6 +29,8 @@ import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +39,8 @@ import java.util.stream.Collectors;
 @Service
 public class CommonFileServiceImpl implements CommonFileService {
     
+    private static final Logger log = LoggerFactory.getLogger(CommonFileServiceImpl.class);
+    
     @Autowired
     private CommonFileRepository commonFileRepository;
     
@@ -44,6 +53,13 @@ public class CommonFileServiceImpl implements CommonFileService {
     @Autowired
     private ObjectMapper objectMapper;
     
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    @Qualifier("fileUploadExecutor")
+    private Executor fileUploadExecutor;
+    
     @Value("${minio.default-bucket}")
     private String defaultBucket;
     
@@ -73,25 +89,9 @@ public class CommonFileServiceImpl implements CommonFileService {
             return convertToDTO(existingFile.get());
         }
         
-        // 生成文件路径
-        String fileName = file.getOriginalFilename();
-        String filePath = generateFilePath(module, fileName);
-        
         // 创建文件实体
-        CommonFile commonFile = new CommonFile();
-        commonFile.setFileName(fileName);
-        commonFile.setFileType(file.getContentType());
-        commonFile.setFileSize(file.getSize());
-        commonFile.setFilePath(filePath);
-        commonFile.setChecksum(checksum);
-        commonFile.setBucketName(commonFilesBucket);
-        commonFile.setModule(module);
-        commonFile.setCreatedBy("system"); // 实际应用中应该从认证信息获取
-        
-        // 设置元数据
-        if (metadata != null && !metadata.isEmpty()) {
-            commonFile.setMetadata(objectMapper.valueToTree(metadata));
-        }
+        CommonFile commonFile = buildCommonFile(file, module, checksum, metadata);
+        String filePath = commonFile.getFilePath();
         
         // 保存文件信息到数据库
         commonFile = commonFileRepository.save(commonFile);
@@ -110,25 +110,60 @@ public class CommonFileServiceImpl implements CommonFileService {
     }
     
     @Override
-    @Transactional
     public List<CommonFileDTO> batchUploadFiles(List<MultipartFile> files, String module, Map<String, Object> metadata) throws Exception {
-        List<CommonFileDTO> result = new ArrayList<>();
-        
+        // 只返回上传成功（含已存在）的文件，失败明细见batchUpload返回的结果清单
+        return batchUpload(files, module, metadata).getItems().stream()
+                .map(BatchUploadResultDTO.Item::getFile)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    public BatchUploadResultDTO batchUpload(List<MultipartFile> files, String module, Map<String, Object> metadata) {
+        BatchUploadResultDTO result = new BatchUploadResultDTO();
         if (files == null || files.isEmpty()) {
             return result;
         }
         
-        for (MultipartFile file : files) {
-            try {
-                CommonFileDTO fileDTO = uploadFile(file, module, metadata);
-                result.add(fileDTO);
-            } catch (Exception e) {
-                // 记录错误但继续处理其他文件
-                System.err.println("文件上传失败: " + file.getOriginalFilename() + ", 错误: " + e.getMessage());
-            }
+        // 验证模块名称
+        if (module == null || module.trim().isEmpty()) {
+            throw new IllegalArgumentException("模块名称不能为空");
         }
         
-        return result;
+        List<PendingUpload> uploads = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            uploads.add(new PendingUpload(i, files.get(i)));
+        }
+        
+        // 1. 并发计算校验和
+        runConcurrently(uploads, upload -> {
+            if (upload.file == null || upload.file.isEmpty()) {
+                throw new IllegalArgumentException("文件不能为空");
+            }
+            upload.checksum = calculateChecksum(upload.file);
+        });
+        
+        // 2. 一次查询已存在的文件，同一批次内的重复文件只上传一次
+        resolveDuplicates(uploads);
+        
+        // 3. 并发上传到存储服务，上传期间不占用数据库连接
+        List<PendingUpload> toStore = uploads.stream()
+                .filter(PendingUpload::needsStore)
+                .collect(Collectors.toList());
+        // 上传前创建一次存储桶，避免并发上传同时创建
+        ensureBucket(toStore);
+        runConcurrently(toStore, upload -> {
+            upload.entity = buildCommonFile(upload.file, module, upload.checksum, metadata);
+            try (InputStream inputStream = upload.file.getInputStream()) {
+                fileStorageService.uploadFile(inputStream, upload.file.getSize(),
+                        upload.file.getContentType(), commonFilesBucket, upload.entity.getFilePath());
+            }
+        });
+        
+        // 4. 全部上传完成后在一个事务中批量保存文件信息
+        saveStored(toStore);
+        
+        return buildManifest(uploads);
     }
     
     @Override
@@ -266,13 +301,172 @@ public class CommonFileServiceImpl implements CommonFileService {
                 .orElseThrow(() -> new Exception("文件不存在: " + fileId));
     }
     
+    /**
+     * 在上传线程池中并发执行上传步骤，单个文件失败时记录错误，不影响其他文件
+     */
+    private void runConcurrently(List<PendingUpload> uploads, UploadStep step) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (PendingUpload upload : uploads) {
+            if (upload.error != null) {
+                continue;
+            }
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    step.apply(upload);
+                } catch (Exception e) {
+                    upload.error = e;
+                }
+            }, fileUploadExecutor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    }
+    
+    /**
+     * 确保存储桶存在，创建失败时本批次待上传的文件均标记为失败
+     */
+    private void ensureBucket(List<PendingUpload> toStore) {
+        if (toStore.isEmpty()) {
+            return;
+        }
+        try {
+            if (!fileStorageService.bucketExists(commonFilesBucket)) {
+                fileStorageService.createBucket(commonFilesBucket);
+            }
+        } catch (Exception e) {
+            log.error("创建存储桶失败: {}", commonFilesBucket, e);
+            toStore.forEach(upload -> upload.error = e);
+        }
+    }
+    
+    /**
+     * 标记已存在的文件和批次内重复的文件
+     */
+    private void resolveDuplicates(List<PendingUpload> uploads) {
+        Set<String> checksums = uploads.stream()
+                .filter(upload -> upload.error == null)
+                .map(upload -> upload.checksum)
+                .collect(Collectors.toSet());
+        if (checksums.isEmpty()) {
+            return;
+        }
+        
+        Map<String, CommonFile> existingFiles = new HashMap<>();
+        for (CommonFile file : commonFileRepository.findByChecksumIn(checksums)) {
+            existingFiles.putIfAbsent(file.getChecksum(), file);
+        }
+        
+        Map<String, PendingUpload> firstUploads = new HashMap<>();
+        for (PendingUpload upload : uploads) {
+            if (upload.error != null) {
+                continue;
+            }
+            CommonFile existingFile = existingFiles.get(upload.checksum);
+            if (existingFile != null) {
+                upload.saved = existingFile;
+                upload.duplicate = true;
+            } else {
+                upload.duplicateOf = firstUploads.putIfAbsent(upload.checksum, upload);
+            }
+        }
+    }
+    
+    /**
+     * 批量保存已上传文件的信息，保存失败时删除已上传的文件
+     */
+    private void saveStored(List<PendingUpload> toStore) {
+        List<PendingUpload> stored = toStore.stream()
+                .filter(upload -> upload.error == null)
+                .collect(Collectors.toList());
+        if (stored.isEmpty()) {
+            return;
+        }
+        
+        List<CommonFile> entities = stored.stream()
+                .map(upload -> upload.entity)
+                .collect(Collectors.toList());
+        try {
+            List<CommonFile> saved = transactionTemplate.execute(status -> commonFileRepository.saveAll(entities));
+            for (int i = 0; i < stored.size(); i++) {
+                stored.get(i).saved = saved.get(i);
+            }
+        } catch (RuntimeException e) {
+            log.error("批量保存文件信息失败，删除已上传的{}个文件", stored.size(), e);
+            for (PendingUpload upload : stored) {
+                upload.error = e;
+                try {
+                    fileStorageService.deleteFile(commonFilesBucket, upload.entity.getFilePath());
+                } catch (Exception deleteError) {
+                    log.warn("删除已上传文件失败: {}", upload.entity.getFilePath(), deleteError);
+                }
+            }
+        }
+    }
+    
+    /**
+     * 生成批量上传结果清单
+     */
+    private BatchUploadResultDTO buildManifest(List<PendingUpload> uploads) {
+        BatchUploadResultDTO result = new BatchUploadResultDTO();
+        for (PendingUpload upload : uploads) {
+            BatchUploadResultDTO.Item item = new BatchUploadResultDTO.Item();
+            item.setIndex(upload.index);
+            item.setFileName(upload.file != null ? upload.file.getOriginalFilename() : null);
+            
+            // 批次内重复的文件沿用第一个相同文件的上传结果
+            PendingUpload source = upload.duplicateOf != null ? upload.duplicateOf : upload;
+            Exception error = upload.error != null ? upload.error : source.error;
+            if (error != null) {
+                item.setStatus("FAILED");
+                item.setError(error.getMessage());
+                log.warn("文件上传失败: {}, 错误: {}", item.getFileName(), error.getMessage());
+            } else {
+                item.setStatus(upload.duplicate || upload.duplicateOf != null ? "DUPLICATE" : "UPLOADED");
+                item.setFile(convertToDTO(source.saved));
+            }
+            result.getItems().add(item);
+        }
+        
+        result.setTotal(uploads.size());
+        result.setFailed((int) result.getItems().stream().filter(item -> item.getError() != null).count());
+        result.setSucceeded(result.getTotal() - result.getFailed());
+        return result;
+    }
+    
+    /**
+     * 创建文件实体
+     */
+    private CommonFile buildCommonFile(MultipartFile file, String module, String checksum, Map<String, Object> metadata) {
+        String fileName = file.getOriginalFilename();
+        
+        CommonFile commonFile = new CommonFile();
+        commonFile.setFileName(fileName);
+        commonFile.setFileType(file.getContentType());
+        commonFile.setFileSize(file.getSize());
+        commonFile.setFilePath(generateFilePath(module, fileName));
+        commonFile.setChecksum(checksum);
+        commonFile.setBucketName(commonFilesBucket);
+        commonFile.setModule(module);
+        commonFile.setCreatedBy("system"); // 实际应用中应该从认证信息获取
+        
+        // 设置元数据
+        if (metadata != null && !metadata.isEmpty()) {
+            commonFile.setMetadata(objectMapper.valueToTree(metadata));
+        }
+        return commonFile;
+    }
+    
     /**
      * 计算文件校验和
      */
     private String calculateChecksum(MultipartFile file) throws Exception {
         MessageDigest digest = MessageDigest.getInstance("MD5");
-        byte[] bytes = file.getBytes();
-        digest.update(bytes);
+        try (InputStream inputStream = file.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
         byte[] hash = digest.digest();
         
         StringBuilder hexString = new StringBuilder();
@@ -322,4 +516,35 @@ public class CommonFileServiceImpl implements CommonFileService {
         else if (size < 1024 * 1024 * 1024) return String.format("%.2f MB", size / (1024.0 * 1024));
         else return String.format("%.2f GB", size / (1024.0 * 1024 * 1024));
     }
-}
\ No newline at end of file
+    
+    /**
+     * 批量上传的单个步骤
+     */
+    @FunctionalInterface
+    private interface UploadStep {
+        void apply(PendingUpload upload) throws Exception;
+    }
+    
+    /**
+     * 批量上传中单个文件的处理状态
+     */
+    private static class PendingUpload {
+        private final int index;
+        private final MultipartFile file;
+        private String checksum;
+        private CommonFile entity;
+        private CommonFile saved;
+        private boolean duplicate;
+        private PendingUpload duplicateOf;
+        private Exception error;
+        
+        PendingUpload(int index, MultipartFile file) {
+            this.index = index;
+            this.file = file;
+        }
+        
+        boolean needsStore() {
+            return error == null && saved == null && duplicateOf == null;
+        }
+    }
+}
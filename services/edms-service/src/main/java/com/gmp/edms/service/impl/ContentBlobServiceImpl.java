@@ -0,0 +1,246 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.ContentBlob;
+import com.gmp.edms.repository.ContentBlobRepository;
+import com.gmp.edms.service.ContentBlobService;
+import com.gmp.edms.service.FileStorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 内容寻址存储服务实现
+ * <p>
+ * 对象路径为blobs/{摘要前2位}/{摘要第3-4位}/{摘要}。上传时先以流的方式写入暂存路径，同时计算摘要；
+ * 内容已存在则只增加引用计数并删除暂存对象，否则在存储服务端将暂存对象复制到内容路径。
+ * <p>
+ * 引用计数归零的内容不会立即删除，超过宽限期后由垃圾回收在行锁保护下删除对象和记录，
+ * 回收期间的并发引用会等待行锁释放后重新上传，不会引用到已删除的对象。
+ * 注册内容时先复制对象再插入记录，事务回滚后内容对象没有对应的记录，垃圾回收同样在宽限期后删除这类对象。
+ */
+@Service
+public class ContentBlobServiceImpl implements ContentBlobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentBlobServiceImpl.class);
+
+    private static final String BLOB_PREFIX = "blobs/";
+    private static final String STAGING_PREFIX = "staging/";
+
+    @Autowired
+    private ContentBlobRepository contentBlobRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${edms.blob-store.bucket:edms-documents}")
+    private String bucketName = "edms-documents";
+
+    /**
+     * 无引用内容和暂存对象的保留时间（小时）
+     */
+    @Value("${edms.blob-store.gc-grace-hours:24}")
+    private long gcGraceHours = 24;
+
+    /**
+     * 单次垃圾回收处理的最大内容数
+     */
+    @Value("${edms.blob-store.gc-batch-size:500}")
+    private int gcBatchSize = 500;
+
+    @Override
+    @Transactional
+    public ContentBlob store(MultipartFile file) throws Exception {
+        String stagingPath = STAGING_PREFIX + UUID.randomUUID();
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+        // 上传过程中同步更新摘要，文件内容只读取一次
+        try (InputStream inputStream = new DigestInputStream(file.getInputStream(), messageDigest)) {
+            fileStorageService.uploadFile(inputStream, file.getSize(), file.getContentType(), bucketName, stagingPath);
+        }
+
+        String digest = toHex(messageDigest.digest());
+        try {
+            return register(digest, stagingPath, file.getSize(), file.getContentType());
+        } finally {
+            deleteQuietly(stagingPath);
+        }
+    }
+
+    @Override
+    @Transactional
+    public ContentBlob retain(String digest, String sourcePath, Long fileSize, String contentType) throws Exception {
+        if (digest == null || digest.isEmpty()) {
+            throw new IllegalArgumentException("内容摘要不能为空");
+        }
+        return register(digest, sourcePath, fileSize, contentType);
+    }
+
+    @Override
+    @Transactional
+    public void release(String digest) {
+        if (digest == null || digest.isEmpty()) {
+            return;
+        }
+        if (contentBlobRepository.decrementRefCount(digest) > 0) {
+            contentBlobRepository.markOrphaned(digest, LocalDateTime.now());
+        }
+    }
+
+    @Override
+    public boolean isBlobPath(String filePath) {
+        return filePath != null && filePath.startsWith(BLOB_PREFIX);
+    }
+
+    @Override
+    @Scheduled(cron = "${edms.blob-store.gc-cron:0 0 3 * * *}")
+    public int collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(gcGraceHours);
+        int deleted = 0;
+
+        List<Long> orphanIds = contentBlobRepository.findOrphanIds(cutoff, PageRequest.of(0, gcBatchSize));
+        for (Long id : orphanIds) {
+            try {
+                // 每个内容单独提交，删除对象期间持有行锁
+                if (Boolean.TRUE.equals(transactionTemplate.execute(status -> deleteOrphan(id)))) {
+                    deleted++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("回收内容失败, id: {}, 原因: {}", id, e.getMessage());
+            }
+        }
+
+        int unregistered = cleanupUnregistered(cutoff);
+        cleanupStaging(cutoff);
+        if (deleted > 0 || unregistered > 0) {
+            log.info("内容寻址存储垃圾回收完成，删除{}个无引用内容，{}个无记录的内容对象", deleted, unregistered);
+        }
+        return deleted;
+    }
+
+    /**
+     * 增加引用；内容不存在时先将源对象复制到内容路径，再插入记录，保证记录可见时对象已存在
+     */
+    private ContentBlob register(String digest, String sourcePath, Long fileSize, String contentType)
+            throws Exception {
+        if (contentBlobRepository.incrementRefCount(digest) == 0) {
+            String objectPath = blobPath(digest);
+            // 相同摘要的内容相同，并发复制到同一路径结果一致
+            if (!objectPath.equals(sourcePath)) {
+                fileStorageService.copyFile(bucketName, sourcePath, bucketName, objectPath);
+            }
+            contentBlobRepository.insertOrIncrement(digest, objectPath, fileSize, contentType, LocalDateTime.now());
+        }
+        return contentBlobRepository.findByDigest(digest)
+                .orElseThrow(() -> new IllegalStateException("内容记录不存在: " + digest));
+    }
+
+    private boolean deleteOrphan(Long id) {
+        Optional<ContentBlob> orphan = contentBlobRepository.findOrphanForUpdate(id);
+        if (orphan.isEmpty()) {
+            // 已被重新引用或已被其他节点回收
+            return false;
+        }
+        try {
+            fileStorageService.deleteFile(bucketName, orphan.get().getObjectPath());
+        } catch (Exception e) {
+            throw new RuntimeException("删除内容对象失败: " + e.getMessage(), e);
+        }
+        contentBlobRepository.delete(orphan.get());
+        return true;
+    }
+
+    /**
+     * 删除超过宽限期且没有内容记录的内容对象，每批按摘要查询一次记录
+     * <p>
+     * 正在注册的内容刚复制过对象，修改时间在宽限期内不会被删除；删除前再次查询记录，
+     * 避免删除在批量查询之后完成注册的内容
+     */
+    private int cleanupUnregistered(LocalDateTime cutoff) {
+        long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        int deleted = 0;
+        try {
+            List<String> objectPaths = fileStorageService.listFiles(bucketName, BLOB_PREFIX);
+            for (int from = 0; from < objectPaths.size() && deleted < gcBatchSize; from += gcBatchSize) {
+                Map<String, String> pathsByDigest = new HashMap<>();
+                for (String objectPath : objectPaths.subList(from, Math.min(from + gcBatchSize, objectPaths.size()))) {
+                    pathsByDigest.put(digestOf(objectPath), objectPath);
+                }
+                pathsByDigest.keySet().removeAll(contentBlobRepository.findExistingDigests(pathsByDigest.keySet()));
+                for (String objectPath : pathsByDigest.values()) {
+                    if (deleted >= gcBatchSize) {
+                        break;
+                    }
+                    if (fileStorageService.getFileLastModified(bucketName, objectPath) < cutoffMillis
+                            && contentBlobRepository.findByDigest(digestOf(objectPath)).isEmpty()) {
+                        fileStorageService.deleteFile(bucketName, objectPath);
+                        deleted++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理无记录的内容对象失败: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    /**
+     * 删除上传中断后遗留的暂存对象
+     */
+    private void cleanupStaging(LocalDateTime cutoff) {
+        long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try {
+            for (String stagingPath : fileStorageService.listFiles(bucketName, STAGING_PREFIX)) {
+                if (fileStorageService.getFileLastModified(bucketName, stagingPath) < cutoffMillis) {
+                    deleteQuietly(stagingPath);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理暂存对象失败: {}", e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(String filePath) {
+        try {
+            fileStorageService.deleteFile(bucketName, filePath);
+        } catch (Exception e) {
+            log.warn("删除暂存对象失败: {}, 原因: {}", filePath, e.getMessage());
+        }
+    }
+
+    private static String digestOf(String objectPath) {
+        return objectPath.substring(objectPath.lastIndexOf('/') + 1);
+    }
+
+    static String blobPath(String digest) {
+        return BLOB_PREFIX + digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
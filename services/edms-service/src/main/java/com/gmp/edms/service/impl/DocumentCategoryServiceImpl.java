@@ -8,8 +8,10 @@ import com.gmp.edms.dto.PageResponseDTO;
 import com.gmp.edms.entity.DocumentCategory;
 import com.gmp.edms.repository.DocumentCategoryRepository;
 import com.gmp.edms.service.DocumentCategoryService;
+import com.gmp.edms.util.FieldAccessors;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -18,16 +20,28 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 /**
  * 文档分类服务实现
+ * <p>
+ * 分类树、子分类和分类路径查询由内存中的分类树快照提供，快照在首次访问时加载。
+ * 创建、修改、移动、状态变更和删除在事务提交后基于当前快照生成新快照，事务回滚时快照不变；
+ * 其他节点的变更通过定时全量刷新同步。移动分类时按物化路径（categoryPath）前缀一次查询并更新所有下级分类，
+ * 循环引用检查读取数据库中加锁的父分类，不依赖可能过期的快照。
  */
 @Service
 public class DocumentCategoryServiceImpl implements DocumentCategoryService {
@@ -38,6 +52,15 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
     @Autowired
     private ModelMapper modelMapper;
 
+    private final AtomicReference<CategoryTreeSnapshot> treeSnapshot = new AtomicReference<>();
+
+    /**
+     * 已应用到快照的变更次数，用于丢弃加载期间已过期的快照
+     */
+    private final AtomicLong snapshotChanges = new AtomicLong();
+
+    private final Object snapshotLock = new Object();
+
     @Override
     @Transactional
     @CacheEvict(value = "documentCategories", allEntries = true)
@@ -61,13 +84,15 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
                 // 设置父分类
                 setFieldValue(category, "parent", parentCategory);
 
-                // 设置分类路径
+                // 设置层级和分类路径
+                Integer parentLevel = (Integer) getFieldValue(parentCategory, "level");
+                setFieldValue(category, "level", (parentLevel != null ? parentLevel : 0) + 1);
                 String parentPath = (String) getFieldValue(parentCategory, "categoryPath");
                 parentPath = parentPath != null ? parentPath : "";
-                setFieldValue(category, "categoryPath",
-                        parentPath + "/" + getFieldValue(parentCategory, "categoryCode"));
+                setFieldValue(category, "categoryPath", parentPath + "/" + getFieldValue(category, "categoryCode"));
             } else {
                 // 根分类
+                setFieldValue(category, "level", 1);
                 setFieldValue(category, "categoryPath", getFieldValue(category, "categoryCode"));
                 setFieldValue(category, "parent", null);
             }
@@ -79,10 +104,7 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
 
             // 保存分类
             category = documentCategoryRepository.save(category);
-
-            // 更新子分类的路径
-            updateChildCategoryPaths((Long) getFieldValue(category, "id"),
-                    (String) getFieldValue(category, "categoryPath"));
+            publishChanges(List.of(category), Collections.emptyList());
 
             // 转换为DTO并返回
             return modelMapper.map(category, DocumentCategoryDTO.class);
@@ -118,6 +140,7 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
             }
 
             // 处理父分类变更
+            String oldPath = category.getCategoryPath();
             Long parentIdValue = (Long) getFieldValue(categoryUpdateDTO, "parentId");
             if (parentIdValue != null) {
                 updateParent(category, parentIdValue);
@@ -128,6 +151,10 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
 
             // 保存更新
             category = documentCategoryRepository.save(category);
+            List<DocumentCategory> changed = new ArrayList<>();
+            changed.add(category);
+            changed.addAll(updateDescendantPaths(oldPath, category.getCategoryPath()));
+            publishChanges(changed, Collections.emptyList());
 
             // 转换为DTO并返回
             return modelMapper.map(category, DocumentCategoryDTO.class);
@@ -152,13 +179,22 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
 
         // 删除分类
         documentCategoryRepository.deleteById(id);
+        publishChanges(Collections.emptyList(), List.of(id));
     }
 
     @Override
     @Transactional
     public void batchDeleteCategories(List<Long> ids) {
+        // 下级分类随父分类级联删除，一并从快照中移除
+        CategoryTreeSnapshot snapshot = snapshot();
+        List<Long> removedIds = new ArrayList<>(ids);
+        for (Long id : ids) {
+            removedIds.addAll(snapshot.descendantIds(id));
+        }
+
         // 批量删除分类
         documentCategoryRepository.deleteAllById(ids);
+        publishChanges(Collections.emptyList(), removedIds);
     }
 
     @Override
@@ -232,72 +268,17 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
 
     @Override
     public List<DocumentCategoryDTO> getRootCategories() {
-        // 查询根分类
-        List<DocumentCategory> rootCategories = documentCategoryRepository.findByParentIdIsNull();
-
-        // 转换为DTO并返回
-        return rootCategories.stream()
-                .map(category -> modelMapper.map(category, DocumentCategoryDTO.class))
-                .collect(Collectors.toList());
+        return snapshot().roots();
     }
 
     @Override
     public List<DocumentCategoryDTO> getChildCategories(Long parentId) {
-        // 查询子分类
-        List<DocumentCategory> childCategories = documentCategoryRepository.findByParentId(parentId);
-
-        // 转换为DTO并返回
-        return childCategories.stream()
-                .map(category -> modelMapper.map(category, DocumentCategoryDTO.class))
-                .collect(Collectors.toList());
+        return snapshot().children(parentId);
     }
 
     @Override
     public List<DocumentCategoryDTO> getCategoryTree() {
-        try {
-            // 获取所有分类
-            List<DocumentCategory> allCategories = documentCategoryRepository.findAll();
-
-            // 构建分类树
-            Map<Long, DocumentCategoryDTO> categoryMap = new HashMap<>();
-            List<DocumentCategoryDTO> rootCategories = new ArrayList<>();
-
-            // 首先将所有分类转换为DTO并放入Map
-            for (DocumentCategory category : allCategories) {
-                DocumentCategoryDTO dto = modelMapper.map(category, DocumentCategoryDTO.class);
-                // 设置children列表
-                setFieldValue(dto, "children", new ArrayList<>());
-                categoryMap.put((Long) getFieldValue(category, "id"), dto);
-            }
-
-            // 构建树结构
-            for (DocumentCategory category : allCategories) {
-                DocumentCategoryDTO dto = categoryMap.get(getFieldValue(category, "id"));
-
-                Long parentIdValue = (Long) getFieldValue(dto, "parentId");
-
-                if (parentIdValue == null) {
-                    // 根分类
-                    rootCategories.add(dto);
-                } else {
-                    // 子分类，添加到父分类的children列表
-                    DocumentCategoryDTO parentDto = categoryMap.get(parentIdValue);
-                    if (parentDto != null) {
-                        List<DocumentCategoryDTO> children = (List<DocumentCategoryDTO>) getFieldValue(parentDto,
-                                "children");
-                        if (children == null) {
-                            children = new ArrayList<>();
-                            setFieldValue(parentDto, "children", children);
-                        }
-                        children.add(dto);
-                    }
-                }
-            }
-
-            return rootCategories;
-        } catch (Exception e) {
-            throw new RuntimeException("获取分类树失败: " + e.getMessage(), e);
-        }
+        return snapshot().tree();
     }
 
     @Override
@@ -308,13 +289,17 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
                 .orElseThrow(() -> new RuntimeException("分类不存在: " + id));
 
         // 更新父分类
+        String oldPath = category.getCategoryPath();
         updateParent(category, parentId);
 
         // 保存更新
-        documentCategoryRepository.save(category);
+        category = documentCategoryRepository.save(category);
 
-        // 更新子分类路径
-        updateChildCategoryPaths(id, (String) getFieldValue(category, "categoryPath"));
+        // 按原路径前缀更新所有下级分类的路径
+        List<DocumentCategory> changed = new ArrayList<>();
+        changed.add(category);
+        changed.addAll(updateDescendantPaths(oldPath, category.getCategoryPath()));
+        publishChanges(changed, Collections.emptyList());
     }
 
     @Override
@@ -331,7 +316,8 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
         setFieldValue(category, "updatedAt", LocalDateTime.now());
 
         // 保存更新
-        documentCategoryRepository.save(category);
+        category = documentCategoryRepository.save(category);
+        publishChanges(List.of(category), Collections.emptyList());
     }
 
     @Override
@@ -367,46 +353,13 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
 
     @Override
     public List<DocumentCategoryDTO> getCategoryPath(Long categoryId) {
-        // 查找分类
-        DocumentCategory category = documentCategoryRepository.findById(categoryId)
-                .orElseThrow(() -> new RuntimeException("分类不存在: " + categoryId));
-
-        // 解析分类路径并获取所有父分类
-        String path = (String) getFieldValue(category, "categoryPath");
-        if (path == null || path.isEmpty()) {
-            return new ArrayList<>();
+        CategoryTreeSnapshot snapshot = snapshot();
+        if (!snapshot.contains(categoryId)) {
+            throw new RuntimeException("分类不存在: " + categoryId);
         }
 
-        // 这里简化处理，实际应该根据路径查询所有父分类
-        List<DocumentCategoryDTO> pathCategories = new ArrayList<>();
-        DocumentCategoryDTO currentDTO = modelMapper.map(category, DocumentCategoryDTO.class);
-        pathCategories.add(currentDTO);
-
-        // 通过DTO的parentId逐步获取父分类
-        boolean hasNextParent = true;
-        while (hasNextParent) {
-            try {
-                Long parentIdValue = (Long) getFieldValue(currentDTO, "parentId");
-
-                if (parentIdValue == null) {
-                    hasNextParent = false;
-                } else {
-                    DocumentCategory parentCategory = documentCategoryRepository.findById(parentIdValue)
-                            .orElse(null);
-                    if (parentCategory == null) {
-                        break;
-                    }
-                    DocumentCategoryDTO parentDTO = modelMapper.map(parentCategory, DocumentCategoryDTO.class);
-                    pathCategories.add(0, parentDTO);
-                    // 为下一轮循环准备
-                    currentDTO = parentDTO;
-                }
-            } catch (Exception e) {
-                hasNextParent = false;
-            }
-        }
-
-        return pathCategories;
+        // 从根分类到当前分类的路径
+        return snapshot.ancestors(categoryId);
     }
 
     @Override
@@ -422,14 +375,13 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
      * 更新父分类
      */
     private void updateParent(DocumentCategory category, Long parentId) {
-        // 检查是否形成循环引用
-        if (parentId != null && checkCircularReference((Long) getFieldValue(category, "id"), parentId)) {
-            throw new RuntimeException("不能将分类设置为其自身或子分类的子分类");
-        }
-
         if (parentId != null) {
-            DocumentCategory parentCategory = documentCategoryRepository.findById(parentId)
+            // 锁定并读取数据库中的父分类，不使用快照，避免其他节点或并发的移动操作形成循环引用
+            DocumentCategory parentCategory = documentCategoryRepository.findForUpdate(parentId)
                     .orElseThrow(() -> new RuntimeException("父分类不存在: " + parentId));
+            if (checkCircularReference(category, parentCategory)) {
+                throw new RuntimeException("不能将分类设置为其自身或子分类的子分类");
+            }
 
             // 设置层级
             Integer parentLevel = (Integer) getFieldValue(parentCategory, "level");
@@ -454,102 +406,144 @@ public class DocumentCategoryServiceImpl implements DocumentCategoryService {
     }
 
     /**
-     * 检查是否存在循环引用
+     * 检查是否存在循环引用：新的父分类不能是分类自身或其下级分类，按事务中读取的物化路径判断
      */
-    private boolean checkCircularReference(Long categoryId, Long parentId) {
-        if (categoryId.equals(parentId)) {
+    private boolean checkCircularReference(DocumentCategory category, DocumentCategory parentCategory) {
+        if (Objects.equals(category.getId(), parentCategory.getId())) {
             return true;
         }
-
-        DocumentCategory parent = documentCategoryRepository.findById(parentId).orElse(null);
-        Long currentParentId = parentId;
-
-        // 不使用getParent()方法，而是通过repository查询父分类
-        while (parent != null) {
-            if (((Long) getFieldValue(parent, "id")).equals(categoryId)) {
-                return true;
-            }
-
-            // 查询下一级父分类
-            try {
-                Long nextParentId = (Long) getFieldValue(parent, "parentId");
-                if (nextParentId != null) {
-                    currentParentId = nextParentId;
-                    parent = documentCategoryRepository.findById(currentParentId).orElse(null);
-                } else {
-                    parent = null;
+        String path = category.getCategoryPath();
+        String parentPath = parentCategory.getCategoryPath();
+        if (path == null || path.isEmpty() || parentPath == null) {
+            // 缺少物化路径的历史数据沿父分类链向上检查
+            Set<Long> visited = new HashSet<>();
+            for (DocumentCategory ancestor = parentCategory.getParent(); ancestor != null && visited.add(ancestor.getId());
+                    ancestor = ancestor.getParent()) {
+                if (Objects.equals(category.getId(), ancestor.getId())) {
+                    return true;
                 }
-            } catch (Exception e) {
-                parent = null;
             }
+            return false;
         }
-
-        return false;
+        return parentPath.equals(path) || parentPath.startsWith(path + "/");
     }
 
     /**
-     * 更新子分类的路径
+     * 按物化路径前缀查询并更新所有下级分类的路径和层级
+     *
+     * @return 已更新的下级分类
      */
-    private void updateChildCategoryPaths(Long parentId, String parentPath) {
-        List<DocumentCategory> childCategories = documentCategoryRepository.findByParentId(parentId);
+    private List<DocumentCategory> updateDescendantPaths(String oldPath, String newPath) {
+        if (oldPath == null || oldPath.isEmpty() || oldPath.equals(newPath)) {
+            return Collections.emptyList();
+        }
 
-        for (DocumentCategory child : childCategories) {
-            // 更新子分类的路径
-            setFieldValue(child, "categoryPath", parentPath + "/" + getFieldValue(child, "categoryCode"));
+        List<DocumentCategory> descendants = documentCategoryRepository.findByCategoryPathStartingWith(oldPath + "/");
+        for (DocumentCategory descendant : descendants) {
+            String path = newPath + descendant.getCategoryPath().substring(oldPath.length());
+            descendant.setCategoryPath(path);
+            descendant.setLevel(path.split("/").length);
+        }
+        return documentCategoryRepository.saveAll(descendants);
+    }
+
+    /**
+     * 获取分类树快照，尚未加载时从数据库加载
+     */
+    private CategoryTreeSnapshot snapshot() {
+        CategoryTreeSnapshot snapshot = treeSnapshot.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (snapshotLock) {
+            snapshot = treeSnapshot.get();
+            return snapshot != null ? snapshot : loadSnapshot();
+        }
+    }
 
-            // 更新层级
-            setFieldValue(child, "level", parentPath.split("/").length + 1);
+    /**
+     * 定时全量刷新分类树快照，同步其他节点的分类变更
+     */
+    @Scheduled(fixedDelayString = "${edms.category-tree.refresh-interval:300000}",
+            initialDelayString = "${edms.category-tree.refresh-interval:300000}")
+    public void refreshCategoryTree() {
+        if (treeSnapshot.get() != null) {
+            loadSnapshot();
+        }
+    }
 
-            documentCategoryRepository.save(child);
+    private CategoryTreeSnapshot loadSnapshot() {
+        long changes = snapshotChanges.get();
+        CategoryTreeSnapshot loaded = CategoryTreeSnapshot.of(documentCategoryRepository.findAll().stream()
+                .map(this::toNode)
+                .collect(Collectors.toList()));
 
-            // 递归更新子分类的子分类
-            updateChildCategoryPaths((Long) getFieldValue(child, "id"), (String) getFieldValue(child, "categoryPath"));
+        // 加载期间有变更提交时，加载结果可能不包含该变更，不作为当前快照
+        CategoryTreeSnapshot current = treeSnapshot.get();
+        if (snapshotChanges.get() == changes) {
+            treeSnapshot.compareAndSet(current, loaded);
         }
+        return loaded;
     }
 
     /**
-     * 使用反射安全获取字段值
+     * 将分类变更应用到快照，在事务中调用时于提交后应用
      */
-    private Object getFieldValue(Object obj, String fieldName) {
-        try {
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
-            }
-        } catch (Exception e) {
-            // 忽略所有异常
+    private void publishChanges(List<DocumentCategory> updated, Collection<Long> removedIds) {
+        // 在事务内完成转换，提交后实体可能已脱离持久化上下文
+        List<DocumentCategoryDTO> nodes = updated.stream()
+                .map(this::toNode)
+                .collect(Collectors.toList());
+        Runnable apply = () -> {
+            snapshotChanges.incrementAndGet();
+            treeSnapshot.updateAndGet(snapshot -> snapshot != null ? snapshot.withChanges(nodes, removedIds) : null);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
         }
-        return null;
     }
 
     /**
-     * 使用反射安全设置字段值
+     * 转换为快照节点，只复制分类自身属性，不访问子分类和文档集合
      */
-    private void setFieldValue(Object obj, String fieldName, Object value) {
-        try {
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                field.set(obj, value);
-            }
-        } catch (Exception e) {
-            // 忽略所有异常
+    private DocumentCategoryDTO toNode(DocumentCategory category) {
+        DocumentCategoryDTO node = new DocumentCategoryDTO();
+        node.setId(category.getId());
+        node.setCategoryCode(category.getCategoryCode());
+        node.setCategoryName(category.getCategoryName());
+        node.setDescription(category.getDescription());
+        node.setCategoryPath(category.getCategoryPath());
+        node.setLevel(category.getLevel());
+        node.setStatus(category.getStatus());
+        node.setSortOrder(category.getSortOrder());
+        node.setCreatedBy(category.getCreatedBy());
+        node.setCreatedAt(category.getCreatedAt());
+        node.setUpdatedAt(category.getUpdatedAt());
+        if (category.getParent() != null) {
+            node.setParentId(category.getParent().getId());
         }
+        return node;
     }
 
     /**
-     * 递归查找字段，包括父类
+     * 安全获取字段值
      */
-    private java.lang.reflect.Field findField(Class<?> clazz, String fieldName) {
-        try {
-            return clazz.getDeclaredField(fieldName);
-        } catch (NoSuchFieldException e) {
-            Class<?> superClass = clazz.getSuperclass();
-            if (superClass != null && superClass != Object.class) {
-                return findField(superClass, fieldName);
-            }
-            return null;
-        }
+    private Object getFieldValue(Object obj, String fieldName) {
+        return FieldAccessors.get(obj, fieldName);
+    }
+
+    /**
+     * 安全设置字段值
+     */
+    private void setFieldValue(Object obj, String fieldName, Object value) {
+        FieldAccessors.set(obj, fieldName, value);
     }
 }
\ No newline at end of file
@@ -0,0 +1,231 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.dto.DocumentDiffDTO;
+import com.gmp.edms.entity.DocumentVersion;
+import com.gmp.edms.service.DocumentDiffService;
+import com.gmp.edms.service.FileStorageService;
+import com.gmp.edms.util.MyersDiff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文档版本内容比较服务实现类
+ * <p>
+ * 从存储服务流式读取两个版本的文件并逐行提取文本，每一行按内容映射为整数编号（相同内容的行共用一个编号和一份文本），
+ * 再用Myers算法比较两个编号序列。内存占用与行数和不重复行的文本量成正比，与原文件大小（如docx压缩包）无关。
+ * 比较结果只取决于两个版本的内容，按两个版本的校验和缓存。
+ */
+@Service
+public class DocumentDiffServiceImpl implements DocumentDiffService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentDiffServiceImpl.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    /**
+     * 版本内容所在的存储桶，与内容存储服务使用同一配置
+     */
+    @Value("${edms.blob-store.bucket:edms-documents}")
+    private String bucketName = "edms-documents";
+
+    @Value("${edms.version-diff.max-lines:200000}")
+    private int maxLines;
+
+    @Value("${edms.version-diff.context-lines:3}")
+    private int contextLines;
+
+    @Value("${edms.version-diff.max-output-lines:5000}")
+    private int maxOutputLines;
+
+    @Value("${edms.version-diff.max-cost:20000000}")
+    private long maxCost;
+
+    @Override
+    @Cacheable(value = "versionDiffs", key = "#from.checksum + ':' + #to.checksum",
+            condition = "#from.checksum != null && #to.checksum != null")
+    public DocumentDiffDTO diff(DocumentVersion from, DocumentVersion to) {
+        DocumentDiffDTO result = new DocumentDiffDTO();
+        if (from.getChecksum() != null && from.getChecksum().equals(to.getChecksum())) {
+            result.setStatus("IDENTICAL");
+            result.setMessage("两个版本内容完全相同");
+            return result;
+        }
+        if (!VersionTextExtractor.supports(from.getFileName(), from.getFileType())
+                || !VersionTextExtractor.supports(to.getFileName(), to.getFileType())) {
+            result.setStatus("UNSUPPORTED");
+            result.setMessage("不支持比较该文件类型的内容，仅支持文本文件和Word文档（docx）");
+            return result;
+        }
+
+        long start = System.currentTimeMillis();
+        LineTable table = new LineTable();
+        int[] a;
+        int[] b;
+        try {
+            a = readLines(from, table);
+            b = readLines(to, table);
+        } catch (TooManyLinesException e) {
+            result.setStatus("TOO_LARGE");
+            result.setMessage("文件超过" + maxLines + "行，不进行内容比较");
+            return result;
+        }
+
+        MyersDiff diff = MyersDiff.compute(a, b, maxCost);
+        result.setFromLineCount(a.length);
+        result.setToLineCount(b.length);
+        result.setApproximate(diff.isApproximate());
+        for (MyersDiff.Edit edit : diff.getEdits()) {
+            result.setLinesRemoved(result.getLinesRemoved() + edit.getEndA() - edit.getBeginA());
+            result.setLinesAdded(result.getLinesAdded() + edit.getEndB() - edit.getBeginB());
+        }
+        if (diff.getEdits().isEmpty()) {
+            // 校验和不同但提取出的文本相同，如只修改了格式
+            result.setStatus("IDENTICAL");
+            result.setMessage("两个版本文本内容相同");
+        } else {
+            result.setStatus("DIFFERENT");
+            result.setMessage("新增" + result.getLinesAdded() + "行，删除" + result.getLinesRemoved() + "行");
+            buildHunks(result, diff.getEdits(), a, b, table);
+        }
+        log.debug("版本内容比较完成: {} -> {}, {}行 vs {}行, 耗时{}ms", from.getId(), to.getId(), a.length, b.length,
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private int[] readLines(DocumentVersion version, LineTable table) {
+        IntList lines = new IntList();
+        try (InputStream input = fileStorageService.downloadFile(bucketName, version.getFilePath())) {
+            VersionTextExtractor.extract(input, version.getFileName(), version.getFileType(), line -> {
+                if (lines.size() >= maxLines) {
+                    throw new TooManyLinesException();
+                }
+                lines.add(table.idOf(line));
+            });
+        } catch (TooManyLinesException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("读取版本内容失败: " + version.getId() + ", " + e.getMessage(), e);
+        }
+        return lines.toArray();
+    }
+
+    /**
+     * 将修改区域按上下文行数合并为差异段，间隔不超过两倍上下文行数的修改区域合并到同一段
+     */
+    private void buildHunks(DocumentDiffDTO result, List<MyersDiff.Edit> edits, int[] a, int[] b, LineTable table) {
+        int outputLines = 0;
+        int index = 0;
+        while (index < edits.size()) {
+            int last = index;
+            while (last + 1 < edits.size()
+                    && edits.get(last + 1).getBeginA() - edits.get(last).getEndA() <= 2 * contextLines) {
+                last++;
+            }
+            MyersDiff.Edit first = edits.get(index);
+            int fromBegin = Math.max(0, first.getBeginA() - contextLines);
+            int toBegin = Math.max(0, first.getBeginB() - contextLines);
+            int fromEnd = Math.min(a.length, edits.get(last).getEndA() + contextLines);
+            int toEnd = Math.min(b.length, edits.get(last).getEndB() + contextLines);
+
+            DocumentDiffDTO.Hunk hunk = new DocumentDiffDTO.Hunk();
+            hunk.setFromStart(fromEnd > fromBegin ? fromBegin + 1 : fromBegin);
+            hunk.setFromCount(fromEnd - fromBegin);
+            hunk.setToStart(toEnd > toBegin ? toBegin + 1 : toBegin);
+            hunk.setToCount(toEnd - toBegin);
+            List<DocumentDiffDTO.Line> lines = hunk.getLines();
+
+            int position = fromBegin;
+            for (int i = index; i <= last; i++) {
+                MyersDiff.Edit edit = edits.get(i);
+                for (; position < edit.getBeginA(); position++) {
+                    lines.add(new DocumentDiffDTO.Line("CONTEXT", table.textOf(a[position])));
+                }
+                for (int j = edit.getBeginA(); j < edit.getEndA(); j++) {
+                    lines.add(new DocumentDiffDTO.Line("REMOVED", table.textOf(a[j])));
+                }
+                for (int j = edit.getBeginB(); j < edit.getEndB(); j++) {
+                    lines.add(new DocumentDiffDTO.Line("ADDED", table.textOf(b[j])));
+                }
+                position = edit.getEndA();
+            }
+            for (; position < fromEnd; position++) {
+                lines.add(new DocumentDiffDTO.Line("CONTEXT", table.textOf(a[position])));
+            }
+
+            outputLines += lines.size();
+            if (outputLines > maxOutputLines) {
+                // 统计数据已完整，只截断输出的差异段
+                result.setTruncated(true);
+                return;
+            }
+            result.getHunks().add(hunk);
+            index = last + 1;
+        }
+    }
+
+    /**
+     * 行内容与编号的映射，两个版本共用，相同内容的行只保存一份文本
+     */
+    private static final class LineTable {
+
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> texts = new ArrayList<>();
+
+        int idOf(String line) {
+            Integer id = ids.get(line);
+            if (id == null) {
+                id = texts.size();
+                ids.put(line, id);
+                texts.add(line);
+            }
+            return id;
+        }
+
+        String textOf(int id) {
+            return texts.get(id);
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * 行数超过上限时中止读取
+     */
+    private static final class TooManyLinesException extends RuntimeException {
+
+        TooManyLinesException() {
+            super(null, null, false, false);
+        }
+    }
+}
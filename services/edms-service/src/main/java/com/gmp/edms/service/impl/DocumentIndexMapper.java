@@ -0,0 +1,66 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.entity.ElasticsearchDocument;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+
+/**
+ * 文档与索引文档之间的转换
+ * <p>
+ * 索引字段与文档字段名称不一致，逐一赋值。索引内容始终以数据库中的文档为准。
+ * <p>
+ * 写入使用外部版本号，取文档的index_version列：文档每次写入或所属分类改名时由数据库序列重新取值，
+ * 不依赖应用服务器的时钟。版本号不大于索引中已有版本的写入被拒绝，
+ * 重建索引时读取的旧内容不会覆盖索引流水线同时写入的新内容。
+ */
+final class DocumentIndexMapper {
+
+    private DocumentIndexMapper() {
+    }
+
+    static ElasticsearchDocument toIndexDocument(Document source) {
+        ElasticsearchDocument document = new ElasticsearchDocument();
+        document.setId(source.getId());
+        document.setDocumentCode(source.getDocumentNumber());
+        document.setDocumentName(source.getTitle());
+        document.setDocumentType(source.getDocumentType());
+        document.setStatus(source.getStatus());
+        document.setAuthor(source.getAuthor());
+        document.setDepartment(source.getOwnerDepartment());
+        document.setConfidentialityLevel(source.getConfidentialityLevel());
+        document.setFileType(source.getContentType());
+        document.setFileSize(source.getFileSize());
+        document.setStoragePath(source.getFilePath());
+        document.setCreatedAt(source.getCreatedAt());
+        document.setUpdatedAt(source.getUpdatedAt());
+        document.setCategoryId(source.getCategoryId());
+        document.setCategoryName(source.getDocumentCategory() != null
+                ? source.getDocumentCategory().getCategoryName()
+                : source.getCategory());
+        return document;
+    }
+
+    static IndexQuery toIndexQuery(Document source) {
+        return new IndexQueryBuilder()
+                .withId(String.valueOf(source.getId()))
+                .withObject(toIndexDocument(source))
+                .withVersion(versionOf(source))
+                .build();
+    }
+
+    /**
+     * 文档内容的外部版本号，尚未取得版本号的文档返回空，按内部版本号写入
+     */
+    static Long versionOf(Document source) {
+        return source.getIndexVersion();
+    }
+
+    /**
+     * 版本冲突表示索引中已有相同或更新版本的内容，按写入成功处理
+     */
+    static boolean isVersionConflict(BulkFailureException.FailureDetails details) {
+        return details != null && details.status() != null && details.status() == 409;
+    }
+}
@@ -0,0 +1,273 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.repository.DocumentRepository;
+import com.gmp.edms.service.DocumentReindexService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 文档索引流水线
+ * <p>
+ * 文档变更只记录文档ID，同一文档在刷新前的多次变更合并为一次；按批大小或时间间隔刷新时从数据库读取文档的最新状态，
+ * 通过bulk接口写入搜索别名（重建索引期间同时写入新索引），文档已不存在时删除索引。
+ * 写入失败的文档按指数退避重试，超过重试次数后放弃，可通过重建索引恢复。
+ * 索引中已有相同或更新版本时的版本冲突不重试。
+ * 待刷新的变更保存在内存中，服务异常退出时尚未刷新的变更会丢失。
+ */
+@Component
+public class DocumentIndexingPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentIndexingPipeline.class);
+
+    /**
+     * 搜索使用的索引别名
+     */
+    static final String INDEX_ALIAS = "documents";
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private DocumentReindexService documentReindexService;
+
+    @Autowired
+    @Qualifier("searchIndexingExecutor")
+    private Executor searchIndexingExecutor;
+
+    @Value("${edms.search.indexing.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${edms.search.indexing.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${edms.search.indexing.retry-base-delay:1000}")
+    private long retryBaseDelay = 1000;
+
+    @Value("${edms.search.indexing.retry-max-delay:300000}")
+    private long retryMaxDelay = 300000;
+
+    /**
+     * 待刷新的操作，同一文档只保留最新的一个
+     */
+    private final Map<Long, PendingOperation> pending = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * 记录文档需要重新索引
+     */
+    public void index(Long documentId) {
+        enqueue(new PendingOperation(documentId, false, 0, 0));
+    }
+
+    /**
+     * 记录多个文档需要重新索引
+     */
+    public void indexAll(Collection<Long> documentIds) {
+        for (Long documentId : documentIds) {
+            index(documentId);
+        }
+    }
+
+    /**
+     * 记录文档需要从索引中删除
+     */
+    public void delete(Long documentId) {
+        enqueue(new PendingOperation(documentId, true, 0, 0));
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${edms.search.indexing.flush-interval:1000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("刷新文档索引失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduledFlush();
+    }
+
+    /**
+     * 刷新所有已到执行时间的操作
+     *
+     * @return 写入成功的操作数
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            int flushed = 0;
+            List<PendingOperation> batch;
+            do {
+                batch = drainReady();
+                if (!batch.isEmpty()) {
+                    flushed += write(batch);
+                }
+            } while (batch.size() >= batchSize);
+            return flushed;
+        }
+    }
+
+    private void enqueue(PendingOperation operation) {
+        if (operation.documentId == null) {
+            return;
+        }
+        pending.put(operation.documentId, operation);
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                searchIndexingExecutor.execute(() -> {
+                    try {
+                        scheduledFlush();
+                    } finally {
+                        flushRequested.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 由定时刷新处理
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    private List<PendingOperation> drainReady() {
+        long now = System.currentTimeMillis();
+        List<PendingOperation> batch = new ArrayList<>();
+        for (PendingOperation operation : pending.values()) {
+            if (batch.size() >= batchSize) {
+                break;
+            }
+            // 只取出仍是最新的操作，取出后到达的变更留在队列中等待下次刷新
+            if (operation.notBefore <= now && pending.remove(operation.documentId, operation)) {
+                batch.add(operation);
+            }
+        }
+        return batch;
+    }
+
+    private int write(List<PendingOperation> batch) {
+        Map<Long, PendingOperation> operations = batch.stream()
+                .collect(Collectors.toMap(operation -> operation.documentId, Function.identity()));
+        List<Long> indexIds = batch.stream().filter(operation -> !operation.delete)
+                .map(operation -> operation.documentId).collect(Collectors.toList());
+
+        List<IndexQuery> queries = new ArrayList<>();
+        Set<Long> deleteIds = batch.stream().filter(operation -> operation.delete)
+                .map(operation -> operation.documentId).collect(Collectors.toCollection(HashSet::new));
+        Set<Long> found = new HashSet<>();
+        try {
+            for (Document document : documentRepository.findAllById(indexIds)) {
+                queries.add(DocumentIndexMapper.toIndexQuery(document));
+                found.add(document.getId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("读取待索引文档失败: {}", e.getMessage());
+            batch.forEach(operation -> retry(operation, e.getMessage()));
+            return 0;
+        }
+        // 刷新前已被删除的文档
+        indexIds.stream().filter(id -> !found.contains(id)).forEach(deleteIds::add);
+
+        Map<Long, String> failures = new ConcurrentHashMap<>();
+        for (String index : targetIndices()) {
+            IndexCoordinates coordinates = IndexCoordinates.of(index);
+            if (!queries.isEmpty()) {
+                bulkIndex(queries, coordinates, failures);
+            }
+            for (Long documentId : deleteIds) {
+                try {
+                    elasticsearchOperations.delete(String.valueOf(documentId), coordinates);
+                } catch (RuntimeException e) {
+                    failures.put(documentId, String.valueOf(e.getMessage()));
+                }
+            }
+        }
+        failures.forEach((documentId, reason) -> retry(operations.get(documentId), reason));
+        return batch.size() - failures.size();
+    }
+
+    private void bulkIndex(List<IndexQuery> queries, IndexCoordinates coordinates, Map<Long, String> failures) {
+        try {
+            elasticsearchOperations.bulkIndex(queries, coordinates);
+        } catch (BulkFailureException e) {
+            e.getFailedDocuments().forEach((id, details) -> {
+                if (!DocumentIndexMapper.isVersionConflict(details)) {
+                    failures.put(Long.valueOf(id), e.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            for (IndexQuery query : queries) {
+                failures.put(Long.valueOf(query.getId()), String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    private List<String> targetIndices() {
+        String reindexTarget = documentReindexService.getActiveTargetIndex();
+        return reindexTarget != null ? List.of(INDEX_ALIAS, reindexTarget) : List.of(INDEX_ALIAS);
+    }
+
+    private void retry(PendingOperation operation, String reason) {
+        if (operation == null) {
+            return;
+        }
+        int attempts = operation.attempts + 1;
+        if (attempts >= maxAttempts) {
+            log.error("文档索引失败{}次，不再重试，可通过重建索引恢复, documentId: {}, 原因: {}", attempts,
+                    operation.documentId, reason);
+            return;
+        }
+        long delay = Math.min(retryMaxDelay, retryBaseDelay << Math.min(attempts - 1, 20));
+        // 等待重试期间文档又有变更时保留新的操作
+        pending.putIfAbsent(operation.documentId, new PendingOperation(operation.documentId, operation.delete,
+                attempts, System.currentTimeMillis() + delay));
+    }
+
+    private static final class PendingOperation {
+
+        private final Long documentId;
+        private final boolean delete;
+        private final int attempts;
+        private final long notBefore;
+
+        private PendingOperation(Long documentId, boolean delete, int attempts, long notBefore) {
+            this.documentId = documentId;
+            this.delete = delete;
+            this.attempts = attempts;
+            this.notBefore = notBefore;
+        }
+    }
+}
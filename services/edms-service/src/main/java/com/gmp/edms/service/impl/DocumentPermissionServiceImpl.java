@@ -4,23 +4,24 @@ import com.gmp.edms.entity.Document;
 import com.gmp.edms.entity.DocumentCategory;
 import com.gmp.edms.repository.DocumentRepository;
 import com.gmp.edms.service.DocumentPermissionService;
+import com.gmp.edms.util.FieldAccessors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * 文档权限服务实现类
  * 实现设计文档中的复杂权限控制架构
+ * <p>
+ * 每个权限策略同时提供单文档判定和等价的查询条件：单文档检查在内存中评估，
+ * 可访问文档列表将策略组合为一条查询下推到数据库，不再逐个加载文档评估。
  */
 @Service
 public class DocumentPermissionServiceImpl implements DocumentPermissionService {
@@ -33,21 +34,28 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
     // 假设的配置信息
     private final Set<String> adminUsers = Set.of("admin", "system", "gmp_admin");
 
+    /**
+     * 权限策略与文档无关，所有文档共用同一组策略实例
+     */
+    private static final List<PermissionPolicy> POLICIES = List.of(
+            new DocumentOwnerPolicy(),
+            new DepartmentPolicy(),
+            new ConfidentialityPolicy(),
+            new StatusPolicy());
+
     @Override
     public boolean hasPermission(String userId, Long documentId, PermissionType permission) {
         try {
             // 1. 获取用户角色
             Set<String> userRoles = getUserRoles(userId);
 
-            // 2. 获取文档权限策略
+            // 2. 获取文档
             Document document = documentRepository.findById(documentId)
                     .orElseThrow(() -> new RuntimeException("文档不存在: " + documentId));
 
-            List<PermissionPolicy> policies = getDocumentPolicies(document);
-
             // 3. 权限计算：角色 + 策略 + 上下文
             PermissionContext context = getContext(userId, document);
-            return evaluatePermissions(userRoles, policies, permission, context);
+            return evaluatePermissions(userRoles, permission, context);
 
         } catch (Exception e) {
             // 异常情况下默认拒绝访问
@@ -79,11 +87,10 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
         }
 
         Set<String> userRoles = getUserRoles(userId);
-        List<PermissionPolicy> policies = getDocumentPolicies(document);
         PermissionContext context = getContext(userId, document);
 
         for (PermissionType permission : PermissionType.values()) {
-            if (evaluatePermissions(userRoles, policies, permission, context)) {
+            if (evaluatePermissions(userRoles, permission, context)) {
                 permissions.add(permission);
             }
         }
@@ -118,23 +125,9 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
 
     @Override
     public Set<Long> getAccessibleDocumentIds(String userId, PermissionType permission) {
-        // 获取所有文档，然后根据权限过滤
-        List<Document> allDocuments = documentRepository.findAll();
-        Set<Long> accessibleIds = new HashSet<>();
-        for (Document doc : allDocuments) {
-            try {
-                // 使用反射获取id
-                java.lang.reflect.Field idField = Document.class.getDeclaredField("id");
-                idField.setAccessible(true);
-                Long docId = (Long) idField.get(doc);
-                if (hasPermission(userId, docId, permission)) {
-                    accessibleIds.add(docId);
-                }
-            } catch (Exception e) {
-                // 处理异常，跳过该文档
-            }
-        }
-        return accessibleIds;
+        // 将权限策略组合为查询条件，由数据库一次返回可访问的文档ID
+        Set<String> userRoles = getUserRoles(userId);
+        return new HashSet<>(documentRepository.findIds(accessibleDocuments(userRoles, permission, userId)));
     }
 
     @Override
@@ -182,90 +175,27 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
         return roles;
     }
 
-    private List<PermissionPolicy> getDocumentPolicies(Document document) {
-        // 根据文档属性生成权限策略
-        return List.of(
-                new DocumentOwnerPolicy((String) getFieldValue(document, "author")),
-                new DepartmentPolicy((String) getFieldValue(document, "ownerDepartment")),
-                new ConfidentialityPolicy((String) getFieldValue(document, "confidentialityLevel")),
-                new StatusPolicy((String) getFieldValue(document, "status")));
-    }
-
     /**
-     * 使用反射获取对象字段值
+     * 获取对象字段值，字段不存在时使用getter方法
      */
     private Object getFieldValue(Object obj, String fieldName) {
-        if (obj == null || fieldName == null) {
-            return null;
-        }
-
-        try {
-            // 尝试通过字段访问
-            Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
-            }
-            // 尝试通过getter方法获取
-            String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            try {
-                Method getter = obj.getClass().getMethod(getterName);
-                return getter.invoke(obj);
-            } catch (NoSuchMethodException e) {
-                // 如果getter不存在，返回null
-                return null;
-            }
-        } catch (Exception e) {
-            log.error("获取字段值失败: {}.{}", obj.getClass().getSimpleName(), fieldName, e);
-            return null;
-        }
-    }
-
-    /**
-     * 查找字段，包括父类中的字段
-     */
-    private Field findField(Class<?> clazz, String fieldName) {
-        Class<?> currentClass = clazz;
-        while (currentClass != null && currentClass != Object.class) {
-            try {
-                return currentClass.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                currentClass = currentClass.getSuperclass();
-            }
-        }
-        return null;
+        return FieldAccessors.get(obj, fieldName);
     }
 
     private PermissionContext getContext(String userId, Document document) {
         PermissionContext context = new PermissionContext();
         context.setUserId(userId);
-        try {
-            // 使用反射获取documentId
-            java.lang.reflect.Field idField = Document.class.getDeclaredField("id");
-            idField.setAccessible(true);
-            context.setDocumentId((Long) idField.get(document));
-
-            // 使用反射获取documentType
-            java.lang.reflect.Field typeField = Document.class.getDeclaredField("documentType");
-            typeField.setAccessible(true);
-            context.setDocumentType((String) typeField.get(document));
-
-            // 使用反射获取confidentialityLevel
-            java.lang.reflect.Field levelField = Document.class.getDeclaredField("confidentialityLevel");
-            levelField.setAccessible(true);
-            context.setConfidentialityLevel((String) levelField.get(document));
-        } catch (Exception e) {
-            // 处理异常，设置默认值
-            context.setDocumentId(null);
-            context.setDocumentType(null);
-            context.setConfidentialityLevel(null);
-        }
+        context.setDocumentId((Long) getFieldValue(document, "id"));
+        context.setDocumentType((String) getFieldValue(document, "documentType"));
+        context.setConfidentialityLevel((String) getFieldValue(document, "confidentialityLevel"));
+        context.setAuthor((String) getFieldValue(document, "author"));
+        context.setOwnerDepartment((String) getFieldValue(document, "ownerDepartment"));
+        context.setStatus((String) getFieldValue(document, "status"));
         context.setCurrentTime(LocalDateTime.now());
         return context;
     }
 
-    private boolean evaluatePermissions(Set<String> roles, List<PermissionPolicy> policies,
-            PermissionType required, PermissionContext context) {
+    private boolean evaluatePermissions(Set<String> roles, PermissionType required, PermissionContext context) {
         // 支持复杂的权限规则：
         // - 基于角色的访问控制
         // - 基于属性的访问控制
@@ -278,34 +208,36 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
         }
 
         // 2. 检查文档所有者权限
-        if (context.getUserId().equals(getDocumentAuthor(context.getDocumentId()))) {
+        if (context.getUserId().equals(context.getAuthor())) {
             return true;
         }
 
         // 3. 评估策略权限
-        return policies.stream()
+        return POLICIES.stream()
                 .anyMatch(policy -> policy.evaluate(roles, required, context));
     }
 
+    /**
+     * 与evaluatePermissions等价的查询条件：管理员可访问全部文档，否则满足任一策略即可访问
+     * （文档所有者检查由DocumentOwnerPolicy覆盖）
+     */
+    private Specification<Document> accessibleDocuments(Set<String> roles, PermissionType required, String userId) {
+        if (isAdmin(roles)) {
+            return (root, query, cb) -> cb.conjunction();
+        }
+        Specification<Document> specification = null;
+        for (PermissionPolicy policy : POLICIES) {
+            Specification<Document> policySpecification = policy.toSpecification(roles, required, userId);
+            specification = specification == null ? policySpecification : specification.or(policySpecification);
+        }
+        return specification;
+    }
+
     private static boolean isAdmin(Set<String> roles) {
         return roles.stream().anyMatch(
                 role -> role.equals("ADMIN") || role.equals("ROLE_SYSTEM_ADMIN") || role.equals("ROLE_GMP_ADMIN"));
     }
 
-    private String getDocumentAuthor(Long documentId) {
-        Document document = documentRepository.findById(documentId).orElse(null);
-        if (document == null) {
-            return null;
-        }
-        try {
-            java.lang.reflect.Field authorField = Document.class.getDeclaredField("author");
-            authorField.setAccessible(true);
-            return (String) authorField.get(document);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
     private boolean hasCategoryPermission(String userId, Long categoryId, PermissionType permission) {
         // 检查分类权限的逻辑
         return true; // 简化实现
@@ -315,67 +247,75 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
 
     private interface PermissionPolicy {
         boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context);
+
+        /**
+         * 返回与evaluate等价的文档查询条件
+         */
+        Specification<Document> toSpecification(Set<String> roles, PermissionType permission, String userId);
     }
 
     private static class DocumentOwnerPolicy implements PermissionPolicy {
-        private final String documentOwner;
-
-        public DocumentOwnerPolicy(String documentOwner) {
-            this.documentOwner = documentOwner;
+        @Override
+        public boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context) {
+            return context.getUserId().equals(context.getAuthor());
         }
 
         @Override
-        public boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context) {
-            return context.getUserId().equals(documentOwner);
+        public Specification<Document> toSpecification(Set<String> roles, PermissionType permission, String userId) {
+            return (root, query, cb) -> cb.equal(root.get("author"), userId);
         }
     }
 
     private static class DepartmentPolicy implements PermissionPolicy {
-        private final String department;
-
-        public DepartmentPolicy(String department) {
-            this.department = department;
-        }
-
         @Override
         public boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context) {
             // 同部门权限检查
             return true; // 简化实现
         }
-    }
 
-    private static class ConfidentialityPolicy implements PermissionPolicy {
-        private final String confidentialityLevel;
-
-        public ConfidentialityPolicy(String confidentialityLevel) {
-            this.confidentialityLevel = confidentialityLevel;
+        @Override
+        public Specification<Document> toSpecification(Set<String> roles, PermissionType permission, String userId) {
+            return (root, query, cb) -> cb.conjunction(); // 简化实现
         }
+    }
 
+    private static class ConfidentialityPolicy implements PermissionPolicy {
         @Override
         public boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context) {
             // 根据保密级别检查权限
-            if ("RESTRICTED".equals(confidentialityLevel) && !isAdmin(roles)) {
+            if ("RESTRICTED".equals(context.getConfidentialityLevel()) && !isAdmin(roles)) {
                 return false;
             }
             return true;
         }
-    }
-
-    private static class StatusPolicy implements PermissionPolicy {
-        private final String documentStatus;
 
-        public StatusPolicy(String documentStatus) {
-            this.documentStatus = documentStatus;
+        @Override
+        public Specification<Document> toSpecification(Set<String> roles, PermissionType permission, String userId) {
+            if (isAdmin(roles)) {
+                return (root, query, cb) -> cb.conjunction();
+            }
+            return (root, query, cb) -> cb.or(
+                    cb.isNull(root.get("confidentialityLevel")),
+                    cb.notEqual(root.get("confidentialityLevel"), "RESTRICTED"));
         }
+    }
 
+    private static class StatusPolicy implements PermissionPolicy {
         @Override
         public boolean evaluate(Set<String> roles, PermissionType permission, PermissionContext context) {
             // 根据文档状态检查权限
-            if ("WITHDRAWN".equals(documentStatus)) {
+            if ("WITHDRAWN".equals(context.getStatus())) {
                 return false;
             }
             return true;
         }
+
+        @Override
+        public Specification<Document> toSpecification(Set<String> roles, PermissionType permission, String userId) {
+            return (root, query, cb) -> cb.or(
+                    cb.isNull(root.get("status")),
+                    cb.notEqual(root.get("status"), "WITHDRAWN"));
+        }
     }
 
     // 权限上下文类
@@ -385,6 +325,9 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
         private Long documentId;
         private String documentType;
         private String confidentialityLevel;
+        private String author;
+        private String ownerDepartment;
+        private String status;
         private LocalDateTime currentTime;
 
         // Getters and setters
@@ -420,6 +363,30 @@ public class DocumentPermissionServiceImpl implements DocumentPermissionService
             this.confidentialityLevel = confidentialityLevel;
         }
 
+        public String getAuthor() {
+            return author;
+        }
+
+        public void setAuthor(String author) {
+            this.author = author;
+        }
+
+        public String getOwnerDepartment() {
+            return ownerDepartment;
+        }
+
+        public void setOwnerDepartment(String ownerDepartment) {
+            this.ownerDepartment = ownerDepartment;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
         public LocalDateTime getCurrentTime() {
             return currentTime;
         }
@@ -0,0 +1,268 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.entity.ElasticsearchDocument;
+import com.gmp.edms.entity.SearchReindexJob;
+import com.gmp.edms.repository.DocumentRepository;
+import com.gmp.edms.repository.SearchReindexJobRepository;
+import com.gmp.edms.service.DocumentReindexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexInformation;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 搜索索引重建服务实现类
+ * <p>
+ * 按当前映射创建带时间戳的新索引，按ID键集分批读取文档写入新索引，每批写入后记录进度，中断后从记录的位置继续。
+ * 重建期间文档变更由{@link DocumentIndexingPipeline}同时写入新索引，两边都按外部版本号写入，
+ * 批量写入时读取的旧内容晚于流水线写入到达时因版本冲突被跳过。全部写入后在一个请求中将别名切换到新索引，
+ * 切换前搜索继续使用旧索引，不需要停机。
+ */
+@Service
+public class DocumentReindexServiceImpl implements DocumentReindexService {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentReindexServiceImpl.class);
+
+    private static final List<String> UNFINISHED = List.of("RUNNING", "FAILED");
+
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private SearchReindexJobRepository reindexJobRepository;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    @Qualifier("searchReindexExecutor")
+    private Executor searchReindexExecutor;
+
+    @Value("${edms.search.reindex.batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${edms.search.reindex.target-refresh-interval:5000}")
+    private long targetRefreshInterval = 5000;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile String activeTargetIndex;
+
+    private volatile long activeTargetLoadedAt;
+
+    @Override
+    public synchronized SearchReindexJob startReindex(String operator) {
+        SearchReindexJob unfinished = reindexJobRepository.findFirstByStatusInOrderByIdDesc(UNFINISHED).orElse(null);
+        if (unfinished != null) {
+            return resume(unfinished);
+        }
+
+        String targetIndex = DocumentIndexingPipeline.INDEX_ALIAS + "_" + LocalDateTime.now().format(INDEX_SUFFIX);
+        createIndex(targetIndex);
+
+        SearchReindexJob job = new SearchReindexJob();
+        job.setTargetIndex(targetIndex);
+        job.setCreatedBy(operator);
+        job.setStartedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getStartedAt());
+        job = reindexJobRepository.save(job);
+        log.info("开始重建搜索索引, 新索引: {}", targetIndex);
+        return resume(job);
+    }
+
+    @Override
+    public synchronized SearchReindexJob resumeReindex() {
+        return reindexJobRepository.findFirstByStatusInOrderByIdDesc(UNFINISHED)
+                .map(this::resume)
+                .orElse(null);
+    }
+
+    @Override
+    public SearchReindexJob getLatestJob() {
+        return reindexJobRepository.findFirstByOrderByIdDesc().orElse(null);
+    }
+
+    @Override
+    public String getActiveTargetIndex() {
+        // 其他节点启动的重建任务通过定期查询任务表获知
+        if (System.currentTimeMillis() - activeTargetLoadedAt >= targetRefreshInterval) {
+            activeTargetIndex = reindexJobRepository.findFirstByStatusInOrderByIdDesc(UNFINISHED)
+                    .map(SearchReindexJob::getTargetIndex)
+                    .orElse(null);
+            activeTargetLoadedAt = System.currentTimeMillis();
+        }
+        return activeTargetIndex;
+    }
+
+    /**
+     * 服务启动时继续执行中断的重建任务
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        try {
+            reindexJobRepository.findFirstByStatusInOrderByIdDesc(List.of("RUNNING")).ifPresent(job -> {
+                log.info("继续执行中断的索引重建任务, 新索引: {}, 已写入: {}", job.getTargetIndex(), job.getIndexedCount());
+                resume(job);
+            });
+        } catch (RuntimeException e) {
+            log.warn("检查未完成的索引重建任务失败: {}", e.getMessage());
+        }
+    }
+
+    private SearchReindexJob resume(SearchReindexJob job) {
+        activeTargetIndex = job.getTargetIndex();
+        activeTargetLoadedAt = System.currentTimeMillis();
+        if (!running.compareAndSet(false, true)) {
+            // 本节点已在执行
+            return job;
+        }
+        if (!"RUNNING".equals(job.getStatus())) {
+            job.setStatus("RUNNING");
+            job.setLastError(null);
+            job = reindexJobRepository.save(job);
+        }
+        Long jobId = job.getId();
+        try {
+            searchReindexExecutor.execute(() -> {
+                try {
+                    run(jobId);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 从任务记录的位置继续写入新索引，全部写入后切换别名
+     */
+    void run(Long jobId) {
+        SearchReindexJob job = reindexJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalStateException("索引重建任务不存在: " + jobId));
+        IndexCoordinates target = IndexCoordinates.of(job.getTargetIndex());
+        try {
+            List<Document> documents;
+            while (!(documents = documentRepository.findByIdGreaterThanOrderByIdAsc(job.getLastDocumentId(),
+                    PageRequest.of(0, batchSize))).isEmpty()) {
+                bulkIndex(documents.stream()
+                        .map(DocumentIndexMapper::toIndexQuery)
+                        .collect(Collectors.toList()), target);
+                job.setLastDocumentId(documents.get(documents.size() - 1).getId());
+                job.setIndexedCount(job.getIndexedCount() + documents.size());
+                job.setUpdatedAt(LocalDateTime.now());
+                job = reindexJobRepository.save(job);
+            }
+
+            elasticsearchOperations.indexOps(target).refresh();
+            swapAlias(job.getTargetIndex());
+
+            job.setStatus("COMPLETED");
+            job.setCompletedAt(LocalDateTime.now());
+            job.setUpdatedAt(job.getCompletedAt());
+            reindexJobRepository.save(job);
+            activeTargetIndex = null;
+            log.info("搜索索引重建完成, 新索引: {}, 文档数: {}", job.getTargetIndex(), job.getIndexedCount());
+        } catch (RuntimeException e) {
+            // 失败的任务保留为未完成状态，文档变更继续写入新索引，继续执行时不会遗漏
+            log.error("搜索索引重建失败, 新索引: {}, 已写入到文档ID: {}", job.getTargetIndex(), job.getLastDocumentId(), e);
+            String error = String.valueOf(e.getMessage());
+            job.setStatus("FAILED");
+            job.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            job.setUpdatedAt(LocalDateTime.now());
+            reindexJobRepository.save(job);
+        }
+    }
+
+    /**
+     * 写入一批文档，版本冲突的文档已由索引流水线写入较新的内容，其他失败按重建失败处理
+     */
+    private void bulkIndex(List<IndexQuery> queries, IndexCoordinates target) {
+        try {
+            elasticsearchOperations.bulkIndex(queries, target);
+        } catch (BulkFailureException e) {
+            if (!e.getFailedDocuments().values().stream().allMatch(DocumentIndexMapper::isVersionConflict)) {
+                throw e;
+            }
+            log.debug("跳过{}个已有较新版本的文档", e.getFailedDocuments().size());
+        }
+    }
+
+    private void createIndex(String targetIndex) {
+        IndexOperations templateOps = elasticsearchOperations.indexOps(ElasticsearchDocument.class);
+        IndexOperations targetOps = elasticsearchOperations.indexOps(IndexCoordinates.of(targetIndex));
+        if (!targetOps.exists()) {
+            targetOps.create(templateOps.createSettings(), templateOps.createMapping());
+        }
+    }
+
+    /**
+     * 在一个请求中将别名从旧索引移到新索引，然后删除旧索引
+     */
+    private void swapAlias(String targetIndex) {
+        String alias = DocumentIndexingPipeline.INDEX_ALIAS;
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(alias));
+        List<String> previousIndices = new ArrayList<>();
+        if (aliasOps.exists()) {
+            for (IndexInformation information : aliasOps.getInformation()) {
+                if (!targetIndex.equals(information.getName())) {
+                    previousIndices.add(information.getName());
+                }
+            }
+        }
+
+        List<AliasAction> actions = new ArrayList<>();
+        for (String index : previousIndices) {
+            if (alias.equals(index)) {
+                // 旧版本直接使用别名作为索引名，需要在同一请求中删除该索引才能创建同名别名
+                actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                        .withIndices(index).build()));
+            } else {
+                actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                        .withIndices(index).withAliases(alias).build()));
+            }
+        }
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(targetIndex).withAliases(alias).build()));
+        elasticsearchOperations.indexOps(IndexCoordinates.of(targetIndex))
+                .alias(new AliasActions(actions.toArray(new AliasAction[0])));
+
+        for (String index : previousIndices) {
+            if (!alias.equals(index)) {
+                try {
+                    elasticsearchOperations.indexOps(IndexCoordinates.of(index)).delete();
+                } catch (RuntimeException e) {
+                    log.warn("删除旧索引失败: {}, {}", index, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -1,111 +1,364 @@
 package com.gmp.edms.service.impl;
 
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.LongTermsBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gmp.edms.dto.DocumentDTO;
 import com.gmp.edms.dto.DocumentQueryDTO;
+import com.gmp.edms.dto.DocumentSearchRequestDTO;
+import com.gmp.edms.dto.DocumentSearchResultDTO;
 import com.gmp.edms.entity.ElasticsearchDocument;
-import com.gmp.edms.repository.ElasticsearchDocumentRepository;
 import com.gmp.edms.service.DocumentSearchService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
 import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
 import org.springframework.data.elasticsearch.core.SearchHit;
 import org.springframework.data.elasticsearch.core.SearchHits;
-import org.springframework.data.elasticsearch.core.query.Criteria;
-import org.springframework.data.elasticsearch.core.query.CriteriaQuery;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.HighlightQuery;
+import org.springframework.data.elasticsearch.core.query.highlight.Highlight;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightField;
+import org.springframework.data.elasticsearch.core.query.highlight.HighlightParameters;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * 文档搜索服务实现类
+ * <p>
+ * 关键词使用multi_match按字段权重计算相关度，过滤条件放在filter子句中不参与评分；
+ * 结果只返回列表展示需要的字段，按search_after游标翻页，每页条数有上限，不再一次返回全部命中。
+ * 索引变更交给{@link DocumentIndexingPipeline}异步批量写入。
+ */
 @Service
 @RequiredArgsConstructor
 public class DocumentSearchServiceImpl implements DocumentSearchService {
 
-    private final ElasticsearchDocumentRepository elasticsearchDocumentRepository;
+    /**
+     * 关键词搜索的字段及权重：编号精确匹配优先，其次是名称、编号片段、关键字和正文
+     */
+    private static final List<String> SEARCH_FIELDS = List.of(
+            "documentCode^5", "documentName^4", "documentCode.text^3", "keywords^2", "content");
+
+    /**
+     * 搜索结果返回的字段，正文和元数据不随结果返回
+     */
+    private static final String[] SOURCE_FIELDS = {
+            "id", "documentCode", "documentName", "documentType", "status", "categoryId", "categoryName",
+            "author", "department", "fileType", "fileSize", "createdAt", "updatedAt"};
+
+    private static final List<String> HIGHLIGHT_FIELDS = List.of("documentName", "content");
+
+    private static final List<String> FACET_FIELDS = List.of("documentType", "status", "categoryName");
+
+    private final DocumentIndexingPipeline documentIndexingPipeline;
     private final ElasticsearchOperations elasticsearchOperations;
-    private final ModelMapper modelMapper;
+    private final ObjectMapper objectMapper;
 
-    @Override
-    public List<DocumentDTO> fullTextSearch(String query) {
-        Criteria criteria = new Criteria("documentName").contains(query)
-                .or(new Criteria("documentCode").contains(query))
-                .or(new Criteria("description").contains(query))
-                .or(new Criteria("content").contains(query));
+    @Value("${edms.search.default-size:20}")
+    private int defaultSize = 20;
+
+    @Value("${edms.search.max-size:100}")
+    private int maxSize = 100;
 
-        CriteriaQuery criteriaQuery = new CriteriaQuery(criteria);
-        SearchHits<ElasticsearchDocument> searchHits = elasticsearchOperations.search(criteriaQuery,
-                ElasticsearchDocument.class);
+    @Value("${edms.search.facet-size:20}")
+    private int facetSize = 20;
 
-        return searchHits.stream()
-                .map(SearchHit::getContent)
-                .map(elasticsearchDocument -> modelMapper.map(elasticsearchDocument, DocumentDTO.class))
-                .collect(Collectors.toList());
+    @Override
+    public List<DocumentDTO> fullTextSearch(String query) {
+        DocumentSearchRequestDTO request = new DocumentSearchRequestDTO();
+        request.setKeyword(query);
+        request.setSize(maxSize);
+        request.setHighlight(false);
+        request.setFacets(false);
+        return toDocuments(execute(buildQuery(request), StringUtils.hasText(query), request));
     }
 
     @Override
     public List<DocumentDTO> advancedSearch(DocumentQueryDTO queryDTO) {
-        Criteria criteria = new Criteria();
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        boolean scored = false;
 
-        if (queryDTO.getDocumentName() != null && !queryDTO.getDocumentName().isEmpty()) {
-            criteria = criteria.and(new Criteria("documentName").contains(queryDTO.getDocumentName()));
+        if (StringUtils.hasText(queryDTO.getKeyword())) {
+            bool.must(keywordQuery(queryDTO.getKeyword()));
+            scored = true;
         }
-
-        if (queryDTO.getDocumentCode() != null && !queryDTO.getDocumentCode().isEmpty()) {
-            criteria = criteria.and(new Criteria("documentCode").contains(queryDTO.getDocumentCode()));
-        }
-
-        if (queryDTO.getDocumentType() != null && !queryDTO.getDocumentType().isEmpty()) {
-            criteria = criteria.and(new Criteria("documentType").is(queryDTO.getDocumentType()));
+        if (StringUtils.hasText(queryDTO.getDocumentName())) {
+            String documentName = queryDTO.getDocumentName();
+            bool.must(Query.of(q -> q.match(m -> m.field("documentName").query(documentName)
+                    .operator(Operator.And))));
+            scored = true;
         }
-
-        if (queryDTO.getStatus() != null && !queryDTO.getStatus().isEmpty()) {
-            criteria = criteria.and(new Criteria("status").is(queryDTO.getStatus()));
+        if (StringUtils.hasText(queryDTO.getDocumentCode())) {
+            String documentCode = queryDTO.getDocumentCode();
+            bool.must(Query.of(q -> q.bool(b -> b
+                    .should(term("documentCode", documentCode))
+                    .should(Query.of(s -> s.match(m -> m.field("documentCode.text").query(documentCode)
+                            .operator(Operator.And))))
+                    .minimumShouldMatch("1"))));
+            scored = true;
         }
-
-        if (queryDTO.getConfidentialityLevel() != null && !queryDTO.getConfidentialityLevel().isEmpty()) {
-            criteria = criteria.and(new Criteria("confidentialityLevel").is(queryDTO.getConfidentialityLevel()));
+        addFilters(bool, queryDTO.getDocumentType(), queryDTO.getStatus(), queryDTO.getCategoryId(),
+                queryDTO.getAuthor(), null, queryDTO.getConfidentialityLevel());
+        if (!scored) {
+            bool.must(Query.of(q -> q.matchAll(m -> m)));
         }
 
-        if (queryDTO.getAuthor() != null && !queryDTO.getAuthor().isEmpty()) {
-            criteria = criteria.and(new Criteria("author").contains(queryDTO.getAuthor()));
-        }
+        DocumentSearchRequestDTO request = new DocumentSearchRequestDTO();
+        request.setSize(maxSize);
+        request.setHighlight(false);
+        request.setFacets(false);
+        return toDocuments(execute(Query.of(q -> q.bool(bool.build())), scored, request));
+    }
 
-        if (queryDTO.getCategoryId() != null) {
-            criteria = criteria.and(new Criteria("categoryId").is(queryDTO.getCategoryId()));
-        }
+    @Override
+    public DocumentSearchResultDTO search(DocumentSearchRequestDTO request) {
+        SearchHits<ElasticsearchDocument> searchHits = execute(buildQuery(request),
+                StringUtils.hasText(request.getKeyword()), request);
 
-        CriteriaQuery criteriaQuery = new CriteriaQuery(criteria);
-        SearchHits<ElasticsearchDocument> searchHits = elasticsearchOperations.search(criteriaQuery,
-                ElasticsearchDocument.class);
+        DocumentSearchResultDTO result = new DocumentSearchResultDTO();
+        result.setTotal(searchHits.getTotalHits());
+        result.setTotalExact(searchHits.getTotalHitsRelation() == TotalHitsRelation.EQUAL_TO);
+        result.setHits(searchHits.getSearchHits().stream().map(this::toHit).collect(Collectors.toList()));
+        result.setFacets(toFacets(searchHits));
 
-        return searchHits.stream()
-                .map(SearchHit::getContent)
-                .map(elasticsearchDocument -> modelMapper.map(elasticsearchDocument, DocumentDTO.class))
-                .collect(Collectors.toList());
+        List<SearchHit<ElasticsearchDocument>> hits = searchHits.getSearchHits();
+        if (hits.size() == pageSize(request.getSize())) {
+            result.setNextCursor(encodeCursor(hits.get(hits.size() - 1).getSortValues()));
+        }
+        return result;
     }
 
     @Override
     public void indexDocument(DocumentDTO documentDTO) {
-        ElasticsearchDocument elasticsearchDocument = modelMapper.map(documentDTO, ElasticsearchDocument.class);
-        elasticsearchDocumentRepository.save(elasticsearchDocument);
+        afterCommit(() -> documentIndexingPipeline.index(documentDTO.getId()));
     }
 
     @Override
     public void updateDocumentIndex(DocumentDTO documentDTO) {
-        ElasticsearchDocument elasticsearchDocument = modelMapper.map(documentDTO, ElasticsearchDocument.class);
-        elasticsearchDocumentRepository.save(elasticsearchDocument);
+        afterCommit(() -> documentIndexingPipeline.index(documentDTO.getId()));
     }
 
     @Override
     public void deleteDocumentIndex(Long documentId) {
-        elasticsearchDocumentRepository.deleteById(documentId);
+        afterCommit(() -> documentIndexingPipeline.delete(documentId));
     }
 
     @Override
     public void bulkIndexDocuments(List<DocumentDTO> documentDTOs) {
-        List<ElasticsearchDocument> elasticsearchDocuments = documentDTOs.stream()
-                .map(documentDTO -> modelMapper.map(documentDTO, ElasticsearchDocument.class))
-                .collect(Collectors.toList());
-        elasticsearchDocumentRepository.saveAll(elasticsearchDocuments);
+        List<Long> documentIds = documentDTOs.stream().map(DocumentDTO::getId).collect(Collectors.toList());
+        afterCommit(() -> documentIndexingPipeline.indexAll(documentIds));
+    }
+
+    /**
+     * 在当前事务提交后提交索引变更，索引流水线读取到的是已提交的文档；事务回滚时不提交
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 执行查询：有关键词时按相关度排序，否则按更新时间倒序；ID作为排序的最后一项，保证游标翻页结果稳定
+     */
+    private SearchHits<ElasticsearchDocument> execute(Query query, boolean scored, DocumentSearchRequestDTO request) {
+        boolean firstPage = !StringUtils.hasText(request.getCursor());
+
+        NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(query)
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes(SOURCE_FIELDS).build())
+                .withPageable(PageRequest.of(0, pageSize(request.getSize())))
+                .withSort(scored
+                        ? Sort.by(Sort.Order.desc("_score"), Sort.Order.asc("id"))
+                        : Sort.by(Sort.Order.desc("updatedAt"), Sort.Order.desc("id")));
+        if (!firstPage) {
+            builder.withSearchAfter(decodeCursor(request.getCursor()));
+        }
+        if (scored && request.isHighlight()) {
+            builder.withHighlightQuery(highlightQuery());
+        }
+        if (firstPage && request.isFacets()) {
+            for (String field : FACET_FIELDS) {
+                builder.withAggregation(field, Aggregation.of(a -> a.terms(t -> t.field(field).size(facetSize))));
+            }
+        }
+        return elasticsearchOperations.search(builder.build(), ElasticsearchDocument.class);
+    }
+
+    private Query buildQuery(DocumentSearchRequestDTO request) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        if (StringUtils.hasText(request.getKeyword())) {
+            bool.must(keywordQuery(request.getKeyword()));
+        } else {
+            bool.must(Query.of(q -> q.matchAll(m -> m)));
+        }
+        addFilters(bool, request.getDocumentType(), request.getStatus(), request.getCategoryId(),
+                request.getAuthor(), request.getDepartment(), null);
+        return Query.of(q -> q.bool(bool.build()));
+    }
+
+    private Query keywordQuery(String keyword) {
+        return Query.of(q -> q.multiMatch(m -> m
+                .query(keyword)
+                .fields(SEARCH_FIELDS)
+                .type(TextQueryType.BestFields)
+                .tieBreaker(0.3)));
+    }
+
+    private void addFilters(BoolQuery.Builder bool, String documentType, String status, Long categoryId,
+            String author, String department, String confidentialityLevel) {
+        if (StringUtils.hasText(documentType)) {
+            bool.filter(term("documentType", documentType));
+        }
+        if (StringUtils.hasText(status)) {
+            bool.filter(term("status", status));
+        }
+        if (categoryId != null) {
+            bool.filter(Query.of(q -> q.term(t -> t.field("categoryId").value(categoryId))));
+        }
+        if (StringUtils.hasText(author)) {
+            bool.filter(term("author", author));
+        }
+        if (StringUtils.hasText(department)) {
+            bool.filter(term("department", department));
+        }
+        if (StringUtils.hasText(confidentialityLevel)) {
+            bool.filter(term("confidentialityLevel", confidentialityLevel));
+        }
+    }
+
+    private static Query term(String field, String value) {
+        return Query.of(q -> q.term(t -> t.field(field).value(value)));
+    }
+
+    private static HighlightQuery highlightQuery() {
+        HighlightParameters parameters = HighlightParameters.builder()
+                .withPreTags("<em>")
+                .withPostTags("</em>")
+                .withFragmentSize(150)
+                .withNumberOfFragments(3)
+                .build();
+        List<HighlightField> fields = HIGHLIGHT_FIELDS.stream().map(HighlightField::new).collect(Collectors.toList());
+        return new HighlightQuery(new Highlight(parameters, fields), ElasticsearchDocument.class);
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return Math.min(defaultSize, maxSize);
+        }
+        return Math.min(size, maxSize);
+    }
+
+    private String encodeCursor(List<Object> sortValues) {
+        if (sortValues == null || sortValues.isEmpty()) {
+            return null;
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(sortValues));
+        } catch (Exception e) {
+            throw new IllegalStateException("翻页游标生成失败", e);
+        }
+    }
+
+    private List<Object> decodeCursor(String cursor) {
+        try {
+            return objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), new TypeReference<List<Object>>() {
+            });
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的翻页游标: " + cursor);
+        }
+    }
+
+    private Map<String, Map<String, Long>> toFacets(SearchHits<ElasticsearchDocument> searchHits) {
+        Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+        if (!(searchHits.getAggregations() instanceof ElasticsearchAggregations aggregations)) {
+            return facets;
+        }
+        for (ElasticsearchAggregation aggregation : aggregations.aggregations()) {
+            Aggregate aggregate = aggregation.aggregation().getAggregate();
+            Map<String, Long> buckets = new LinkedHashMap<>();
+            if (aggregate.isSterms()) {
+                for (StringTermsBucket bucket : aggregate.sterms().buckets().array()) {
+                    buckets.put(bucket.key().stringValue(), bucket.docCount());
+                }
+            } else if (aggregate.isLterms()) {
+                for (LongTermsBucket bucket : aggregate.lterms().buckets().array()) {
+                    buckets.put(String.valueOf(bucket.key()), bucket.docCount());
+                }
+            }
+            facets.put(aggregation.aggregation().getName(), buckets);
+        }
+        return facets;
+    }
+
+    private DocumentSearchResultDTO.Hit toHit(SearchHit<ElasticsearchDocument> searchHit) {
+        ElasticsearchDocument document = searchHit.getContent();
+        DocumentSearchResultDTO.Hit hit = new DocumentSearchResultDTO.Hit();
+        hit.setId(document.getId());
+        hit.setDocumentCode(document.getDocumentCode());
+        hit.setDocumentName(document.getDocumentName());
+        hit.setDocumentType(document.getDocumentType());
+        hit.setStatus(document.getStatus());
+        hit.setCategoryName(document.getCategoryName());
+        hit.setAuthor(document.getAuthor());
+        hit.setDepartment(document.getDepartment());
+        hit.setUpdatedAt(document.getUpdatedAt());
+        hit.setScore(Float.isNaN(searchHit.getScore()) ? null : searchHit.getScore());
+        if (!searchHit.getHighlightFields().isEmpty()) {
+            hit.setHighlights(searchHit.getHighlightFields());
+        }
+        return hit;
+    }
+
+    private List<DocumentDTO> toDocuments(SearchHits<ElasticsearchDocument> searchHits) {
+        List<DocumentDTO> documents = new ArrayList<>(searchHits.getSearchHits().size());
+        for (SearchHit<ElasticsearchDocument> searchHit : searchHits) {
+            ElasticsearchDocument document = searchHit.getContent();
+            DocumentDTO documentDTO = new DocumentDTO();
+            documentDTO.setId(document.getId());
+            documentDTO.setDocumentNumber(document.getDocumentCode());
+            documentDTO.setTitle(document.getDocumentName());
+            documentDTO.setDocumentType(document.getDocumentType());
+            documentDTO.setStatus(document.getStatus());
+            documentDTO.setCategory(document.getCategoryName());
+            documentDTO.setAuthor(document.getAuthor());
+            documentDTO.setOwnerDepartment(document.getDepartment());
+            documentDTO.setContentType(document.getFileType());
+            documentDTO.setFileSize(document.getFileSize());
+            documentDTO.setCreatedAt(document.getCreatedAt());
+            documentDTO.setUpdatedAt(document.getUpdatedAt());
+            documents.add(documentDTO);
+        }
+        return documents;
     }
 }
@@ -15,6 +15,8 @@ import com.gmp.edms.service.DocumentCategoryService;
 import com.gmp.edms.service.DocumentSearchService;
 import com.gmp.edms.service.DocumentService;
 import com.gmp.edms.service.FileStorageService;
+import com.gmp.edms.service.NumberingService;
+import com.gmp.edms.util.FieldAccessors;
 import org.apache.commons.io.IOUtils;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,7 +32,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
@@ -64,6 +65,9 @@ public class DocumentServiceImpl implements DocumentService {
     @Autowired
     private EventPublisher eventPublisher;
 
+    @Autowired
+    private NumberingService numberingService;
+
     @Override
     @Transactional
     @CacheEvict(value = "documents", allEntries = true)
@@ -445,84 +449,33 @@ public class DocumentServiceImpl implements DocumentService {
      * 生成文档编号
      */
     protected String generateDocCode() {
-        // 生成格式为 DOC_YYYYMMDD_0001 的文档编号
+        // 生成格式为 DOC_YYYYMMDD_0001 的文档编号，每天重新计数
         String dateStr = LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd"));
         String prefix = "DOC_" + dateStr + "_";
 
-        // 查找当天最后一个文档编号
-        List<Document> documents = documentRepository.findAll();
-        long maxNum = documents.stream()
-                .filter(doc -> {
-                    try {
-                        String docNum = (String) getFieldValue(doc, "documentNumber");
-                        return docNum != null && docNum.startsWith(prefix);
-                    } catch (Exception e) {
-                        return false;
-                    }
-                })
-                .mapToLong(doc -> {
-                    try {
-                        String docNum = (String) getFieldValue(doc, "documentNumber");
-                        String numStr = docNum.substring(prefix.length());
-                        return Long.parseLong(numStr);
-                    } catch (Exception e) {
-                        return 0;
-                    }
-                })
-                .max()
-                .orElse(0);
-
-        // 生成新编号
-        return prefix + String.format("%04d", maxNum + 1);
+        // 序列首次使用时接续当天已生成的最大编号
+        long number = numberingService.next(prefix, () -> {
+            String maxNumber = documentRepository.findMaxDocumentNumber(prefix);
+            try {
+                return maxNumber != null ? Long.parseLong(maxNumber.substring(prefix.length())) : 0L;
+            } catch (NumberFormatException e) {
+                return 0L;
+            }
+        });
+        return prefix + String.format("%04d", number);
     }
 
-    // 反射工具方法
+    // 属性访问工具方法，访问器按类缓存
     private Object getFieldValue(Object obj, String fieldName) {
-        return getFieldValue(obj, fieldName, null);
+        return FieldAccessors.get(obj, fieldName);
     }
 
     private Object getFieldValue(Object obj, String fieldName, Object defaultValue) {
-        if (obj == null) {
-            return defaultValue;
-        }
-
-        try {
-            Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
-            }
-        } catch (Exception e) {
-            // 忽略异常，返回默认值
-        }
-        return defaultValue;
+        Object value = FieldAccessors.get(obj, fieldName);
+        return value != null ? value : defaultValue;
     }
 
     private void setFieldValue(Object obj, String fieldName, Object value) {
-        if (obj == null) {
-            return;
-        }
-
-        try {
-            Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                field.set(obj, value);
-            }
-        } catch (Exception e) {
-            // 忽略异常
-        }
-    }
-
-    private Field findField(Class<?> clazz, String fieldName) {
-        Class<?> currentClass = clazz;
-        while (currentClass != null && currentClass != Object.class) {
-            try {
-                return currentClass.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                currentClass = currentClass.getSuperclass();
-            }
-        }
-        return null;
+        FieldAccessors.set(obj, fieldName, value);
     }
 }
\ No newline at end of file
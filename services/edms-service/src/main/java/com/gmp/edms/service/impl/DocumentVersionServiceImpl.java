@@ -1,24 +1,26 @@
 package com.gmp.edms.service.impl;
 
+import com.gmp.edms.dto.DocumentDiffDTO;
 import com.gmp.edms.dto.DocumentVersionDTO;
+import com.gmp.edms.entity.ContentBlob;
 import com.gmp.edms.entity.Document;
 import com.gmp.edms.entity.DocumentVersion;
 import com.gmp.edms.repository.DocumentRepository;
 import com.gmp.edms.repository.DocumentVersionRepository;
+import com.gmp.edms.service.ContentBlobService;
+import com.gmp.edms.service.DocumentDiffService;
 import com.gmp.edms.service.DocumentVersionService;
 import com.gmp.edms.service.FileStorageService;
+import com.gmp.edms.util.FieldAccessors;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.Field;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.security.NoSuchAlgorithmException;
@@ -47,9 +49,21 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ContentBlobService contentBlobService;
+
+    @Autowired
+    private DocumentDiffService documentDiffService;
+
     @Autowired
     private ModelMapper modelMapper;
 
+    /**
+     * 版本内容所在的存储桶，与内容存储服务使用同一配置
+     */
+    @Value("${edms.blob-store.bucket:edms-documents}")
+    private String bucketName = "edms-documents";
+
     @Override
     @Transactional
     public DocumentVersionDTO uploadDocumentVersion(Long documentId, MultipartFile file,
@@ -60,30 +74,22 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
             throw new Exception("文件不能为空");
         }
 
-        // 计算文件校验和
-        String checksum = calculateChecksum(file);
-
-        // 检查文件是否已经上传过
-        if (checkFileExists(checksum)) {
-            throw new Exception("文件内容已存在");
-        }
+        // 写入内容寻址存储：上传时同步计算SHA-256，相同内容只保存一份并增加引用计数
+        ContentBlob blob = contentBlobService.store(file);
 
         // 生成新版本号
         String newVersionNumber = generateNewVersionNumber(documentId, versionType);
 
-        // 创建文件保存路径
-        String fileName = file.getOriginalFilename();
-        String filePath = "versions/" + documentId + "/" + newVersionNumber + "/" + fileName;
-
         // 创建文档版本实体
+        String fileName = file.getOriginalFilename();
         DocumentVersion documentVersion = new DocumentVersion();
         setFieldValue(documentVersion, "documentId", documentId);
         setFieldValue(documentVersion, "versionNumber", newVersionNumber);
         setFieldValue(documentVersion, "fileName", fileName);
         setFieldValue(documentVersion, "fileType", file.getContentType());
         setFieldValue(documentVersion, "fileSize", file.getSize());
-        setFieldValue(documentVersion, "filePath", filePath);
-        setFieldValue(documentVersion, "checksum", checksum);
+        setFieldValue(documentVersion, "filePath", blob.getObjectPath());
+        setFieldValue(documentVersion, "checksum", blob.getDigest());
         setFieldValue(documentVersion, "changeReason", changeReason);
         setFieldValue(documentVersion, "createdBy", author);
         setFieldValue(documentVersion, "createdTime", LocalDateTime.now());
@@ -92,20 +98,24 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
         // 保存文档版本
         DocumentVersion savedVersion = documentVersionRepository.save(documentVersion);
 
-        // 上传文件到存储服务
-        fileStorageService.uploadFile(file, "edms-documents", "versions/" + documentId + "/" + newVersionNumber);
-
         // 更新其他版本为非当前版本
+        clearOtherCurrentVersions(documentId, savedVersion);
+
+        return modelMapper.map(savedVersion, DocumentVersionDTO.class);
+    }
+
+    /**
+     * 将文档的其他版本标记为非当前版本
+     */
+    private void clearOtherCurrentVersions(Long documentId, DocumentVersion currentVersion) {
         List<DocumentVersion> otherVersions = documentVersionRepository
                 .findByDocumentIdOrderByVersionNumberDesc(documentId);
         for (DocumentVersion version : otherVersions) {
-            if (!getFieldValue(version, "id").equals(getFieldValue(savedVersion, "id"))) {
+            if (!getFieldValue(version, "id").equals(getFieldValue(currentVersion, "id"))) {
                 setFieldValue(version, "isCurrent", false);
                 documentVersionRepository.save(version);
             }
         }
-
-        return modelMapper.map(savedVersion, DocumentVersionDTO.class);
     }
 
     @Override
@@ -175,12 +185,26 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
                 .orElseThrow(() -> new RuntimeException("版本不存在: " + versionId));
 
         // 下载文件
-        try (InputStream inputStream = fileStorageService.downloadFile("edms-documents",
+        try (InputStream inputStream = fileStorageService.downloadFile(bucketName,
                 (String) getFieldValue(version, "filePath"))) {
             return IOUtils.toByteArray(inputStream);
         }
     }
 
+    @Override
+    public InputStream openDocumentVersionStream(Long versionId, long offset, long length) throws Exception {
+        // 查找指定的版本
+        DocumentVersion version = documentVersionRepository.findById(versionId)
+                .orElseThrow(() -> new RuntimeException("版本不存在: " + versionId));
+
+        // 直接返回存储服务的流，不在内存中缓冲文件内容
+        String filePath = (String) getFieldValue(version, "filePath");
+        if (offset <= 0 && length < 0) {
+            return fileStorageService.downloadFile(bucketName, filePath);
+        }
+        return fileStorageService.downloadFile(bucketName, filePath, Math.max(offset, 0), length);
+    }
+
     @Override
     @Transactional
     public void deleteDocumentVersion(Long versionId) throws Exception {
@@ -214,11 +238,16 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
             documentRepository.save(document);
         }
 
-        // 删除文件
-        try {
-            fileStorageService.deleteFile("", (String) getFieldValue(version, "filePath"));
-        } catch (Exception e) {
-            throw new RuntimeException("删除文件失败: " + e.getMessage(), e);
+        // 内容寻址存储的文件只释放引用，由垃圾回收在无引用后删除；历史路径的文件直接删除
+        String filePath = (String) getFieldValue(version, "filePath");
+        if (contentBlobService.isBlobPath(filePath)) {
+            contentBlobService.release((String) getFieldValue(version, "checksum"));
+        } else {
+            try {
+                fileStorageService.deleteFile("", filePath);
+            } catch (Exception e) {
+                throw new RuntimeException("删除文件失败: " + e.getMessage(), e);
+            }
         }
 
         // 删除版本记录
@@ -332,7 +361,7 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
 
     @Override
     public boolean checkFileExists(String checksum) {
-        return documentVersionRepository.findByChecksum(checksum).isPresent();
+        return documentVersionRepository.existsByChecksum(checksum);
     }
 
     @Override
@@ -352,7 +381,7 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
             return "文件大小不同: " + getFieldValue(version1, "fileSize") + " vs " + getFieldValue(version2, "fileSize");
         }
         if (!getFieldValue(version1, "checksum").equals(getFieldValue(version2, "checksum"))) {
-            return "文件内容不同（校验和不匹配）";
+            return "文件内容不同（校验和不匹配）: " + documentDiffService.diff(version1, version2).getMessage();
         }
 
         return "两个版本完全相同";
@@ -365,51 +394,39 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
         DocumentVersion version = documentVersionRepository.findById(versionId)
                 .orElseThrow(() -> new RuntimeException("版本不存在: " + versionId));
 
-        // 下载该版本的文件内容
-        byte[] fileContent;
-        try (InputStream inputStream = fileStorageService.downloadFile("edms-documents",
-                (String) getFieldValue(version, "filePath"))) {
-            fileContent = IOUtils.toByteArray(inputStream);
-        }
+        Long documentId = (Long) getFieldValue(version, "documentId");
+        String sourcePath = (String) getFieldValue(version, "filePath");
+
+        // 新版本引用原版本的内容，不复制也不重新上传；历史路径的内容首次回滚时纳入内容寻址存储
+        ContentBlob blob = contentBlobService.retain((String) getFieldValue(version, "checksum"), sourcePath,
+                (Long) getFieldValue(version, "fileSize"), (String) getFieldValue(version, "fileType"));
 
         // 生成新的版本号
-        String newVersionNumber = generateNewVersionNumber((Long) getFieldValue(version, "documentId"), "MINOR");
+        String newVersionNumber = generateNewVersionNumber(documentId, "MINOR");
+
+        // 新版本沿用原版本的文件元数据，校验和无需重新计算
+        DocumentVersion revertedVersion = new DocumentVersion();
+        setFieldValue(revertedVersion, "documentId", documentId);
+        setFieldValue(revertedVersion, "versionNumber", newVersionNumber);
+        setFieldValue(revertedVersion, "versionType", "MINOR");
+        setFieldValue(revertedVersion, "fileName", getFieldValue(version, "fileName"));
+        setFieldValue(revertedVersion, "fileType", getFieldValue(version, "fileType"));
+        setFieldValue(revertedVersion, "fileSize", getFieldValue(version, "fileSize"));
+        setFieldValue(revertedVersion, "filePath", blob.getObjectPath());
+        setFieldValue(revertedVersion, "checksum", getFieldValue(version, "checksum"));
+        setFieldValue(revertedVersion, "changeReason", "系统回滚操作");
+        setFieldValue(revertedVersion, "changeSummary", "回滚到版本 " + getFieldValue(version, "versionNumber"));
+        setFieldValue(revertedVersion, "author", getFieldValue(version, "createdBy"));
+        setFieldValue(revertedVersion, "createdBy", getFieldValue(version, "createdBy"));
+        setFieldValue(revertedVersion, "createdTime", LocalDateTime.now());
+        setFieldValue(revertedVersion, "isCurrent", true);
+
+        DocumentVersion savedVersion = documentVersionRepository.save(revertedVersion);
 
-        // 创建临时文件进行上传
-        String fileName = (String) getFieldValue(version, "fileName");
-        Path tempFile = Files.createTempFile("reverted_", "." + getFileExtension(fileName));
-        try {
-            Files.write(tempFile, fileContent);
-
-            // 创建MultipartFile对象
-            MultipartFile multipartFile = new MockMultipartFile(
-                    fileName,
-                    fileName,
-                    "application/pdf", // 使用默认类型
-                    Files.newInputStream(tempFile));
-
-            // 上传新版本 - 使用正确的参数顺序
-            return uploadDocumentVersion(
-                    (Long) getFieldValue(version, "documentId"),
-                    multipartFile,
-                    "MINOR",
-                    "系统回滚操作",
-                    "回滚到版本 " + getFieldValue(version, "versionNumber"),
-                    (String) getFieldValue(version, "createdBy"));
-        } finally {
-            // 删除临时文件
-            Files.deleteIfExists(tempFile);
-        }
-    }
+        // 更新其他版本为非当前版本
+        clearOtherCurrentVersions(documentId, savedVersion);
 
-    /**
-     * 获取文件扩展名
-     */
-    private String getFileExtension(String fileName) {
-        if (fileName == null || !fileName.contains(".")) {
-            return ""; // 或者返回一个默认扩展名
-        }
-        return fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+        return modelMapper.map(savedVersion, DocumentVersionDTO.class);
     }
 
     /**
@@ -451,144 +468,17 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
     }
 
     /**
-     * 模拟MultipartFile类，用于创建临时文件上传
-     */
-
-    private static class MockMultipartFile implements MultipartFile {
-        private final String name;
-        private final String originalFilename;
-        private final String contentType;
-        private final byte[] content;
-        private final java.io.InputStream inputStream;
-
-        public MockMultipartFile(String name, String originalFilename, String contentType,
-                java.io.InputStream inputStream) throws IOException {
-            this.name = name;
-            this.originalFilename = originalFilename;
-            this.contentType = contentType;
-            this.inputStream = inputStream;
-            this.content = inputStream.readAllBytes();
-        }
-
-        @Override
-        public String getName() {
-            return name;
-        }
-
-        @Override
-        public String getOriginalFilename() {
-            return originalFilename;
-        }
-
-        @Override
-        public String getContentType() {
-            return contentType;
-        }
-
-        @Override
-        public boolean isEmpty() {
-            return content.length == 0;
-        }
-
-        @Override
-        public long getSize() {
-            return content.length;
-        }
-
-        @Override
-        public byte[] getBytes() throws IOException {
-            return content;
-        }
-
-        @Override
-        public java.io.InputStream getInputStream() throws IOException {
-            return new java.io.ByteArrayInputStream(content);
-        }
-
-        @Override
-        public void transferTo(java.io.File dest) throws IOException, IllegalStateException {
-            Files.write(dest.toPath(), content);
-        }
-    }
-
-    /**
-     * 使用反射获取对象的字段值
+     * 获取对象的字段值，字段不存在时使用getter方法
      */
     private Object getFieldValue(Object obj, String fieldName) {
-        if (obj == null || fieldName == null) {
-            return null;
-        }
-
-        try {
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
-            }
-            // 尝试通过getter方法获取
-            String getterName = "get" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-            try {
-                java.lang.reflect.Method getter = obj.getClass().getMethod(getterName);
-                return getter.invoke(obj);
-            } catch (NoSuchMethodException e) {
-                // 如果getter不存在，返回null
-                return null;
-            }
-        } catch (Exception e) {
-            // 反射访问失败，返回null
-            return null;
-        }
+        return FieldAccessors.get(obj, fieldName);
     }
 
     /**
-     * 使用反射设置对象的字段值
+     * 设置对象的字段值，字段不存在时使用setter方法
      */
     private void setFieldValue(Object obj, String fieldName, Object value) {
-        if (obj == null || fieldName == null) {
-            return;
-        }
-
-        try {
-            java.lang.reflect.Field field = findField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                field.set(obj, value);
-            } else {
-                // 尝试通过setter方法设置
-                String setterName = "set" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
-                try {
-                    Class<?> fieldType = value != null ? value.getClass() : Object.class;
-                    java.lang.reflect.Method setter = obj.getClass().getMethod(setterName, fieldType);
-                    setter.invoke(obj, value);
-                } catch (NoSuchMethodException e) {
-                    // 如果setter不存在，尝试查找匹配参数类型的setter
-                    java.lang.reflect.Method[] methods = obj.getClass().getMethods();
-                    for (java.lang.reflect.Method method : methods) {
-                        if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
-                            method.invoke(obj, value);
-                            break;
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            // 反射设置失败，静默忽略
-        }
-    }
-
-    /**
-     * 查找字段，包括父类中的字段
-     */
-    private java.lang.reflect.Field findField(Class<?> clazz, String fieldName) {
-        Class<?> currentClass = clazz;
-        while (currentClass != null && currentClass != Object.class) {
-            try {
-                return currentClass.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e) {
-                currentClass = currentClass.getSuperclass();
-            }
-        }
-        return null;
+        FieldAccessors.set(obj, fieldName, value);
     }
 
     public Map<String, Long> calculateUsageStatistics() {
@@ -677,9 +567,43 @@ public class DocumentVersionServiceImpl implements DocumentVersionService {
             if (!((String) getFieldValue(fromVersion, "checksum")).equals(getFieldValue(toVersion, "checksum"))) {
                 comparison.append("  文件校验和不同，内容已修改\n");
             }
+            appendContentDiff(comparison, documentDiffService.diff(fromVersion, toVersion));
         }
 
         return comparison.toString();
     }
 
+    @Override
+    public DocumentDiffDTO diffDocumentVersions(Long documentId, Long fromVersionId, Long toVersionId) {
+        DocumentVersion fromVersion = documentVersionRepository.findById(fromVersionId)
+                .orElseThrow(() -> new RuntimeException("源版本不存在: " + fromVersionId));
+        DocumentVersion toVersion = documentVersionRepository.findById(toVersionId)
+                .orElseThrow(() -> new RuntimeException("目标版本不存在: " + toVersionId));
+        if (!documentId.equals(fromVersion.getDocumentId()) || !documentId.equals(toVersion.getDocumentId())) {
+            throw new RuntimeException("版本不属于指定文档");
+        }
+        return documentDiffService.diff(fromVersion, toVersion);
+    }
+
+    /**
+     * 在比较报告中追加逐行差异，差异段格式与unified diff一致
+     */
+    private void appendContentDiff(StringBuilder comparison, DocumentDiffDTO diff) {
+        comparison.append("\n内容差异: ").append(diff.getMessage()).append("\n");
+        for (DocumentDiffDTO.Hunk hunk : diff.getHunks()) {
+            comparison.append("@@ -").append(hunk.getFromStart()).append(',').append(hunk.getFromCount())
+                    .append(" +").append(hunk.getToStart()).append(',').append(hunk.getToCount()).append(" @@\n");
+            for (DocumentDiffDTO.Line line : hunk.getLines()) {
+                char marker = "ADDED".equals(line.getType()) ? '+' : "REMOVED".equals(line.getType()) ? '-' : ' ';
+                comparison.append(marker).append(line.getText()).append("\n");
+            }
+        }
+        if (diff.isApproximate()) {
+            comparison.append("（差异较大，部分修改区域未细分到行）\n");
+        }
+        if (diff.isTruncated()) {
+            comparison.append("（差异内容过多，已截断）\n");
+        }
+    }
+
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import io.minio.PutObjectArgs;
 import io.minio.RemoveObjectArgs;
 import io.minio.Result;
 import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
 import io.minio.messages.Bucket;
 import io.minio.messages.DeleteError;
@@ -64,9 +65,7 @@ public class MinioFileStorageServiceImpl implements FileStorageService {
         }
 
         // 确保桶存在
-        if (!bucketExists(bucketName)) {
-            createBucket(bucketName);
-        }
+        ensureBucket(bucketName);
 
         // 生成唯一的文件名
         String originalFilename = file.getOriginalFilename();
@@ -92,6 +91,25 @@ public class MinioFileStorageServiceImpl implements FileStorageService {
         return filePath;
     }
 
+    @Override
+    public void uploadFile(InputStream inputStream, long size, String contentType, String bucketName,
+            String filePath) throws Exception {
+        if (bucketName == null || bucketName.isEmpty()) {
+            bucketName = defaultBucket;
+        }
+
+        // 确保桶存在
+        ensureBucket(bucketName);
+
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(filePath)
+                        .stream(inputStream, size, ObjectWriteArgs.MIN_MULTIPART_SIZE)
+                        .contentType(contentType != null ? contentType : "application/octet-stream")
+                        .build());
+    }
+
     @Override
     public InputStream downloadFile(String bucketName, String filePath) throws Exception {
         if (bucketName == null || bucketName.isEmpty()) {
@@ -105,6 +123,23 @@ public class MinioFileStorageServiceImpl implements FileStorageService {
                         .build());
     }
 
+    @Override
+    public InputStream downloadFile(String bucketName, String filePath, long offset, long length) throws Exception {
+        if (bucketName == null || bucketName.isEmpty()) {
+            bucketName = defaultBucket;
+        }
+
+        // 范围读取由MinIO服务端完成，只传输请求的字节
+        GetObjectArgs.Builder builder = GetObjectArgs.builder()
+                .bucket(bucketName)
+                .object(filePath)
+                .offset(offset);
+        if (length >= 0) {
+            builder.length(length);
+        }
+        return minioClient.getObject(builder.build());
+    }
+
     @Override
     public void deleteFile(String bucketName, String filePath) throws Exception {
         if (bucketName == null || bucketName.isEmpty()) {
@@ -270,6 +305,23 @@ public class MinioFileStorageServiceImpl implements FileStorageService {
                         .build());
     }
 
+    /**
+     * 确保桶存在，并发请求已创建同名桶时视为成功
+     */
+    private void ensureBucket(String bucketName) throws Exception {
+        if (bucketExists(bucketName)) {
+            return;
+        }
+        try {
+            createBucket(bucketName);
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse() != null ? e.errorResponse().code() : null;
+            if (!"BucketAlreadyOwnedByYou".equals(code) && !"BucketAlreadyExists".equals(code)) {
+                throw e;
+            }
+        }
+    }
+
     @Override
     public void deleteBucket(String bucketName) throws Exception {
         minioClient.removeBucket(
@@ -5,6 +5,7 @@ import com.gmp.edms.entity.TcmDocument;
 import com.gmp.edms.exception.ResourceNotFoundException;
 import com.gmp.edms.repository.TcmDocumentRepository;
 import com.gmp.edms.service.TcmDocumentService;
+import com.gmp.edms.util.FieldAccessors;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.Page;
@@ -33,13 +34,7 @@ public class TcmDocumentServiceImpl implements TcmDocumentService {
 
         // 生成文档编号
         String documentNumber = generateDocumentNumber();
-        try {
-            java.lang.reflect.Field numberField = TcmDocument.class.getDeclaredField("documentNumber");
-            numberField.setAccessible(true);
-            numberField.set(tcmDocument, documentNumber);
-        } catch (Exception e) {
-            // 忽略错误
-        }
+        FieldAccessors.set(tcmDocument, "documentNumber", documentNumber);
 
         return tcmDocumentRepository.save(tcmDocument);
     }
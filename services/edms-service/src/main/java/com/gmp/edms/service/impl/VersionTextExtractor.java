@@ -0,0 +1,171 @@
+package com.gmp.edms.service.impl;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 从版本文件中按行提取文本
+ * <p>
+ * 逐行读取并交给调用方处理，不在内存中缓存整个文件。纯文本类文件按行读取；Word文档（docx）
+ * 流式读取压缩包中的正文XML，每个段落作为一行。其他格式（如PDF、图片）不支持提取。
+ */
+final class VersionTextExtractor {
+
+    private static final String WORD_NAMESPACE = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final String DOCX_CONTENT_TYPE =
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+
+    private static final Set<String> TEXT_EXTENSIONS = Set.of(
+            "txt", "md", "csv", "json", "xml", "html", "htm", "yml", "yaml", "properties", "log", "sql");
+
+    private static final Set<String> TEXT_CONTENT_TYPES = Set.of(
+            "application/json", "application/xml", "application/x-yaml", "application/sql");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private VersionTextExtractor() {
+    }
+
+    static boolean supports(String fileName, String contentType) {
+        return isDocx(fileName, contentType) || isText(fileName, contentType);
+    }
+
+    /**
+     * 逐行提取文本
+     *
+     * @param input 文件内容，由调用方关闭
+     * @param lines 接收每一行文本
+     */
+    static void extract(InputStream input, String fileName, String contentType, Consumer<String> lines)
+            throws IOException {
+        if (isDocx(fileName, contentType)) {
+            extractDocx(input, lines);
+        } else if (isText(fileName, contentType)) {
+            extractText(input, lines);
+        } else {
+            throw new IOException("不支持提取该文件类型的文本: " + fileName);
+        }
+    }
+
+    private static void extractText(InputStream input, Consumer<String> lines) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        if (line != null && !line.isEmpty() && line.charAt(0) == '﻿') {
+            line = line.substring(1);
+        }
+        while (line != null) {
+            lines.accept(line);
+            line = reader.readLine();
+        }
+    }
+
+    private static void extractDocx(InputStream input, Consumer<String> lines) throws IOException {
+        ZipInputStream zip = new ZipInputStream(input);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if ("word/document.xml".equals(entry.getName())) {
+                try {
+                    extractParagraphs(zip, lines);
+                } catch (XMLStreamException e) {
+                    throw new IOException("解析Word文档正文失败: " + e.getMessage(), e);
+                }
+                return;
+            }
+        }
+        throw new IOException("Word文档中没有正文内容");
+    }
+
+    private static void extractParagraphs(InputStream input, Consumer<String> lines) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(input, StandardCharsets.UTF_8.name());
+        try {
+            StringBuilder paragraph = null;
+            boolean inText = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && WORD_NAMESPACE.equals(reader.getNamespaceURI())) {
+                    switch (reader.getLocalName()) {
+                        case "p" -> paragraph = new StringBuilder();
+                        case "t" -> inText = true;
+                        case "tab" -> append(paragraph, "\t");
+                        case "br", "cr" -> {
+                            // 段落内换行拆分为多行
+                            if (paragraph != null) {
+                                lines.accept(paragraph.toString());
+                                paragraph.setLength(0);
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && WORD_NAMESPACE.equals(reader.getNamespaceURI())) {
+                    if ("t".equals(reader.getLocalName())) {
+                        inText = false;
+                    } else if ("p".equals(reader.getLocalName()) && paragraph != null) {
+                        lines.accept(paragraph.toString());
+                        paragraph = null;
+                    }
+                } else if (inText && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+                    append(paragraph, reader.getText());
+                }
+            }
+        } finally {
+            // 只关闭解析器，不关闭压缩包流
+            reader.close();
+        }
+    }
+
+    private static void append(StringBuilder paragraph, String text) {
+        if (paragraph != null) {
+            paragraph.append(text);
+        }
+    }
+
+    private static boolean isDocx(String fileName, String contentType) {
+        return DOCX_CONTENT_TYPE.equals(normalize(contentType)) || "docx".equals(extension(fileName));
+    }
+
+    private static boolean isText(String fileName, String contentType) {
+        String type = normalize(contentType);
+        return (type != null && (type.startsWith("text/") || TEXT_CONTENT_TYPES.contains(type)))
+                || TEXT_EXTENSIONS.contains(extension(fileName));
+    }
+
+    private static String normalize(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        int separator = contentType.indexOf(';');
+        return (separator >= 0 ? contentType.substring(0, separator) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // 禁止外部实体和DTD，防止XXE
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+}
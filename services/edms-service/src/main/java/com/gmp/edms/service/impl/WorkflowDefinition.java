@@ -0,0 +1,88 @@
+package com.gmp.edms.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 解析后的工作流定义
+ * <p>
+ * 工作流定义JSON格式：{"steps": [{"name": "步骤名称", "approver": "审批人"}, ...]}，
+ * 步骤按数组顺序执行。解析结果不可变，可以在多个审批实例之间共享。
+ */
+final class WorkflowDefinition {
+
+    private final String source;
+    private final JsonNode root;
+    private final List<String> stepNames;
+    private final Map<String, Integer> stepIndex;
+    private final Map<String, String> approvers;
+
+    private WorkflowDefinition(String source, JsonNode root) {
+        this.source = source;
+        this.root = root;
+
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        Map<String, String> stepApprovers = new HashMap<>();
+        JsonNode steps = root != null ? root.get("steps") : null;
+        if (steps != null && steps.isArray()) {
+            for (JsonNode step : steps) {
+                if (!step.has("name")) {
+                    continue;
+                }
+                String name = step.get("name").asText();
+                // 同名步骤以第一次出现的位置为准，与按顺序查找的行为一致
+                index.putIfAbsent(name, names.size());
+                names.add(name);
+                if (step.hasNonNull("approver")) {
+                    stepApprovers.putIfAbsent(name, step.get("approver").asText());
+                }
+            }
+        }
+        this.stepNames = Collections.unmodifiableList(names);
+        this.stepIndex = index;
+        this.approvers = stepApprovers;
+    }
+
+    static WorkflowDefinition parse(String source, JsonNode root) {
+        return new WorkflowDefinition(source, root);
+    }
+
+    /**
+     * 判断解析结果是否对应给定的定义内容
+     */
+    boolean isParsedFrom(String definition) {
+        return source == null ? definition == null : source.equals(definition);
+    }
+
+    JsonNode getRoot() {
+        return root;
+    }
+
+    String getFirstStep() {
+        return stepNames.isEmpty() ? null : stepNames.get(0);
+    }
+
+    /**
+     * 获取当前步骤的下一步骤，没有下一步骤或当前步骤不存在时返回null
+     */
+    String getNextStep(String currentStep) {
+        Integer index = currentStep != null ? stepIndex.get(currentStep) : null;
+        if (index == null || index + 1 >= stepNames.size()) {
+            return null;
+        }
+        return stepNames.get(index + 1);
+    }
+
+    /**
+     * 获取步骤配置的审批人，未配置时返回null
+     */
+    String getApprover(String step) {
+        return step != null ? approvers.get(step) : null;
+    }
+}
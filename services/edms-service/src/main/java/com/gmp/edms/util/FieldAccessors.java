@@ -0,0 +1,196 @@
+package com.gmp.edms.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名称读写对象属性的工具类
+ * <p>
+ * 每个类的属性只在首次访问时解析一次：优先使用字段（含父类字段），字段不存在时使用getter（get/is前缀）
+ * 和单参数setter方法。解析结果转换为统一签名的MethodHandle并按类缓存，之后的访问不再进行字段查找、
+ * setAccessible调用和异常构造。
+ * <p>
+ * 与原有反射工具方法的行为保持一致：目标为null、属性不存在或访问失败时读取返回null，写入静默失败。
+ */
+public final class FieldAccessors {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final Accessor MISSING = new Accessor(null, null, null);
+
+    private static final ClassValue<Map<String, Accessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Accessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private FieldAccessors() {
+    }
+
+    /**
+     * 读取属性值
+     *
+     * @return 属性值，目标为null或属性不可读时返回null
+     */
+    public static Object get(Object target, String name) {
+        if (target == null) {
+            return null;
+        }
+        MethodHandle getter = accessor(target.getClass(), name).getter;
+        if (getter == null) {
+            return null;
+        }
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 写入属性值
+     *
+     * @return 是否写入成功
+     */
+    public static boolean set(Object target, String name, Object value) {
+        if (target == null) {
+            return false;
+        }
+        Accessor accessor = accessor(target.getClass(), name);
+        if (accessor.setter == null) {
+            return accessor.setByField(target, value);
+        }
+        try {
+            accessor.setter.invokeExact(target, value);
+            return true;
+        } catch (ClassCastException | WrongMethodTypeException e) {
+            // 需要基本类型拓宽转换时（如Integer写入long字段）退回到字段赋值
+            return accessor.setByField(target, value);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * 检查类是否存在可读的属性
+     */
+    public static boolean hasProperty(Class<?> type, String name) {
+        return type != null && accessor(type, name).getter != null;
+    }
+
+    private static Accessor accessor(Class<?> type, String name) {
+        if (name == null || name.isEmpty()) {
+            return MISSING;
+        }
+        return ACCESSORS.get(type).computeIfAbsent(name, key -> resolve(type, key));
+    }
+
+    private static Accessor resolve(Class<?> type, String name) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        Field field = findField(type, name);
+        if (field != null) {
+            try {
+                field.setAccessible(true);
+                MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                MethodHandle setter = null;
+                try {
+                    setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+                } catch (IllegalAccessException e) {
+                    // final字段等无法生成setter句柄时，写入时退回到字段赋值
+                }
+                return new Accessor(getter, setter, field);
+            } catch (IllegalAccessException | RuntimeException e) {
+                // 字段不可访问时尝试getter/setter方法
+            }
+        }
+
+        String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        MethodHandle getter = findGetter(lookup, type, "get" + suffix);
+        if (getter == null) {
+            getter = findGetter(lookup, type, "is" + suffix);
+        }
+        MethodHandle setter = findSetter(lookup, type, "set" + suffix);
+        if (getter == null && setter == null) {
+            return MISSING;
+        }
+        return new Accessor(getter, setter, null);
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        Class<?> currentClass = type;
+        while (currentClass != null && currentClass != Object.class) {
+            for (Field field : currentClass.getDeclaredFields()) {
+                if (field.getName().equals(name) && !Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            }
+            currentClass = currentClass.getSuperclass();
+        }
+        return null;
+    }
+
+    private static MethodHandle findGetter(MethodHandles.Lookup lookup, Class<?> type, String methodName) {
+        try {
+            Method method = type.getMethod(methodName);
+            if (method.getReturnType() == void.class || Modifier.isStatic(method.getModifiers())) {
+                return null;
+            }
+            method.setAccessible(true);
+            return lookup.unreflect(method).asType(GETTER_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle findSetter(MethodHandles.Lookup lookup, Class<?> type, String methodName) {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == 1
+                    && !Modifier.isStatic(method.getModifiers())) {
+                try {
+                    method.setAccessible(true);
+                    return MethodHandles.dropReturn(lookup.unreflect(method)).asType(SETTER_TYPE);
+                } catch (IllegalAccessException | RuntimeException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 已解析的属性访问器
+     */
+    private static final class Accessor {
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Field field;
+
+        Accessor(MethodHandle getter, MethodHandle setter, Field field) {
+            this.getter = getter;
+            this.setter = setter;
+            this.field = field;
+        }
+
+        boolean setByField(Object target, Object value) {
+            if (field == null) {
+                return false;
+            }
+            try {
+                field.set(target, value);
+                return true;
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.gmp.edms.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Myers差异算法（线性空间版本）
+ * <p>
+ * 比较两个整数序列（通常是行内容编号），输出将序列A变为序列B的最少修改区域。先去掉公共前缀和后缀，
+ * 再通过中间蛇形（middle snake）递归划分，时间复杂度O((N+M)D)，额外内存O(N+M)，D为差异数量。
+ * <p>
+ * 差异较大时耗时接近平方级，可以设置计算量上限：超过上限后剩余未划分的区域整体作为一个修改区域输出，
+ * 结果仍然正确，只是不再是最小差异，此时{@link #isApproximate()}返回true。
+ */
+public final class MyersDiff {
+
+    private final int[] a;
+    private final int[] b;
+    private final List<Edit> edits = new ArrayList<>();
+    private long budget;
+    private boolean approximate;
+
+    private MyersDiff(int[] a, int[] b, long maxCost) {
+        this.a = a;
+        this.b = b;
+        this.budget = maxCost;
+    }
+
+    /**
+     * 计算差异
+     *
+     * @param a 原序列
+     * @param b 新序列
+     * @param maxCost 计算量上限（比较次数），小于等于0表示不限制
+     */
+    public static MyersDiff compute(int[] a, int[] b, long maxCost) {
+        MyersDiff diff = new MyersDiff(a, b, maxCost > 0 ? maxCost : Long.MAX_VALUE);
+        diff.diff(0, a.length, 0, b.length);
+        return diff;
+    }
+
+    public static MyersDiff compute(int[] a, int[] b) {
+        return compute(a, b, 0);
+    }
+
+    /**
+     * 按位置顺序排列的修改区域，相邻的区域已合并
+     */
+    public List<Edit> getEdits() {
+        return Collections.unmodifiableList(edits);
+    }
+
+    /**
+     * 是否因超过计算量上限而未得到最小差异
+     */
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    private void diff(int aLo, int aHi, int bLo, int bHi) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            aLo++;
+            bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            aHi--;
+            bHi--;
+        }
+        if (aLo == aHi && bLo == bHi) {
+            return;
+        }
+        if (aLo == aHi || bLo == bHi) {
+            addEdit(aLo, aHi, bLo, bHi);
+            return;
+        }
+
+        int[] snake = middleSnake(aLo, aHi, bLo, bHi);
+        if (snake == null) {
+            approximate = true;
+            addEdit(aLo, aHi, bLo, bHi);
+            return;
+        }
+        // 蛇形覆盖整个区域时无法继续划分（去掉公共前后缀后不会出现），避免无限递归
+        if ((snake[0] == aLo && snake[1] == bLo && snake[2] == aHi && snake[3] == bHi)
+                || (snake[0] == aHi && snake[1] == bHi) || (snake[2] == aLo && snake[3] == bLo)) {
+            addEdit(aLo, aHi, bLo, bHi);
+            return;
+        }
+        diff(aLo, snake[0], bLo, snake[1]);
+        diff(snake[2], aHi, snake[3], bHi);
+    }
+
+    /**
+     * 同时从两端搜索，返回最短编辑路径中间的蛇形 {起点x, 起点y, 终点x, 终点y}，超过计算量上限时返回null
+     */
+    private int[] middleSnake(int aLo, int aHi, int bLo, int bHi) {
+        int n = aHi - aLo;
+        int m = bHi - bLo;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int max = (n + m + 1) / 2;
+        int offset = max + 1;
+        // 正向记录从起点出发在各对角线上到达的最远x，反向记录从终点出发（序列倒序）的最远x
+        int[] forward = new int[2 * max + 3];
+        int[] backward = new int[2 * max + 3];
+
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && forward[offset + k - 1] < forward[offset + k + 1]))
+                        ? forward[offset + k + 1]
+                        : forward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[offset + k] = x;
+                budget -= x - startX + 1;
+                if (odd && k >= delta - (d - 1) && k <= delta + (d - 1)
+                        && x + backward[offset + delta - k] >= n) {
+                    return new int[]{aLo + startX, bLo + startY, aLo + x, bLo + y};
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && backward[offset + k - 1] < backward[offset + k + 1]))
+                        ? backward[offset + k + 1]
+                        : backward[offset + k - 1] + 1;
+                int y = x - k;
+                int startX = x;
+                int startY = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                backward[offset + k] = x;
+                budget -= x - startX + 1;
+                int forwardK = delta - k;
+                if (!odd && forwardK >= -d && forwardK <= d && x + forward[offset + forwardK] >= n) {
+                    return new int[]{aHi - x, bHi - y, aHi - startX, bHi - startY};
+                }
+            }
+            if (budget < 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private void addEdit(int aLo, int aHi, int bLo, int bHi) {
+        if (!edits.isEmpty()) {
+            Edit last = edits.get(edits.size() - 1);
+            if (last.endA == aLo && last.endB == bLo) {
+                edits.set(edits.size() - 1, new Edit(last.beginA, aHi, last.beginB, bHi));
+                return;
+            }
+        }
+        edits.add(new Edit(aLo, aHi, bLo, bHi));
+    }
+
+    /**
+     * 修改区域：原序列[beginA, endA)被替换为新序列[beginB, endB)，任一区间为空时分别表示插入和删除
+     */
+    public static final class Edit {
+
+        private final int beginA;
+        private final int endA;
+        private final int beginB;
+        private final int endB;
+
+        public Edit(int beginA, int endA, int beginB, int endB) {
+            this.beginA = beginA;
+            this.endA = endA;
+            this.beginB = beginB;
+            this.endB = endB;
+        }
+
+        public int getBeginA() {
+            return beginA;
+        }
+
+        public int getEndA() {
+            return endA;
+        }
+
+        public int getBeginB() {
+            return beginB;
+        }
+
+        public int getEndB() {
+            return endB;
+        }
+
+        @Override
+        public String toString() {
+            return "Edit[" + beginA + "-" + endA + "," + beginB + "-" + endB + "]";
+        }
+    }
+}
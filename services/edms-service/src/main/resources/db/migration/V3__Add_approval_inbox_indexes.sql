@@ -0,0 +1,10 @@
+-- 审批待办任务按当前审批人查询
+ALTER TABLE approval_instances ADD COLUMN IF NOT EXISTS current_approver VARCHAR(100);
+
+-- 待办任务：按状态和审批人过滤，按ID键集分页
+CREATE INDEX IF NOT EXISTS idx_approval_instances_inbox
+    ON approval_instances(status, current_approver, id);
+
+-- 审批历史：按文档查询，按创建时间倒序
+CREATE INDEX IF NOT EXISTS idx_approval_instances_document_created
+    ON approval_instances(document_id, created_at);
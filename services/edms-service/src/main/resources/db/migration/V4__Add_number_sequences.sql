@@ -0,0 +1,6 @@
+-- 业务编号序列，按序列键记录已分配的高水位
+CREATE TABLE IF NOT EXISTS number_sequences (
+    sequence_key VARCHAR(100) PRIMARY KEY,
+    high_value BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP
+);
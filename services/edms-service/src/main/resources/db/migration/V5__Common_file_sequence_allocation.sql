@@ -0,0 +1,2 @@
+-- 通用文件主键按号段预取（与实体的allocationSize一致），批量保存文件信息时可以使用JDBC批量插入
+ALTER SEQUENCE IF EXISTS common_file_id_seq INCREMENT BY 50;
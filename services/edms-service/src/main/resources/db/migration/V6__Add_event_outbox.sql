@@ -0,0 +1,17 @@
+-- 事件发件箱，事件与业务数据在同一事务中写入，由中继按ID顺序发布到消息队列
+CREATE TABLE IF NOT EXISTS event_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    aggregate_key VARCHAR(100),
+    exchange VARCHAR(100) NOT NULL,
+    routing_key VARCHAR(100) NOT NULL,
+    payload_type VARCHAR(200),
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    published_at TIMESTAMP
+);
+
+-- 中继按ID顺序读取待发布事件
+CREATE INDEX IF NOT EXISTS idx_event_outbox_status_id ON event_outbox (status, id);
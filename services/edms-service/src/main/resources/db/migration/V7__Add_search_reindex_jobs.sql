@@ -0,0 +1,13 @@
+-- 搜索索引重建任务，记录已写入新索引的最大文档ID，任务中断后从该位置继续
+CREATE TABLE IF NOT EXISTS search_reindex_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    target_index VARCHAR(100) NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING',
+    last_document_id BIGINT NOT NULL DEFAULT 0,
+    indexed_count BIGINT NOT NULL DEFAULT 0,
+    last_error VARCHAR(1000),
+    created_by VARCHAR(100),
+    started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
@@ -0,0 +1,19 @@
+-- 内容寻址存储的文件内容，以SHA-256摘要为键，相同内容只保存一份
+-- 摘要的唯一约束是上传时INSERT ... ON CONFLICT (digest)并发去重的前提
+CREATE TABLE IF NOT EXISTS content_blobs (
+    id BIGSERIAL PRIMARY KEY,
+    digest VARCHAR(64) NOT NULL,
+    object_path VARCHAR(255) NOT NULL,
+    file_size BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    ref_count INTEGER NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    orphaned_at TIMESTAMP,
+    CONSTRAINT uk_content_blobs_digest UNIQUE (digest)
+);
+
+-- 垃圾回收按引用计数归零的时间查找过期对象
+CREATE INDEX IF NOT EXISTS idx_content_blobs_orphaned ON content_blobs (orphaned_at);
+
+-- 按摘要判断版本内容是否已存在
+CREATE INDEX IF NOT EXISTS idx_document_versions_checksum ON document_versions (checksum);
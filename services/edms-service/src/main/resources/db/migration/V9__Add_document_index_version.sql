@@ -0,0 +1,41 @@
+-- 文档搜索索引的外部版本号，由数据库序列生成，不受应用服务器时钟偏差影响
+-- 同一文档的更新在行锁上串行，后提交的更新总是取得更大的版本号
+CREATE SEQUENCE IF NOT EXISTS document_index_version_seq;
+
+-- 起点高于此前按更新时间（微秒）写入索引的外部版本号，并为滚动发布期间旧实例的写入留出一天余量
+SELECT setval('document_index_version_seq', GREATEST(
+        (EXTRACT(EPOCH FROM clock_timestamp()) * 1000000)::BIGINT,
+        COALESCE((SELECT (EXTRACT(EPOCH FROM MAX(GREATEST(d.updated_at, d.created_at, c.updated_at))) * 1000000)::BIGINT
+                  FROM documents d LEFT JOIN document_categories c ON c.id = d.category_id), 0))
+        + 86400000000);
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS index_version BIGINT;
+
+UPDATE documents SET index_version = nextval('document_index_version_seq') WHERE index_version IS NULL;
+
+-- 文档每次写入都取得新的版本号
+CREATE OR REPLACE FUNCTION documents_next_index_version() RETURNS TRIGGER AS $$
+BEGIN
+    NEW.index_version := nextval('document_index_version_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_documents_index_version ON documents;
+CREATE TRIGGER trg_documents_index_version
+    BEFORE INSERT OR UPDATE ON documents
+    FOR EACH ROW EXECUTE FUNCTION documents_next_index_version();
+
+-- 分类名称写入文档索引，分类改名时该分类下的文档同样取得新的版本号
+CREATE OR REPLACE FUNCTION document_categories_touch_documents() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE documents SET index_version = nextval('document_index_version_seq') WHERE category_id = NEW.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_document_categories_index_version ON document_categories;
+CREATE TRIGGER trg_document_categories_index_version
+    AFTER UPDATE OF category_name ON document_categories
+    FOR EACH ROW WHEN (OLD.category_name IS DISTINCT FROM NEW.category_name)
+    EXECUTE FUNCTION document_categories_touch_documents();
@@ -0,0 +1,127 @@
+package com.gmp.edms.benchmark;
+
+import com.gmp.edms.entity.DocumentVersion;
+import com.gmp.edms.util.FieldAccessors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按名称访问实体属性的性能对比
+ * <p>
+ * reflective*为原有实现：每次访问查找字段并调用setAccessible；accessor*为FieldAccessors缓存的MethodHandle。
+ * 运行方式：mvn test-compile 后执行本类的main方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldAccessBenchmark {
+
+    private DocumentVersion version;
+
+    @Setup
+    public void setUp() {
+        version = new DocumentVersion();
+        version.setFileName("test.pdf");
+        version.setFileSize(1024L);
+        version.setChecksum("abc");
+    }
+
+    @Benchmark
+    public void reflectiveGet(Blackhole blackhole) {
+        blackhole.consume(reflectiveGet(version, "fileName"));
+        blackhole.consume(reflectiveGet(version, "fileSize"));
+        blackhole.consume(reflectiveGet(version, "checksum"));
+    }
+
+    @Benchmark
+    public void accessorGet(Blackhole blackhole) {
+        blackhole.consume(FieldAccessors.get(version, "fileName"));
+        blackhole.consume(FieldAccessors.get(version, "fileSize"));
+        blackhole.consume(FieldAccessors.get(version, "checksum"));
+    }
+
+    @Benchmark
+    public void reflectiveSet() {
+        reflectiveSet(version, "fileName", "test.pdf");
+        reflectiveSet(version, "fileSize", 1024L);
+        reflectiveSet(version, "checksum", "abc");
+    }
+
+    @Benchmark
+    public void accessorSet() {
+        FieldAccessors.set(version, "fileName", "test.pdf");
+        FieldAccessors.set(version, "fileSize", 1024L);
+        FieldAccessors.set(version, "checksum", "abc");
+    }
+
+    @Benchmark
+    public void reflectiveMissing(Blackhole blackhole) {
+        blackhole.consume(reflectiveGet(version, "notExists"));
+    }
+
+    @Benchmark
+    public void accessorMissing(Blackhole blackhole) {
+        blackhole.consume(FieldAccessors.get(version, "notExists"));
+    }
+
+    private static Object reflectiveGet(Object obj, String fieldName) {
+        try {
+            Field field = findField(obj.getClass(), fieldName);
+            if (field != null) {
+                field.setAccessible(true);
+                return field.get(obj);
+            }
+        } catch (Exception e) {
+            // 与原实现一致，忽略异常
+        }
+        return null;
+    }
+
+    private static void reflectiveSet(Object obj, String fieldName, Object value) {
+        try {
+            Field field = findField(obj.getClass(), fieldName);
+            if (field != null) {
+                field.setAccessible(true);
+                field.set(obj, value);
+            }
+        } catch (Exception e) {
+            // 与原实现一致，忽略异常
+        }
+    }
+
+    private static Field findField(Class<?> clazz, String fieldName) {
+        Class<?> currentClass = clazz;
+        while (currentClass != null && currentClass != Object.class) {
+            try {
+                return currentClass.getDeclaredField(fieldName);
+            } catch (NoSuchFieldException e) {
+                currentClass = currentClass.getSuperclass();
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FieldAccessBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package com.gmp.edms.benchmark;
+
+import com.gmp.edms.repository.NumberSequenceRepository;
+import com.gmp.edms.service.impl.BlockNumberingServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 并发生成编号的吞吐量
+ * <p>
+ * 数据库访问以固定延迟模拟，并按行锁语义串行执行。blockSize=1相当于每个编号访问一次数据库，
+ * 原有的findAll实现每次生成编号都要加载全部文档，开销高于blockSize=1的情况。
+ * 运行方式：mvn test-compile 后执行本类的main方法。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class NumberingBenchmark {
+
+    // 模拟一次号段申请事务的数据库往返耗时
+    private static final long ROUND_TRIP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    @Param({"1", "20", "100"})
+    private int blockSize;
+
+    private BlockNumberingServiceImpl numberingService;
+
+    @Setup
+    public void setUp() {
+        AtomicLong highValue = new AtomicLong();
+        ThreadLocal<Long> transactionHighValue = new ThreadLocal<>();
+        Object rowLock = new Object();
+
+        NumberSequenceRepository repository = mock(NumberSequenceRepository.class, withSettings().stubOnly());
+        when(repository.advance(anyString(), anyLong(), any())).thenAnswer(invocation -> {
+            synchronized (rowLock) {
+                LockSupport.parkNanos(ROUND_TRIP_NANOS);
+                transactionHighValue.set(highValue.addAndGet(invocation.getArgument(1)));
+            }
+            return 1;
+        });
+        when(repository.findHighValue(anyString())).thenAnswer(invocation -> transactionHighValue.get());
+
+        numberingService = new BlockNumberingServiceImpl();
+        ReflectionTestUtils.setField(numberingService, "numberSequenceRepository", repository);
+        ReflectionTestUtils.setField(numberingService, "transactionManager",
+                mock(PlatformTransactionManager.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(numberingService, "blockSize", blockSize);
+    }
+
+    @Benchmark
+    public long next() {
+        return numberingService.next("DOC_20240101_");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NumberingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.gmp.edms.benchmark;
+
+import com.gmp.edms.dto.DocumentDiffDTO;
+import com.gmp.edms.entity.DocumentVersion;
+import com.gmp.edms.service.FileStorageService;
+import com.gmp.edms.service.impl.DocumentDiffServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 两个版本SOP文本的内容比较耗时（不含缓存）
+ * <p>
+ * 以生成的SOP文本模拟实际文件：章节标题、编号步骤和大量重复的记录表格行，每行约80字节。
+ * 新版本在随机位置修改、插入和删除约1%的行。存储服务以内存数据模拟，结果只包含文本提取和差异计算的耗时。
+ * 运行方式：mvn test-compile 后执行本类的main方法。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VersionDiffBenchmark {
+
+    // 约0.9MB、3.5MB、7MB
+    @Param({"12000", "50000", "100000"})
+    private int lineCount;
+
+    private DocumentDiffServiceImpl diffService;
+
+    private DocumentVersion fromVersion;
+
+    private DocumentVersion toVersion;
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(20240101L);
+        List<String> original = sopLines(random, lineCount);
+        List<String> revised = revise(random, original);
+
+        FileStorageService storage = mock(FileStorageService.class, withSettings().stubOnly());
+        byte[] fromContent = String.join("\n", original).getBytes(StandardCharsets.UTF_8);
+        byte[] toContent = String.join("\n", revised).getBytes(StandardCharsets.UTF_8);
+        when(storage.downloadFile(eq("edms-documents"), eq("sop/v1.txt")))
+                .thenAnswer(invocation -> new ByteArrayInputStream(fromContent));
+        when(storage.downloadFile(eq("edms-documents"), eq("sop/v2.txt")))
+                .thenAnswer(invocation -> new ByteArrayInputStream(toContent));
+
+        diffService = new DocumentDiffServiceImpl();
+        ReflectionTestUtils.setField(diffService, "fileStorageService", storage);
+        ReflectionTestUtils.setField(diffService, "maxLines", 200000);
+        ReflectionTestUtils.setField(diffService, "contextLines", 3);
+        ReflectionTestUtils.setField(diffService, "maxOutputLines", 5000);
+        ReflectionTestUtils.setField(diffService, "maxCost", 20000000L);
+
+        fromVersion = version(1L, "sop/v1.txt", "v1");
+        toVersion = version(2L, "sop/v2.txt", "v2");
+    }
+
+    @Benchmark
+    public DocumentDiffDTO diff() {
+        return diffService.diff(fromVersion, toVersion);
+    }
+
+    private static List<String> sopLines(Random random, int count) {
+        List<String> lines = new ArrayList<>(count);
+        int section = 0;
+        int step = 0;
+        while (lines.size() < count) {
+            int kind = random.nextInt(20);
+            if (kind == 0) {
+                lines.add((++section) + ". 操作规程第" + section + "章 设备清洁与验证要求");
+                step = 0;
+            } else if (kind < 8) {
+                lines.add(section + "." + (++step) + " 操作人员按照批记录要求检查设备状态，确认清洁标识在有效期内并记录结果"
+                        + random.nextInt(1000));
+            } else {
+                // 记录表格中大量重复的行
+                lines.add("| 检查项目 | 合格 | 不合格 | 备注 |" + (kind % 4 == 0 ? " 复核人签字 |" : ""));
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> revise(Random random, List<String> original) {
+        List<String> revised = new ArrayList<>(original.size());
+        for (String line : original) {
+            int change = random.nextInt(300);
+            if (change == 0) {
+                revised.add(line + "（修订）");
+            } else if (change == 1) {
+                revised.add(line);
+                revised.add("新增：操作前确认压差在规定范围内" + random.nextInt(1000));
+            } else if (change != 2) {
+                revised.add(line);
+            }
+        }
+        return revised;
+    }
+
+    private static DocumentVersion version(Long id, String filePath, String checksum) {
+        DocumentVersion version = new DocumentVersion();
+        version.setId(id);
+        version.setFileName("SOP-QA-001.txt");
+        version.setFileType("text/plain");
+        version.setFilePath(filePath);
+        version.setChecksum(checksum);
+        return version;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VersionDiffBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
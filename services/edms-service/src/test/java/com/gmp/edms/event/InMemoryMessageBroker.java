@@ -0,0 +1,46 @@
+package com.gmp.edms.event;
+
+import com.gmp.edms.entity.OutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 内存消息队列，用于测试发件箱中继
+ * 记录每次发送的批次和已确认送达的事件，匹配失败条件的事件发送失败
+ */
+public class InMemoryMessageBroker implements OutboxMessageSender {
+
+    private final List<OutboxEvent> delivered = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private Predicate<OutboxEvent> failWhen = event -> false;
+
+    @Override
+    public synchronized void sendAndConfirm(List<OutboxEvent> events) {
+        batchSizes.add(events.size());
+        for (OutboxEvent event : events) {
+            if (failWhen.test(event)) {
+                throw new IllegalStateException("消息未确认: " + event.getId());
+            }
+            delivered.add(event);
+        }
+    }
+
+    public synchronized void failWhen(Predicate<OutboxEvent> failWhen) {
+        this.failWhen = failWhen;
+    }
+
+    public synchronized List<Long> deliveredIds() {
+        return delivered.stream().map(OutboxEvent::getId).toList();
+    }
+
+    public synchronized List<Integer> batchSizes() {
+        return new ArrayList<>(batchSizes);
+    }
+
+    public synchronized void clear() {
+        delivered.clear();
+        batchSizes.clear();
+    }
+}
@@ -0,0 +1,68 @@
+package com.gmp.edms.event.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.entity.OutboxEvent;
+import com.gmp.edms.event.DocumentEvent;
+import com.gmp.edms.event.DocumentEventType;
+import com.gmp.edms.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxEventPublisherImplTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private OutboxEventPublisherImpl publisher;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        publisher = new OutboxEventPublisherImpl(outboxEventRepository, objectMapper);
+    }
+
+    @Test
+    void testDocumentEventIsWrittenToOutbox() throws Exception {
+        DocumentEvent event = new DocumentEvent(DocumentEventType.DOCUMENT_CREATED, 10L, "SOP-001", "author",
+                LocalDateTime.now(), "创建文档", null);
+
+        publisher.publishDocumentEvent(event);
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(saved.capture());
+        OutboxEvent outboxEvent = saved.getValue();
+        assertEquals(RabbitMQEventPublisherImpl.DOCUMENT_EVENT_EXCHANGE, outboxEvent.getExchange());
+        assertEquals("document.document_created", outboxEvent.getRoutingKey());
+        assertEquals("document:10", outboxEvent.getAggregateKey());
+        assertEquals("PENDING", outboxEvent.getStatus());
+        assertNotNull(outboxEvent.getCreatedAt());
+
+        JsonNode payload = objectMapper.readTree(outboxEvent.getPayload());
+        assertEquals("DOCUMENT_CREATED", payload.get("eventType").asText());
+        assertEquals(10L, payload.get("documentId").asLong());
+    }
+
+    @Test
+    void testGenericEventHasNoAggregate() {
+        publisher.publishEvent("quality.exchange", "quality.alert", Map.of("level", "HIGH"));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(outboxEventRepository).save(saved.capture());
+        assertEquals("quality.exchange", saved.getValue().getExchange());
+        assertEquals("quality.alert", saved.getValue().getRoutingKey());
+        assertNull(saved.getValue().getAggregateKey());
+        assertEquals("{\"level\":\"HIGH\"}", saved.getValue().getPayload());
+    }
+}
@@ -0,0 +1,145 @@
+package com.gmp.edms.event.impl;
+
+import com.gmp.edms.entity.OutboxEvent;
+import com.gmp.edms.event.InMemoryMessageBroker;
+import com.gmp.edms.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final InMemoryMessageBroker broker = new InMemoryMessageBroker();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any(TransactionCallback.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        when(outboxEventRepository.tryRelayLock(OutboxRelay.RELAY_LOCK_KEY)).thenReturn(true);
+        when(meterRegistryProvider.getIfAvailable()).thenReturn(meterRegistry);
+
+        relay = new OutboxRelay(outboxEventRepository, broker, transactionTemplate, meterRegistryProvider);
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        relay.registerMetrics();
+    }
+
+    @Test
+    void testBatchIsSentOnceAndMarkedPublishedInOrder() {
+        List<OutboxEvent> batch = List.of(event(1L, "document:1"), event(2L, "document:2"), event(3L, "document:1"));
+        when(outboxEventRepository.findPending(any(Pageable.class))).thenReturn(batch);
+
+        assertEquals(3, relay.relayBatch());
+
+        assertEquals(List.of(1L, 2L, 3L), broker.deliveredIds());
+        assertEquals(List.of(3), broker.batchSizes());
+        verify(outboxEventRepository).markPublished(eq(List.of(1L, 2L, 3L)), any(LocalDateTime.class));
+        verify(outboxEventRepository, never()).recordFailure(anyLong(), anyString(), anyInt());
+        assertEquals(3.0, meterRegistry.counter("edms.outbox.published").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFailedEventHoldsBackLaterEventsOfSameDocument() {
+        List<OutboxEvent> batch = List.of(event(1L, "document:1"), event(2L, "document:2"), event(3L, "document:1"),
+                event(4L, "document:3"));
+        when(outboxEventRepository.findPending(any(Pageable.class))).thenReturn(batch);
+        broker.failWhen(event -> event.getId() == 1L);
+
+        assertEquals(2, relay.relayBatch());
+
+        // 事件1失败后，同一文档的事件3留待下次发布，其他文档的事件不受影响
+        assertEquals(List.of(2L, 4L), broker.deliveredIds());
+        ArgumentCaptor<Collection<Long>> published = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxEventRepository).markPublished(published.capture(), any(LocalDateTime.class));
+        assertEquals(List.of(2L, 4L), List.copyOf(published.getValue()));
+        verify(outboxEventRepository).recordFailure(eq(1L), contains("1"), eq(10));
+        verify(outboxEventRepository, never()).recordFailure(eq(3L), anyString(), anyInt());
+        assertEquals(1.0, meterRegistry.counter("edms.outbox.failed").count());
+    }
+
+    @Test
+    void testStopsAfterConsecutiveFailures() {
+        List<OutboxEvent> batch = List.of(event(1L, "document:1"), event(2L, "document:2"), event(3L, "document:3"),
+                event(4L, "document:4"));
+        when(outboxEventRepository.findPending(any(Pageable.class))).thenReturn(batch);
+        broker.failWhen(event -> true);
+
+        assertEquals(0, relay.relayBatch());
+
+        verify(outboxEventRepository, times(3)).recordFailure(anyLong(), anyString(), anyInt());
+        verify(outboxEventRepository, never()).recordFailure(eq(4L), anyString(), anyInt());
+        verify(outboxEventRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    void testSkipsWhenAnotherNodeHoldsRelayLock() {
+        when(outboxEventRepository.tryRelayLock(OutboxRelay.RELAY_LOCK_KEY)).thenReturn(false);
+
+        assertEquals(0, relay.relayBatch());
+
+        verify(outboxEventRepository, never()).findPending(any(Pageable.class));
+        assertTrue(broker.batchSizes().isEmpty());
+    }
+
+    @Test
+    void testRelayDrainsFullBatchesAndUpdatesLag() {
+        List<OutboxEvent> first = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            first.add(event(id, "document:" + id));
+        }
+        when(outboxEventRepository.findPending(any(Pageable.class)))
+                .thenReturn(first)
+                .thenReturn(List.of(event(11L, "document:1")));
+        when(outboxEventRepository.countPending()).thenReturn(0L);
+
+        relay.relay();
+
+        assertEquals(11, broker.deliveredIds().size());
+        assertEquals(List.of(10, 1), broker.batchSizes());
+        assertEquals(0.0, meterRegistry.get("edms.outbox.pending").gauge().value());
+    }
+
+    private OutboxEvent event(Long id, String aggregateKey) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(id);
+        event.setAggregateKey(aggregateKey);
+        event.setExchange(RabbitMQEventPublisherImpl.DOCUMENT_EVENT_EXCHANGE);
+        event.setRoutingKey("document.created");
+        event.setPayload("{}");
+        event.setCreatedAt(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+}
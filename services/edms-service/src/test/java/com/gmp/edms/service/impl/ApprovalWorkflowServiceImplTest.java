@@ -0,0 +1,150 @@
+package com.gmp.edms.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.dto.ApprovalInstanceDTO;
+import com.gmp.edms.entity.ApprovalInstance;
+import com.gmp.edms.entity.ApprovalWorkflow;
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.repository.ApprovalInstanceRepository;
+import com.gmp.edms.repository.ApprovalWorkflowRepository;
+import com.gmp.edms.repository.DocumentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ApprovalWorkflowServiceImplTest {
+
+    private static final String DEFINITION = "{\"steps\":["
+            + "{\"name\":\"REVIEW\",\"approver\":\"reviewer\"},"
+            + "{\"name\":\"QA_APPROVAL\",\"approver\":\"qa\"},"
+            + "{\"name\":\"FINAL\",\"approver\":\"manager\"}]}";
+
+    @Mock
+    private ApprovalWorkflowRepository workflowRepository;
+
+    @Mock
+    private ApprovalInstanceRepository instanceRepository;
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Spy
+    private ModelMapper modelMapper = new ModelMapper();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private ApprovalWorkflowServiceImpl approvalWorkflowService;
+
+    private ApprovalWorkflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        workflow = new ApprovalWorkflow();
+        workflow.setId(1L);
+        workflow.setWorkflowCode("SOP_APPROVAL");
+        workflow.setWorkflowDefinition(DEFINITION);
+        workflow.setIsActive(true);
+        when(workflowRepository.findByWorkflowCode("SOP_APPROVAL")).thenReturn(Optional.of(workflow));
+        when(workflowRepository.findById(1L)).thenReturn(Optional.of(workflow));
+        when(instanceRepository.save(any(ApprovalInstance.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testGetPendingTasksQueriesCurrentApprover() {
+        when(instanceRepository.findByStatusAndCurrentApproverOrderByIdAsc(eq("IN_PROGRESS"), eq("qa"),
+                any(Pageable.class))).thenReturn(List.of(instance(5L, "QA_APPROVAL", "qa")));
+
+        List<ApprovalInstanceDTO> tasks = approvalWorkflowService.getPendingTasks("qa");
+
+        assertEquals(1, tasks.size());
+        assertEquals(5L, tasks.get(0).getId());
+        assertEquals("qa", tasks.get(0).getCurrentApprover());
+        verify(instanceRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetPendingTasksContinuesAfterLastSeenId() {
+        when(instanceRepository.findByStatusAndCurrentApproverAndIdGreaterThanOrderByIdAsc(eq("IN_PROGRESS"),
+                eq("qa"), eq(5L), any(Pageable.class))).thenReturn(List.of(instance(8L, "QA_APPROVAL", "qa")));
+
+        List<ApprovalInstanceDTO> tasks = approvalWorkflowService.getPendingTasks("qa", 5L, 20);
+
+        assertEquals(1, tasks.size());
+        assertEquals(8L, tasks.get(0).getId());
+        verify(instanceRepository).findByStatusAndCurrentApproverAndIdGreaterThanOrderByIdAsc(eq("IN_PROGRESS"),
+                eq("qa"), eq(5L), argThat(pageable -> pageable.getPageSize() == 20));
+        verify(instanceRepository, never()).findByStatusAndCurrentApproverOrderByIdAsc(any(), any(), any());
+    }
+
+    @Test
+    void testStartAssignsFirstStepApprover() {
+        Document document = new Document();
+        document.setId(10L);
+
+        ApprovalInstanceDTO result = approvalWorkflowService.startApprovalProcess(document, "SOP_APPROVAL", "author");
+
+        assertEquals("IN_PROGRESS", result.getStatus());
+        assertEquals("REVIEW", result.getCurrentStep());
+        assertEquals("reviewer", result.getCurrentApprover());
+    }
+
+    @Test
+    void testWorkflowDefinitionParsedOnceAcrossSteps() throws Exception {
+        ApprovalInstance instance = instance(5L, "REVIEW", "reviewer");
+        when(instanceRepository.findById(5L)).thenReturn(Optional.of(instance));
+
+        assertTrue(approvalWorkflowService.executeApprovalStep(5L, "reviewer", "APPROVED", null));
+        assertEquals("QA_APPROVAL", instance.getCurrentStep());
+        assertEquals("qa", instance.getCurrentApprover());
+
+        assertTrue(approvalWorkflowService.executeApprovalStep(5L, "qa", "APPROVED", null));
+        assertEquals("FINAL", instance.getCurrentStep());
+        assertEquals("manager", instance.getCurrentApprover());
+
+        verify(objectMapper, times(1)).readTree(DEFINITION);
+    }
+
+    @Test
+    void testChangedWorkflowDefinitionIsReparsed() throws Exception {
+        ApprovalInstance instance = instance(5L, "REVIEW", "reviewer");
+        when(instanceRepository.findById(5L)).thenReturn(Optional.of(instance));
+        assertTrue(approvalWorkflowService.executeApprovalStep(5L, "reviewer", "APPROVED", null));
+
+        String changed = "{\"steps\":[{\"name\":\"QA_APPROVAL\",\"approver\":\"qa\"},"
+                + "{\"name\":\"RELEASE\",\"approver\":\"qp\"}]}";
+        workflow.setWorkflowDefinition(changed);
+        assertTrue(approvalWorkflowService.executeApprovalStep(5L, "qa", "APPROVED", null));
+
+        assertEquals("RELEASE", instance.getCurrentStep());
+        assertEquals("qp", instance.getCurrentApprover());
+        verify(objectMapper).readTree(changed);
+    }
+
+    private ApprovalInstance instance(Long id, String step, String approver) {
+        ApprovalInstance instance = new ApprovalInstance();
+        instance.setId(id);
+        instance.setWorkflowId(1L);
+        instance.setDocumentId(10L);
+        instance.setInitiator("author");
+        instance.setStatus("IN_PROGRESS");
+        instance.setCurrentStep(step);
+        instance.setCurrentApprover(approver);
+        return instance;
+    }
+}
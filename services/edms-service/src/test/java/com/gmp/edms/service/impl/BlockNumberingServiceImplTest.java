@@ -0,0 +1,110 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.repository.NumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BlockNumberingServiceImplTest {
+
+    @Mock
+    private NumberSequenceRepository numberSequenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BlockNumberingServiceImpl numberingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testNumbersIssuedFromBlockWithoutDatabaseRoundTrip() {
+        when(numberSequenceRepository.advance(eq("DOC_20240101_"), eq(20L), any())).thenReturn(1);
+        when(numberSequenceRepository.findHighValue("DOC_20240101_")).thenReturn(20L, 40L);
+
+        for (long expected = 1; expected <= 21; expected++) {
+            assertEquals(expected, numberingService.next("DOC_20240101_"));
+        }
+
+        // 第21个编号时号段用完，才再次访问数据库
+        verify(numberSequenceRepository, times(2)).advance(eq("DOC_20240101_"), eq(20L), any());
+        verify(numberSequenceRepository, never()).insertIfAbsent(anyString(), anyLong(), any());
+    }
+
+    @Test
+    void testNewSequenceContinuesFromInitialValue() {
+        when(numberSequenceRepository.advance(eq("DOC_20240101_"), eq(20L), any())).thenReturn(0, 1);
+        when(numberSequenceRepository.findHighValue("DOC_20240101_")).thenReturn(32L);
+
+        assertEquals(13L, numberingService.next("DOC_20240101_", () -> 12L));
+
+        verify(numberSequenceRepository).insertIfAbsent(eq("DOC_20240101_"), eq(12L), any());
+    }
+
+    @Test
+    void testSequencesAreIndependent() {
+        when(numberSequenceRepository.advance(anyString(), eq(20L), any())).thenReturn(1);
+        when(numberSequenceRepository.findHighValue("DOC_20240101_")).thenReturn(20L);
+        when(numberSequenceRepository.findHighValue("DOC_20240102_")).thenReturn(20L);
+
+        assertEquals(1L, numberingService.next("DOC_20240101_"));
+        assertEquals(2L, numberingService.next("DOC_20240101_"));
+        assertEquals(1L, numberingService.next("DOC_20240102_"));
+    }
+
+    @Test
+    void testConcurrentNumbersAreUnique() throws Exception {
+        // 模拟数据库行锁：推进高水位与读取高水位在同一事务（线程）内完成
+        AtomicLong highValue = new AtomicLong();
+        ThreadLocal<Long> transactionHighValue = new ThreadLocal<>();
+        when(numberSequenceRepository.advance(eq("BATCH"), anyLong(), any())).thenAnswer(invocation -> {
+            transactionHighValue.set(highValue.addAndGet(invocation.getArgument(1)));
+            return 1;
+        });
+        when(numberSequenceRepository.findHighValue("BATCH")).thenAnswer(invocation -> transactionHighValue.get());
+
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Set<Long> numbers = ConcurrentHashMap.newKeySet();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        numbers.add(numberingService.next("BATCH"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, numbers.size());
+        assertEquals(1L, numbers.stream().mapToLong(Long::longValue).min().getAsLong());
+        assertEquals(threads * perThread, numbers.stream().mapToLong(Long::longValue).max().getAsLong());
+    }
+}
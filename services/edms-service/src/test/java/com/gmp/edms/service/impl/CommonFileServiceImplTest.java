@@ -0,0 +1,222 @@
+package com.gmp.edms.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.dto.BatchUploadResultDTO;
+import com.gmp.edms.entity.CommonFile;
+import com.gmp.edms.repository.CommonFileRepository;
+import com.gmp.edms.service.FileStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.modelmapper.ModelMapper;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CommonFileServiceImplTest {
+
+    @Mock
+    private CommonFileRepository commonFileRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ModelMapper modelMapper = new ModelMapper();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private CommonFileServiceImpl commonFileService;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(4);
+        ReflectionTestUtils.setField(commonFileService, "fileUploadExecutor", executor);
+        ReflectionTestUtils.setField(commonFileService, "commonFilesBucket", "common-files");
+
+        when(transactionTemplate.execute(any(TransactionCallback.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        AtomicLong ids = new AtomicLong();
+        when(commonFileRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<CommonFile> files = invocation.getArgument(0);
+            files.forEach(file -> file.setId(ids.incrementAndGet()));
+            return new ArrayList<>(files);
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBatchUploadSavesMetadataOnceAfterUpload() throws Exception {
+        List<MultipartFile> files = List.of(file("a.txt", "content a"), file("b.txt", "content b"),
+                file("c.txt", "content c"));
+
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(3, result.getTotal());
+        assertEquals(3, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        assertEquals(List.of("a.txt", "b.txt", "c.txt"),
+                result.getItems().stream().map(BatchUploadResultDTO.Item::getFileName).toList());
+        assertTrue(result.getItems().stream().allMatch(item -> "UPLOADED".equals(item.getStatus())));
+
+        verify(fileStorageService, times(3)).uploadFile(any(InputStream.class), anyLong(), eq("text/plain"),
+                eq("common-files"), startsWith("validation/"));
+        verify(commonFileRepository, times(1)).saveAll(anyList());
+        verify(commonFileRepository, never()).save(any(CommonFile.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchUploadReportsFailuresAndContinues() throws Exception {
+        doThrow(new RuntimeException("storage unavailable")).when(fileStorageService)
+                .uploadFile(any(InputStream.class), anyLong(), any(), anyString(), contains("b.txt"));
+        List<MultipartFile> files = List.of(file("a.txt", "content a"), file("b.txt", "content b"),
+                new MockMultipartFile("empty.txt", "empty.txt", "text/plain", new byte[0]));
+
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(1, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertEquals("UPLOADED", result.getItems().get(0).getStatus());
+        assertEquals("FAILED", result.getItems().get(1).getStatus());
+        assertEquals("storage unavailable", result.getItems().get(1).getError());
+        assertEquals("文件不能为空", result.getItems().get(2).getError());
+
+        ArgumentCaptor<List<CommonFile>> saved = ArgumentCaptor.forClass(List.class);
+        verify(commonFileRepository).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals("a.txt", saved.getValue().get(0).getFileName());
+    }
+
+    @Test
+    void testBatchUploadSkipsExistingAndRepeatedContent() throws Exception {
+        MultipartFile existing = file("old.txt", "existing content");
+        CommonFile existingFile = new CommonFile();
+        existingFile.setId(100L);
+        existingFile.setFileName("old.txt");
+        existingFile.setChecksum(md5Of(existing));
+        when(commonFileRepository.findByChecksumIn(anyCollection())).thenReturn(List.of(existingFile));
+
+        List<MultipartFile> files = List.of(existing, file("a.txt", "same"), file("a-copy.txt", "same"));
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(3, result.getSucceeded());
+        assertEquals("DUPLICATE", result.getItems().get(0).getStatus());
+        assertEquals(100L, result.getItems().get(0).getFile().getId());
+        assertEquals("UPLOADED", result.getItems().get(1).getStatus());
+        assertEquals("DUPLICATE", result.getItems().get(2).getStatus());
+        assertEquals(result.getItems().get(1).getFile().getId(), result.getItems().get(2).getFile().getId());
+
+        // 已存在的文件和批次内重复的文件不再上传
+        verify(fileStorageService, times(1)).uploadFile(any(InputStream.class), anyLong(), any(), anyString(),
+                anyString());
+        verify(commonFileRepository, times(1)).findByChecksumIn(anyCollection());
+    }
+
+    @Test
+    void testBatchUploadCreatesBucketOnceAndClosesStreams() throws Exception {
+        when(fileStorageService.bucketExists("common-files")).thenReturn(false);
+        List<TrackedInputStream> streams = new CopyOnWriteArrayList<>();
+        List<MultipartFile> files = new ArrayList<>();
+        for (String name : List.of("a.txt", "b.txt", "c.txt")) {
+            MultipartFile file = spy(file(name, "content " + name));
+            doAnswer(invocation -> {
+                TrackedInputStream stream = new TrackedInputStream(file.getBytes());
+                streams.add(stream);
+                return stream;
+            }).when(file).getInputStream();
+            files.add(file);
+        }
+
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(3, result.getSucceeded());
+        verify(fileStorageService, times(1)).createBucket("common-files");
+        // 校验和计算和上传各打开一次，均已关闭
+        assertEquals(6, streams.size());
+        assertTrue(streams.stream().allMatch(stream -> stream.closed));
+    }
+
+    @Test
+    void testBatchUploadFailsAllWhenBucketCannotBeCreated() throws Exception {
+        when(fileStorageService.bucketExists("common-files")).thenReturn(false);
+        doThrow(new RuntimeException("access denied")).when(fileStorageService).createBucket("common-files");
+        List<MultipartFile> files = List.of(file("a.txt", "content a"), file("b.txt", "content b"));
+
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(2, result.getFailed());
+        assertTrue(result.getItems().stream().allMatch(item -> "access denied".equals(item.getError())));
+        verify(fileStorageService, never()).uploadFile(any(InputStream.class), anyLong(), any(), anyString(),
+                anyString());
+        verify(commonFileRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void testBatchUploadRemovesObjectsWhenMetadataSaveFails() throws Exception {
+        when(commonFileRepository.saveAll(anyList())).thenThrow(new RuntimeException("database unavailable"));
+        List<MultipartFile> files = List.of(file("a.txt", "content a"), file("b.txt", "content b"));
+
+        BatchUploadResultDTO result = commonFileService.batchUpload(files, "validation", null);
+
+        assertEquals(2, result.getFailed());
+        verify(fileStorageService, times(2)).deleteFile(eq("common-files"), startsWith("validation/"));
+    }
+
+    private MultipartFile file(String name, String content) {
+        return new MockMultipartFile(name, name, "text/plain", content.getBytes());
+    }
+
+    private String md5Of(MultipartFile file) throws Exception {
+        return (String) ReflectionTestUtils.invokeMethod(commonFileService, "calculateChecksum", file);
+    }
+
+    private static class TrackedInputStream extends ByteArrayInputStream {
+
+        private volatile boolean closed;
+
+        TrackedInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.ContentBlob;
+import com.gmp.edms.repository.ContentBlobRepository;
+import com.gmp.edms.service.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ContentBlobServiceImplTest {
+
+    // "test content"的SHA-256摘要
+    private static final String DIGEST = "6ae8a75555209fd6c44157c0aed8016e763ff435a19cf186f76863140143ff72";
+
+    @Mock
+    private ContentBlobRepository contentBlobRepository;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ContentBlobServiceImpl contentBlobService;
+
+    private MultipartFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        byte[] content = "test content".getBytes(StandardCharsets.UTF_8);
+        file = mock(MultipartFile.class);
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(content));
+        when(file.getSize()).thenReturn((long) content.length);
+        when(file.getContentType()).thenReturn("text/plain");
+
+        // 上传时读取整个流，模拟存储服务的行为
+        doAnswer(invocation -> {
+            InputStream inputStream = invocation.getArgument(0);
+            inputStream.readAllBytes();
+            return null;
+        }).when(fileStorageService).uploadFile(any(InputStream.class), anyLong(), any(), anyString(), anyString());
+
+        ContentBlob blob = new ContentBlob();
+        blob.setDigest(DIGEST);
+        blob.setObjectPath(ContentBlobServiceImpl.blobPath(DIGEST));
+        when(contentBlobRepository.findByDigest(DIGEST)).thenReturn(Optional.of(blob));
+    }
+
+    @Test
+    void testStoreNewContentCopiesStagingObject() throws Exception {
+        when(contentBlobRepository.incrementRefCount(DIGEST)).thenReturn(0);
+
+        ContentBlob blob = contentBlobService.store(file);
+
+        assertEquals(DIGEST, blob.getDigest());
+        ArgumentCaptor<String> stagingCaptor = ArgumentCaptor.forClass(String.class);
+        verify(fileStorageService).uploadFile(any(InputStream.class), eq(12L), eq("text/plain"),
+                eq("edms-documents"), stagingCaptor.capture());
+        String stagingPath = stagingCaptor.getValue();
+        assertTrue(stagingPath.startsWith("staging/"));
+
+        verify(fileStorageService).copyFile("edms-documents", stagingPath, "edms-documents",
+                "blobs/6a/e8/" + DIGEST);
+        verify(contentBlobRepository).insertOrIncrement(eq(DIGEST), eq("blobs/6a/e8/" + DIGEST), eq(12L),
+                eq("text/plain"), any());
+        verify(fileStorageService).deleteFile("edms-documents", stagingPath);
+    }
+
+    @Test
+    void testStoreDuplicateContentOnlyIncrementsReference() throws Exception {
+        when(contentBlobRepository.incrementRefCount(DIGEST)).thenReturn(1);
+
+        contentBlobService.store(file);
+
+        verify(fileStorageService, never()).copyFile(anyString(), anyString(), anyString(), anyString());
+        verify(contentBlobRepository, never()).insertOrIncrement(any(), any(), any(), any(), any());
+        verify(fileStorageService).deleteFile(eq("edms-documents"), startsWith("staging/"));
+    }
+
+    @Test
+    void testReleaseMarksOrphanWhenLastReferenceDropped() {
+        when(contentBlobRepository.decrementRefCount(DIGEST)).thenReturn(1);
+
+        contentBlobService.release(DIGEST);
+
+        verify(contentBlobRepository).markOrphaned(eq(DIGEST), any());
+        verifyNoInteractions(fileStorageService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGarbageCollectionSkipsReferencedContent() throws Exception {
+        ContentBlob orphan = new ContentBlob();
+        orphan.setId(1L);
+        orphan.setObjectPath("blobs/aa/bb/aabb");
+        when(contentBlobRepository.findOrphanIds(any(), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(contentBlobRepository.findOrphanForUpdate(1L)).thenReturn(Optional.of(orphan));
+        // 2号内容在回收前被重新引用
+        when(contentBlobRepository.findOrphanForUpdate(2L)).thenReturn(Optional.empty());
+        when(transactionTemplate.execute(any(TransactionCallback.class)))
+                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+
+        assertEquals(1, contentBlobService.collectGarbage());
+
+        verify(fileStorageService).deleteFile("edms-documents", "blobs/aa/bb/aabb");
+        verify(contentBlobRepository).delete(orphan);
+        verify(contentBlobRepository, times(1)).delete(any(ContentBlob.class));
+    }
+
+    @Test
+    void testGarbageCollectionDeletesBlobObjectsWithoutRecord() throws Exception {
+        String registered = ContentBlobServiceImpl.blobPath(DIGEST);
+        String rolledBack = ContentBlobServiceImpl.blobPath("aabb" + DIGEST.substring(4));
+        String registering = ContentBlobServiceImpl.blobPath("ccdd" + DIGEST.substring(4));
+        when(fileStorageService.listFiles("edms-documents", "blobs/"))
+                .thenReturn(List.of(registered, rolledBack, registering));
+        when(contentBlobRepository.findExistingDigests(anyCollection())).thenReturn(List.of(DIGEST));
+        // 事务回滚后遗留的对象已超过宽限期，正在注册的对象刚刚复制
+        when(fileStorageService.getFileLastModified("edms-documents", rolledBack)).thenReturn(0L);
+        when(fileStorageService.getFileLastModified("edms-documents", registering))
+                .thenReturn(System.currentTimeMillis());
+
+        assertEquals(0, contentBlobService.collectGarbage());
+
+        verify(fileStorageService).deleteFile("edms-documents", rolledBack);
+        verify(fileStorageService, never()).deleteFile("edms-documents", registered);
+        verify(fileStorageService, never()).deleteFile("edms-documents", registering);
+        verify(fileStorageService, never()).getFileLastModified("edms-documents", registered);
+    }
+}
@@ -17,6 +17,7 @@ import org.springframework.data.domain.*;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -192,48 +193,77 @@ public class DocumentCategoryServiceImplTest {
     @Test
     void testGetRootCategories() {
         // 准备
-        List<DocumentCategory> rootCategories = Collections.singletonList(parentCategory);
-        when(documentCategoryRepository.findByParentIdIsNull()).thenReturn(rootCategories);
-        when(modelMapper.map(parentCategory, DocumentCategoryDTO.class)).thenReturn(parentCategoryDTO);
+        category.setParent(parentCategory);
+        when(documentCategoryRepository.findAll()).thenReturn(Arrays.asList(parentCategory, category));
 
         // 执行
         List<DocumentCategoryDTO> result = documentCategoryService.getRootCategories();
 
         // 验证
-        assertNotNull(result);
         assertEquals(1, result.size());
-        verify(documentCategoryRepository, times(1)).findByParentIdIsNull();
+        assertEquals("ROOT001", result.get(0).getCategoryCode());
+        verify(documentCategoryRepository, never()).findByParentIdIsNull();
     }
 
     @Test
     void testGetChildCategories() {
         // 准备
-        List<DocumentCategory> childCategories = Collections.singletonList(category);
-        when(documentCategoryRepository.findByParentId(parentCategory.getId())).thenReturn(childCategories);
-        when(modelMapper.map(category, DocumentCategoryDTO.class)).thenReturn(categoryDTO);
+        category.setParent(parentCategory);
+        when(documentCategoryRepository.findAll()).thenReturn(Arrays.asList(parentCategory, category));
 
         // 执行
         List<DocumentCategoryDTO> result = documentCategoryService.getChildCategories(parentCategory.getId());
 
         // 验证
-        assertNotNull(result);
         assertEquals(1, result.size());
-        verify(documentCategoryRepository, times(1)).findByParentId(parentCategory.getId());
+        assertEquals("SUB001", result.get(0).getCategoryCode());
+        assertEquals("根分类", result.get(0).getParentName());
+        verify(documentCategoryRepository, never()).findByParentId(anyLong());
     }
 
     @Test
     void testGetCategoryTree() {
         // 准备
-        List<DocumentCategory> categories = Arrays.asList(parentCategory, category);
-        when(documentCategoryRepository.findAll()).thenReturn(categories);
-        when(modelMapper.map(parentCategory, DocumentCategoryDTO.class)).thenReturn(parentCategoryDTO);
-        when(modelMapper.map(category, DocumentCategoryDTO.class)).thenReturn(categoryDTO);
+        category.setParent(parentCategory);
+        when(documentCategoryRepository.findAll()).thenReturn(Arrays.asList(parentCategory, category));
 
         // 执行
         List<DocumentCategoryDTO> result = documentCategoryService.getCategoryTree();
+        documentCategoryService.getCategoryTree();
+
+        // 验证：树只加载一次
+        assertEquals(1, result.size());
+        assertEquals(1, result.get(0).getChildren().size());
+        assertEquals(2L, result.get(0).getChildren().get(0).getId());
+        verify(documentCategoryRepository, times(1)).findAll();
+    }
+
+    @Test
+    void testGetCategoryTreeReturnsCopies() {
+        // 准备
+        when(documentCategoryRepository.findAll()).thenReturn(Collections.singletonList(parentCategory));
+
+        // 执行：修改返回结果不影响后续查询
+        documentCategoryService.getCategoryTree().get(0).setCategoryName("已修改");
+        List<DocumentCategoryDTO> result = documentCategoryService.getCategoryTree();
 
         // 验证
-        assertNotNull(result);
+        assertEquals("根分类", result.get(0).getCategoryName());
+    }
+
+    @Test
+    void testUpdateCategoryStatusRefreshesTree() {
+        // 准备
+        when(documentCategoryRepository.findAll()).thenReturn(Collections.singletonList(parentCategory));
+        when(documentCategoryRepository.findById(parentCategory.getId())).thenReturn(Optional.of(parentCategory));
+        when(documentCategoryRepository.save(any(DocumentCategory.class))).thenAnswer(i -> i.getArgument(0));
+        documentCategoryService.getCategoryTree();
+
+        // 执行
+        documentCategoryService.updateCategoryStatus(parentCategory.getId(), "INACTIVE");
+
+        // 验证：变更应用到快照，无需重新加载
+        assertEquals("INACTIVE", documentCategoryService.getCategoryTree().get(0).getStatus());
         verify(documentCategoryRepository, times(1)).findAll();
     }
 
@@ -267,23 +297,78 @@ public class DocumentCategoryServiceImplTest {
     @Test
     void testGetCategoryPath() {
         // 准备
-        when(documentCategoryRepository.findById(category.getId())).thenReturn(Optional.of(category));
-        when(documentCategoryRepository.findById(parentCategory.getId())).thenReturn(Optional.of(parentCategory));
+        category.setParent(parentCategory);
+        when(documentCategoryRepository.findAll()).thenReturn(Arrays.asList(parentCategory, category));
+
+        // 执行
+        List<DocumentCategoryDTO> result = documentCategoryService.getCategoryPath(category.getId());
+
+        // 验证：从根分类到当前分类，不逐级查询父分类
+        assertEquals(2, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertEquals(2L, result.get(1).getId());
+        verify(documentCategoryRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testUpdateParentCategoryMovesDescendantsByPath() {
+        // 准备：分类2从根分类1下移动到根分类3下，其下级分类4的路径随之更新
+        parentCategory.setCategoryPath("ROOT001");
+        category.setParent(parentCategory);
+        category.setCategoryPath("ROOT001/SUB001");
+        DocumentCategory newParent = new DocumentCategory();
+        newParent.setId(3L);
+        newParent.setCategoryCode("ROOT002");
+        newParent.setCategoryPath("ROOT002");
+        newParent.setLevel(1);
+        DocumentCategory grandChild = new DocumentCategory();
+        grandChild.setId(4L);
+        grandChild.setCategoryCode("LEAF001");
+        grandChild.setCategoryPath("ROOT001/SUB001/LEAF001");
+        grandChild.setLevel(3);
+        grandChild.setParent(category);
+
+        when(documentCategoryRepository.findAll())
+                .thenReturn(Arrays.asList(parentCategory, category, newParent, grandChild));
+        when(documentCategoryRepository.findById(2L)).thenReturn(Optional.of(category));
+        when(documentCategoryRepository.findForUpdate(3L)).thenReturn(Optional.of(newParent));
+        when(documentCategoryRepository.save(any(DocumentCategory.class))).thenAnswer(i -> i.getArgument(0));
+        when(documentCategoryRepository.findByCategoryPathStartingWith("ROOT001/SUB001/"))
+                .thenReturn(new ArrayList<>(Collections.singletonList(grandChild)));
+        when(documentCategoryRepository.saveAll(anyList())).thenAnswer(i -> i.getArgument(0));
 
         // 执行
-        // 使用Object接收结果，避免类型不匹配
-        Object result = documentCategoryService.getCategoryPath(category.getId());
+        documentCategoryService.updateParentCategory(2L, 3L);
 
         // 验证
-        assertNotNull(result);
-        verify(documentCategoryRepository, times(1)).findById(category.getId());
+        assertEquals("ROOT002/SUB001/LEAF001", grandChild.getCategoryPath());
+        assertEquals(3, grandChild.getLevel());
+        List<DocumentCategoryDTO> path = documentCategoryService.getCategoryPath(4L);
+        assertEquals(Arrays.asList(3L, 2L, 4L),
+                Arrays.asList(path.get(0).getId(), path.get(1).getId(), path.get(2).getId()));
+        verify(documentCategoryRepository, never()).findByParentId(anyLong());
+    }
+
+    @Test
+    void testUpdateParentCategoryRejectsDescendantAsParent() {
+        // 准备：快照中尚无该子分类（其他节点刚刚创建），数据库中已提交的路径表明其为下级分类
+        parentCategory.setCategoryPath("ROOT001");
+        category.setParent(parentCategory);
+        category.setCategoryPath("ROOT001/SUB001");
+        when(documentCategoryRepository.findAll()).thenReturn(Collections.singletonList(parentCategory));
+        when(documentCategoryRepository.findById(1L)).thenReturn(Optional.of(parentCategory));
+        when(documentCategoryRepository.findForUpdate(2L)).thenReturn(Optional.of(category));
+
+        // 执行 & 验证：不能把分类移动到自己的子分类下
+        assertThrows(RuntimeException.class, () -> documentCategoryService.updateParentCategory(1L, 2L));
+        verify(documentCategoryRepository, never()).save(any(DocumentCategory.class));
     }
 
     @Test
     void testUpdateParentCategory() {
         // 准备
         when(documentCategoryRepository.findById(category.getId())).thenReturn(Optional.of(category));
-        when(documentCategoryRepository.findById(parentCategory.getId())).thenReturn(Optional.of(parentCategory));
+        when(documentCategoryRepository.findForUpdate(parentCategory.getId())).thenReturn(Optional.of(parentCategory));
         when(documentCategoryRepository.save(any(DocumentCategory.class))).thenReturn(category);
         // 移除对不存在方法的引用
 
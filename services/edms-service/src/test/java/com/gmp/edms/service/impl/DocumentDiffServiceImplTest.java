@@ -0,0 +1,175 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.dto.DocumentDiffDTO;
+import com.gmp.edms.entity.DocumentVersion;
+import com.gmp.edms.service.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DocumentDiffServiceImplTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @InjectMocks
+    private DocumentDiffServiceImpl documentDiffService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(documentDiffService, "bucketName", "edms-blobs");
+        ReflectionTestUtils.setField(documentDiffService, "maxLines", 1000);
+        ReflectionTestUtils.setField(documentDiffService, "contextLines", 3);
+        ReflectionTestUtils.setField(documentDiffService, "maxOutputLines", 5000);
+        ReflectionTestUtils.setField(documentDiffService, "maxCost", 0L);
+    }
+
+    @Test
+    void testTextDiffProducesHunksWithContext() throws Exception {
+        String before = lines(1, 20);
+        String after = before.replace("line 5\n", "line 5 revised\n").replace("line 18\n", "");
+        DocumentVersion from = version(1L, "sop.txt", "text/plain", "a", before);
+        DocumentVersion to = version(2L, "sop.txt", "text/plain", "b", after);
+
+        DocumentDiffDTO diff = documentDiffService.diff(from, to);
+
+        assertEquals("DIFFERENT", diff.getStatus());
+        assertEquals(20, diff.getFromLineCount());
+        assertEquals(19, diff.getToLineCount());
+        assertEquals(1, diff.getLinesAdded());
+        assertEquals(2, diff.getLinesRemoved());
+        assertEquals(2, diff.getHunks().size());
+
+        DocumentDiffDTO.Hunk first = diff.getHunks().get(0);
+        assertEquals(2, first.getFromStart());
+        assertEquals(7, first.getFromCount());
+        assertEquals(2, first.getToStart());
+        assertEquals(7, first.getToCount());
+        assertEquals(List.of("CONTEXT", "CONTEXT", "CONTEXT", "REMOVED", "ADDED", "CONTEXT", "CONTEXT", "CONTEXT"),
+                first.getLines().stream().map(DocumentDiffDTO.Line::getType).collect(Collectors.toList()));
+        assertEquals("line 5 revised", first.getLines().get(4).getText());
+
+        DocumentDiffDTO.Hunk second = diff.getHunks().get(1);
+        assertEquals(15, second.getFromStart());
+        assertEquals(6, second.getFromCount());
+        assertEquals(5, second.getToCount());
+    }
+
+    @Test
+    void testNearbyChangesShareOneHunk() throws Exception {
+        String before = lines(1, 30);
+        String after = before.replace("line 10\n", "changed 10\n").replace("line 15\n", "changed 15\n");
+
+        DocumentDiffDTO diff = documentDiffService.diff(version(1L, "a.txt", null, "a", before),
+                version(2L, "a.txt", null, "b", after));
+
+        assertEquals(1, diff.getHunks().size());
+        assertEquals(7, diff.getHunks().get(0).getFromStart());
+        assertEquals(12, diff.getHunks().get(0).getFromCount());
+    }
+
+    @Test
+    void testDocxParagraphsAreCompared() throws Exception {
+        DocumentVersion from = docxVersion(1L, "a", "<w:p><w:r><w:t>目的</w:t></w:r></w:p>"
+                + "<w:p><w:r><w:t xml:space=\"preserve\">适用于</w:t></w:r><w:r><w:t>A车间</w:t></w:r></w:p>");
+        DocumentVersion to = docxVersion(2L, "b", "<w:p><w:r><w:t>目的</w:t></w:r></w:p>"
+                + "<w:p><w:r><w:t>适用于B车间</w:t></w:r></w:p>");
+
+        DocumentDiffDTO diff = documentDiffService.diff(from, to);
+
+        assertEquals("DIFFERENT", diff.getStatus());
+        List<DocumentDiffDTO.Line> lines = diff.getHunks().get(0).getLines();
+        assertEquals(new DocumentDiffDTO.Line("CONTEXT", "目的"), lines.get(0));
+        assertEquals(new DocumentDiffDTO.Line("REMOVED", "适用于A车间"), lines.get(1));
+        assertEquals(new DocumentDiffDTO.Line("ADDED", "适用于B车间"), lines.get(2));
+    }
+
+    @Test
+    void testSameChecksumSkipsDownload() throws Exception {
+        DocumentDiffDTO diff = documentDiffService.diff(version(1L, "a.txt", null, "same", "x"),
+                version(2L, "a.txt", null, "same", "x"));
+
+        assertEquals("IDENTICAL", diff.getStatus());
+        verify(fileStorageService, never()).downloadFile(anyString(), anyString());
+    }
+
+    @Test
+    void testUnsupportedAndOversizedFiles() throws Exception {
+        DocumentDiffDTO unsupported = documentDiffService.diff(version(1L, "a.pdf", "application/pdf", "a", "x"),
+                version(2L, "b.pdf", "application/pdf", "b", "y"));
+        assertEquals("UNSUPPORTED", unsupported.getStatus());
+
+        DocumentDiffDTO tooLarge = documentDiffService.diff(version(1L, "a.txt", null, "a", lines(1, 1001)),
+                version(2L, "a.txt", null, "b", "x"));
+        assertEquals("TOO_LARGE", tooLarge.getStatus());
+    }
+
+    @Test
+    void testOutputIsTruncatedButStatisticsAreComplete() throws Exception {
+        ReflectionTestUtils.setField(documentDiffService, "maxOutputLines", 10);
+        String before = lines(1, 100);
+        String after = IntStream.rangeClosed(1, 100).mapToObj(i -> i % 10 == 0 ? "new " + i : "line " + i)
+                .collect(Collectors.joining("\n", "", "\n"));
+
+        DocumentDiffDTO diff = documentDiffService.diff(version(1L, "a.txt", null, "a", before),
+                version(2L, "a.txt", null, "b", after));
+
+        assertTrue(diff.isTruncated());
+        assertEquals(10, diff.getLinesAdded());
+        assertEquals(10, diff.getLinesRemoved());
+        assertEquals(1, diff.getHunks().size());
+    }
+
+    private DocumentVersion version(Long id, String fileName, String fileType, String checksum, String content)
+            throws Exception {
+        return version(id, fileName, fileType, checksum, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private DocumentVersion version(Long id, String fileName, String fileType, String checksum, byte[] content)
+            throws Exception {
+        DocumentVersion version = new DocumentVersion();
+        version.setId(id);
+        version.setFileName(fileName);
+        version.setFileType(fileType);
+        version.setChecksum(checksum);
+        version.setFilePath("documents/" + checksum);
+        when(fileStorageService.downloadFile("edms-blobs", "documents/" + checksum))
+                .thenAnswer(invocation -> new ByteArrayInputStream(content));
+        return version;
+    }
+
+    private DocumentVersion docxVersion(Long id, String checksum, String body) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            zip.write("<Types/>".getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            zip.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?><w:document xmlns:w="
+                    + "\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>" + body
+                    + "</w:body></w:document>").getBytes(StandardCharsets.UTF_8));
+        }
+        return version(id, "sop.docx", null, checksum, bytes.toByteArray());
+    }
+
+    private static String lines(int from, int to) {
+        return IntStream.rangeClosed(from, to).mapToObj(i -> "line " + i)
+                .collect(Collectors.joining("\n", "", "\n"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.repository.DocumentRepository;
+import com.gmp.edms.service.DocumentReindexService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentIndexingPipelineTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private DocumentReindexService documentReindexService;
+
+    @Mock
+    private Executor searchIndexingExecutor;
+
+    @InjectMocks
+    private DocumentIndexingPipeline pipeline;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(documentRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Document> documents = new ArrayList<>();
+            for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+                documents.add(document(id));
+            }
+            return documents;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRepeatedChangesAreCoalescedIntoOneBulkRequest() {
+        pipeline.index(1L);
+        pipeline.index(2L);
+        pipeline.index(1L);
+        pipeline.index(1L);
+
+        assertEquals(2, pipeline.flush());
+
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchOperations, times(1)).bulkIndex(queries.capture(), eq(IndexCoordinates.of("documents")));
+        assertEquals(2, queries.getValue().size());
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    void testLatestOperationWinsAndMissingDocumentsAreDeleted() {
+        when(documentRepository.findAllById(anyIterable())).thenReturn(List.of());
+        pipeline.index(1L);
+        pipeline.delete(2L);
+        pipeline.index(2L);
+
+        pipeline.flush();
+
+        // 刷新时数据库中已不存在的文档从索引中删除
+        verify(elasticsearchOperations).delete("1", IndexCoordinates.of("documents"));
+        verify(elasticsearchOperations).delete("2", IndexCoordinates.of("documents"));
+        verify(elasticsearchOperations, never()).bulkIndex(anyList(), any(IndexCoordinates.class));
+    }
+
+    @Test
+    void testFailedWritesAreRetriedWithBackoff() {
+        doThrow(new RuntimeException("cluster unavailable"))
+                .doReturn(List.of())
+                .when(elasticsearchOperations).bulkIndex(anyList(), any(IndexCoordinates.class));
+        pipeline.index(1L);
+
+        assertEquals(0, pipeline.flush());
+        assertEquals(1, pipeline.getPendingCount());
+
+        // 退避时间内不重试
+        assertEquals(0, pipeline.flush());
+        verify(elasticsearchOperations, times(1)).bulkIndex(anyList(), any(IndexCoordinates.class));
+
+        // 文档再次变更时不再等待退避时间
+        pipeline.index(1L);
+        assertEquals(1, pipeline.flush());
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(pipeline, "maxAttempts", 2);
+        ReflectionTestUtils.setField(pipeline, "retryBaseDelay", 0L);
+        doThrow(new RuntimeException("mapping conflict"))
+                .when(elasticsearchOperations).bulkIndex(anyList(), any(IndexCoordinates.class));
+        pipeline.index(1L);
+
+        pipeline.flush();
+        pipeline.flush();
+
+        assertEquals(0, pipeline.getPendingCount());
+        verify(elasticsearchOperations, times(2)).bulkIndex(anyList(), any(IndexCoordinates.class));
+    }
+
+    @Test
+    void testVersionConflictsAreNotRetried() {
+        doThrow(new BulkFailureException("bulk failed", Map.of(
+                "1", new BulkFailureException.FailureDetails(409, "version_conflict_engine_exception"),
+                "2", new BulkFailureException.FailureDetails(500, "shard unavailable"))))
+                .when(elasticsearchOperations).bulkIndex(anyList(), any(IndexCoordinates.class));
+        pipeline.index(1L);
+        pipeline.index(2L);
+
+        // 1号文档在索引中已有相同或更新的版本
+        assertEquals(1, pipeline.flush());
+        assertEquals(1, pipeline.getPendingCount());
+    }
+
+    @Test
+    void testWritesAlsoGoToIndexBeingRebuilt() {
+        when(documentReindexService.getActiveTargetIndex()).thenReturn("documents_20240101000000");
+        pipeline.index(1L);
+        pipeline.delete(2L);
+
+        pipeline.flush();
+
+        verify(elasticsearchOperations).bulkIndex(anyList(), eq(IndexCoordinates.of("documents")));
+        verify(elasticsearchOperations).bulkIndex(anyList(), eq(IndexCoordinates.of("documents_20240101000000")));
+        verify(elasticsearchOperations).delete("2", IndexCoordinates.of("documents_20240101000000"));
+    }
+
+    @Test
+    void testFullBatchTriggersEarlyFlush() {
+        ReflectionTestUtils.setField(pipeline, "batchSize", 3);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(searchIndexingExecutor).execute(any(Runnable.class));
+
+        pipeline.index(1L);
+        pipeline.index(2L);
+        verify(searchIndexingExecutor, never()).execute(any(Runnable.class));
+
+        pipeline.index(3L);
+
+        verify(searchIndexingExecutor).execute(any(Runnable.class));
+        verify(elasticsearchOperations).bulkIndex(anyList(), eq(IndexCoordinates.of("documents")));
+        assertEquals(0, pipeline.getPendingCount());
+    }
+
+    private Document document(Long id) {
+        Document document = new Document();
+        document.setId(id);
+        document.setDocumentNumber("DOC-" + id);
+        document.setTitle("文档" + id);
+        return document;
+    }
+}
@@ -0,0 +1,99 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.repository.DocumentRepository;
+import com.gmp.edms.service.DocumentPermissionService.PermissionType;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentPermissionServiceImplTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @InjectMocks
+    private DocumentPermissionServiceImpl documentPermissionService;
+
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        document = new Document();
+        document.setId(1L);
+        document.setAuthor("user1");
+        document.setStatus("EFFECTIVE");
+        when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+    }
+
+    @Test
+    void testHasPermissionLoadsDocumentOnce() {
+        assertTrue(documentPermissionService.hasPermission("user1", 1L, PermissionType.EDIT));
+
+        verify(documentRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testHasPermissionMissingDocumentDenied() {
+        when(documentRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertFalse(documentPermissionService.hasPermission("user1", 2L, PermissionType.VIEW));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAccessibleDocumentIdsUsesSingleQuery() {
+        when(documentRepository.findIds(any())).thenReturn(List.of(1L, 3L));
+
+        Set<Long> ids = documentPermissionService.getAccessibleDocumentIds("user1", PermissionType.VIEW);
+
+        assertEquals(Set.of(1L, 3L), ids);
+        verify(documentRepository, never()).findAll();
+        verify(documentRepository, never()).findById(anyLong());
+
+        // 非管理员的查询条件包含文档所有者条件
+        ArgumentCaptor<Specification<Document>> captor = ArgumentCaptor.forClass(Specification.class);
+        verify(documentRepository).findIds(captor.capture());
+        Root<Document> root = mock(Root.class);
+        Path<Object> authorPath = mock(Path.class);
+        when(root.get(anyString())).thenReturn(mock(Path.class));
+        when(root.get("author")).thenReturn(authorPath);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        captor.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+        verify(cb).equal(authorPath, "user1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAccessibleDocumentIdsForAdminHasNoRestriction() {
+        when(documentRepository.findIds(any())).thenReturn(List.of(1L));
+
+        documentPermissionService.getAccessibleDocumentIds("admin", PermissionType.VIEW);
+
+        ArgumentCaptor<Specification<Document>> captor = ArgumentCaptor.forClass(Specification.class);
+        verify(documentRepository).findIds(captor.capture());
+        Root<Document> root = mock(Root.class);
+        CriteriaBuilder cb = mock(CriteriaBuilder.class);
+        captor.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+        verify(cb).conjunction();
+        verifyNoInteractions(root);
+    }
+}
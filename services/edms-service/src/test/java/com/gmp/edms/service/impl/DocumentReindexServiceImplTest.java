@@ -0,0 +1,230 @@
+package com.gmp.edms.service.impl;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.entity.ElasticsearchDocument;
+import com.gmp.edms.entity.SearchReindexJob;
+import com.gmp.edms.repository.DocumentRepository;
+import com.gmp.edms.repository.SearchReindexJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexInformation;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentReindexServiceImplTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private SearchReindexJobRepository reindexJobRepository;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private Executor searchReindexExecutor;
+
+    @InjectMocks
+    private DocumentReindexServiceImpl reindexService;
+
+    private final Map<String, IndexOperations> indexOps = new HashMap<>();
+
+    private SearchReindexJob job;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reindexService, "batchSize", 2);
+        when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenAnswer(invocation ->
+                indexOps.computeIfAbsent(((IndexCoordinates) invocation.getArgument(0)).getIndexName(),
+                        name -> mock(IndexOperations.class)));
+        when(elasticsearchOperations.indexOps(ElasticsearchDocument.class)).thenReturn(mock(IndexOperations.class));
+        when(reindexJobRepository.save(any(SearchReindexJob.class))).thenAnswer(invocation -> {
+            SearchReindexJob saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId(1L);
+            }
+            job = saved;
+            return saved;
+        });
+        when(reindexJobRepository.findById(1L)).thenAnswer(invocation -> Optional.ofNullable(job));
+        when(reindexJobRepository.findFirstByStatusInOrderByIdDesc(anyCollection())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void testReindexStreamsByKeysetAndSwapsAlias() {
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(document(1L), document(2L)));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenReturn(List.of(document(5L)));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(5L), any(Pageable.class))).thenReturn(List.of());
+        IndexOperations aliasOps = indexOps("documents");
+        when(aliasOps.exists()).thenReturn(true);
+        IndexInformation previous = mock(IndexInformation.class);
+        when(previous.getName()).thenReturn("documents_20240101000000");
+        when(aliasOps.getInformation()).thenReturn(List.of(previous));
+        runSynchronously();
+
+        SearchReindexJob started = reindexService.startReindex("admin");
+
+        String target = started.getTargetIndex();
+        assertTrue(target.startsWith("documents_"));
+        verify(indexOps(target)).create(any(), any());
+        verify(elasticsearchOperations).bulkIndex(argThat(queries -> queries.size() == 2), eq(IndexCoordinates.of(target)));
+        verify(elasticsearchOperations).bulkIndex(argThat(queries -> queries.size() == 1), eq(IndexCoordinates.of(target)));
+
+        ArgumentCaptor<AliasActions> actions = ArgumentCaptor.forClass(AliasActions.class);
+        verify(indexOps(target)).alias(actions.capture());
+        List<AliasAction> aliasActions = actions.getValue().getActions();
+        assertEquals(2, aliasActions.size());
+        assertInstanceOf(AliasAction.Remove.class, aliasActions.get(0));
+        assertInstanceOf(AliasAction.Add.class, aliasActions.get(1));
+        verify(indexOps("documents_20240101000000")).delete();
+
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(5L, job.getLastDocumentId());
+        assertEquals(3L, job.getIndexedCount());
+        assertNull(reindexService.getActiveTargetIndex());
+    }
+
+    @Test
+    void testResumeContinuesFromCheckpoint() {
+        SearchReindexJob failed = new SearchReindexJob();
+        failed.setId(1L);
+        failed.setTargetIndex("documents_20240101000000");
+        failed.setStatus("FAILED");
+        failed.setLastDocumentId(40L);
+        failed.setIndexedCount(40L);
+        job = failed;
+        when(reindexJobRepository.findFirstByStatusInOrderByIdDesc(anyCollection())).thenReturn(Optional.of(failed));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(40L), any(Pageable.class)))
+                .thenReturn(List.of(document(41L)));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(41L), any(Pageable.class))).thenReturn(List.of());
+        runSynchronously();
+
+        reindexService.resumeReindex();
+
+        verify(documentRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class));
+        verify(elasticsearchOperations).bulkIndex(anyList(), eq(IndexCoordinates.of("documents_20240101000000")));
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(41L, job.getIndexedCount());
+    }
+
+    @Test
+    void testFailureKeepsCheckpointAndTargetIndex() {
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(document(1L), document(2L)));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+                .thenThrow(new RuntimeException("connection reset"));
+        runSynchronously();
+
+        SearchReindexJob started = reindexService.startReindex("admin");
+
+        assertEquals("FAILED", job.getStatus());
+        assertEquals(2L, job.getLastDocumentId());
+        assertEquals("connection reset", job.getLastError());
+        // 失败后文档变更继续写入新索引
+        assertEquals(started.getTargetIndex(), reindexService.getActiveTargetIndex());
+        verify(indexOps(started.getTargetIndex()), never()).alias(any(AliasActions.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStaleWritesRejectedByVersionAreSkipped() {
+        Document updated = document(1L);
+        updated.setIndexVersion(1_709_280_000_123_456L);
+        // 版本号取自数据库序列，与更新时间无关
+        updated.setUpdatedAt(LocalDateTime.of(2030, 1, 1, 0, 0));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(updated, document(2L)));
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class))).thenReturn(List.of());
+        // 索引流水线已将1号文档的新内容写入新索引
+        doThrow(new BulkFailureException("bulk failed", Map.of(
+                "1", new BulkFailureException.FailureDetails(409, "version_conflict_engine_exception"))))
+                .when(elasticsearchOperations).bulkIndex(anyList(), any(IndexCoordinates.class));
+        runSynchronously();
+
+        reindexService.startReindex("admin");
+
+        ArgumentCaptor<List<IndexQuery>> queries = ArgumentCaptor.forClass(List.class);
+        verify(elasticsearchOperations).bulkIndex(queries.capture(), any(IndexCoordinates.class));
+        assertEquals(1_709_280_000_123_456L, queries.getValue().get(0).getVersion());
+        assertNull(queries.getValue().get(1).getVersion());
+        assertEquals("COMPLETED", job.getStatus());
+    }
+
+    @Test
+    void testBulkFailureOtherThanVersionConflictFailsJob() {
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(document(1L)));
+        doThrow(new BulkFailureException("bulk failed", Map.of(
+                "1", new BulkFailureException.FailureDetails(400, "mapper_parsing_exception"))))
+                .when(elasticsearchOperations).bulkIndex(anyList(), any(IndexCoordinates.class));
+        runSynchronously();
+
+        reindexService.startReindex("admin");
+
+        assertEquals("FAILED", job.getStatus());
+        assertEquals(0L, job.getLastDocumentId());
+    }
+
+    @Test
+    void testLegacyConcreteIndexIsReplacedInSameRequest() {
+        when(documentRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        IndexOperations aliasOps = indexOps("documents");
+        when(aliasOps.exists()).thenReturn(true);
+        IndexInformation legacy = mock(IndexInformation.class);
+        when(legacy.getName()).thenReturn("documents");
+        when(aliasOps.getInformation()).thenReturn(List.of(legacy));
+        runSynchronously();
+
+        SearchReindexJob started = reindexService.startReindex("admin");
+
+        ArgumentCaptor<AliasActions> actions = ArgumentCaptor.forClass(AliasActions.class);
+        verify(indexOps(started.getTargetIndex())).alias(actions.capture());
+        assertInstanceOf(AliasAction.RemoveIndex.class, actions.getValue().getActions().get(0));
+        verify(aliasOps, never()).delete();
+    }
+
+    private void runSynchronously() {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(searchReindexExecutor).execute(any(Runnable.class));
+    }
+
+    private IndexOperations indexOps(String name) {
+        return indexOps.computeIfAbsent(name, key -> mock(IndexOperations.class));
+    }
+
+    private Document document(Long id) {
+        Document document = new Document();
+        document.setId(id);
+        document.setDocumentNumber("DOC-" + id);
+        document.setTitle("文档" + id);
+        return document;
+    }
+}
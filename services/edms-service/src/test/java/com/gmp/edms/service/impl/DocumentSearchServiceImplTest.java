@@ -0,0 +1,205 @@
+package com.gmp.edms.service.impl;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmp.edms.dto.DocumentDTO;
+import com.gmp.edms.dto.DocumentQueryDTO;
+import com.gmp.edms.dto.DocumentSearchRequestDTO;
+import com.gmp.edms.dto.DocumentSearchResultDTO;
+import com.gmp.edms.entity.ElasticsearchDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.TotalHitsRelation;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentSearchServiceImplTest {
+
+    @Mock
+    private DocumentIndexingPipeline documentIndexingPipeline;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private DocumentSearchServiceImpl documentSearchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testKeywordSearchUsesWeightedMultiMatchAndFacets() {
+        returnHits(hit(1L, "SOP-001", 3.5f, List.of(3.5, 1L)), hit(2L, "SOP-002", 2.0f, List.of(2.0, 2L)));
+        DocumentSearchRequestDTO request = new DocumentSearchRequestDTO();
+        request.setKeyword("清洁验证");
+        request.setStatus("EFFECTIVE");
+        request.setSize(2);
+
+        DocumentSearchResultDTO result = documentSearchService.search(request);
+
+        NativeQuery query = capturedQuery();
+        Query bool = query.getQuery();
+        assertTrue(bool.isBool());
+        assertEquals(List.of("documentCode^5", "documentName^4", "documentCode.text^3", "keywords^2", "content"),
+                bool.bool().must().get(0).multiMatch().fields());
+        assertEquals("status", bool.bool().filter().get(0).term().field());
+        assertEquals(2, query.getPageable().getPageSize());
+        assertTrue(query.getHighlightQuery().isPresent());
+        assertEquals(List.of("documentType", "status", "categoryName"), new ArrayList<>(query.getAggregations().keySet()));
+        assertFalse(List.of(query.getSourceFilter().getIncludes()).contains("content"));
+
+        assertEquals(2, result.getHits().size());
+        assertEquals("SOP-001", result.getHits().get(0).getDocumentCode());
+        assertEquals(3.5f, result.getHits().get(0).getScore());
+        assertNotNull(result.getNextCursor());
+    }
+
+    @Test
+    void testCursorContinuesAfterLastSortValues() {
+        returnHits(hit(3L, "SOP-003", 1.0f, List.of(1.0, 3L)));
+        DocumentSearchRequestDTO first = new DocumentSearchRequestDTO();
+        first.setKeyword("清洁");
+        first.setSize(1);
+        String cursor = documentSearchService.search(first).getNextCursor();
+
+        DocumentSearchRequestDTO next = new DocumentSearchRequestDTO();
+        next.setKeyword("清洁");
+        next.setSize(1);
+        next.setCursor(cursor);
+        documentSearchService.search(next);
+
+        ArgumentCaptor<NativeQuery> captor = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations, times(2)).search(captor.capture(), eq(ElasticsearchDocument.class));
+        NativeQuery nextQuery = captor.getAllValues().get(1);
+        assertEquals(List.of(1.0, 3), nextQuery.getSearchAfter());
+        // 翻页时不再重复计算分类统计
+        assertTrue(nextQuery.getAggregations().isEmpty());
+    }
+
+    @Test
+    void testPageSizeIsCapped() {
+        returnHits(hit(1L, "SOP-001", 1.0f, List.of(1.0, 1L)));
+        DocumentSearchRequestDTO request = new DocumentSearchRequestDTO();
+        request.setSize(10000);
+
+        DocumentSearchResultDTO result = documentSearchService.search(request);
+
+        assertEquals(100, capturedQuery().getPageable().getPageSize());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void testInvalidCursorIsRejected() {
+        DocumentSearchRequestDTO request = new DocumentSearchRequestDTO();
+        request.setCursor("not-a-cursor");
+
+        assertThrows(IllegalArgumentException.class, () -> documentSearchService.search(request));
+        verifyNoInteractions(elasticsearchOperations);
+    }
+
+    @Test
+    void testAdvancedSearchFiltersWithoutScoring() {
+        returnHits(hit(1L, "SOP-001", Float.NaN, List.of(1700000000000L, 1L)));
+        DocumentQueryDTO queryDTO = new DocumentQueryDTO();
+        queryDTO.setDocumentType("SOP");
+        queryDTO.setCategoryId(7L);
+
+        List<DocumentDTO> documents = documentSearchService.advancedSearch(queryDTO);
+
+        NativeQuery query = capturedQuery();
+        assertTrue(query.getQuery().bool().must().get(0).isMatchAll());
+        assertEquals(2, query.getQuery().bool().filter().size());
+        assertEquals(1, documents.size());
+        assertEquals("SOP-001", documents.get(0).getDocumentNumber());
+        assertEquals("文档SOP-001", documents.get(0).getTitle());
+    }
+
+    @Test
+    void testAdvancedSearchFiltersByConfidentialityLevel() {
+        returnHits(hit(1L, "SOP-001", Float.NaN, List.of(1700000000000L, 1L)));
+        DocumentQueryDTO queryDTO = new DocumentQueryDTO();
+        queryDTO.setConfidentialityLevel("RESTRICTED");
+
+        documentSearchService.advancedSearch(queryDTO);
+
+        List<Query> filters = capturedQuery().getQuery().bool().filter();
+        assertEquals(1, filters.size());
+        assertEquals("confidentialityLevel", filters.get(0).term().field());
+        assertEquals("RESTRICTED", filters.get(0).term().value().stringValue());
+    }
+
+    @Test
+    void testIndexChangesAreQueuedAfterCommit() {
+        DocumentDTO documentDTO = new DocumentDTO();
+        documentDTO.setId(5L);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            documentSearchService.updateDocumentIndex(documentDTO);
+            documentSearchService.deleteDocumentIndex(6L);
+            verifyNoInteractions(documentIndexingPipeline);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(documentIndexingPipeline).index(5L);
+        verify(documentIndexingPipeline).delete(6L);
+        verifyNoInteractions(elasticsearchOperations);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private void returnHits(SearchHit<ElasticsearchDocument>... hits) {
+        SearchHits<ElasticsearchDocument> searchHits = mock(SearchHits.class);
+        when(searchHits.getSearchHits()).thenReturn(List.of(hits));
+        when(searchHits.iterator()).thenAnswer(invocation -> List.of(hits).iterator());
+        when(searchHits.getTotalHits()).thenReturn((long) hits.length);
+        when(searchHits.getTotalHitsRelation()).thenReturn(TotalHitsRelation.EQUAL_TO);
+        when(elasticsearchOperations.search(any(NativeQuery.class), eq(ElasticsearchDocument.class)))
+                .thenReturn(searchHits);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchHit<ElasticsearchDocument> hit(Long id, String code, float score, List<Object> sortValues) {
+        ElasticsearchDocument document = new ElasticsearchDocument();
+        document.setId(id);
+        document.setDocumentCode(code);
+        document.setDocumentName("文档" + code);
+        SearchHit<ElasticsearchDocument> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(document);
+        when(hit.getScore()).thenReturn(score);
+        when(hit.getSortValues()).thenReturn(sortValues);
+        when(hit.getHighlightFields()).thenReturn(Map.of());
+        return hit;
+    }
+
+    private NativeQuery capturedQuery() {
+        ArgumentCaptor<NativeQuery> captor = ArgumentCaptor.forClass(NativeQuery.class);
+        verify(elasticsearchOperations).search(captor.capture(), eq(ElasticsearchDocument.class));
+        return captor.getValue();
+    }
+}
@@ -9,9 +9,11 @@ import com.gmp.edms.repository.DocumentRepository;
 import com.gmp.edms.service.DocumentCategoryService;
 import com.gmp.edms.service.DocumentSearchService;
 import com.gmp.edms.service.FileStorageService;
+import com.gmp.edms.service.NumberingService;
 import com.gmp.edms.event.EventPublisher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -24,6 +26,7 @@ import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -49,12 +52,16 @@ class DocumentServiceImplTest {
     @Mock
     private EventPublisher eventPublisher;
 
+    @Mock
+    private NumberingService numberingService;
+
     @InjectMocks
     private DocumentServiceImpl documentService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(numberingService.next(anyString(), any(LongSupplier.class))).thenReturn(1L);
     }
 
     @Test
@@ -203,6 +210,23 @@ class DocumentServiceImplTest {
         assertTrue(docCode.matches("DOC_\\d{8}_\\d{4}"));
     }
 
+    @Test
+    void testGenerateDocCodeContinuesFromExistingNumbers() {
+        when(numberingService.next(anyString(), any(LongSupplier.class))).thenReturn(13L);
+
+        String docCode = documentService.generateDocCode();
+
+        String prefix = docCode.substring(0, "DOC_yyyyMMdd_".length());
+        assertEquals(prefix + "0013", docCode);
+        verify(documentRepository, never()).findAll();
+
+        // 序列首次创建时从当天已有的最大编号接续
+        ArgumentCaptor<LongSupplier> initialValue = ArgumentCaptor.forClass(LongSupplier.class);
+        verify(numberingService).next(eq(prefix), initialValue.capture());
+        when(documentRepository.findMaxDocumentNumber(prefix)).thenReturn(prefix + "0012");
+        assertEquals(12L, initialValue.getValue().getAsLong());
+    }
+
     @Test
     void testSearchDocuments() {
         // 测试搜索文档方法
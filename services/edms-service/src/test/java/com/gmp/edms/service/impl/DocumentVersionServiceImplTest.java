@@ -1,17 +1,23 @@
 package com.gmp.edms.service.impl;
 
+import com.gmp.edms.dto.DocumentDiffDTO;
 import com.gmp.edms.dto.DocumentVersionDTO;
+import com.gmp.edms.entity.ContentBlob;
 import com.gmp.edms.entity.Document;
 import com.gmp.edms.entity.DocumentVersion;
 import com.gmp.edms.repository.DocumentRepository;
 import com.gmp.edms.repository.DocumentVersionRepository;
+import com.gmp.edms.service.ContentBlobService;
+import com.gmp.edms.service.DocumentDiffService;
 import com.gmp.edms.service.FileStorageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
@@ -22,6 +28,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class DocumentVersionServiceImplTest {
@@ -38,6 +46,12 @@ class DocumentVersionServiceImplTest {
     @Mock
     private ModelMapper modelMapper;
 
+    @Mock
+    private ContentBlobService contentBlobService;
+
+    @Mock
+    private DocumentDiffService documentDiffService;
+
     @InjectMocks
     private DocumentVersionServiceImpl documentVersionService;
 
@@ -172,6 +186,26 @@ class DocumentVersionServiceImplTest {
         assertTrue(result.contains("文件内容不同"));
     }
 
+    @Test
+    void testDiffDocumentVersionsDelegatesToDiffService() throws Exception {
+        DocumentVersion version1 = new DocumentVersion();
+        version1.setId(1L);
+        version1.setDocumentId(10L);
+        DocumentVersion version2 = new DocumentVersion();
+        version2.setId(2L);
+        version2.setDocumentId(10L);
+        DocumentDiffDTO diff = new DocumentDiffDTO();
+        diff.setStatus("DIFFERENT");
+        when(documentVersionRepository.findById(1L)).thenReturn(Optional.of(version1));
+        when(documentVersionRepository.findById(2L)).thenReturn(Optional.of(version2));
+        when(documentDiffService.diff(version1, version2)).thenReturn(diff);
+
+        assertSame(diff, documentVersionService.diffDocumentVersions(10L, 1L, 2L));
+
+        version2.setDocumentId(11L);
+        assertThrows(RuntimeException.class, () -> documentVersionService.diffDocumentVersions(10L, 1L, 2L));
+    }
+
     @Test
     void testCalculateChecksum() throws IOException {
         // 创建模拟的MultipartFile
@@ -218,4 +252,106 @@ class DocumentVersionServiceImplTest {
         verify(fileStorageService).deleteFile("test/path/file.txt");
         verify(documentVersionRepository).delete(version);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRollbackToVersionSharesStoredContent() throws Exception {
+        Long versionId = 1L;
+        String blobPath = "blobs/ab/cd/abcd";
+        DocumentVersion version = new DocumentVersion();
+        version.setId(versionId);
+        version.setDocumentId(10L);
+        version.setVersionNumber("1.0.0");
+        version.setFileName("batch-record.pdf");
+        version.setFileType("application/pdf");
+        version.setFileSize(300L * 1024 * 1024);
+        version.setChecksum("abcd");
+        version.setFilePath(blobPath);
+        version.setCreatedBy("author");
+
+        ContentBlob blob = new ContentBlob();
+        blob.setDigest("abcd");
+        blob.setObjectPath(blobPath);
+
+        when(documentVersionRepository.findById(versionId)).thenReturn(Optional.of(version));
+        when(documentVersionRepository.findLatestVersionNumberByDocumentId(10L)).thenReturn(Optional.of("1.2.0"));
+        when(contentBlobService.retain("abcd", blobPath, 300L * 1024 * 1024, "application/pdf")).thenReturn(blob);
+        when(documentVersionRepository.save(any(DocumentVersion.class))).thenAnswer(invocation -> {
+            DocumentVersion saved = invocation.getArgument(0);
+            saved.setId(2L);
+            return saved;
+        });
+        when(modelMapper.map(any(DocumentVersion.class), eq(DocumentVersionDTO.class))).thenReturn(new DocumentVersionDTO());
+
+        documentVersionService.rollbackToVersion(versionId);
+
+        // 新版本只增加内容引用，不下载、不复制也不重新上传
+        verify(contentBlobService).retain("abcd", blobPath, 300L * 1024 * 1024, "application/pdf");
+        verifyNoInteractions(fileStorageService);
+
+        ArgumentCaptor<DocumentVersion> captor = ArgumentCaptor.forClass(DocumentVersion.class);
+        verify(documentVersionRepository).save(captor.capture());
+        DocumentVersion reverted = captor.getValue();
+        assertEquals("1.3.0", reverted.getVersionNumber());
+        assertEquals(blobPath, reverted.getFilePath());
+        assertEquals("abcd", reverted.getChecksum());
+        assertTrue(reverted.getIsCurrent());
+    }
+
+    @Test
+    void testUploadDuplicateContentReusesBlob() throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.isEmpty()).thenReturn(false);
+        when(file.getOriginalFilename()).thenReturn("sop.pdf");
+        when(file.getSize()).thenReturn(1024L);
+
+        ContentBlob blob = new ContentBlob();
+        blob.setDigest("abcd");
+        blob.setObjectPath("blobs/ab/cd/abcd");
+        when(contentBlobService.store(file)).thenReturn(blob);
+        when(documentVersionRepository.findLatestVersionNumberByDocumentId(10L)).thenReturn(Optional.empty());
+        when(documentVersionRepository.save(any(DocumentVersion.class))).thenAnswer(invocation -> {
+            DocumentVersion saved = invocation.getArgument(0);
+            saved.setId(3L);
+            return saved;
+        });
+
+        documentVersionService.uploadDocumentVersion(10L, file, "MINOR", "reason", "summary", "author");
+
+        // 已存在的内容不再被拒绝，版本直接引用内容寻址路径
+        ArgumentCaptor<DocumentVersion> captor = ArgumentCaptor.forClass(DocumentVersion.class);
+        verify(documentVersionRepository).save(captor.capture());
+        assertEquals("blobs/ab/cd/abcd", captor.getValue().getFilePath());
+        assertEquals("abcd", captor.getValue().getChecksum());
+        verify(fileStorageService, never()).uploadFile(any(MultipartFile.class), anyString(), anyString());
+    }
+
+    @Test
+    void testOpenDocumentVersionStreamWithRange() throws Exception {
+        Long versionId = 1L;
+        DocumentVersion version = new DocumentVersion();
+        version.setId(versionId);
+        version.setFilePath("versions/10/1.0.0/file.pdf");
+        InputStream rangeStream = new ByteArrayInputStream(new byte[100]);
+
+        when(documentVersionRepository.findById(versionId)).thenReturn(Optional.of(version));
+        when(fileStorageService.downloadFile("edms-documents", "versions/10/1.0.0/file.pdf", 1000L, 100L))
+                .thenReturn(rangeStream);
+
+        assertSame(rangeStream, documentVersionService.openDocumentVersionStream(versionId, 1000L, 100L));
+        verify(fileStorageService, never()).downloadFile(anyString(), anyString());
+    }
+
+    @Test
+    void testOpenDocumentVersionStreamUsesConfiguredBucket() throws Exception {
+        ReflectionTestUtils.setField(documentVersionService, "bucketName", "gmp-blobs");
+        DocumentVersion version = new DocumentVersion();
+        version.setId(2L);
+        version.setFilePath("blobs/ab/cd/abcd");
+        InputStream stream = new ByteArrayInputStream(new byte[10]);
+
+        when(documentVersionRepository.findById(2L)).thenReturn(Optional.of(version));
+        when(fileStorageService.downloadFile("gmp-blobs", "blobs/ab/cd/abcd")).thenReturn(stream);
+
+        assertSame(stream, documentVersionService.openDocumentVersionStream(2L, 0L, -1L));
+    }
+}
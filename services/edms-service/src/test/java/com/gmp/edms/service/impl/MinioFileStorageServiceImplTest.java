@@ -236,6 +236,36 @@ public class MinioFileStorageServiceImplTest {
         verify(minioClient, times(1)).makeBucket(any(MakeBucketArgs.class));
     }
 
+    @Test
+    void testUploadStreamToleratesBucketCreatedConcurrently() throws Exception {
+        // 并发上传已创建同名桶
+        ErrorResponseException alreadyOwned = mock(ErrorResponseException.class);
+        io.minio.messages.ErrorResponse response = mock(io.minio.messages.ErrorResponse.class);
+        when(response.code()).thenReturn("BucketAlreadyOwnedByYou");
+        when(alreadyOwned.errorResponse()).thenReturn(response);
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+        doThrow(alreadyOwned).when(minioClient).makeBucket(any(MakeBucketArgs.class));
+
+        fileStorageService.uploadFile(new ByteArrayInputStream(testData), testData.length, "application/pdf",
+                bucketName, objectName);
+
+        verify(minioClient, times(1)).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void testUploadStreamFailsWhenBucketCannotBeCreated() throws Exception {
+        ErrorResponseException denied = mock(ErrorResponseException.class);
+        io.minio.messages.ErrorResponse response = mock(io.minio.messages.ErrorResponse.class);
+        when(response.code()).thenReturn("AccessDenied");
+        when(denied.errorResponse()).thenReturn(response);
+        when(minioClient.bucketExists(any(BucketExistsArgs.class))).thenReturn(false);
+        doThrow(denied).when(minioClient).makeBucket(any(MakeBucketArgs.class));
+
+        assertThrows(ErrorResponseException.class, () -> fileStorageService.uploadFile(
+                new ByteArrayInputStream(testData), testData.length, "application/pdf", bucketName, objectName));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+    }
+
     @Test
     void testDeleteBucket() throws Exception {
         // 准备
@@ -0,0 +1,94 @@
+package com.gmp.edms.util;
+
+import com.gmp.edms.entity.Document;
+import com.gmp.edms.entity.DocumentVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldAccessorsTest {
+
+    @Test
+    void testGetAndSetEntityField() {
+        DocumentVersion version = new DocumentVersion();
+
+        assertTrue(FieldAccessors.set(version, "checksum", "abc"));
+        assertTrue(FieldAccessors.set(version, "fileSize", 1024L));
+
+        assertEquals("abc", version.getChecksum());
+        assertEquals("abc", FieldAccessors.get(version, "checksum"));
+        assertEquals(1024L, FieldAccessors.get(version, "fileSize"));
+    }
+
+    @Test
+    void testInheritedField() {
+        Child child = new Child();
+
+        assertTrue(FieldAccessors.set(child, "name", "parent"));
+
+        assertEquals("parent", FieldAccessors.get(child, "name"));
+    }
+
+    @Test
+    void testPrimitiveFieldWidening() {
+        Primitive primitive = new Primitive();
+
+        // 与Field.set一致，Integer可以写入long字段
+        assertTrue(FieldAccessors.set(primitive, "count", 5));
+        assertEquals(5L, primitive.count);
+
+        // 类型不兼容时写入失败，字段保持原值
+        assertFalse(FieldAccessors.set(primitive, "count", "five"));
+        assertEquals(5L, primitive.count);
+    }
+
+    @Test
+    void testGetterAndSetterWithoutField() {
+        Computed computed = new Computed();
+
+        assertTrue(FieldAccessors.set(computed, "label", "x"));
+
+        assertEquals("x", FieldAccessors.get(computed, "label"));
+        assertEquals(Boolean.TRUE, FieldAccessors.get(computed, "ready"));
+    }
+
+    @Test
+    void testMissingProperty() {
+        Document document = new Document();
+
+        assertNull(FieldAccessors.get(document, "notExists"));
+        assertFalse(FieldAccessors.set(document, "notExists", "value"));
+        assertFalse(FieldAccessors.hasProperty(Document.class, "notExists"));
+        assertTrue(FieldAccessors.hasProperty(Document.class, "title"));
+        assertNull(FieldAccessors.get(null, "title"));
+        assertFalse(FieldAccessors.set(null, "title", "value"));
+    }
+
+    static class Parent {
+        private String name;
+    }
+
+    static class Child extends Parent {
+    }
+
+    static class Primitive {
+        private long count;
+    }
+
+    public static class Computed {
+        private final StringBuilder buffer = new StringBuilder();
+
+        public String getLabel() {
+            return buffer.toString();
+        }
+
+        public void setLabel(String label) {
+            buffer.setLength(0);
+            buffer.append(label);
+        }
+
+        public boolean isReady() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.gmp.edms.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyersDiffTest {
+
+    @Test
+    void testIdenticalSequencesHaveNoEdits() {
+        MyersDiff diff = MyersDiff.compute(new int[] {1, 2, 3}, new int[] {1, 2, 3});
+
+        assertTrue(diff.getEdits().isEmpty());
+        assertFalse(diff.isApproximate());
+    }
+
+    @Test
+    void testInsertDeleteAndReplace() {
+        int[] a = {1, 2, 3, 4, 5};
+        int[] b = {1, 9, 3, 5, 6};
+
+        List<MyersDiff.Edit> edits = MyersDiff.compute(a, b).getEdits();
+
+        assertEquals(3, edits.size());
+        assertEdit(edits.get(0), 1, 2, 1, 2); // 2 -> 9
+        assertEdit(edits.get(1), 3, 4, 3, 3); // 删除4
+        assertEdit(edits.get(2), 5, 5, 4, 5); // 新增6
+    }
+
+    @Test
+    void testEmptySequences() {
+        assertEdit(MyersDiff.compute(new int[0], new int[] {1, 2}).getEdits().get(0), 0, 0, 0, 2);
+        assertEdit(MyersDiff.compute(new int[] {1, 2}, new int[0]).getEdits().get(0), 0, 2, 0, 0);
+        assertTrue(MyersDiff.compute(new int[0], new int[0]).getEdits().isEmpty());
+    }
+
+    @Test
+    void testRandomSequencesProduceMinimalEditScript() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int[] a = randomSequence(random, random.nextInt(40));
+            int[] b = randomSequence(random, random.nextInt(40));
+
+            MyersDiff diff = MyersDiff.compute(a, b);
+
+            assertArrayEquals(b, applyEdits(a, b, diff.getEdits()));
+            assertEquals(a.length + b.length - 2 * lcs(a, b), editCost(diff.getEdits()));
+        }
+    }
+
+    @Test
+    void testCostLimitStillProducesValidEdits() {
+        Random random = new Random(7);
+        int[] a = randomSequence(random, 2000);
+        int[] b = randomSequence(random, 2000);
+
+        MyersDiff diff = MyersDiff.compute(a, b, 1000);
+
+        assertTrue(diff.isApproximate());
+        assertArrayEquals(b, applyEdits(a, b, diff.getEdits()));
+    }
+
+    private static void assertEdit(MyersDiff.Edit edit, int beginA, int endA, int beginB, int endB) {
+        assertEquals(beginA, edit.getBeginA());
+        assertEquals(endA, edit.getEndA());
+        assertEquals(beginB, edit.getBeginB());
+        assertEquals(endB, edit.getEndB());
+    }
+
+    private static int[] randomSequence(Random random, int length) {
+        int[] sequence = new int[length];
+        for (int i = 0; i < length; i++) {
+            sequence[i] = random.nextInt(4);
+        }
+        return sequence;
+    }
+
+    /**
+     * 按修改区域将a还原为b，同时校验未修改的部分两边一致
+     */
+    private static int[] applyEdits(int[] a, int[] b, List<MyersDiff.Edit> edits) {
+        List<Integer> result = new ArrayList<>();
+        int positionA = 0;
+        int positionB = 0;
+        for (MyersDiff.Edit edit : edits) {
+            assertEquals(edit.getBeginA() - positionA, edit.getBeginB() - positionB);
+            for (; positionA < edit.getBeginA(); positionA++, positionB++) {
+                assertEquals(a[positionA], b[positionB]);
+                result.add(a[positionA]);
+            }
+            for (int i = edit.getBeginB(); i < edit.getEndB(); i++) {
+                result.add(b[i]);
+            }
+            positionA = edit.getEndA();
+            positionB = edit.getEndB();
+        }
+        for (; positionA < a.length; positionA++) {
+            result.add(a[positionA]);
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int editCost(List<MyersDiff.Edit> edits) {
+        int cost = 0;
+        for (MyersDiff.Edit edit : edits) {
+            cost += edit.getEndA() - edit.getBeginA() + edit.getEndB() - edit.getBeginB();
+        }
+        return cost;
+    }
+
+    private static int lcs(int[] a, int[] b) {
+        int[][] lengths = new int[a.length + 1][b.length + 1];
+        for (int i = a.length - 1; i >= 0; i--) {
+            for (int j = b.length - 1; j >= 0; j--) {
+                lengths[i][j] = a[i] == b[j] ? lengths[i + 1][j + 1] + 1
+                        : Math.max(lengths[i + 1][j], lengths[i][j + 1]);
+            }
+        }
+        return lengths[0][0];
+    }
+}
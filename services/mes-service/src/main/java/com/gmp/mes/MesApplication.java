@@ -3,6 +3,7 @@ package com.gmp.mes;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * GMP制造执行系统(MES)应用主类
@@ -11,6 +12,7 @@ import org.springframework.context.annotation.ComponentScan;
  */
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.gmp.mes"})
+@EnableScheduling
 public class MesApplication {
 
     /**
@@ -1,5 +1,6 @@
 package com.gmp.mes.controller;
 
+import com.gmp.mes.dto.BatchOperationSummaryDTO;
 import com.gmp.mes.entity.BatchOperation;
 import com.gmp.mes.service.BatchOperationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +38,36 @@ public class BatchOperationController {
         return new ResponseEntity<>(createdOperation, HttpStatus.CREATED);
     }
 
+    /**
+     * 按ID顺序分页获取批操作摘要
+     * 
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit 记录数量
+     * @return 批操作摘要列表
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<List<BatchOperationSummaryDTO>> getBatchOperationSummaries(
+            @RequestParam(required = false) Long afterId, @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(batchOperationService.getBatchOperationSummaries(afterId, limit));
+    }
+
+    /**
+     * 按ID顺序分页获取指定状态的批操作摘要
+     * 
+     * @param status 操作状态
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit 记录数量
+     * @return 批操作摘要列表
+     */
+    @GetMapping("/status/{status}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<List<BatchOperationSummaryDTO>> getBatchOperationSummariesByStatus(
+            @PathVariable BatchOperation.OperationStatus status, @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(batchOperationService.getBatchOperationSummariesByStatus(status, afterId, limit));
+    }
+
     /**
      * 获取批操作
      * 
@@ -78,6 +109,24 @@ public class BatchOperationController {
         return ResponseEntity.ok(operations);
     }
 
+    /**
+     * 按ID顺序分页获取批次的批操作摘要
+     * 
+     * @param batchId 批次ID
+     * @param status 操作状态，为空时不按状态过滤
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit 记录数量
+     * @return 批操作摘要列表
+     */
+    @GetMapping("/batch/{batchId}/summaries")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('OPERATOR')")
+    public ResponseEntity<List<BatchOperationSummaryDTO>> getBatchOperationSummariesByBatchId(@PathVariable Long batchId,
+            @RequestParam(required = false) BatchOperation.OperationStatus status,
+            @RequestParam(required = false) Long afterId, @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(
+                batchOperationService.getBatchOperationSummariesByBatchId(batchId, status, afterId, limit));
+    }
+
     /**
      * 获取批次的特定类型操作
      * 
@@ -1,14 +1,22 @@
 package com.gmp.mes.controller;
 
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.dto.TelemetryIngestResultDTO;
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.dto.TelemetryTrendDTO;
 import com.gmp.mes.entity.EquipmentMonitor;
 import com.gmp.mes.entity.EquipmentStatusRecord;
 import com.gmp.mes.service.EquipmentMonitorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -50,6 +58,38 @@ public class EquipmentMonitorController {
         return ResponseEntity.ok(equipmentList);
     }
 
+    /**
+     * 获取设备实时状态，数据来自状态缓存
+     * 
+     * @param codes 设备编码，不指定时返回全部设备
+     * @return 实时状态列表
+     */
+    @GetMapping("/live")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('OPERATOR')")
+    public ResponseEntity<List<EquipmentLiveStateDTO>> getLiveStates(@RequestParam(required = false) List<String> codes) {
+        return ResponseEntity.ok(equipmentMonitorService.getLiveStates(codes));
+    }
+
+    /**
+     * 订阅设备实时状态推送，先推送snapshot事件（符合条件的全部设备），之后推送delta事件（变化的设备）
+     * 
+     * @param locations 设备位置（产线），不指定时不限
+     * @param types 设备类型，不指定时不限
+     * @param statuses 设备状态，不指定时不限
+     * @return SSE连接，订阅者过多时返回503
+     */
+    @GetMapping(value = "/live/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('OPERATOR')")
+    public ResponseEntity<SseEmitter> streamLiveStates(@RequestParam(required = false) List<String> locations,
+            @RequestParam(required = false) List<String> types,
+            @RequestParam(required = false) List<EquipmentMonitor.EquipmentStatus> statuses) {
+        try {
+            return ResponseEntity.ok(equipmentMonitorService.streamLiveStates(locations, types, statuses));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     /**
      * 根据ID获取设备
      * 
@@ -156,20 +196,64 @@ public class EquipmentMonitorController {
         }
     }
 
+    /**
+     * 批量上报设备遥测读数
+     * 
+     * @param readings 读数列表
+     * @return 接收结果，历史记录写入积压时返回503，调用方应稍后重试
+     */
+    @PostMapping("/telemetry")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('OPERATOR')")
+    public ResponseEntity<TelemetryIngestResultDTO> ingestTelemetry(@RequestBody List<TelemetryReadingDTO> readings) {
+        try {
+            return ResponseEntity.ok(equipmentMonitorService.ingestTelemetry(readings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
     /**
      * 获取设备状态记录
      * 
      * @param code 设备编码
      * @param limit 记录数量限制
+     * @param startTime 开始时间，与结束时间同时指定时只查询该时间范围内的记录
+     * @param endTime 结束时间
      * @return 状态记录列表
      */
     @GetMapping("/code/{code}/status-records")
     @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('MAINTENANCE')")
-    public ResponseEntity<List<EquipmentStatusRecord>> getEquipmentStatusRecords(@PathVariable String code, @RequestParam(defaultValue = "100") int limit) {
-        List<EquipmentStatusRecord> records = equipmentMonitorService.getEquipmentStatusRecords(code, limit);
+    public ResponseEntity<List<EquipmentStatusRecord>> getEquipmentStatusRecords(@PathVariable String code, @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        List<EquipmentStatusRecord> records = startTime != null && endTime != null
+                ? equipmentMonitorService.getEquipmentStatusRecords(code, startTime, endTime, limit)
+                : equipmentMonitorService.getEquipmentStatusRecords(code, limit);
         return ResponseEntity.ok(records);
     }
 
+    /**
+     * 获取设备运行参数趋势，数据粒度根据时间范围自动选择
+     * 
+     * @param code 设备编码
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 趋势数据
+     */
+    @GetMapping("/code/{code}/trend")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER') or hasRole('MAINTENANCE') or hasRole('OPERATOR')")
+    public ResponseEntity<TelemetryTrendDTO> getEquipmentTrend(@PathVariable String code,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        try {
+            return ResponseEntity.ok(equipmentMonitorService.getEquipmentTrend(code, startTime, endTime));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     /**
      * 删除设备
      * 
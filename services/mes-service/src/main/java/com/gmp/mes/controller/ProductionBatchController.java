@@ -1,6 +1,8 @@
 package com.gmp.mes.controller;
 
+import com.gmp.mes.dto.BatchGenealogyDTO;
 import com.gmp.mes.entity.ProductionBatch;
+import com.gmp.mes.service.BatchGenealogyService;
 import com.gmp.mes.service.ProductionBatchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -26,6 +28,9 @@ public class ProductionBatchController {
     @Autowired
     private ProductionBatchService productionBatchService;
 
+    @Autowired
+    private BatchGenealogyService batchGenealogyService;
+
     /**
      * 创建生产批次
      * 
@@ -118,6 +123,66 @@ public class ProductionBatchController {
         return ResponseEntity.ok(batches);
     }
 
+    /**
+     * 正向追溯订单的批次、批操作、设备和操作员
+     * 
+     * @param orderId 订单ID
+     * @return 批次谱系
+     */
+    @GetMapping("/genealogy/order/{orderId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<BatchGenealogyDTO> traceOrder(@PathVariable Long orderId) {
+        return ResponseEntity.ok(batchGenealogyService.traceOrder(orderId));
+    }
+
+    /**
+     * 正向追溯产品的全部批次
+     * 
+     * @param productId 产品ID
+     * @return 批次谱系
+     */
+    @GetMapping("/genealogy/product/{productId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<BatchGenealogyDTO> traceProduct(@PathVariable String productId) {
+        return ResponseEntity.ok(batchGenealogyService.traceProduct(productId));
+    }
+
+    /**
+     * 追溯批次所属订单及其批操作
+     * 
+     * @param batchNumber 批次编号
+     * @return 批次谱系
+     */
+    @GetMapping("/genealogy/batch/{batchNumber}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<BatchGenealogyDTO> traceBatch(@PathVariable String batchNumber) {
+        return ResponseEntity.ok(batchGenealogyService.traceBatch(batchNumber));
+    }
+
+    /**
+     * 反向追溯使用过指定设备的批次和订单
+     * 
+     * @param equipmentId 设备ID
+     * @return 批次谱系
+     */
+    @GetMapping("/genealogy/equipment/{equipmentId}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<BatchGenealogyDTO> traceEquipment(@PathVariable String equipmentId) {
+        return ResponseEntity.ok(batchGenealogyService.traceEquipment(equipmentId));
+    }
+
+    /**
+     * 反向追溯指定操作员参与过的批次和订单
+     * 
+     * @param operator 操作员
+     * @return 批次谱系
+     */
+    @GetMapping("/genealogy/operator/{operator}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('PRODUCTION_MANAGER')")
+    public ResponseEntity<BatchGenealogyDTO> traceOperator(@PathVariable String operator) {
+        return ResponseEntity.ok(batchGenealogyService.traceOperator(operator));
+    }
+
     /**
      * 根据日期范围获取生产批次
      * 
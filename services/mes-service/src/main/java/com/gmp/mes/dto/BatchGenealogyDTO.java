@@ -0,0 +1,93 @@
+package com.gmp.mes.dto;
+
+import com.gmp.mes.entity.BatchOperation;
+import com.gmp.mes.entity.ProductionBatch;
+import com.gmp.mes.entity.ProductionOrder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批次谱系DTO - 订单 → 批次 → 批操作 → 设备/操作员的追溯结果
+ *
+ * @author gmp-system
+ */
+@Data
+public class BatchGenealogyDTO {
+
+    /**
+     * 追溯起点类型：ORDER、PRODUCT、BATCH、EQUIPMENT、OPERATOR
+     */
+    private String traceType;
+
+    /**
+     * 追溯起点
+     */
+    private String traceKey;
+
+    private List<OrderNode> orders = new ArrayList<>();
+
+    /**
+     * 涉及的全部设备（批次设备和批操作设备）
+     */
+    private Set<String> equipmentIds = new LinkedHashSet<>();
+
+    /**
+     * 涉及的全部操作员（批次操作员和批操作操作员）
+     */
+    private Set<String> operators = new LinkedHashSet<>();
+
+    private int batchCount;
+
+    private int operationCount;
+
+    /**
+     * 订单节点
+     */
+    @Data
+    public static class OrderNode {
+
+        private Long id;
+        private String orderNumber;
+        private String productName;
+        private ProductionOrder.OrderStatus status;
+        private List<BatchNode> batches = new ArrayList<>();
+    }
+
+    /**
+     * 批次节点
+     */
+    @Data
+    public static class BatchNode {
+
+        private Long id;
+        private String batchNumber;
+        private String productId;
+        private ProductionBatch.BatchStatus status;
+        private String equipmentId;
+        private String operator;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private List<OperationNode> operations = new ArrayList<>();
+    }
+
+    /**
+     * 批操作节点
+     */
+    @Data
+    public static class OperationNode {
+
+        private Long id;
+        private String operationName;
+        private String operationType;
+        private BatchOperation.OperationStatus status;
+        private String equipmentId;
+        private String operator;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+    }
+}
@@ -0,0 +1,52 @@
+package com.gmp.mes.dto;
+
+import com.gmp.mes.entity.BatchOperation;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批操作摘要DTO - 批操作列表显示的字段，不包含操作参数和结果的JSON内容
+ *
+ * @author gmp-system
+ */
+@Data
+@NoArgsConstructor
+public class BatchOperationSummaryDTO {
+
+    private Long id;
+
+    private Long batchId;
+
+    private String operationName;
+
+    private String operationType;
+
+    private BatchOperation.OperationStatus status;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    private String operator;
+
+    private String equipmentId;
+
+    /**
+     * 查询投影使用的构造方法
+     */
+    public BatchOperationSummaryDTO(Long id, Long batchId, String operationName, String operationType,
+            BatchOperation.OperationStatus status, LocalDateTime startTime, LocalDateTime endTime,
+            String operator, String equipmentId) {
+        this.id = id;
+        this.batchId = batchId;
+        this.operationName = operationName;
+        this.operationType = operationType;
+        this.status = status;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.operator = operator;
+        this.equipmentId = equipmentId;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gmp.mes.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备实时状态增量DTO，推送给监控看板
+ *
+ * @author gmp-system
+ */
+@Data
+public class EquipmentLiveDeltaDTO {
+
+    /**
+     * 状态有变化的设备，同一设备只包含上次推送后的最新状态
+     */
+    private List<EquipmentLiveStateDTO> updated = new ArrayList<>();
+
+    /**
+     * 已删除或不再符合订阅条件的设备编码
+     */
+    private List<String> removed = new ArrayList<>();
+}
@@ -0,0 +1,34 @@
+package com.gmp.mes.dto;
+
+import com.gmp.mes.entity.EquipmentMonitor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 设备实时状态DTO - 设备状态缓存中保存的运行状态和参数
+ *
+ * @author gmp-system
+ */
+@Data
+public class EquipmentLiveStateDTO {
+
+    private Long id;
+
+    private String equipmentCode;
+
+    private EquipmentMonitor.EquipmentStatus status;
+
+    private Double temperature;
+
+    private Double pressure;
+
+    private Double humidity;
+
+    private Double vibration;
+
+    /**
+     * 最近一次参数更新时间，精确到毫秒
+     */
+    private LocalDateTime lastUpdatedTime;
+}
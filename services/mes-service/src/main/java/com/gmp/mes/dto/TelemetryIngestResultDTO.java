@@ -0,0 +1,35 @@
+package com.gmp.mes.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 遥测数据批量上报结果DTO
+ *
+ * @author gmp-system
+ */
+@Data
+public class TelemetryIngestResultDTO {
+
+    /**
+     * 已接收的读数数量
+     */
+    private int accepted;
+
+    /**
+     * 因设备不存在或缺少设备编码而拒绝的读数数量
+     */
+    private int rejected;
+
+    /**
+     * 本批读数触发的设备状态变更次数
+     */
+    private int statusChanges;
+
+    /**
+     * 被拒绝读数的设备编码（去重）
+     */
+    private List<String> unknownEquipmentCodes = new ArrayList<>();
+}
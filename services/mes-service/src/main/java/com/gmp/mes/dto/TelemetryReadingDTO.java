@@ -0,0 +1,49 @@
+package com.gmp.mes.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 设备遥测读数DTO
+ * 用于批量上报设备运行参数，未上报的参数保持设备当前值
+ *
+ * @author gmp-system
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryReadingDTO {
+
+    /**
+     * 设备编码
+     */
+    private String equipmentCode;
+
+    /**
+     * 温度
+     */
+    private Double temperature;
+
+    /**
+     * 压力
+     */
+    private Double pressure;
+
+    /**
+     * 湿度
+     */
+    private Double humidity;
+
+    /**
+     * 振动
+     */
+    private Double vibration;
+
+    /**
+     * 采集时间，为空时使用服务端接收时间
+     */
+    private LocalDateTime timestamp;
+}
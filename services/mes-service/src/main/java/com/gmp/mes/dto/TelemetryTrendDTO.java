@@ -0,0 +1,67 @@
+package com.gmp.mes.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 设备遥测趋势DTO
+ *
+ * @author gmp-system
+ */
+@Data
+public class TelemetryTrendDTO {
+
+    private String equipmentCode;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+
+    /**
+     * 数据来源粒度：RAW（原始读数）、MINUTE、HOUR
+     */
+    private String resolution;
+
+    /**
+     * 每个数据点覆盖的时长（秒），原始读数为0
+     */
+    private long bucketSeconds;
+
+    private List<Point> points = new ArrayList<>();
+
+    /**
+     * 趋势数据点，原始读数的最小值、最大值和平均值相同
+     */
+    @Data
+    public static class Point {
+
+        /**
+         * 数据点开始时间
+         */
+        private LocalDateTime time;
+
+        /**
+         * 数据点包含的读数条数
+         */
+        private long sampleCount;
+
+        private Double temperatureMin;
+        private Double temperatureMax;
+        private Double temperatureAvg;
+
+        private Double pressureMin;
+        private Double pressureMax;
+        private Double pressureAvg;
+
+        private Double humidityMin;
+        private Double humidityMax;
+        private Double humidityAvg;
+
+        private Double vibrationMin;
+        private Double vibrationMax;
+        private Double vibrationAvg;
+    }
+}
@@ -16,9 +16,15 @@ import java.util.Map;
  * @author gmp-system
  */
 @Entity
-@Table(name = "batch_operations")
+@Table(name = "batch_operations", indexes = {
+        @Index(name = "idx_batch_operations_batch", columnList = "batch_id, id"),
+        @Index(name = "idx_batch_operations_status", columnList = "status, id"),
+        @Index(name = "idx_batch_operations_name", columnList = "operation_name"),
+        @Index(name = "idx_batch_operations_equipment", columnList = "equipment_id"),
+        @Index(name = "idx_batch_operations_operator", columnList = "operator")
+})
 @Data
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, GenealogyChangeListener.class})
 public class BatchOperation {
 
     @Id
@@ -10,10 +10,14 @@ import java.time.LocalDateTime;
 /**
  * 设备状态记录实体 - 用于历史记录设备状态变化
  * 
+ * 按设备编码和时间建立联合索引，按设备查询最近记录和时间范围时只扫描所需的索引范围。
+ * 
  * @author gmp-system
  */
 @Entity
-@Table(name = "equipment_status_records")
+@Table(name = "equipment_status_records", indexes = {
+        @Index(name = "idx_equipment_status_records_code_time", columnList = "equipment_code, timestamp")
+})
 @Data
 @EntityListeners(AuditingEntityListener.class)
 public class EquipmentStatusRecord {
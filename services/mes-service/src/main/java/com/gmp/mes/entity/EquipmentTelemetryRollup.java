@@ -0,0 +1,162 @@
+package com.gmp.mes.entity;
+
+import lombok.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 设备遥测汇总实体 - 按分钟/小时汇总的遥测读数统计
+ *
+ * 每个参数保存读数条数、最小值、最大值和累计值，新的读数可以直接合并到已有汇总中，
+ * 平均值由累计值和读数条数计算。
+ *
+ * @author gmp-system
+ */
+@Entity
+@Table(name = "equipment_telemetry_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_equipment_telemetry_rollups_bucket",
+                columnNames = {"equipment_code", "resolution", "bucket_start"})
+})
+@Data
+public class EquipmentTelemetryRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String equipmentCode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Resolution resolution;
+
+    // 汇总时间段的开始时间
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long sampleCount;
+
+    // 各参数的汇总值，未收到参数读数时最小值和最大值为空
+    @Column(nullable = false)
+    private long temperatureCount;
+    private Double temperatureMin;
+    private Double temperatureMax;
+    @Column(nullable = false)
+    private double temperatureSum;
+
+    @Column(nullable = false)
+    private long pressureCount;
+    private Double pressureMin;
+    private Double pressureMax;
+    @Column(nullable = false)
+    private double pressureSum;
+
+    @Column(nullable = false)
+    private long humidityCount;
+    private Double humidityMin;
+    private Double humidityMax;
+    @Column(nullable = false)
+    private double humiditySum;
+
+    @Column(nullable = false)
+    private long vibrationCount;
+    private Double vibrationMin;
+    private Double vibrationMax;
+    @Column(nullable = false)
+    private double vibrationSum;
+
+    /**
+     * 合并一条读数
+     */
+    public void addSample(EquipmentStatusRecord record) {
+        sampleCount++;
+        Double value = record.getTemperature();
+        if (value != null) {
+            temperatureCount++;
+            temperatureMin = temperatureMin == null ? value : Math.min(temperatureMin, value);
+            temperatureMax = temperatureMax == null ? value : Math.max(temperatureMax, value);
+            temperatureSum += value;
+        }
+        value = record.getPressure();
+        if (value != null) {
+            pressureCount++;
+            pressureMin = pressureMin == null ? value : Math.min(pressureMin, value);
+            pressureMax = pressureMax == null ? value : Math.max(pressureMax, value);
+            pressureSum += value;
+        }
+        value = record.getHumidity();
+        if (value != null) {
+            humidityCount++;
+            humidityMin = humidityMin == null ? value : Math.min(humidityMin, value);
+            humidityMax = humidityMax == null ? value : Math.max(humidityMax, value);
+            humiditySum += value;
+        }
+        value = record.getVibration();
+        if (value != null) {
+            vibrationCount++;
+            vibrationMin = vibrationMin == null ? value : Math.min(vibrationMin, value);
+            vibrationMax = vibrationMax == null ? value : Math.max(vibrationMax, value);
+            vibrationSum += value;
+        }
+    }
+
+    /**
+     * 合并另一段汇总，用于将相邻时间段合并为更粗的粒度
+     */
+    public void merge(EquipmentTelemetryRollup other) {
+        sampleCount += other.sampleCount;
+        temperatureCount += other.temperatureCount;
+        temperatureMin = min(temperatureMin, other.temperatureMin);
+        temperatureMax = max(temperatureMax, other.temperatureMax);
+        temperatureSum += other.temperatureSum;
+        pressureCount += other.pressureCount;
+        pressureMin = min(pressureMin, other.pressureMin);
+        pressureMax = max(pressureMax, other.pressureMax);
+        pressureSum += other.pressureSum;
+        humidityCount += other.humidityCount;
+        humidityMin = min(humidityMin, other.humidityMin);
+        humidityMax = max(humidityMax, other.humidityMax);
+        humiditySum += other.humiditySum;
+        vibrationCount += other.vibrationCount;
+        vibrationMin = min(vibrationMin, other.vibrationMin);
+        vibrationMax = max(vibrationMax, other.vibrationMax);
+        vibrationSum += other.vibrationSum;
+    }
+
+    private static Double min(Double a, Double b) {
+        return a == null ? b : b == null ? a : Double.valueOf(Math.min(a, b));
+    }
+
+    private static Double max(Double a, Double b) {
+        return a == null ? b : b == null ? a : Double.valueOf(Math.max(a, b));
+    }
+
+    /**
+     * 汇总粒度
+     */
+    public enum Resolution {
+        MINUTE(ChronoUnit.MINUTES), // 分钟
+        HOUR(ChronoUnit.HOURS); // 小时
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+
+        /**
+         * 获取时间所在汇总时间段的开始时间
+         */
+        public LocalDateTime bucketOf(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gmp.mes.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批次谱系变更监听器 - 订单、批次、批操作变更时递增谱系版本，版本变化后缓存的追溯结果失效
+ *
+ * 变更时立即递增一次，事务提交后再递增一次，避免提交前读取到旧数据的查询以新版本写入缓存。
+ *
+ * @author gmp-system
+ */
+public class GenealogyChangeListener {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    /**
+     * 事务资源标记，同一事务中的多次变更只注册一次提交后递增
+     */
+    private static final Object TRANSACTION_KEY = new Object();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        markChanged();
+    }
+
+    /**
+     * 当前谱系版本
+     */
+    public static long currentVersion() {
+        return VERSION.get();
+    }
+
+    /**
+     * 标记谱系已变更，用于不经过实体监听器的批量更新
+     */
+    public static void markChanged() {
+        VERSION.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(TRANSACTION_KEY)) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+                    VERSION.incrementAndGet();
+                }
+            });
+        }
+    }
+}
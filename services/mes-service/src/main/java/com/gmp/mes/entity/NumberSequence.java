@@ -0,0 +1,30 @@
+package com.gmp.mes.entity;
+
+import lombok.Data;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 编号序列实体 - 记录每个编号序列已分配出去的最大值（高水位）
+ * 
+ * @author gmp-system
+ */
+@Entity
+@Table(name = "number_sequences")
+@Data
+public class NumberSequence {
+
+    /**
+     * 序列键，如 BATCH-20240101
+     */
+    @Id
+    @Column(name = "sequence_key", length = 100)
+    private String sequenceKey;
+
+    @Column(name = "high_value", nullable = false)
+    private Long highValue = 0L;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
@@ -18,9 +18,14 @@ import java.util.Set;
  * @author gmp-system
  */
 @Entity
-@Table(name = "production_batches")
+@Table(name = "production_batches", indexes = {
+        @Index(name = "idx_production_batches_order_status", columnList = "order_id, status"),
+        @Index(name = "idx_production_batches_product", columnList = "product_id"),
+        @Index(name = "idx_production_batches_equipment", columnList = "equipment_id"),
+        @Index(name = "idx_production_batches_operator", columnList = "operator")
+})
 @Data
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, GenealogyChangeListener.class})
 public class ProductionBatch {
 
     @Id
@@ -21,7 +21,7 @@ import java.util.Set;
 @Entity
 @Table(name = "production_orders")
 @Data
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, GenealogyChangeListener.class})
 public class ProductionOrder {
 
     @Id
@@ -99,6 +99,12 @@ public class ProductionOrder {
     @OneToMany(mappedBy = "productionOrder", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ProductionBatch> batches = new ArrayList<>();
 
+    // 批次计数，只由批次服务原子更新，保存订单时不覆盖；为空表示历史订单尚未统计
+    @Column(updatable = false)
+    private Long batchCount = 0L;
+    @Column(updatable = false)
+    private Long completedBatchCount = 0L;
+
     // 显式添加getter和setter方法
     public Long getId() {
         return id;
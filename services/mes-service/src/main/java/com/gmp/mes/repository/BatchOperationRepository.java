@@ -1,11 +1,16 @@
 package com.gmp.mes.repository;
 
+import com.gmp.mes.dto.BatchOperationSummaryDTO;
 import com.gmp.mes.entity.BatchOperation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 批操作Repository接口
@@ -23,7 +28,20 @@ public interface BatchOperationRepository
      * @param productionBatchId 生产批次ID
      * @return 批操作列表
      */
-    List<BatchOperation> findByProductionBatchId(Long productionBatchId);
+    @Query("SELECT o FROM BatchOperation o WHERE o.batch.id = :batchId ORDER BY o.id")
+    List<BatchOperation> findByProductionBatchId(@Param("batchId") Long productionBatchId);
+
+    /**
+     * 按开始时间顺序查询批次中指定类型的批操作
+     *
+     * @param batchId       批次ID
+     * @param operationType 操作类型
+     * @return 批操作列表
+     */
+    @Query("SELECT o FROM BatchOperation o WHERE o.batch.id = :batchId AND o.operationType = :operationType "
+            + "ORDER BY o.startTime, o.id")
+    List<BatchOperation> findByBatchIdAndOperationType(@Param("batchId") Long batchId,
+            @Param("operationType") String operationType);
 
     /**
      * 根据操作状态查询批操作列表
@@ -49,6 +67,24 @@ public interface BatchOperationRepository
      */
     List<BatchOperation> findByEquipmentId(String equipmentId);
 
+    /**
+     * 查询使用过指定设备的批次ID
+     *
+     * @param equipmentId 设备ID
+     * @return 批次ID列表
+     */
+    @Query("SELECT DISTINCT o.batch.id FROM BatchOperation o WHERE o.equipmentId = :equipmentId")
+    List<Long> findBatchIdsByEquipmentId(@Param("equipmentId") String equipmentId);
+
+    /**
+     * 查询指定操作员执行过操作的批次ID
+     *
+     * @param operator 操作员
+     * @return 批次ID列表
+     */
+    @Query("SELECT DISTINCT o.batch.id FROM BatchOperation o WHERE o.operator = :operator")
+    List<Long> findBatchIdsByOperator(@Param("operator") String operator);
+
     /**
      * 根据操作编号查询批操作
      * 兼容方法，实际上查询的是operationName字段
@@ -58,6 +94,71 @@ public interface BatchOperationRepository
      */
     BatchOperation findByOperationName(String operationNumber);
 
+    /**
+     * 根据操作编号查询最早的一条批操作，操作编号保存在operationName字段
+     *
+     * @param operationName 操作编号
+     * @return 批操作对象
+     */
+    Optional<BatchOperation> findFirstByOperationNameOrderByIdAsc(String operationName);
+
+    /**
+     * 按ID顺序查询指定ID之后的批操作摘要，记录数量由分页参数限制
+     *
+     * @param afterId  上一页最后一条记录的ID
+     * @param pageable 分页参数
+     * @return 批操作摘要列表
+     */
+    @Query("SELECT new com.gmp.mes.dto.BatchOperationSummaryDTO(o.id, o.batch.id, o.operationName, o.operationType, "
+            + "o.status, o.startTime, o.endTime, o.operator, o.equipmentId) "
+            + "FROM BatchOperation o WHERE o.id > :afterId ORDER BY o.id")
+    List<BatchOperationSummaryDTO> findSummaries(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 按ID顺序查询批次中指定ID之后的批操作摘要，记录数量由分页参数限制
+     *
+     * @param batchId  批次ID
+     * @param afterId  上一页最后一条记录的ID
+     * @param pageable 分页参数
+     * @return 批操作摘要列表
+     */
+    @Query("SELECT new com.gmp.mes.dto.BatchOperationSummaryDTO(o.id, o.batch.id, o.operationName, o.operationType, "
+            + "o.status, o.startTime, o.endTime, o.operator, o.equipmentId) "
+            + "FROM BatchOperation o WHERE o.batch.id = :batchId AND o.id > :afterId ORDER BY o.id")
+    List<BatchOperationSummaryDTO> findSummariesByBatchId(@Param("batchId") Long batchId,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 按ID顺序查询批次中指定状态、指定ID之后的批操作摘要，记录数量由分页参数限制
+     *
+     * @param batchId  批次ID
+     * @param status   操作状态
+     * @param afterId  上一页最后一条记录的ID
+     * @param pageable 分页参数
+     * @return 批操作摘要列表
+     */
+    @Query("SELECT new com.gmp.mes.dto.BatchOperationSummaryDTO(o.id, o.batch.id, o.operationName, o.operationType, "
+            + "o.status, o.startTime, o.endTime, o.operator, o.equipmentId) "
+            + "FROM BatchOperation o WHERE o.batch.id = :batchId AND o.status = :status AND o.id > :afterId "
+            + "ORDER BY o.id")
+    List<BatchOperationSummaryDTO> findSummariesByBatchIdAndStatus(@Param("batchId") Long batchId,
+            @Param("status") BatchOperation.OperationStatus status, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * 按ID顺序查询指定状态、指定ID之后的批操作摘要，记录数量由分页参数限制
+     *
+     * @param status   操作状态
+     * @param afterId  上一页最后一条记录的ID
+     * @param pageable 分页参数
+     * @return 批操作摘要列表
+     */
+    @Query("SELECT new com.gmp.mes.dto.BatchOperationSummaryDTO(o.id, o.batch.id, o.operationName, o.operationType, "
+            + "o.status, o.startTime, o.endTime, o.operator, o.equipmentId) "
+            + "FROM BatchOperation o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id")
+    List<BatchOperationSummaryDTO> findSummariesByStatus(@Param("status") BatchOperation.OperationStatus status,
+            @Param("afterId") Long afterId, Pageable pageable);
+
     /**
      * 根据操作编号查询批操作的别名方法
      * 为了兼容测试代码
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +28,28 @@ public interface EquipmentMonitorRepository extends JpaRepository<EquipmentMonit
      */
     Optional<EquipmentMonitor> findByEquipmentCode(String equipmentCode);
 
+    /**
+     * 根据设备编码批量查询设备
+     * 
+     * @param equipmentCodes 设备编码集合
+     * @return 设备列表，不存在的编码没有对应元素
+     */
+    List<EquipmentMonitor> findByEquipmentCodeIn(Collection<String> equipmentCodes);
+
+    /**
+     * 查询全部设备的编码、类型和位置，只读取这三列
+     * 
+     * @return 设备概要列表
+     */
+    List<EquipmentDescriptor> findAllProjectedBy();
+
+    /**
+     * 查询全部设备的实时状态字段，用于启动时预热实时状态缓存
+     * 
+     * @return 设备实时状态列表
+     */
+    List<EquipmentLiveState> findAllLiveStateBy();
+
     /**
      * 根据设备类型查询设备列表
      * 
@@ -85,4 +108,38 @@ public interface EquipmentMonitorRepository extends JpaRepository<EquipmentMonit
      * @return 设备数量
      */
     long countByStatus(EquipmentMonitor.EquipmentStatus status);
-}
\ No newline at end of file
+
+    /**
+     * 设备概要投影
+     */
+    interface EquipmentDescriptor {
+
+        String getEquipmentCode();
+
+        String getEquipmentType();
+
+        String getLocation();
+    }
+
+    /**
+     * 设备实时状态投影，字段与实时状态缓存的编码内容一致
+     */
+    interface EquipmentLiveState {
+
+        Long getId();
+
+        String getEquipmentCode();
+
+        EquipmentMonitor.EquipmentStatus getStatus();
+
+        Double getTemperature();
+
+        Double getPressure();
+
+        Double getHumidity();
+
+        Double getVibration();
+
+        LocalDateTime getLastUpdatedTime();
+    }
+}
@@ -1,6 +1,7 @@
 package com.gmp.mes.repository;
 
 import com.gmp.mes.entity.EquipmentStatusRecord;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -25,6 +26,15 @@ public interface EquipmentStatusRecordRepository extends JpaRepository<Equipment
      */
     List<EquipmentStatusRecord> findByEquipmentCodeOrderByTimestampDesc(String equipmentCode);
 
+    /**
+     * 根据设备编码查询最近的状态记录，记录数量由分页参数限制
+     * 
+     * @param equipmentCode 设备编码
+     * @param pageable 分页参数
+     * @return 状态记录列表
+     */
+    List<EquipmentStatusRecord> findByEquipmentCodeOrderByTimestampDesc(String equipmentCode, Pageable pageable);
+
     /**
      * 根据设备编码和时间范围查询状态记录
      * 
@@ -36,6 +46,31 @@ public interface EquipmentStatusRecordRepository extends JpaRepository<Equipment
     List<EquipmentStatusRecord> findByEquipmentCodeAndTimestampBetweenOrderByTimestampDesc(
             String equipmentCode, LocalDateTime startDate, LocalDateTime endDate);
 
+    /**
+     * 根据设备编码和时间范围查询最近的状态记录，记录数量由分页参数限制
+     * 
+     * @param equipmentCode 设备编码
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param pageable 分页参数
+     * @return 状态记录列表
+     */
+    List<EquipmentStatusRecord> findByEquipmentCodeAndTimestampBetweenOrderByTimestampDesc(
+            String equipmentCode, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+
+    /**
+     * 按时间顺序查询指定操作人在时间范围内生成的状态记录，记录数量由分页参数限制
+     * 
+     * @param equipmentCode 设备编码
+     * @param operator 操作人
+     * @param startDate 开始时间（包含）
+     * @param endDate 结束时间（不包含）
+     * @param pageable 分页参数
+     * @return 状态记录列表
+     */
+    List<EquipmentStatusRecord> findByEquipmentCodeAndOperatorAndTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAsc(
+            String equipmentCode, String operator, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
+
     /**
      * 查询指定设备的最新状态记录
      * 
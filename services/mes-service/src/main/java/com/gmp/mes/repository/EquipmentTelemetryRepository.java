@@ -0,0 +1,215 @@
+package com.gmp.mes.repository;
+
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.entity.EquipmentStatusRecord;
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备遥测数据批量写入
+ * 
+ * 状态记录主键为自增列，通过JPA保存时无法使用JDBC批量插入，这里直接使用JDBC批量语句。
+ * 连接地址开启reWriteBatchedInserts后，PostgreSQL驱动会将批量插入合并为多值INSERT。
+ * 遥测汇总与状态记录在同一事务中写入，写入失败重试时汇总不会重复累加。
+ * 
+ * @author gmp-system
+ */
+@Repository
+public class EquipmentTelemetryRepository {
+
+    private static final String INSERT_STATUS_RECORD = "INSERT INTO equipment_status_records "
+            + "(equipment_code, equipment_name, status, temperature, pressure, humidity, vibration, notes, operator, "
+            + "\"timestamp\") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 状态只在数据库中的值仍为上次写入的值时更新，避免覆盖期间人工修改的状态
+    private static final String UPDATE_LATEST_STATE = "UPDATE equipment_monitor SET temperature = ?, pressure = ?, "
+            + "humidity = ?, vibration = ?, last_updated_time = ?, updated_at = ?, "
+            + "status = CASE WHEN COALESCE(status, '') = ? THEN ? ELSE status END WHERE id = ?";
+
+    // 汇总已存在时合并统计值，最小值和最大值为空时LEAST/GREATEST取另一方
+    private static final String UPSERT_ROLLUP = "INSERT INTO equipment_telemetry_rollups AS r "
+            + "(equipment_code, resolution, bucket_start, sample_count, "
+            + "temperature_count, temperature_min, temperature_max, temperature_sum, "
+            + "pressure_count, pressure_min, pressure_max, pressure_sum, "
+            + "humidity_count, humidity_min, humidity_max, humidity_sum, "
+            + "vibration_count, vibration_min, vibration_max, vibration_sum) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (equipment_code, resolution, bucket_start) DO UPDATE SET "
+            + "sample_count = r.sample_count + EXCLUDED.sample_count, "
+            + mergeColumns("temperature") + ", " + mergeColumns("pressure") + ", "
+            + mergeColumns("humidity") + ", " + mergeColumns("vibration");
+
+    // 按时间段汇总已有的读数记录，汇总已存在时跳过，不与实时写入的汇总重复累加；%s为date_trunc的时间单位
+    private static final String BACKFILL_ROLLUPS = "INSERT INTO equipment_telemetry_rollups "
+            + "(equipment_code, resolution, bucket_start, sample_count, "
+            + "temperature_count, temperature_min, temperature_max, temperature_sum, "
+            + "pressure_count, pressure_min, pressure_max, pressure_sum, "
+            + "humidity_count, humidity_min, humidity_max, humidity_sum, "
+            + "vibration_count, vibration_min, vibration_max, vibration_sum) "
+            + "SELECT equipment_code, ?, date_trunc('%s', \"timestamp\"), COUNT(*), "
+            + aggregateColumns("temperature") + ", " + aggregateColumns("pressure") + ", "
+            + aggregateColumns("humidity") + ", " + aggregateColumns("vibration") + " "
+            + "FROM equipment_status_records WHERE operator = ? AND \"timestamp\" >= ? AND \"timestamp\" < ? "
+            + "GROUP BY equipment_code, date_trunc('%s', \"timestamp\") "
+            + "ON CONFLICT (equipment_code, resolution, bucket_start) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量插入设备状态记录，并将读数合并到遥测汇总
+     * 
+     * @param records 状态记录
+     * @param rollups 本批读数的汇总，按设备编码、粒度和时间排序
+     */
+    @Transactional
+    public void insertStatusRecords(List<EquipmentStatusRecord> records, List<EquipmentTelemetryRollup> rollups) {
+        jdbcTemplate.batchUpdate(INSERT_STATUS_RECORD, records, records.size(), (ps, record) -> {
+            ps.setString(1, record.getEquipmentCode());
+            ps.setString(2, record.getEquipmentName());
+            ps.setString(3, record.getStatus() != null ? record.getStatus().name() : null);
+            ps.setObject(4, record.getTemperature());
+            ps.setObject(5, record.getPressure());
+            ps.setObject(6, record.getHumidity());
+            ps.setObject(7, record.getVibration());
+            ps.setString(8, record.getNotes());
+            ps.setString(9, record.getOperator());
+            ps.setObject(10, record.getTimestamp());
+        });
+        if (!rollups.isEmpty()) {
+            upsertRollups(rollups);
+        }
+    }
+
+    private void upsertRollups(List<EquipmentTelemetryRollup> rollups) {
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP, rollups, rollups.size(), (ps, rollup) -> {
+            ps.setString(1, rollup.getEquipmentCode());
+            ps.setString(2, rollup.getResolution().name());
+            ps.setObject(3, rollup.getBucketStart());
+            ps.setLong(4, rollup.getSampleCount());
+            ps.setLong(5, rollup.getTemperatureCount());
+            ps.setObject(6, rollup.getTemperatureMin());
+            ps.setObject(7, rollup.getTemperatureMax());
+            ps.setDouble(8, rollup.getTemperatureSum());
+            ps.setLong(9, rollup.getPressureCount());
+            ps.setObject(10, rollup.getPressureMin());
+            ps.setObject(11, rollup.getPressureMax());
+            ps.setDouble(12, rollup.getPressureSum());
+            ps.setLong(13, rollup.getHumidityCount());
+            ps.setObject(14, rollup.getHumidityMin());
+            ps.setObject(15, rollup.getHumidityMax());
+            ps.setDouble(16, rollup.getHumiditySum());
+            ps.setLong(17, rollup.getVibrationCount());
+            ps.setObject(18, rollup.getVibrationMin());
+            ps.setObject(19, rollup.getVibrationMax());
+            ps.setDouble(20, rollup.getVibrationSum());
+        });
+    }
+
+    /**
+     * 查询指定操作员最早的状态记录时间
+     * 
+     * @param operator 操作员
+     * @return 最早的记录时间，没有记录时为空
+     */
+    public LocalDateTime findEarliestRecordTime(String operator) {
+        return jdbcTemplate.queryForObject("SELECT MIN(\"timestamp\") FROM equipment_status_records WHERE operator = ?",
+                LocalDateTime.class, operator);
+    }
+
+    /**
+     * 查询指定粒度最早的汇总时间段
+     * 
+     * @param resolution 汇总粒度
+     * @return 最早时间段的开始时间，没有汇总时为空
+     */
+    public LocalDateTime findEarliestRollupBucket(EquipmentTelemetryRollup.Resolution resolution) {
+        return jdbcTemplate.queryForObject("SELECT MIN(bucket_start) FROM equipment_telemetry_rollups WHERE resolution = ?",
+                LocalDateTime.class, resolution.name());
+    }
+
+    /**
+     * 由时间范围内的读数记录生成汇总，已存在的汇总不修改
+     * 
+     * @param resolution 汇总粒度
+     * @param operator   读数记录的操作员
+     * @param from       开始时间（包含），需与时间段对齐
+     * @param to         结束时间（不包含），需与时间段对齐
+     * @return 新增的汇总数
+     */
+    public int backfillRollups(EquipmentTelemetryRollup.Resolution resolution, String operator,
+            LocalDateTime from, LocalDateTime to) {
+        String unit = resolution.name().toLowerCase();
+        return jdbcTemplate.update(String.format(BACKFILL_ROLLUPS, unit, unit), resolution.name(), operator, from, to);
+    }
+
+    /**
+     * 批量更新设备最新参数和状态
+     * 
+     * @param states 设备最新状态
+     */
+    public void updateLatestStates(List<LatestState> states) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPDATE_LATEST_STATE, states, states.size(), (ps, state) -> {
+            ps.setObject(1, state.getTemperature());
+            ps.setObject(2, state.getPressure());
+            ps.setObject(3, state.getHumidity());
+            ps.setObject(4, state.getVibration());
+            ps.setObject(5, state.getLastUpdatedTime());
+            ps.setObject(6, now);
+            ps.setString(7, state.getExpectedStatus() != null ? state.getExpectedStatus().name() : "");
+            ps.setString(8, state.getStatus() != null ? state.getStatus().name() : null);
+            ps.setLong(9, state.getId());
+        });
+    }
+
+    private static String mergeColumns(String parameter) {
+        return parameter + "_count = r." + parameter + "_count + EXCLUDED." + parameter + "_count, "
+                + parameter + "_min = LEAST(r." + parameter + "_min, EXCLUDED." + parameter + "_min), "
+                + parameter + "_max = GREATEST(r." + parameter + "_max, EXCLUDED." + parameter + "_max), "
+                + parameter + "_sum = r." + parameter + "_sum + EXCLUDED." + parameter + "_sum";
+    }
+
+    private static String aggregateColumns(String parameter) {
+        return "COUNT(" + parameter + "), MIN(" + parameter + "), MAX(" + parameter + "), "
+                + "COALESCE(SUM(" + parameter + "), 0)";
+    }
+
+    /**
+     * 待写入的设备最新状态
+     */
+    @Getter
+    public static final class LatestState {
+
+        private final Long id;
+        private final Double temperature;
+        private final Double pressure;
+        private final Double humidity;
+        private final Double vibration;
+        private final LocalDateTime lastUpdatedTime;
+        private final EquipmentMonitor.EquipmentStatus status;
+        private final EquipmentMonitor.EquipmentStatus expectedStatus;
+
+        /**
+         * @param equipment      设备当前状态
+         * @param expectedStatus 数据库中当前的设备状态
+         */
+        public LatestState(EquipmentMonitor equipment, EquipmentMonitor.EquipmentStatus expectedStatus) {
+            this.id = equipment.getId();
+            this.temperature = equipment.getTemperature();
+            this.pressure = equipment.getPressure();
+            this.humidity = equipment.getHumidity();
+            this.vibration = equipment.getVibration();
+            this.lastUpdatedTime = equipment.getLastUpdatedTime();
+            this.status = equipment.getStatus();
+            this.expectedStatus = expectedStatus;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.gmp.mes.repository;
+
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 设备遥测汇总数据访问接口
+ * 
+ * 汇总记录由遥测历史写入时增量更新，见EquipmentTelemetryRepository
+ * 
+ * @author gmp-system
+ */
+@Repository
+public interface EquipmentTelemetryRollupRepository extends JpaRepository<EquipmentTelemetryRollup, Long> {
+
+    /**
+     * 按时间顺序查询设备在时间范围内的汇总记录
+     * 
+     * @param equipmentCode 设备编码
+     * @param resolution 汇总粒度
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 汇总记录列表
+     */
+    List<EquipmentTelemetryRollup> findByEquipmentCodeAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+            String equipmentCode, EquipmentTelemetryRollup.Resolution resolution, LocalDateTime startTime,
+            LocalDateTime endTime);
+}
@@ -1,13 +1,18 @@
 package com.gmp.mes.repository;
 
+import com.gmp.mes.entity.BatchOperation;
 import com.gmp.mes.entity.ProductionBatch;
 import com.gmp.mes.entity.ProductionOrder;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,14 +32,6 @@ public interface ProductionBatchRepository extends JpaRepository<ProductionBatch
      */
     Optional<ProductionBatch> findByBatchNumber(String batchNumber);
 
-    /**
-     * 根据订单查询批次列表
-     * 
-     * @param order 生产订单
-     * @return 批次列表
-     */
-    List<ProductionBatch> findByOrder(ProductionOrder order);
-
     /**
      * 根据订单ID查询批次列表
      * 
@@ -83,4 +80,122 @@ public interface ProductionBatchRepository extends JpaRepository<ProductionBatch
      * @return 批次数量
      */
     long countByStatus(ProductionBatch.BatchStatus status);
-}
\ No newline at end of file
+
+    /**
+     * 查询订单下的批次ID
+     * 
+     * @param orderId 订单ID
+     * @return 批次ID列表
+     */
+    @Query("SELECT b.id FROM ProductionBatch b WHERE b.productionOrder.id = :orderId")
+    List<Long> findIdsByOrderId(@Param("orderId") Long orderId);
+
+    /**
+     * 查询批次在数据库中所属的订单ID，查询前不写入本事务中尚未写入的变更，返回的是修改前的订单
+     * 
+     * @param batchId 批次ID
+     * @return 订单ID，批次不存在或不属于任何订单时为空
+     */
+    @Query("SELECT b.productionOrder.id FROM ProductionBatch b WHERE b.id = :batchId")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    Optional<Long> findOrderIdById(@Param("batchId") Long batchId);
+
+    /**
+     * 查询产品的批次ID
+     * 
+     * @param productId 产品ID
+     * @return 批次ID列表
+     */
+    @Query("SELECT b.id FROM ProductionBatch b WHERE b.productId = :productId")
+    List<Long> findIdsByProductId(@Param("productId") String productId);
+
+    /**
+     * 根据批次编号查询批次ID
+     * 
+     * @param batchNumber 批次编号
+     * @return 批次ID列表
+     */
+    @Query("SELECT b.id FROM ProductionBatch b WHERE b.batchNumber = :batchNumber")
+    List<Long> findIdsByBatchNumber(@Param("batchNumber") String batchNumber);
+
+    /**
+     * 查询使用指定设备生产的批次ID
+     * 
+     * @param equipmentId 设备ID
+     * @return 批次ID列表
+     */
+    @Query("SELECT b.id FROM ProductionBatch b WHERE b.equipmentId = :equipmentId")
+    List<Long> findIdsByEquipmentId(@Param("equipmentId") String equipmentId);
+
+    /**
+     * 查询指定操作员负责的批次ID
+     * 
+     * @param operator 操作员
+     * @return 批次ID列表
+     */
+    @Query("SELECT b.id FROM ProductionBatch b WHERE b.operator = :operator")
+    List<Long> findIdsByOperator(@Param("operator") String operator);
+
+    /**
+     * 一次查询批次及其订单和批操作的谱系信息，不加载操作参数等大字段
+     * 
+     * @param batchIds 批次ID集合
+     * @return 每个批操作一行，没有批操作的批次也返回一行
+     */
+    @Query("SELECT o.id AS orderId, o.orderNumber AS orderNumber, o.productName AS orderProductName, "
+            + "o.status AS orderStatus, b.id AS batchId, b.batchNumber AS batchNumber, b.productId AS productId, "
+            + "b.status AS batchStatus, b.equipmentId AS batchEquipmentId, b.operator AS batchOperator, "
+            + "b.startTime AS batchStartTime, b.endTime AS batchEndTime, op.id AS operationId, "
+            + "op.operationName AS operationName, op.operationType AS operationType, op.status AS operationStatus, "
+            + "op.equipmentId AS operationEquipmentId, op.operator AS operationOperator, "
+            + "op.startTime AS operationStartTime, op.endTime AS operationEndTime "
+            + "FROM ProductionBatch b JOIN b.productionOrder o LEFT JOIN b.batchOperations op "
+            + "WHERE b.id IN :batchIds ORDER BY o.id, b.id, op.id")
+    List<GenealogyRow> findGenealogyRows(@Param("batchIds") Collection<Long> batchIds);
+
+    /**
+     * 批次谱系查询结果行
+     */
+    interface GenealogyRow {
+
+        Long getOrderId();
+
+        String getOrderNumber();
+
+        String getOrderProductName();
+
+        ProductionOrder.OrderStatus getOrderStatus();
+
+        Long getBatchId();
+
+        String getBatchNumber();
+
+        String getProductId();
+
+        ProductionBatch.BatchStatus getBatchStatus();
+
+        String getBatchEquipmentId();
+
+        String getBatchOperator();
+
+        LocalDateTime getBatchStartTime();
+
+        LocalDateTime getBatchEndTime();
+
+        Long getOperationId();
+
+        String getOperationName();
+
+        String getOperationType();
+
+        BatchOperation.OperationStatus getOperationStatus();
+
+        String getOperationEquipmentId();
+
+        String getOperationOperator();
+
+        LocalDateTime getOperationStartTime();
+
+        LocalDateTime getOperationEndTime();
+    }
+}
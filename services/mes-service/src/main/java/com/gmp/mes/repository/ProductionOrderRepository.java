@@ -1,7 +1,9 @@
 package com.gmp.mes.repository;
 
+import com.gmp.mes.entity.ProductionBatch;
 import com.gmp.mes.entity.ProductionOrder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -75,4 +77,64 @@ public interface ProductionOrderRepository extends JpaRepository<ProductionOrder
      * @return 订单数量
      */
     long countByStatus(ProductionOrder.OrderStatus status);
-}
\ No newline at end of file
+
+    /**
+     * 订单批次数加一，历史订单尚未统计批次数时不更新
+     * 
+     * @param orderId 订单ID
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE ProductionOrder o SET o.batchCount = o.batchCount + 1 WHERE o.id = :orderId AND o.batchCount IS NOT NULL")
+    int incrementBatchCount(@Param("orderId") Long orderId);
+
+    /**
+     * 订单已完成批次数加一，历史订单尚未统计批次数时不更新
+     * 
+     * @param orderId 订单ID
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE ProductionOrder o SET o.completedBatchCount = o.completedBatchCount + 1 "
+            + "WHERE o.id = :orderId AND o.completedBatchCount IS NOT NULL AND o.batchCount IS NOT NULL")
+    int incrementCompletedBatchCount(@Param("orderId") Long orderId);
+
+    /**
+     * 按当前批次重新统计订单的批次数和已完成批次数
+     * 
+     * @param orderId 订单ID
+     * @param completed 已完成状态
+     * @return 更新的记录数
+     */
+    @Modifying
+    @Query("UPDATE ProductionOrder o SET "
+            + "o.batchCount = (SELECT COUNT(b) FROM ProductionBatch b WHERE b.productionOrder.id = :orderId), "
+            + "o.completedBatchCount = (SELECT COUNT(b) FROM ProductionBatch b "
+            + "WHERE b.productionOrder.id = :orderId AND b.status = :completed) "
+            + "WHERE o.id = :orderId")
+    int recountBatches(@Param("orderId") Long orderId, @Param("completed") ProductionBatch.BatchStatus completed);
+
+    /**
+     * 全部批次完成时将进行中的订单标记为完成
+     * 
+     * 已完成批次数未达到批次数时直接不匹配；达到时再确认订单下没有未完成的批次，
+     * 批次数因其他途径的修改偏小时不会提前完成订单。
+     * 
+     * @param orderId 订单ID
+     * @param inProgress 进行中状态
+     * @param completed 完成状态
+     * @param batchCompleted 批次完成状态
+     * @param updatedAt 更新时间
+     * @return 更新的记录数，订单未完成时为0
+     */
+    @Modifying
+    @Query("UPDATE ProductionOrder o SET o.status = :completed, o.updatedAt = :updatedAt "
+            + "WHERE o.id = :orderId AND o.status = :inProgress AND o.completedBatchCount >= o.batchCount "
+            + "AND NOT EXISTS (SELECT b.id FROM ProductionBatch b "
+            + "WHERE b.productionOrder.id = :orderId AND b.status <> :batchCompleted)")
+    int completeIfAllBatchesCompleted(@Param("orderId") Long orderId,
+            @Param("inProgress") ProductionOrder.OrderStatus inProgress,
+            @Param("completed") ProductionOrder.OrderStatus completed,
+            @Param("batchCompleted") ProductionBatch.BatchStatus batchCompleted,
+            @Param("updatedAt") LocalDateTime updatedAt);
+}
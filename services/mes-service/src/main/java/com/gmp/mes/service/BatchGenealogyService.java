@@ -0,0 +1,222 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.BatchGenealogyDTO;
+import com.gmp.mes.entity.GenealogyChangeListener;
+import com.gmp.mes.repository.BatchOperationRepository;
+import com.gmp.mes.repository.ProductionBatchRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * 批次谱系服务 - 正向（订单/产品 → 批次 → 批操作 → 设备/操作员）和反向（设备/操作员 → 批次 → 订单）追溯
+ *
+ * 追溯分两步查询：先按起点查出批次ID，再一次关联查询批次、订单和批操作的谱系字段，
+ * 不经过实体的延迟加载。结果按起点缓存，订单、批次或批操作变更后缓存失效。
+ *
+ * @author gmp-system
+ */
+@Service
+public class BatchGenealogyService {
+
+    @Autowired
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Autowired
+    private BatchOperationRepository batchOperationRepository;
+
+    @Value("${production.genealogy.cache-ttl:60000}")
+    private long cacheTtl = 60000;
+
+    @Value("${production.genealogy.cache-size:500}")
+    private int cacheSize = 500;
+
+    @Value("${production.genealogy.query-chunk-size:1000}")
+    private int queryChunkSize = 1000;
+
+    /**
+     * 追溯结果缓存，按最近访问顺序淘汰
+     */
+    private final Map<String, CachedGenealogy> cache = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedGenealogy>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedGenealogy> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /**
+     * 正向追溯订单
+     *
+     * @param orderId 订单ID
+     * @return 谱系，结果为缓存共享对象，调用方不应修改
+     */
+    public BatchGenealogyDTO traceOrder(Long orderId) {
+        return trace("ORDER", String.valueOf(orderId), () -> productionBatchRepository.findIdsByOrderId(orderId));
+    }
+
+    /**
+     * 正向追溯产品的全部批次
+     *
+     * @param productId 产品ID
+     * @return 谱系，结果为缓存共享对象，调用方不应修改
+     */
+    public BatchGenealogyDTO traceProduct(String productId) {
+        return trace("PRODUCT", productId, () -> productionBatchRepository.findIdsByProductId(productId));
+    }
+
+    /**
+     * 追溯单个批次所属订单及其批操作
+     *
+     * @param batchNumber 批次编号
+     * @return 谱系，结果为缓存共享对象，调用方不应修改
+     */
+    public BatchGenealogyDTO traceBatch(String batchNumber) {
+        return trace("BATCH", batchNumber, () -> productionBatchRepository.findIdsByBatchNumber(batchNumber));
+    }
+
+    /**
+     * 反向追溯使用过指定设备的批次和订单，包括批次设备和批操作设备
+     *
+     * @param equipmentId 设备ID
+     * @return 谱系，结果为缓存共享对象，调用方不应修改
+     */
+    public BatchGenealogyDTO traceEquipment(String equipmentId) {
+        return trace("EQUIPMENT", equipmentId, () -> {
+            Set<Long> batchIds = new TreeSet<>(productionBatchRepository.findIdsByEquipmentId(equipmentId));
+            batchIds.addAll(batchOperationRepository.findBatchIdsByEquipmentId(equipmentId));
+            return batchIds;
+        });
+    }
+
+    /**
+     * 反向追溯指定操作员参与过的批次和订单，包括批次操作员和批操作操作员
+     *
+     * @param operator 操作员
+     * @return 谱系，结果为缓存共享对象，调用方不应修改
+     */
+    public BatchGenealogyDTO traceOperator(String operator) {
+        return trace("OPERATOR", operator, () -> {
+            Set<Long> batchIds = new TreeSet<>(productionBatchRepository.findIdsByOperator(operator));
+            batchIds.addAll(batchOperationRepository.findBatchIdsByOperator(operator));
+            return batchIds;
+        });
+    }
+
+    private BatchGenealogyDTO trace(String traceType, String traceKey, Supplier<? extends Collection<Long>> batchIds) {
+        String key = traceType + ":" + traceKey;
+        // 先读取版本再查询，查询期间的变更会使本次结果在下次读取时失效
+        long version = GenealogyChangeListener.currentVersion();
+        long now = System.currentTimeMillis();
+        CachedGenealogy cached = cache.get(key);
+        if (cached != null && cached.version == version && cached.expiresAt > now) {
+            return cached.genealogy;
+        }
+
+        BatchGenealogyDTO genealogy = build(traceType, traceKey, new TreeSet<>(batchIds.get()));
+        cache.put(key, new CachedGenealogy(genealogy, version, now + cacheTtl));
+        return genealogy;
+    }
+
+    private BatchGenealogyDTO build(String traceType, String traceKey, Set<Long> batchIds) {
+        BatchGenealogyDTO genealogy = new BatchGenealogyDTO();
+        genealogy.setTraceType(traceType);
+        genealogy.setTraceKey(traceKey);
+
+        Map<Long, BatchGenealogyDTO.OrderNode> orders = new LinkedHashMap<>();
+        Map<Long, BatchGenealogyDTO.BatchNode> batches = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(batchIds);
+        // 分段查询，避免IN列表过长
+        for (int from = 0; from < ids.size(); from += queryChunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + queryChunkSize, ids.size()));
+            for (ProductionBatchRepository.GenealogyRow row : productionBatchRepository.findGenealogyRows(chunk)) {
+                BatchGenealogyDTO.OrderNode order = orders.computeIfAbsent(row.getOrderId(), id -> {
+                    BatchGenealogyDTO.OrderNode node = new BatchGenealogyDTO.OrderNode();
+                    node.setId(id);
+                    node.setOrderNumber(row.getOrderNumber());
+                    node.setProductName(row.getOrderProductName());
+                    node.setStatus(row.getOrderStatus());
+                    return node;
+                });
+                BatchGenealogyDTO.BatchNode batch = batches.get(row.getBatchId());
+                if (batch == null) {
+                    batch = batchNode(row);
+                    batches.put(row.getBatchId(), batch);
+                    order.getBatches().add(batch);
+                    addIfPresent(genealogy.getEquipmentIds(), row.getBatchEquipmentId());
+                    addIfPresent(genealogy.getOperators(), row.getBatchOperator());
+                }
+                if (row.getOperationId() != null) {
+                    batch.getOperations().add(operationNode(row));
+                    addIfPresent(genealogy.getEquipmentIds(), row.getOperationEquipmentId());
+                    addIfPresent(genealogy.getOperators(), row.getOperationOperator());
+                    genealogy.setOperationCount(genealogy.getOperationCount() + 1);
+                }
+            }
+        }
+
+        genealogy.getOrders().addAll(orders.values());
+        genealogy.getOrders().sort(Comparator.comparing(BatchGenealogyDTO.OrderNode::getId));
+        genealogy.setBatchCount(batches.size());
+        return genealogy;
+    }
+
+    private static BatchGenealogyDTO.BatchNode batchNode(ProductionBatchRepository.GenealogyRow row) {
+        BatchGenealogyDTO.BatchNode batch = new BatchGenealogyDTO.BatchNode();
+        batch.setId(row.getBatchId());
+        batch.setBatchNumber(row.getBatchNumber());
+        batch.setProductId(row.getProductId());
+        batch.setStatus(row.getBatchStatus());
+        batch.setEquipmentId(row.getBatchEquipmentId());
+        batch.setOperator(row.getBatchOperator());
+        batch.setStartTime(row.getBatchStartTime());
+        batch.setEndTime(row.getBatchEndTime());
+        return batch;
+    }
+
+    private static BatchGenealogyDTO.OperationNode operationNode(ProductionBatchRepository.GenealogyRow row) {
+        BatchGenealogyDTO.OperationNode operation = new BatchGenealogyDTO.OperationNode();
+        operation.setId(row.getOperationId());
+        operation.setOperationName(row.getOperationName());
+        operation.setOperationType(row.getOperationType());
+        operation.setStatus(row.getOperationStatus());
+        operation.setEquipmentId(row.getOperationEquipmentId());
+        operation.setOperator(row.getOperationOperator());
+        operation.setStartTime(row.getOperationStartTime());
+        operation.setEndTime(row.getOperationEndTime());
+        return operation;
+    }
+
+    private static void addIfPresent(Set<String> values, String value) {
+        if (value != null) {
+            values.add(value);
+        }
+    }
+
+    /**
+     * 缓存的追溯结果及其谱系版本
+     */
+    private static final class CachedGenealogy {
+
+        private final BatchGenealogyDTO genealogy;
+        private final long version;
+        private final long expiresAt;
+
+        private CachedGenealogy(BatchGenealogyDTO genealogy, long version, long expiresAt) {
+            this.genealogy = genealogy;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
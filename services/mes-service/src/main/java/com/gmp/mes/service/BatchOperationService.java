@@ -1,10 +1,13 @@
 package com.gmp.mes.service;
 
+import com.gmp.mes.dto.BatchOperationSummaryDTO;
 import com.gmp.mes.entity.BatchOperation;
 import com.gmp.mes.entity.ProductionBatch;
 import com.gmp.mes.repository.BatchOperationRepository;
 import com.gmp.mes.repository.ProductionBatchRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,7 +15,6 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -32,6 +34,12 @@ public class BatchOperationService {
     @Autowired
     private ProductionBatchRepository productionBatchRepository;
 
+    @Autowired
+    private NumberingService numberingService;
+
+    @Value("${production.operation.max-page-size:500}")
+    private int maxPageSize = 500;
+
     /**
      * 创建批操作
      * 
@@ -78,10 +86,8 @@ public class BatchOperationService {
      * @return 批操作对象
      */
     public Optional<BatchOperation> getBatchOperationByNumber(String operationNumber) {
-        // 使用操作名称来查找，因为实体类没有operationNumber字段
-        return batchOperationRepository.findAll().stream()
-                .filter(op -> op.getOperationName() != null && op.getOperationName().contains(operationNumber))
-                .findFirst();
+        // 操作编号保存在operationName字段，按索引精确匹配
+        return batchOperationRepository.findFirstByOperationNameOrderByIdAsc(operationNumber);
     }
 
     /**
@@ -102,12 +108,58 @@ public class BatchOperationService {
      * @return 批操作列表
      */
     public List<BatchOperation> getBatchOperationsByType(Long batchId, String operationType) {
-        // 使用现有方法并手动排序
-        List<BatchOperation> operations = batchOperationRepository.findByProductionBatchId(batchId);
-        return operations.stream()
-                .filter(op -> op.getOperationType().equals(operationType))
-                .sorted((o1, o2) -> o1.getStartTime().compareTo(o2.getStartTime()))
-                .collect(java.util.stream.Collectors.toList());
+        return batchOperationRepository.findByBatchIdAndOperationType(batchId, operationType);
+    }
+
+    /**
+     * 按ID顺序分页获取批操作摘要，不加载操作参数和结果
+     *
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit   记录数量，不超过配置的最大值
+     * @return 批操作摘要列表
+     */
+    public List<BatchOperationSummaryDTO> getBatchOperationSummaries(Long afterId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return batchOperationRepository.findSummaries(afterIdOrStart(afterId), pageOf(limit));
+    }
+
+    /**
+     * 按ID顺序分页获取批次的批操作摘要，不加载操作参数和结果
+     *
+     * @param batchId 批次ID
+     * @param status  操作状态，为空时不按状态过滤
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit   记录数量，不超过配置的最大值
+     * @return 批操作摘要列表
+     */
+    public List<BatchOperationSummaryDTO> getBatchOperationSummariesByBatchId(Long batchId,
+            BatchOperation.OperationStatus status, Long afterId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        if (status == null) {
+            return batchOperationRepository.findSummariesByBatchId(batchId, afterIdOrStart(afterId), pageOf(limit));
+        }
+        return batchOperationRepository.findSummariesByBatchIdAndStatus(batchId, status, afterIdOrStart(afterId),
+                pageOf(limit));
+    }
+
+    /**
+     * 按ID顺序分页获取指定状态的批操作摘要，不加载操作参数和结果
+     *
+     * @param status  操作状态
+     * @param afterId 上一页最后一条记录的ID，为空时从第一条开始
+     * @param limit   记录数量，不超过配置的最大值
+     * @return 批操作摘要列表
+     */
+    public List<BatchOperationSummaryDTO> getBatchOperationSummariesByStatus(BatchOperation.OperationStatus status,
+            Long afterId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return batchOperationRepository.findSummariesByStatus(status, afterIdOrStart(afterId), pageOf(limit));
     }
 
     /**
@@ -168,7 +220,7 @@ public class BatchOperationService {
 
             // 生成操作名称 (如果没有)
             if (operation.getOperationName() == null || operation.getOperationName().isEmpty()) {
-                operation.setOperationName("OP-" + generateOperationNumber());
+                operation.setOperationName(generateOperationNumber());
             }
 
             return batchOperationRepository.save(operation);
@@ -337,26 +389,12 @@ public class BatchOperationService {
     }
 
     /**
-     * 获取所有批操作 - 兼容方法
-     * 为了兼容测试代码中的方法调用
-     * 
-     * @return 所有批操作列表
-     */
-    public List<BatchOperation> getAllBatchOperations() {
-        // 直接使用JpaRepository提供的findAll方法
-        return batchOperationRepository.findAll();
-    }
-
-    /**
-     * 生成唯一的操作编号
+     * 生成唯一的操作编号，格式为 OP-yyyyMMdd-000001，每天重新计数
      * 
      * @return 操作编号
      */
     public String generateOperationNumber() {
-        // 生成基于UUID的唯一操作编号
-        String uuid = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 12);
-        return LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + "-"
-                + uuid;
+        return numberingService.nextDailyNumber("OP", 6);
     }
 
     /**
@@ -412,4 +450,12 @@ public class BatchOperationService {
             throw new IllegalArgumentException("Batch operation not found: " + id);
         }
     }
+
+    private static Long afterIdOrStart(Long afterId) {
+        return afterId != null ? afterId : 0L;
+    }
+
+    private PageRequest pageOf(int limit) {
+        return PageRequest.of(0, Math.min(limit, maxPageSize));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.entity.EquipmentMonitor;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+
+/**
+ * 设备实时状态推送 - 监控看板订阅后先收到符合条件的全部设备状态，之后只收到变化的设备
+ *
+ * 状态变化按设备合并后推送，客户端接收较慢时同一设备只推送最新状态，不会积压历史状态。
+ *
+ * @author gmp-system
+ */
+public interface EquipmentLiveStream {
+
+    /**
+     * 订阅设备实时状态
+     *
+     * @param locations 设备位置（产线），为空时不限
+     * @param equipmentTypes 设备类型，为空时不限
+     * @param statuses 设备状态，为空时不限
+     * @return SSE连接，依次推送snapshot事件和delta事件
+     */
+    SseEmitter subscribe(Collection<String> locations, Collection<String> equipmentTypes,
+            Collection<EquipmentMonitor.EquipmentStatus> statuses);
+
+    /**
+     * 发布设备状态变化，在更新设备状态缓存之后调用
+     *
+     * @param equipment 设备当前状态，调用方需保证调用期间设备不被修改
+     */
+    void publish(EquipmentMonitor equipment);
+
+    /**
+     * 发布设备删除
+     *
+     * @param equipmentCode 设备编码
+     */
+    void publishRemoval(String equipmentCode);
+}
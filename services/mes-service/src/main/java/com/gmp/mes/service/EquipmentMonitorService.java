@@ -1,15 +1,26 @@
 package com.gmp.mes.service;
 
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.dto.TelemetryIngestResultDTO;
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.dto.TelemetryTrendDTO;
 import com.gmp.mes.entity.EquipmentMonitor;
 import com.gmp.mes.entity.EquipmentStatusRecord;
 import com.gmp.mes.repository.EquipmentMonitorRepository;
 import com.gmp.mes.repository.EquipmentStatusRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +32,8 @@ import java.util.Optional;
 @Service
 public class EquipmentMonitorService {
 
+    private static final Logger log = LoggerFactory.getLogger(EquipmentMonitorService.class);
+
     @Autowired
     private EquipmentMonitorRepository equipmentMonitorRepository;
 
@@ -28,7 +41,16 @@ public class EquipmentMonitorService {
     private EquipmentStatusRecordRepository equipmentStatusRecordRepository;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private EquipmentStateCache equipmentStateCache;
+
+    @Autowired
+    private EquipmentLiveStream equipmentLiveStream;
+
+    @Autowired
+    private EquipmentTelemetryService equipmentTelemetryService;
+
+    @Autowired
+    private EquipmentTrendService equipmentTrendService;
 
     /**
      * 创建设备监控记录
@@ -38,7 +60,11 @@ public class EquipmentMonitorService {
      */
     @Transactional
     public EquipmentMonitor createEquipment(EquipmentMonitor equipment) {
-        return equipmentMonitorRepository.save(equipment);
+        EquipmentMonitor createdEquipment = equipmentMonitorRepository.save(equipment);
+        // 清除此前按不存在设备记录的编码，使设备的遥测数据可以立即被接收
+        evictTelemetryState(createdEquipment.getEquipmentCode());
+        publishLiveState(createdEquipment);
+        return createdEquipment;
     }
 
     /**
@@ -58,21 +84,39 @@ public class EquipmentMonitorService {
      * @return 设备对象
      */
     public Optional<EquipmentMonitor> getEquipmentByCode(String equipmentCode) {
-        // 尝试从Redis缓存获取
-        String cacheKey = "equipment:" + equipmentCode;
-        EquipmentMonitor equipment = (EquipmentMonitor) redisTemplate.opsForValue().get(cacheKey);
-        
-        if (equipment == null) {
-            // 缓存未命中，从数据库查询
-            Optional<EquipmentMonitor> optionalEquipment = equipmentMonitorRepository.findByEquipmentCode(equipmentCode);
-            if (optionalEquipment.isPresent()) {
-                equipment = optionalEquipment.get();
-                // 更新缓存
-                redisTemplate.opsForValue().set(cacheKey, equipment);
-            }
+        // 接收过遥测数据的设备以内存中的最新状态为准
+        Optional<EquipmentMonitor> latestState = equipmentTelemetryService.getLatestState(equipmentCode);
+        if (latestState.isPresent()) {
+            return latestState;
         }
-        
-        return Optional.ofNullable(equipment);
+
+        // 设备基本信息从数据库读取，运行状态和参数以状态缓存为准（数据库中的参数由后台延迟写入）
+        Optional<EquipmentMonitor> equipment = equipmentMonitorRepository.findByEquipmentCode(equipmentCode);
+        equipment.ifPresent(this::applyLiveState);
+        return equipment;
+    }
+
+    /**
+     * 获取设备实时状态，只读取状态缓存，不访问数据库，供监控看板使用
+     * 
+     * @param equipmentCodes 设备编码，为空时返回全部设备
+     * @return 实时状态列表
+     */
+    public List<EquipmentLiveStateDTO> getLiveStates(Collection<String> equipmentCodes) {
+        return equipmentStateCache.getAll(equipmentCodes);
+    }
+
+    /**
+     * 订阅设备实时状态推送，替代监控看板轮询
+     * 
+     * @param locations 设备位置（产线），为空时不限
+     * @param equipmentTypes 设备类型，为空时不限
+     * @param statuses 设备状态，为空时不限
+     * @return SSE连接
+     */
+    public SseEmitter streamLiveStates(Collection<String> locations, Collection<String> equipmentTypes,
+            Collection<EquipmentMonitor.EquipmentStatus> statuses) {
+        return equipmentLiveStream.subscribe(locations, equipmentTypes, statuses);
     }
 
     /**
@@ -104,10 +148,8 @@ public class EquipmentMonitorService {
     public EquipmentMonitor updateEquipment(EquipmentMonitor equipment) {
         // 更新数据库
         EquipmentMonitor updatedEquipment = equipmentMonitorRepository.save(equipment);
-        
-        // 更新缓存
-        String cacheKey = "equipment:" + equipment.getEquipmentCode();
-        redisTemplate.opsForValue().set(cacheKey, updatedEquipment);
+        evictTelemetryState(equipment.getEquipmentCode());
+        publishLiveState(updatedEquipment);
         
         return updatedEquipment;
     }
@@ -131,13 +173,12 @@ public class EquipmentMonitorService {
             if (oldStatus != status) {
                 equipment.setStatus(status);
                 EquipmentMonitor updatedEquipment = equipmentMonitorRepository.save(equipment);
+                // 人工修改的状态优先于遥测评估的状态，下一条读数到达时重新加载设备
+                evictTelemetryState(equipmentCode);
                 
                 // 记录状态变更历史
-                recordStatusChange(equipmentCode, status, operator);
-                
-                // 更新缓存
-                String cacheKey = "equipment:" + equipmentCode;
-                redisTemplate.opsForValue().set(cacheKey, updatedEquipment);
+                recordStatusChange(updatedEquipment, status, operator);
+                publishLiveState(updatedEquipment);
                 
                 return updatedEquipment;
             }
@@ -150,6 +191,8 @@ public class EquipmentMonitorService {
     /**
      * 更新设备运行参数
      * 
+     * 作为单条读数交给遥测服务处理，阈值评估与批量上报一致，参数由后台批量写入数据库
+     * 
      * @param equipmentCode 设备编码
      * @param temperature 温度
      * @param pressure 压力
@@ -157,31 +200,24 @@ public class EquipmentMonitorService {
      * @param vibration 振动
      * @return 更新后的设备
      */
-    @Transactional
     public EquipmentMonitor updateEquipmentParameters(String equipmentCode, Double temperature, Double pressure, Double humidity, Double vibration) {
-        Optional<EquipmentMonitor> optionalEquipment = equipmentMonitorRepository.findByEquipmentCode(equipmentCode);
-        if (optionalEquipment.isPresent()) {
-            EquipmentMonitor equipment = optionalEquipment.get();
-            
-            // 更新参数
-            if (temperature != null) equipment.setTemperature(temperature);
-            if (pressure != null) equipment.setPressure(pressure);
-            if (humidity != null) equipment.setHumidity(humidity);
-            if (vibration != null) equipment.setVibration(vibration);
-            
-            // 检查是否需要更新状态（如温度超过阈值）
-            checkAndUpdateStatusForThresholds(equipment);
-            
-            EquipmentMonitor updatedEquipment = equipmentMonitorRepository.save(equipment);
-            
-            // 更新缓存
-            String cacheKey = "equipment:" + equipmentCode;
-            redisTemplate.opsForValue().set(cacheKey, updatedEquipment);
-            
-            return updatedEquipment;
-        } else {
+        TelemetryReadingDTO reading = new TelemetryReadingDTO(equipmentCode, temperature, pressure, humidity, vibration, null);
+        TelemetryIngestResultDTO result = equipmentTelemetryService.ingest(List.of(reading));
+        if (result.getAccepted() == 0) {
             throw new IllegalArgumentException("Equipment not found: " + equipmentCode);
         }
+        return equipmentTelemetryService.getLatestState(equipmentCode)
+                .orElseThrow(() -> new IllegalArgumentException("Equipment not found: " + equipmentCode));
+    }
+
+    /**
+     * 批量接收设备遥测读数
+     * 
+     * @param readings 读数列表
+     * @return 接收结果
+     */
+    public TelemetryIngestResultDTO ingestTelemetry(List<TelemetryReadingDTO> readings) {
+        return equipmentTelemetryService.ingest(readings);
     }
 
     /**
@@ -192,10 +228,42 @@ public class EquipmentMonitorService {
      * @return 状态记录列表
      */
     public List<EquipmentStatusRecord> getEquipmentStatusRecords(String equipmentCode, int limit) {
-        return equipmentStatusRecordRepository.findByEquipmentCodeOrderByTimestampDesc(equipmentCode)
-                .stream()
-                .limit(limit)
-                .toList();
+        if (limit <= 0) {
+            return List.of();
+        }
+        // 数量限制由数据库完成，只读取所需的最近记录
+        return equipmentStatusRecordRepository.findByEquipmentCodeOrderByTimestampDesc(equipmentCode,
+                PageRequest.of(0, limit));
+    }
+
+    /**
+     * 获取设备在时间范围内的状态记录
+     * 
+     * @param equipmentCode 设备编码
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param limit 记录数量
+     * @return 状态记录列表，按时间倒序
+     */
+    public List<EquipmentStatusRecord> getEquipmentStatusRecords(String equipmentCode, LocalDateTime startTime,
+            LocalDateTime endTime, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return equipmentStatusRecordRepository.findByEquipmentCodeAndTimestampBetweenOrderByTimestampDesc(
+                equipmentCode, startTime, endTime, PageRequest.of(0, limit));
+    }
+
+    /**
+     * 获取设备运行参数趋势
+     * 
+     * @param equipmentCode 设备编码
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 趋势数据
+     */
+    public TelemetryTrendDTO getEquipmentTrend(String equipmentCode, LocalDateTime startTime, LocalDateTime endTime) {
+        return equipmentTrendService.getTrend(equipmentCode, startTime, endTime);
     }
 
     /**
@@ -207,84 +275,97 @@ public class EquipmentMonitorService {
     public void deleteEquipment(Long id) {
         Optional<EquipmentMonitor> optionalEquipment = equipmentMonitorRepository.findById(id);
         if (optionalEquipment.isPresent()) {
-            // 删除缓存
-            String cacheKey = "equipment:" + optionalEquipment.get().getEquipmentCode();
-            redisTemplate.delete(cacheKey);
+            String equipmentCode = optionalEquipment.get().getEquipmentCode();
+            evictTelemetryState(equipmentCode);
             
             // 删除设备
             equipmentMonitorRepository.deleteById(id);
+            afterCommit(() -> {
+                equipmentStateCache.remove(equipmentCode);
+                equipmentLiveStream.publishRemoval(equipmentCode);
+            });
         }
     }
 
     /**
-     * 检查并根据阈值更新设备状态
+     * 移除设备的遥测内存状态，事务提交后再移除一次，避免提交前到达的读数加载到修改前的设备信息
      * 
-     * @param equipment 设备对象
+     * @param equipmentCode 设备编码
      */
-    private void checkAndUpdateStatusForThresholds(EquipmentMonitor equipment) {
-        boolean isError = false;
-        String errorReason = "";
-        
-        // 检查温度阈值
-        if (equipment.getTemperatureThreshold() != null && equipment.getTemperature() != null && 
-            equipment.getTemperature() > equipment.getTemperatureThreshold()) {
-            isError = true;
-            errorReason = "Temperature exceeded threshold";
-        }
-        
-        // 检查压力阈值
-        if (!isError && equipment.getPressureThreshold() != null && equipment.getPressure() != null && 
-            equipment.getPressure() > equipment.getPressureThreshold()) {
-            isError = true;
-            errorReason = "Pressure exceeded threshold";
+    private void evictTelemetryState(String equipmentCode) {
+        equipmentTelemetryService.evict(equipmentCode);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(() -> equipmentTelemetryService.evict(equipmentCode));
         }
-        
-        // 检查振动阈值
-        if (!isError && equipment.getVibrationThreshold() != null && equipment.getVibration() != null && 
-            equipment.getVibration() > equipment.getVibrationThreshold()) {
-            isError = true;
-            errorReason = "Vibration exceeded threshold";
+    }
+
+    /**
+     * 事务提交后更新设备状态缓存并推送给监控看板，回滚的修改不会出现在缓存中
+     * 
+     * @param equipment 设备对象
+     */
+    private void publishLiveState(EquipmentMonitor equipment) {
+        EquipmentMonitor snapshot = new EquipmentMonitor();
+        BeanUtils.copyProperties(equipment, snapshot);
+        afterCommit(() -> {
+            equipmentStateCache.put(snapshot);
+            equipmentLiveStream.publish(snapshot);
+        });
+    }
+
+    /**
+     * 存在事务时在提交后执行，否则立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
-        
-        // 如果有错误，则更新状态
-        if (isError && equipment.getStatus() != EquipmentMonitor.EquipmentStatus.ERROR) {
-            equipment.setStatus(EquipmentMonitor.EquipmentStatus.ERROR);
-            // 记录状态变更
-            recordStatusChange(equipment.getEquipmentCode(), EquipmentMonitor.EquipmentStatus.ERROR, "SYSTEM");
-        } else if (!isError && equipment.getStatus() == EquipmentMonitor.EquipmentStatus.ERROR &&
-                   equipment.getStatus() != EquipmentMonitor.EquipmentStatus.MAINTENANCE) {
-            // 如果错误恢复且不是维护状态，则恢复到在线状态
-            equipment.setStatus(EquipmentMonitor.EquipmentStatus.ONLINE);
-            // 记录状态变更
-            recordStatusChange(equipment.getEquipmentCode(), EquipmentMonitor.EquipmentStatus.ONLINE, "SYSTEM");
+    }
+
+    /**
+     * 用状态缓存中的实时状态覆盖设备的运行状态和参数，缓存不可用时使用数据库中的值
+     */
+    private void applyLiveState(EquipmentMonitor equipment) {
+        try {
+            equipmentStateCache.get(equipment.getEquipmentCode()).ifPresent(live -> {
+                equipment.setStatus(live.getStatus());
+                equipment.setTemperature(live.getTemperature());
+                equipment.setPressure(live.getPressure());
+                equipment.setHumidity(live.getHumidity());
+                equipment.setVibration(live.getVibration());
+                equipment.setLastUpdatedTime(live.getLastUpdatedTime());
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to read live state of equipment {}: {}", equipment.getEquipmentCode(), e.getMessage());
         }
     }
 
     /**
      * 记录设备状态变更
      * 
-     * @param equipmentCode 设备编码
+     * @param equipment 设备对象
      * @param status 新状态
      * @param operator 操作人员
      */
-    private void recordStatusChange(String equipmentCode, EquipmentMonitor.EquipmentStatus status, String operator) {
+    private void recordStatusChange(EquipmentMonitor equipment, EquipmentMonitor.EquipmentStatus status, String operator) {
         EquipmentStatusRecord record = new EquipmentStatusRecord();
-        record.setEquipmentCode(equipmentCode);
+        record.setEquipmentCode(equipment.getEquipmentCode());
+        record.setEquipmentName(equipment.getEquipmentName());
         record.setStatus(convertStatus(status));
         record.setOperator(operator);
         
         // 设置状态变更时的设备指标
-            Optional<EquipmentMonitor> optionalEquipment = equipmentMonitorRepository.findByEquipmentCode(equipmentCode);
-            if (optionalEquipment.isPresent()) {
-                EquipmentMonitor equipment = optionalEquipment.get();
-                record.setTemperature(equipment.getTemperature());
-                record.setPressure(equipment.getPressure());
-                record.setHumidity(equipment.getHumidity());
-                // 进行类型转换：Double -> Integer
-                if (equipment.getVibration() != null) {
-                    record.setVibration(equipment.getVibration().intValue());
-                }
-            }
+        record.setTemperature(equipment.getTemperature());
+        record.setPressure(equipment.getPressure());
+        record.setHumidity(equipment.getHumidity());
+        record.setVibration(equipment.getVibration());
         
         equipmentStatusRecordRepository.save(record);
     }
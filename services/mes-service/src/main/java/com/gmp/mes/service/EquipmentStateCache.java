@@ -0,0 +1,54 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 设备实时状态缓存 - 为监控看板提供设备状态和运行参数，只有缓存中没有的设备才从数据库读取
+ * 
+ * 写入先合并到本地待写入队列，同一设备在写入间隔内的多次更新只写入最后一次；
+ * 读取时本地尚未写入的状态优先于缓存中的状态。
+ * 
+ * @author gmp-system
+ */
+public interface EquipmentStateCache {
+
+    /**
+     * 更新设备实时状态，由后台定时写入缓存
+     * 
+     * @param equipment 设备当前状态，调用方需保证调用期间设备不被修改
+     */
+    void put(EquipmentMonitor equipment);
+
+    /**
+     * 获取设备实时状态
+     * 
+     * @param equipmentCode 设备编码
+     * @return 实时状态，缓存中没有该设备时从数据库读取，设备不存在时返回空
+     */
+    Optional<EquipmentLiveStateDTO> get(String equipmentCode);
+
+    /**
+     * 批量获取设备实时状态
+     * 
+     * @param equipmentCodes 设备编码，为空时返回缓存中的全部设备
+     * @return 实时状态列表，缓存中没有的设备从数据库读取，不存在的设备不返回
+     */
+    List<EquipmentLiveStateDTO> getAll(Collection<String> equipmentCodes);
+
+    /**
+     * 移除设备实时状态
+     * 
+     * @param equipmentCode 设备编码
+     */
+    void remove(String equipmentCode);
+
+    /**
+     * 将待写入的状态写入缓存
+     */
+    void flush();
+}
@@ -0,0 +1,49 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.TelemetryIngestResultDTO;
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 设备遥测服务接口 - 接收传感器批量上报的运行参数
+ * 
+ * 设备最新状态保存在内存中，读数到达时立即评估告警阈值；最新状态和历史记录由后台批量写入数据库，
+ * 数据库中的设备参数相对内存状态有短暂延迟。
+ * 
+ * @author gmp-system
+ */
+public interface EquipmentTelemetryService {
+
+    /**
+     * 批量接收遥测读数
+     * 
+     * @param readings 读数列表
+     * @return 接收结果
+     * @throws IllegalArgumentException 单批读数超过上限
+     * @throws IllegalStateException    历史记录写入积压，等待超时
+     */
+    TelemetryIngestResultDTO ingest(List<TelemetryReadingDTO> readings);
+
+    /**
+     * 获取设备的最新状态（包含尚未写入数据库的读数）
+     * 
+     * @param equipmentCode 设备编码
+     * @return 设备状态副本，设备未接收过遥测数据时返回空
+     */
+    Optional<EquipmentMonitor> getLatestState(String equipmentCode);
+
+    /**
+     * 移除设备的内存状态，设备信息或状态被直接修改后调用，下一次读数到达时从数据库重新加载
+     * 
+     * @param equipmentCode 设备编码
+     */
+    void evict(String equipmentCode);
+
+    /**
+     * 将积压的历史记录和最新状态写入数据库
+     */
+    void flush();
+}
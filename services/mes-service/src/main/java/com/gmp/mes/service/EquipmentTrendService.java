@@ -0,0 +1,27 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.TelemetryTrendDTO;
+
+import java.time.LocalDateTime;
+
+/**
+ * 设备趋势服务接口 - 查询设备运行参数的历史趋势
+ * 
+ * 根据查询的时间范围选择数据粒度：短时间范围返回原始读数，较长的时间范围使用分钟或小时汇总，
+ * 返回的数据点数量不超过配置的上限。
+ * 
+ * @author gmp-system
+ */
+public interface EquipmentTrendService {
+
+    /**
+     * 查询设备在时间范围内的参数趋势
+     * 
+     * @param equipmentCode 设备编码
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（不包含）
+     * @return 趋势数据
+     * @throws IllegalArgumentException 时间范围无效
+     */
+    TelemetryTrendDTO getTrend(String equipmentCode, LocalDateTime startTime, LocalDateTime endTime);
+}
@@ -0,0 +1,28 @@
+package com.gmp.mes.service;
+
+/**
+ * 编号服务接口 - 为批次编号、操作编号等GMP记录提供按序列键递增的序号
+ * 
+ * 序列键通常由前缀和日期组成（如 BATCH-20240101），从而实现按前缀、按天重新计数。
+ * 
+ * @author gmp-system
+ */
+public interface NumberingService {
+
+    /**
+     * 获取序列的下一个序号，新序列从1开始
+     * 
+     * @param sequenceKey 序列键
+     * @return 序号
+     */
+    long next(String sequenceKey);
+
+    /**
+     * 生成按天计数的编号，格式为 前缀-yyyyMMdd-序号
+     * 
+     * @param prefix 编号前缀
+     * @param width  序号位数，不足时补零
+     * @return 编号
+     */
+    String nextDailyNumber(String prefix, int width);
+}
@@ -1,5 +1,6 @@
 package com.gmp.mes.service;
 
+import com.gmp.mes.entity.GenealogyChangeListener;
 import com.gmp.mes.entity.ProductionBatch;
 import com.gmp.mes.entity.ProductionOrder;
 import com.gmp.mes.repository.ProductionBatchRepository;
@@ -12,7 +13,6 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
 
 /**
  * 生产批次服务 - 实现批次管理的核心业务逻辑
@@ -28,6 +28,9 @@ public class ProductionBatchService {
     @Autowired
     private ProductionOrderRepository productionOrderRepository;
 
+    @Autowired
+    private NumberingService numberingService;
+
     /**
      * 创建生产批次
      * 
@@ -44,7 +47,15 @@ public class ProductionBatchService {
         if (batch.getStatus() == null) {
             batch.setStatus(ProductionBatch.BatchStatus.PENDING);
         }
-        return productionBatchRepository.save(batch);
+        ProductionBatch savedBatch = productionBatchRepository.save(batch);
+        ProductionOrder order = savedBatch.getOrder();
+        if (order != null && order.getId() != null) {
+            if (productionOrderRepository.incrementBatchCount(order.getId()) == 0
+                    || savedBatch.getStatus() == ProductionBatch.BatchStatus.COMPLETED) {
+                recountOrderBatches(order.getId());
+            }
+        }
+        return savedBatch;
     }
 
     /**
@@ -104,7 +115,21 @@ public class ProductionBatchService {
      */
     @Transactional
     public ProductionBatch updateBatch(ProductionBatch batch) {
-        return productionBatchRepository.save(batch);
+        // 保存前读取原订单，批次转移到其他订单时原订单的批次数同样需要重新统计
+        Long previousOrderId = batch.getId() != null
+                ? productionBatchRepository.findOrderIdById(batch.getId()).orElse(null)
+                : null;
+        ProductionBatch savedBatch = productionBatchRepository.save(batch);
+        // 直接更新可能改变批次状态或所属订单，重新统计订单批次数
+        ProductionOrder order = savedBatch.getOrder();
+        Long orderId = order != null ? order.getId() : null;
+        if (orderId != null) {
+            recountOrderBatches(orderId);
+        }
+        if (previousOrderId != null && !previousOrderId.equals(orderId)) {
+            recountOrderBatches(previousOrderId);
+        }
+        return savedBatch;
     }
 
     /**
@@ -146,11 +171,12 @@ public class ProductionBatchService {
             if (batch.getStatus() == ProductionBatch.BatchStatus.IN_PROGRESS) {
                 batch.setStatus(ProductionBatch.BatchStatus.COMPLETED);
                 batch.setEndTime(LocalDateTime.now());
+                ProductionBatch savedBatch = productionBatchRepository.save(batch);
 
                 // 更新关联的订单状态
-                updateOrderStatusIfNeeded(batch);
+                updateOrderStatusIfNeeded(savedBatch);
 
-                return productionBatchRepository.save(batch);
+                return savedBatch;
             } else {
                 throw new IllegalStateException("Only in-progress batches can be completed");
             }
@@ -236,7 +262,13 @@ public class ProductionBatchService {
      */
     @Transactional
     public void deleteBatch(Long id) {
-        productionBatchRepository.deleteById(id);
+        productionBatchRepository.findById(id).ifPresent(batch -> {
+            ProductionOrder order = batch.getOrder();
+            productionBatchRepository.delete(batch);
+            if (order != null && order.getId() != null) {
+                recountOrderBatches(order.getId());
+            }
+        });
     }
 
     /**
@@ -258,11 +290,12 @@ public class ProductionBatchService {
 
         batch.setStatus(ProductionBatch.BatchStatus.COMPLETED);
         batch.setEndTime(LocalDateTime.now());
+        ProductionBatch savedBatch = productionBatchRepository.save(batch);
 
         // 更新关联的订单状态
-        updateOrderStatusIfNeeded(batch);
+        updateOrderStatusIfNeeded(savedBatch);
 
-        return productionBatchRepository.save(batch);
+        return savedBatch;
     }
 
     /**
@@ -474,29 +507,43 @@ public class ProductionBatchService {
     /**
      * 如果订单的所有批次都完成，则更新订单状态
      * 
-     * @param batch 批次对象
+     * 订单的已完成批次数原子加一后与批次数比较，不加载订单的其他批次，只有计数表明全部完成时才按索引确认；
+     * 并发完成的批次在订单行上串行，最后一个完成的批次将订单标记为完成。历史订单尚未统计批次数时先按当前批次统计一次。
+     * 
+     * @param batch 已保存的批次对象
      */
     private void updateOrderStatusIfNeeded(ProductionBatch batch) {
         ProductionOrder order = batch.getOrder();
-        if (order != null) {
-            List<ProductionBatch> batches = productionBatchRepository.findByOrder(order);
-            boolean allCompleted = batches.stream()
-                    .allMatch(b -> b.getStatus() == ProductionBatch.BatchStatus.COMPLETED);
-
-            if (allCompleted && order.getStatus() == ProductionOrder.OrderStatus.IN_PROGRESS) {
-                order.setStatus(ProductionOrder.OrderStatus.COMPLETED);
-                productionOrderRepository.save(order);
-            }
+        if (order == null || order.getId() == null) {
+            return;
         }
+        if (productionOrderRepository.incrementCompletedBatchCount(order.getId()) == 0) {
+            recountOrderBatches(order.getId());
+        }
+        if (productionOrderRepository.completeIfAllBatchesCompleted(order.getId(), ProductionOrder.OrderStatus.IN_PROGRESS,
+                ProductionOrder.OrderStatus.COMPLETED, ProductionBatch.BatchStatus.COMPLETED, LocalDateTime.now()) > 0) {
+            // 批量更新不经过实体监听器
+            GenealogyChangeListener.markChanged();
+        }
+    }
+
+    /**
+     * 按当前批次重新统计订单的批次数和已完成批次数
+     * 
+     * @param orderId 订单ID
+     */
+    private void recountOrderBatches(Long orderId) {
+        // 统计前写入本事务中尚未写入的批次变更
+        productionBatchRepository.flush();
+        productionOrderRepository.recountBatches(orderId, ProductionBatch.BatchStatus.COMPLETED);
     }
 
     /**
-     * 生成批次编号
+     * 生成批次编号，格式为 BATCH-yyyyMMdd-0001，每天重新计数
      * 
      * @return 批次编号
      */
-    private String generateBatchNumber() {
-        return "BATCH-" + LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + "-"
-                + UUID.randomUUID().toString().substring(0, 8);
+    public String generateBatchNumber() {
+        return numberingService.nextDailyNumber("BATCH", 4);
     }
 }
\ No newline at end of file
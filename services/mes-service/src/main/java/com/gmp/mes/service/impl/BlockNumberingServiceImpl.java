@@ -0,0 +1,96 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.repository.NumberSequenceRepository;
+import com.gmp.mes.service.NumberingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 号段式编号服务实现（hi/lo）
+ * 
+ * 每个序列在数据库中保存已分配的高水位，服务节点每次推进一个号段并在内存中逐个发放，
+ * 号段用完后再访问数据库。号段在独立事务中申请并立即提交，业务事务回滚不会导致编号重复。
+ * 多个服务节点持有不同号段，编号全局唯一但跨节点不保证严格递增；服务重启时未发放完的号段会被跳过，
+ * 要求编号连续时将号段大小配置为1。
+ * 
+ * @author gmp-system
+ */
+@Service
+public class BlockNumberingServiceImpl implements NumberingService {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Autowired
+    private NumberSequenceRepository numberSequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${numbering.block-size:20}")
+    private int blockSize = 20;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public long next(String sequenceKey) {
+        Block block = blocks.computeIfAbsent(sequenceKey, key -> new Block());
+        synchronized (block) {
+            if (block.next > block.limit) {
+                int size = Math.max(1, blockSize);
+                long high = allocate(sequenceKey, size);
+                block.next = high - size + 1;
+                block.limit = high;
+            }
+            return block.next++;
+        }
+    }
+
+    @Override
+    public String nextDailyNumber(String prefix, int width) {
+        String sequenceKey = prefix + "-" + LocalDate.now().format(DATE_FORMAT);
+        return sequenceKey + "-" + String.format("%0" + width + "d", next(sequenceKey));
+    }
+
+    /**
+     * 推进序列高水位
+     * 
+     * @param sequenceKey 序列键
+     * @param size        号段大小
+     * @return 新号段的最大值
+     */
+    private long allocate(String sequenceKey, int size) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long high = template.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (numberSequenceRepository.advance(sequenceKey, size, now) == 0) {
+                // 并发创建同一序列时只有一个生效
+                numberSequenceRepository.insertIfAbsent(sequenceKey, 0L, now);
+                numberSequenceRepository.advance(sequenceKey, size, now);
+            }
+            return numberSequenceRepository.findHighValue(sequenceKey);
+        });
+        if (high == null) {
+            throw new IllegalStateException("Failed to allocate number block: " + sequenceKey);
+        }
+        return high;
+    }
+
+    /**
+     * 当前节点持有的号段，next大于limit表示号段已用完
+     */
+    private static final class Block {
+        private long next = 1;
+        private long limit = 0;
+    }
+}
@@ -0,0 +1,89 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 设备实时状态的二进制编码
+ * <p>
+ * 格式：版本(1字节) + 字段标记(1字节) + 状态序号(1字节) + 存在的字段按顺序排列
+ * （ID 8字节、温度/压力/湿度/振动各8字节、更新时间毫秒数8字节）。设备编码作为缓存的字段名，不重复编码。
+ * 状态按枚举序号编码，新增状态只能追加在枚举末尾。
+ */
+final class EquipmentStateCodec {
+
+    static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 3;
+    private static final byte NO_STATUS = -1;
+
+    private static final int ID = 1;
+    private static final int TEMPERATURE = 1 << 1;
+    private static final int PRESSURE = 1 << 2;
+    private static final int HUMIDITY = 1 << 3;
+    private static final int VIBRATION = 1 << 4;
+    private static final int LAST_UPDATED = 1 << 5;
+
+    private static final EquipmentMonitor.EquipmentStatus[] STATUSES = EquipmentMonitor.EquipmentStatus.values();
+
+    private EquipmentStateCodec() {
+    }
+
+    static byte[] encode(EquipmentMonitor equipment) {
+        int flags = 0;
+        int size = HEADER_SIZE;
+        if (equipment.getId() != null) { flags |= ID; size += 8; }
+        if (equipment.getTemperature() != null) { flags |= TEMPERATURE; size += 8; }
+        if (equipment.getPressure() != null) { flags |= PRESSURE; size += 8; }
+        if (equipment.getHumidity() != null) { flags |= HUMIDITY; size += 8; }
+        if (equipment.getVibration() != null) { flags |= VIBRATION; size += 8; }
+        if (equipment.getLastUpdatedTime() != null) { flags |= LAST_UPDATED; size += 8; }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.put((byte) flags);
+        buffer.put(equipment.getStatus() != null ? (byte) equipment.getStatus().ordinal() : NO_STATUS);
+        if ((flags & ID) != 0) buffer.putLong(equipment.getId());
+        if ((flags & TEMPERATURE) != 0) buffer.putDouble(equipment.getTemperature());
+        if ((flags & PRESSURE) != 0) buffer.putDouble(equipment.getPressure());
+        if ((flags & HUMIDITY) != 0) buffer.putDouble(equipment.getHumidity());
+        if ((flags & VIBRATION) != 0) buffer.putDouble(equipment.getVibration());
+        if ((flags & LAST_UPDATED) != 0) {
+            buffer.putLong(equipment.getLastUpdatedTime().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码设备实时状态
+     *
+     * @return 实时状态，数据版本不支持时返回null
+     */
+    static EquipmentLiveStateDTO decode(String equipmentCode, byte[] data) {
+        if (data == null || data.length < HEADER_SIZE || data[0] != VERSION) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.get();
+        int flags = buffer.get();
+        byte status = buffer.get();
+
+        EquipmentLiveStateDTO state = new EquipmentLiveStateDTO();
+        state.setEquipmentCode(equipmentCode);
+        state.setStatus(status >= 0 && status < STATUSES.length ? STATUSES[status] : null);
+        if ((flags & ID) != 0) state.setId(buffer.getLong());
+        if ((flags & TEMPERATURE) != 0) state.setTemperature(buffer.getDouble());
+        if ((flags & PRESSURE) != 0) state.setPressure(buffer.getDouble());
+        if ((flags & HUMIDITY) != 0) state.setHumidity(buffer.getDouble());
+        if ((flags & VIBRATION) != 0) state.setVibration(buffer.getDouble());
+        if ((flags & LAST_UPDATED) != 0) {
+            state.setLastUpdatedTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC));
+        }
+        return state;
+    }
+}
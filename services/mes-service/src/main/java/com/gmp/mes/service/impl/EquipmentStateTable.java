@@ -0,0 +1,112 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.entity.EquipmentMonitor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备最新状态表
+ * 
+ * 按设备编码的哈希将设备分配到固定数量的锁上（锁分段），同一设备的读数串行处理，
+ * 不同分段的设备可以并行更新。状态对象只能在持有对应分段锁时读写。
+ * 
+ * @author gmp-system
+ */
+final class EquipmentStateTable {
+
+    private final Map<String, EquipmentState> states = new ConcurrentHashMap<>();
+    private final Set<String> dirtyCodes = ConcurrentHashMap.newKeySet();
+    private final Object[] locks;
+    private final int mask;
+
+    EquipmentStateTable(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.locks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new Object();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * 获取设备所在分段的锁
+     */
+    Object lockFor(String equipmentCode) {
+        int hash = equipmentCode.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & mask];
+    }
+
+    EquipmentState get(String equipmentCode) {
+        return states.get(equipmentCode);
+    }
+
+    /**
+     * 加入从数据库加载的设备，已存在时保留现有状态
+     */
+    void putIfAbsent(EquipmentMonitor equipment) {
+        states.putIfAbsent(equipment.getEquipmentCode(), new EquipmentState(equipment));
+    }
+
+    void remove(String equipmentCode) {
+        synchronized (lockFor(equipmentCode)) {
+            states.remove(equipmentCode);
+            dirtyCodes.remove(equipmentCode);
+        }
+    }
+
+    int size() {
+        return states.size();
+    }
+
+    void markDirty(String equipmentCode) {
+        dirtyCodes.add(equipmentCode);
+    }
+
+    /**
+     * 取出并清空有未写入变更的设备编码
+     */
+    List<String> drainDirty() {
+        List<String> codes = new ArrayList<>();
+        Iterator<String> iterator = dirtyCodes.iterator();
+        while (iterator.hasNext()) {
+            codes.add(iterator.next());
+            iterator.remove();
+        }
+        return codes;
+    }
+
+    /**
+     * 单个设备的内存状态
+     */
+    static final class EquipmentState {
+
+        private final EquipmentMonitor equipment;
+
+        /**
+         * 数据库中的设备状态，写入最新状态时用于检测期间的人工修改
+         */
+        private EquipmentMonitor.EquipmentStatus persistedStatus;
+
+        EquipmentState(EquipmentMonitor equipment) {
+            this.equipment = equipment;
+            this.persistedStatus = equipment.getStatus();
+        }
+
+        EquipmentMonitor getEquipment() {
+            return equipment;
+        }
+
+        EquipmentMonitor.EquipmentStatus getPersistedStatus() {
+            return persistedStatus;
+        }
+
+        void setPersistedStatus(EquipmentMonitor.EquipmentStatus persistedStatus) {
+            this.persistedStatus = persistedStatus;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.TelemetryIngestResultDTO;
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.entity.EquipmentStatusRecord;
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.repository.EquipmentTelemetryRepository;
+import com.gmp.mes.service.EquipmentLiveStream;
+import com.gmp.mes.service.EquipmentStateCache;
+import com.gmp.mes.service.EquipmentTelemetryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 设备遥测服务实现
+ * 
+ * 读数按设备所在的锁分段更新内存状态并立即评估告警阈值，每条读数生成一条状态记录放入有界队列，
+ * 由后台定时批量插入；有变更的设备最新状态同样定时批量更新。处理读数前先按每条读数最多两条记录预留队列空间，
+ * 空间不足时上报请求等待后台写入，等待超时则整批拒绝，由调用方重试；预留成功后本批记录全部入队，不会部分写入。读数写入时同时增量更新分钟和小时汇总，趋势查询不再扫描原始记录。
+ * 一批记录连续多次写入失败后拆分重试，仍因数据问题无法写入的单条记录转入死信日志，不再阻塞后续写入。
+ * 每批读数处理完成后，本批涉及设备的最新状态交给设备状态缓存，并推送给订阅的监控看板。
+ * 
+ * @author gmp-system
+ */
+@Service
+public class EquipmentTelemetryServiceImpl implements EquipmentTelemetryService {
+
+    private static final Logger log = LoggerFactory.getLogger(EquipmentTelemetryServiceImpl.class);
+
+    /**
+     * 无法写入的状态记录，可在日志配置中单独输出到文件
+     */
+    private static final Logger deadLetterLog = LoggerFactory.getLogger("com.gmp.mes.telemetry.dead-letter");
+
+    static final String TELEMETRY_OPERATOR = "TELEMETRY";
+
+    static final String SYSTEM_OPERATOR = "SYSTEM";
+
+    /**
+     * 每条读数最多生成的状态记录数：一条读数记录，阈值越限或恢复时另加一条状态变更记录
+     */
+    private static final int RECORDS_PER_READING = 2;
+
+    private static final Comparator<EquipmentTelemetryRollup> ROLLUP_ORDER = Comparator
+            .comparing(EquipmentTelemetryRollup::getEquipmentCode)
+            .thenComparing(EquipmentTelemetryRollup::getResolution)
+            .thenComparing(EquipmentTelemetryRollup::getBucketStart);
+
+    @Autowired
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @Autowired
+    private EquipmentTelemetryRepository equipmentTelemetryRepository;
+
+    @Autowired
+    private EquipmentStateCache equipmentStateCache;
+
+    @Autowired
+    private EquipmentLiveStream equipmentLiveStream;
+
+    @Value("${equipment.telemetry.lock-stripes:64}")
+    private int lockStripes = 64;
+
+    @Value("${equipment.telemetry.queue-capacity:200000}")
+    private int queueCapacity = 200000;
+
+    @Value("${equipment.telemetry.write-batch-size:1000}")
+    private int writeBatchSize = 1000;
+
+    @Value("${equipment.telemetry.max-readings-per-request:5000}")
+    private int maxReadingsPerRequest = 5000;
+
+    @Value("${equipment.telemetry.enqueue-timeout:2000}")
+    private long enqueueTimeout = 2000;
+
+    @Value("${equipment.telemetry.unknown-code-ttl:60000}")
+    private long unknownCodeTtl = 60000;
+
+    /**
+     * 一批记录整体写入的最大尝试次数，超过后拆分写入以隔离有问题的记录
+     */
+    @Value("${equipment.telemetry.max-write-attempts:3}")
+    private int maxWriteAttempts = 3;
+
+    private EquipmentStateTable stateTable;
+
+    private BlockingQueue<EquipmentStatusRecord> historyQueue;
+
+    /**
+     * 历史队列的剩余空间，入队前预留、取出写入时归还
+     */
+    private Semaphore historyPermits;
+
+    /**
+     * 不存在的设备编码及其过期时间，避免无效编码的读数反复查询数据库
+     */
+    private final Map<String, Long> unknownCodes = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 写入失败的历史记录，下次写入时优先重试，只由持有flushLock的线程访问
+     */
+    private List<EquipmentStatusRecord> failedHistory;
+
+    private int failedHistoryAttempts;
+
+    /**
+     * 本次拆分写入中是否已有记录写入成功，只由持有flushLock的线程访问
+     */
+    private boolean isolationProgress;
+
+    private final AtomicLong deadLetterCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        stateTable = new EquipmentStateTable(lockStripes);
+        historyQueue = new ArrayBlockingQueue<>(queueCapacity);
+        historyPermits = new Semaphore(queueCapacity, true);
+    }
+
+    @Override
+    public TelemetryIngestResultDTO ingest(List<TelemetryReadingDTO> readings) {
+        if (readings.size() > maxReadingsPerRequest) {
+            throw new IllegalArgumentException("Too many readings in one request: " + readings.size()
+                    + ", limit " + maxReadingsPerRequest);
+        }
+        loadMissingEquipment(readings);
+        // 修改设备状态前预留整批记录的队列空间，拒绝的请求不改变任何状态，重试不会产生重复记录
+        int reserved = reserveHistory(readings.size() * RECORDS_PER_READING);
+
+        TelemetryIngestResultDTO result = new TelemetryIngestResultDTO();
+        Set<String> unknown = new LinkedHashSet<>();
+        List<EquipmentStatusRecord> history = new ArrayList<>(readings.size());
+        Map<String, EquipmentStateTable.EquipmentState> touched = new LinkedHashMap<>();
+        LocalDateTime receivedAt = LocalDateTime.now();
+        try {
+            applyAll(readings, receivedAt, result, unknown, history, touched);
+        } finally {
+            enqueueHistory(history, reserved);
+        }
+        result.getUnknownEquipmentCodes().addAll(unknown);
+
+        // 同一设备在本批中的多条读数只更新一次缓存和推送
+        touched.forEach((code, state) -> {
+            synchronized (stateTable.lockFor(code)) {
+                equipmentStateCache.put(state.getEquipment());
+                equipmentLiveStream.publish(state.getEquipment());
+            }
+        });
+        return result;
+    }
+
+    private void applyAll(List<TelemetryReadingDTO> readings, LocalDateTime receivedAt, TelemetryIngestResultDTO result,
+            Set<String> unknown, List<EquipmentStatusRecord> history,
+            Map<String, EquipmentStateTable.EquipmentState> touched) {
+        for (TelemetryReadingDTO reading : readings) {
+            String code = reading.getEquipmentCode();
+            EquipmentStateTable.EquipmentState state = code != null ? stateTable.get(code) : null;
+            if (state == null) {
+                result.setRejected(result.getRejected() + 1);
+                if (code != null) {
+                    unknown.add(code);
+                }
+                continue;
+            }
+            boolean statusChanged;
+            synchronized (stateTable.lockFor(code)) {
+                statusChanged = apply(state.getEquipment(), reading, receivedAt, history);
+            }
+            stateTable.markDirty(code);
+            touched.put(code, state);
+            result.setAccepted(result.getAccepted() + 1);
+            if (statusChanged) {
+                result.setStatusChanges(result.getStatusChanges() + 1);
+            }
+        }
+    }
+
+    @Override
+    public Optional<EquipmentMonitor> getLatestState(String equipmentCode) {
+        EquipmentStateTable.EquipmentState state = stateTable.get(equipmentCode);
+        if (state == null) {
+            return Optional.empty();
+        }
+        EquipmentMonitor copy = new EquipmentMonitor();
+        synchronized (stateTable.lockFor(equipmentCode)) {
+            BeanUtils.copyProperties(state.getEquipment(), copy);
+        }
+        return Optional.of(copy);
+    }
+
+    @Override
+    public void evict(String equipmentCode) {
+        stateTable.remove(equipmentCode);
+        unknownCodes.remove(equipmentCode);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${equipment.telemetry.flush-interval:500}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            flushHistory();
+            flushLatestStates();
+            long now = System.currentTimeMillis();
+            unknownCodes.values().removeIf(expiresAt -> expiresAt <= now);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLock.lock();
+        try {
+            flushHistory();
+            flushLatestStates();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 应用一条读数并评估阈值，调用方需持有设备所在分段的锁
+     * 
+     * @return 设备状态是否发生变化
+     */
+    private boolean apply(EquipmentMonitor equipment, TelemetryReadingDTO reading, LocalDateTime receivedAt,
+            List<EquipmentStatusRecord> history) {
+        LocalDateTime timestamp = reading.getTimestamp() != null ? reading.getTimestamp() : receivedAt;
+        boolean statusChanged = false;
+        // 迟到的读数只记录历史，不覆盖更新的最新状态
+        if (equipment.getLastUpdatedTime() == null || !timestamp.isBefore(equipment.getLastUpdatedTime())) {
+            if (reading.getTemperature() != null) equipment.setTemperature(reading.getTemperature());
+            if (reading.getPressure() != null) equipment.setPressure(reading.getPressure());
+            if (reading.getHumidity() != null) equipment.setHumidity(reading.getHumidity());
+            if (reading.getVibration() != null) equipment.setVibration(reading.getVibration());
+            equipment.setLastUpdatedTime(timestamp);
+
+            String violation = thresholdViolation(equipment);
+            if (violation != null && equipment.getStatus() != EquipmentMonitor.EquipmentStatus.ERROR) {
+                equipment.setStatus(EquipmentMonitor.EquipmentStatus.ERROR);
+                history.add(statusRecord(equipment, SYSTEM_OPERATOR, violation, timestamp));
+                statusChanged = true;
+            } else if (violation == null && equipment.getStatus() == EquipmentMonitor.EquipmentStatus.ERROR) {
+                // 错误恢复后回到在线状态
+                equipment.setStatus(EquipmentMonitor.EquipmentStatus.ONLINE);
+                history.add(statusRecord(equipment, SYSTEM_OPERATOR, "Parameters back within threshold", timestamp));
+                statusChanged = true;
+            }
+        }
+
+        EquipmentStatusRecord sample = new EquipmentStatusRecord();
+        sample.setEquipmentCode(equipment.getEquipmentCode());
+        sample.setEquipmentName(equipment.getEquipmentName());
+        sample.setStatus(convertStatus(equipment.getStatus()));
+        sample.setTemperature(reading.getTemperature());
+        sample.setPressure(reading.getPressure());
+        sample.setHumidity(reading.getHumidity());
+        sample.setVibration(reading.getVibration());
+        sample.setOperator(TELEMETRY_OPERATOR);
+        sample.setTimestamp(timestamp);
+        history.add(sample);
+        return statusChanged;
+    }
+
+    /**
+     * 检查温度、压力、振动是否超过阈值
+     * 
+     * @return 超限原因，未超限时返回null
+     */
+    static String thresholdViolation(EquipmentMonitor equipment) {
+        if (equipment.getTemperatureThreshold() != null && equipment.getTemperature() != null
+                && equipment.getTemperature() > equipment.getTemperatureThreshold()) {
+            return "Temperature exceeded threshold";
+        }
+        if (equipment.getPressureThreshold() != null && equipment.getPressure() != null
+                && equipment.getPressure() > equipment.getPressureThreshold()) {
+            return "Pressure exceeded threshold";
+        }
+        if (equipment.getVibrationThreshold() != null && equipment.getVibration() != null
+                && equipment.getVibration() > equipment.getVibrationThreshold()) {
+            return "Vibration exceeded threshold";
+        }
+        return null;
+    }
+
+    static EquipmentStatusRecord statusRecord(EquipmentMonitor equipment, String operator, String notes,
+            LocalDateTime timestamp) {
+        EquipmentStatusRecord record = new EquipmentStatusRecord();
+        record.setEquipmentCode(equipment.getEquipmentCode());
+        record.setEquipmentName(equipment.getEquipmentName());
+        record.setStatus(convertStatus(equipment.getStatus()));
+        record.setTemperature(equipment.getTemperature());
+        record.setPressure(equipment.getPressure());
+        record.setHumidity(equipment.getHumidity());
+        record.setVibration(equipment.getVibration());
+        record.setOperator(operator);
+        record.setNotes(notes);
+        record.setTimestamp(timestamp);
+        return record;
+    }
+
+    /**
+     * 按设备和时间段汇总读数记录，状态变更记录重复了触发读数的参数，不计入汇总
+     * 
+     * @return 汇总列表，按设备编码、粒度和时间排序，并发写入时按相同顺序加锁
+     */
+    static List<EquipmentTelemetryRollup> rollupsOf(List<EquipmentStatusRecord> records) {
+        Map<String, EquipmentTelemetryRollup> rollups = new HashMap<>();
+        for (EquipmentStatusRecord record : records) {
+            if (!TELEMETRY_OPERATOR.equals(record.getOperator())) {
+                continue;
+            }
+            for (EquipmentTelemetryRollup.Resolution resolution : EquipmentTelemetryRollup.Resolution.values()) {
+                LocalDateTime bucketStart = resolution.bucketOf(record.getTimestamp());
+                String key = record.getEquipmentCode() + '|' + resolution + '|' + bucketStart;
+                rollups.computeIfAbsent(key, k -> {
+                    EquipmentTelemetryRollup rollup = new EquipmentTelemetryRollup();
+                    rollup.setEquipmentCode(record.getEquipmentCode());
+                    rollup.setResolution(resolution);
+                    rollup.setBucketStart(bucketStart);
+                    return rollup;
+                }).addSample(record);
+            }
+        }
+        List<EquipmentTelemetryRollup> result = new ArrayList<>(rollups.values());
+        result.sort(ROLLUP_ORDER);
+        return result;
+    }
+
+    static EquipmentStatusRecord.EquipmentStatus convertStatus(EquipmentMonitor.EquipmentStatus status) {
+        return status != null ? EquipmentStatusRecord.EquipmentStatus.valueOf(status.name())
+                : EquipmentStatusRecord.EquipmentStatus.OFFLINE;
+    }
+
+    /**
+     * 一次查询加载本批读数中尚未加载的设备
+     */
+    private void loadMissingEquipment(List<TelemetryReadingDTO> readings) {
+        long now = System.currentTimeMillis();
+        Set<String> missing = new HashSet<>();
+        for (TelemetryReadingDTO reading : readings) {
+            String code = reading.getEquipmentCode();
+            if (code == null || stateTable.get(code) != null) {
+                continue;
+            }
+            Long expiresAt = unknownCodes.get(code);
+            if (expiresAt == null || expiresAt <= now) {
+                missing.add(code);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        for (EquipmentMonitor equipment : equipmentMonitorRepository.findByEquipmentCodeIn(missing)) {
+            stateTable.putIfAbsent(equipment);
+            missing.remove(equipment.getEquipmentCode());
+        }
+        for (String code : missing) {
+            unknownCodes.put(code, now + unknownCodeTtl);
+        }
+    }
+
+    /**
+     * 预留历史队列空间，空间不足时等待后台写入，超时则拒绝请求
+     *
+     * @return 预留的记录数
+     */
+    private int reserveHistory(int records) {
+        try {
+            if (!historyPermits.tryAcquire(records, enqueueTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Telemetry history backlog is full, retry later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing telemetry history", e);
+        }
+        return records;
+    }
+
+    /**
+     * 已预留空间的记录入队，归还未使用的预留
+     */
+    private void enqueueHistory(List<EquipmentStatusRecord> history, int reserved) {
+        historyQueue.addAll(history);
+        historyPermits.release(reserved - history.size());
+    }
+
+    /**
+     * 写入失败后转入死信日志的状态记录数
+     */
+    long getDeadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    private void flushHistory() {
+        if (failedHistory != null && !retryFailedHistory()) {
+            return;
+        }
+        while (true) {
+            List<EquipmentStatusRecord> batch = new ArrayList<>(writeBatchSize);
+            historyQueue.drainTo(batch, writeBatchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            historyPermits.release(batch.size());
+            if (writeHistory(batch) != null) {
+                failedHistory = batch;
+                failedHistoryAttempts = 1;
+                return;
+            }
+            if (batch.size() < writeBatchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 重试上次写入失败的记录，达到最大尝试次数后拆分写入
+     *
+     * @return 是否已全部写入或转入死信日志
+     */
+    private boolean retryFailedHistory() {
+        if (failedHistoryAttempts < maxWriteAttempts) {
+            if (writeHistory(failedHistory) != null) {
+                failedHistoryAttempts++;
+                return false;
+            }
+            failedHistory = null;
+            return true;
+        }
+
+        isolationProgress = false;
+        List<EquipmentStatusRecord> unwritten = writeIsolating(failedHistory);
+        if (!unwritten.isEmpty()) {
+            // 数据库仍不可用，保留未写入的记录，下次继续拆分写入
+            failedHistory = new ArrayList<>(unwritten);
+            return false;
+        }
+        failedHistory = null;
+        return true;
+    }
+
+    /**
+     * 二分拆分写入，隔离导致整批失败的记录；单条记录因数据问题失败，
+     * 或同一次拆分中已有其他记录写入成功（说明数据库可用）时转入死信日志
+     *
+     * @return 因数据库不可用而未写入的记录
+     */
+    private List<EquipmentStatusRecord> writeIsolating(List<EquipmentStatusRecord> batch) {
+        RuntimeException failure = writeHistory(batch);
+        if (failure == null) {
+            isolationProgress = true;
+            return List.of();
+        }
+        if (batch.size() == 1) {
+            if (failure instanceof DataIntegrityViolationException || isolationProgress) {
+                deadLetter(batch.get(0), failure);
+                return List.of();
+            }
+            return batch;
+        }
+        int middle = batch.size() / 2;
+        List<EquipmentStatusRecord> unwritten = writeIsolating(batch.subList(0, middle));
+        if (!unwritten.isEmpty()) {
+            List<EquipmentStatusRecord> remaining = new ArrayList<>(unwritten);
+            remaining.addAll(batch.subList(middle, batch.size()));
+            return remaining;
+        }
+        return writeIsolating(batch.subList(middle, batch.size()));
+    }
+
+    private void deadLetter(EquipmentStatusRecord record, RuntimeException failure) {
+        deadLetterCount.incrementAndGet();
+        log.error("Dropped equipment status record of {} at {} after repeated write failures: {}",
+                record.getEquipmentCode(), record.getTimestamp(), failure.getMessage());
+        deadLetterLog.error("equipmentCode={}, equipmentName={}, status={}, temperature={}, pressure={}, humidity={}, "
+                        + "vibration={}, operator={}, timestamp={}, notes={}",
+                record.getEquipmentCode(), record.getEquipmentName(), record.getStatus(), record.getTemperature(),
+                record.getPressure(), record.getHumidity(), record.getVibration(), record.getOperator(),
+                record.getTimestamp(), record.getNotes());
+    }
+
+    /**
+     * 写入一批状态记录及其汇总
+     *
+     * @return 写入失败的异常，成功时为null
+     */
+    private RuntimeException writeHistory(List<EquipmentStatusRecord> batch) {
+        try {
+            equipmentTelemetryRepository.insertStatusRecords(batch, rollupsOf(batch));
+            return null;
+        } catch (RuntimeException e) {
+            log.warn("Failed to write {} equipment status records, will retry: {}", batch.size(), e.getMessage());
+            return e;
+        }
+    }
+
+    private void flushLatestStates() {
+        List<String> codes = stateTable.drainDirty();
+        for (int from = 0; from < codes.size(); from += writeBatchSize) {
+            List<String> chunk = codes.subList(from, Math.min(codes.size(), from + writeBatchSize));
+            List<EquipmentStateTable.EquipmentState> states = new ArrayList<>(chunk.size());
+            List<EquipmentTelemetryRepository.LatestState> updates = new ArrayList<>(chunk.size());
+            for (String code : chunk) {
+                EquipmentStateTable.EquipmentState state = stateTable.get(code);
+                if (state == null) {
+                    continue;
+                }
+                synchronized (stateTable.lockFor(code)) {
+                    states.add(state);
+                    updates.add(new EquipmentTelemetryRepository.LatestState(state.getEquipment(),
+                            state.getPersistedStatus()));
+                }
+            }
+            if (updates.isEmpty()) {
+                continue;
+            }
+            try {
+                equipmentTelemetryRepository.updateLatestStates(updates);
+            } catch (RuntimeException e) {
+                log.warn("Failed to write latest state of {} equipment, will retry: {}", codes.size() - from,
+                        e.getMessage());
+                codes.subList(from, codes.size()).forEach(stateTable::markDirty);
+                return;
+            }
+            for (int i = 0; i < states.size(); i++) {
+                EquipmentStateTable.EquipmentState state = states.get(i);
+                synchronized (stateTable.lockFor(state.getEquipment().getEquipmentCode())) {
+                    state.setPersistedStatus(updates.get(i).getStatus());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.TelemetryTrendDTO;
+import com.gmp.mes.entity.EquipmentStatusRecord;
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentStatusRecordRepository;
+import com.gmp.mes.repository.EquipmentTelemetryRollupRepository;
+import com.gmp.mes.service.EquipmentTrendService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 设备趋势服务实现
+ * 
+ * 时间范围不超过原始读数窗口时直接查询读数记录，读数超过数据点上限时改用分钟汇总，避免截掉最近的读数；
+ * 否则优先使用分钟汇总，分钟数超过数据点上限时使用小时汇总，小时数仍超过上限时将相邻的小时汇总合并为一个数据点。
+ * 一个月的趋势只读取约720条小时汇总。
+ * 
+ * @author gmp-system
+ */
+@Service
+public class EquipmentTrendServiceImpl implements EquipmentTrendService {
+
+    @Autowired
+    private EquipmentStatusRecordRepository equipmentStatusRecordRepository;
+
+    @Autowired
+    private EquipmentTelemetryRollupRepository equipmentTelemetryRollupRepository;
+
+    @Value("${equipment.trend.max-points:1500}")
+    private int maxPoints = 1500;
+
+    @Value("${equipment.trend.raw-window:3600000}")
+    private long rawWindow = 3600000;
+
+    @Override
+    public TelemetryTrendDTO getTrend(String equipmentCode, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null || !startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("Invalid time range: " + startTime + " - " + endTime);
+        }
+        TelemetryTrendDTO trend = new TelemetryTrendDTO();
+        trend.setEquipmentCode(equipmentCode);
+        trend.setStartTime(startTime);
+        trend.setEndTime(endTime);
+
+        Duration window = Duration.between(startTime, endTime);
+        if (window.toMillis() <= rawWindow && fillRaw(trend)) {
+            return trend;
+        }
+        if (window.toMinutes() <= maxPoints) {
+            fillRollups(trend, EquipmentTelemetryRollup.Resolution.MINUTE);
+        } else {
+            fillRollups(trend, EquipmentTelemetryRollup.Resolution.HOUR);
+        }
+        return trend;
+    }
+
+    /**
+     * 填充原始读数
+     *
+     * @return 读数未超过数据点上限时返回true；超过时不填充任何数据点并返回false，由调用方改用分钟汇总
+     */
+    private boolean fillRaw(TelemetryTrendDTO trend) {
+        // 多查询一条用于判断是否超过数据点上限
+        List<EquipmentStatusRecord> records = equipmentStatusRecordRepository
+                .findByEquipmentCodeAndOperatorAndTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAsc(
+                        trend.getEquipmentCode(), EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR,
+                        trend.getStartTime(), trend.getEndTime(), PageRequest.of(0, maxPoints + 1));
+        if (records.size() > maxPoints) {
+            return false;
+        }
+        trend.setResolution("RAW");
+        for (EquipmentStatusRecord record : records) {
+            TelemetryTrendDTO.Point point = new TelemetryTrendDTO.Point();
+            point.setTime(record.getTimestamp());
+            point.setSampleCount(1);
+            point.setTemperatureMin(record.getTemperature());
+            point.setTemperatureMax(record.getTemperature());
+            point.setTemperatureAvg(record.getTemperature());
+            point.setPressureMin(record.getPressure());
+            point.setPressureMax(record.getPressure());
+            point.setPressureAvg(record.getPressure());
+            point.setHumidityMin(record.getHumidity());
+            point.setHumidityMax(record.getHumidity());
+            point.setHumidityAvg(record.getHumidity());
+            point.setVibrationMin(record.getVibration());
+            point.setVibrationMax(record.getVibration());
+            point.setVibrationAvg(record.getVibration());
+            trend.getPoints().add(point);
+        }
+        return true;
+    }
+
+    private void fillRollups(TelemetryTrendDTO trend, EquipmentTelemetryRollup.Resolution resolution) {
+        ChronoUnit unit = resolution.getUnit();
+        // 包含开始时间所在的整个时间段
+        LocalDateTime from = resolution.bucketOf(trend.getStartTime());
+        List<EquipmentTelemetryRollup> rollups = equipmentTelemetryRollupRepository
+                .findByEquipmentCodeAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        trend.getEquipmentCode(), resolution, from, trend.getEndTime());
+
+        // 时间段数量超过数据点上限时，每factor个相邻时间段合并为一个数据点
+        long buckets = unit.between(from, trend.getEndTime()) + 1;
+        long factor = Math.max(1, (buckets + maxPoints - 1) / maxPoints);
+        trend.setResolution(resolution.name());
+        trend.setBucketSeconds(unit.getDuration().getSeconds() * factor);
+
+        EquipmentTelemetryRollup current = null;
+        LocalDateTime currentStart = null;
+        for (EquipmentTelemetryRollup rollup : rollups) {
+            LocalDateTime pointStart = from.plus(unit.between(from, rollup.getBucketStart()) / factor * factor, unit);
+            if (current != null && pointStart.equals(currentStart)) {
+                current.merge(rollup);
+                continue;
+            }
+            if (current != null) {
+                trend.getPoints().add(toPoint(currentStart, current));
+            }
+            current = new EquipmentTelemetryRollup();
+            current.merge(rollup);
+            currentStart = pointStart;
+        }
+        if (current != null) {
+            trend.getPoints().add(toPoint(currentStart, current));
+        }
+    }
+
+    private static TelemetryTrendDTO.Point toPoint(LocalDateTime time, EquipmentTelemetryRollup rollup) {
+        TelemetryTrendDTO.Point point = new TelemetryTrendDTO.Point();
+        point.setTime(time);
+        point.setSampleCount(rollup.getSampleCount());
+        point.setTemperatureMin(rollup.getTemperatureMin());
+        point.setTemperatureMax(rollup.getTemperatureMax());
+        point.setTemperatureAvg(average(rollup.getTemperatureSum(), rollup.getTemperatureCount()));
+        point.setPressureMin(rollup.getPressureMin());
+        point.setPressureMax(rollup.getPressureMax());
+        point.setPressureAvg(average(rollup.getPressureSum(), rollup.getPressureCount()));
+        point.setHumidityMin(rollup.getHumidityMin());
+        point.setHumidityMax(rollup.getHumidityMax());
+        point.setHumidityAvg(average(rollup.getHumiditySum(), rollup.getHumidityCount()));
+        point.setVibrationMin(rollup.getVibrationMin());
+        point.setVibrationMax(rollup.getVibrationMax());
+        point.setVibrationAvg(average(rollup.getVibrationSum(), rollup.getVibrationCount()));
+        return point;
+    }
+
+    private static Double average(double sum, long count) {
+        return count > 0 ? sum / count : null;
+    }
+}
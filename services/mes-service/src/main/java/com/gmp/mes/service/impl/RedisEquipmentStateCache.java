@@ -0,0 +1,282 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.service.EquipmentStateCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于Redis哈希的设备实时状态缓存
+ * 
+ * 所有设备的实时状态保存在同一个哈希中，字段为设备编码，值为EquipmentStateCodec编码的二进制数据，
+ * 看板一次HGETALL/HMGET即可读取全部设备。待写入的状态按设备合并，定时批量HSET写入，
+ * 写入成功后才从待写入队列移除，Redis不可用期间的更新在恢复后写入。
+ * 
+ * 缓存中没有的设备从数据库读取后写入缓存；应用启动时为缓存中没有的设备预热，
+ * 预热和回源只补充缺失的设备，不覆盖已有或待写入的更新状态。
+ * 
+ * @author gmp-system
+ */
+@Service
+public class RedisEquipmentStateCache implements EquipmentStateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisEquipmentStateCache.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @Value("${equipment.state-cache.key:equipment:live}")
+    private String cacheKey = "equipment:live";
+
+    @Value("${equipment.state-cache.write-batch-size:1000}")
+    private int writeBatchSize = 1000;
+
+    @Value("${equipment.state-cache.warm-up:true}")
+    private boolean warmUpEnabled = true;
+
+    /**
+     * 待写入的设备状态，同一设备只保留最新的编码结果
+     */
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Override
+    public void put(EquipmentMonitor equipment) {
+        pending.put(equipment.getEquipmentCode(), EquipmentStateCodec.encode(equipment));
+    }
+
+    @Override
+    public Optional<EquipmentLiveStateDTO> get(String equipmentCode) {
+        byte[] data = pending.get(equipmentCode);
+        if (data == null) {
+            data = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.hashCommands()
+                    .hGet(rawKey(), bytes(equipmentCode)));
+        }
+        if (data == null) {
+            data = equipmentMonitorRepository.findByEquipmentCode(equipmentCode)
+                    .map(equipment -> load(List.of(equipment)).get(equipmentCode))
+                    .orElse(null);
+        }
+        return Optional.ofNullable(EquipmentStateCodec.decode(equipmentCode, data));
+    }
+
+    @Override
+    public List<EquipmentLiveStateDTO> getAll(Collection<String> equipmentCodes) {
+        Map<String, byte[]> states = new HashMap<>();
+        if (equipmentCodes == null || equipmentCodes.isEmpty()) {
+            Map<byte[], byte[]> entries = redisTemplate.execute((RedisCallback<Map<byte[], byte[]>>) connection ->
+                    connection.hashCommands().hGetAll(rawKey()));
+            if (entries != null) {
+                entries.forEach((field, value) -> states.put(new String(field, StandardCharsets.UTF_8), value));
+            }
+            states.putAll(pending);
+            if (states.isEmpty()) {
+                // 缓存被清空时从数据库回源全部设备
+                states.putAll(load(equipmentMonitorRepository.findAllLiveStateBy().stream()
+                        .map(RedisEquipmentStateCache::toEquipment)
+                        .toList()));
+            }
+        } else {
+            List<String> codes = new ArrayList<>(new LinkedHashSet<>(equipmentCodes));
+            byte[][] fields = new byte[codes.size()][];
+            for (int i = 0; i < codes.size(); i++) {
+                fields[i] = bytes(codes.get(i));
+            }
+            List<byte[]> values = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                    connection.hashCommands().hMGet(rawKey(), fields));
+            List<String> missing = new ArrayList<>();
+            for (int i = 0; i < codes.size(); i++) {
+                byte[] value = pending.get(codes.get(i));
+                if (value == null && values != null) {
+                    value = values.get(i);
+                }
+                if (value != null) {
+                    states.put(codes.get(i), value);
+                } else {
+                    missing.add(codes.get(i));
+                }
+            }
+            if (!missing.isEmpty()) {
+                states.putAll(load(equipmentMonitorRepository.findByEquipmentCodeIn(missing)));
+            }
+        }
+
+        List<EquipmentLiveStateDTO> result = new ArrayList<>(states.size());
+        states.forEach((code, value) -> {
+            EquipmentLiveStateDTO state = EquipmentStateCodec.decode(code, value);
+            if (state != null) {
+                result.add(state);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 启动时为缓存中没有的设备写入数据库中的状态，只读取实时状态相关的列
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!warmUpEnabled) {
+            return;
+        }
+        Set<byte[]> fields = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.hashCommands().hKeys(rawKey()));
+        Set<String> cached = new HashSet<>();
+        if (fields != null) {
+            fields.forEach(field -> cached.add(new String(field, StandardCharsets.UTF_8)));
+        }
+
+        List<EquipmentMonitor> missing = new ArrayList<>();
+        for (EquipmentMonitorRepository.EquipmentLiveState state : equipmentMonitorRepository.findAllLiveStateBy()) {
+            if (!cached.contains(state.getEquipmentCode())) {
+                missing.add(toEquipment(state));
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing);
+            log.info("Warmed up live state of {} equipment", missing.size());
+        }
+    }
+
+    @Override
+    public void remove(String equipmentCode) {
+        // 与后台写入互斥，避免正在写入的旧状态在删除后重新写入
+        flushLock.lock();
+        try {
+            pending.remove(equipmentCode);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.hashCommands()
+                    .hDel(rawKey(), bytes(equipmentCode)));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${equipment.state-cache.write-interval:200}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            writePending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLock.lock();
+        try {
+            writePending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writePending() {
+        Map<String, byte[]> batch = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= writeBatchSize && !writeBatch(batch)) {
+                return;
+            }
+        }
+        writeBatch(batch);
+    }
+
+    private boolean writeBatch(Map<String, byte[]> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        Map<byte[], byte[]> hashes = new HashMap<>(batch.size() * 2);
+        batch.forEach((code, value) -> hashes.put(bytes(code), value));
+        try {
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                RedisHashCommands commands = connection.hashCommands();
+                commands.hMSet(rawKey(), hashes);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to write live state of {} equipment, will retry: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        // 写入期间又有更新的设备保留在待写入队列中
+        batch.forEach(pending::remove);
+        batch.clear();
+        return true;
+    }
+
+    /**
+     * 将数据库中的设备状态写入缓存中没有该设备的字段（HSETNX），不覆盖期间写入的更新状态；
+     * 本地有待写入的更新状态时以更新状态为准
+     *
+     * @return 设备编码到编码结果的映射
+     */
+    private Map<String, byte[]> load(List<EquipmentMonitor> equipments) {
+        Map<String, byte[]> loaded = new HashMap<>(equipments.size() * 2);
+        for (EquipmentMonitor equipment : equipments) {
+            byte[] newer = pending.get(equipment.getEquipmentCode());
+            loaded.put(equipment.getEquipmentCode(), newer != null ? newer : EquipmentStateCodec.encode(equipment));
+        }
+        if (loaded.isEmpty()) {
+            return loaded;
+        }
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            RedisHashCommands commands = connection.hashCommands();
+            loaded.forEach((code, value) -> commands.hSetNX(rawKey(), bytes(code), value));
+            return null;
+        });
+        return loaded;
+    }
+
+    private static EquipmentMonitor toEquipment(EquipmentMonitorRepository.EquipmentLiveState state) {
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId(state.getId());
+        equipment.setEquipmentCode(state.getEquipmentCode());
+        equipment.setStatus(state.getStatus());
+        equipment.setTemperature(state.getTemperature());
+        equipment.setPressure(state.getPressure());
+        equipment.setHumidity(state.getHumidity());
+        equipment.setVibration(state.getVibration());
+        equipment.setLastUpdatedTime(state.getLastUpdatedTime());
+        return equipment;
+    }
+
+    private byte[] rawKey() {
+        return bytes(cacheKey);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
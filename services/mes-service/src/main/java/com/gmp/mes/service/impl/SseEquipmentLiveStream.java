@@ -0,0 +1,416 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.EquipmentLiveDeltaDTO;
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.service.EquipmentLiveStream;
+import com.gmp.mes.service.EquipmentStateCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于SSE的设备实时状态推送
+ *
+ * 状态变化先按设备合并到全局变更表，后台定时取出后分发给各订阅者；每个订阅者有自己的待推送表，
+ * 同样按设备合并，由发送线程一次推送为一个delta事件。某个客户端发送阻塞时只有它的待推送表在合并，
+ * 不影响其他客户端，也不会积压同一设备的历史状态。没有订阅者时发布状态变化直接返回。
+ *
+ * 阻塞的写入由Servlet容器的写超时结束。每个订阅者同时最多占用一个发送线程，线程池按订阅者数量扩展，
+ * 阻塞的客户端不会占满线程池而拖慢其他客户端；一次发送超过send-timeout仍未完成的订阅者被移除，
+ * 不再合并它的待推送内容，阻塞的写入返回后关闭连接，客户端重新连接时重新获取快照。
+ *
+ * @author gmp-system
+ */
+@Service
+public class SseEquipmentLiveStream implements EquipmentLiveStream {
+
+    private static final Logger log = LoggerFactory.getLogger(SseEquipmentLiveStream.class);
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+
+    static final String DELTA_EVENT = "delta";
+
+    @Autowired
+    private EquipmentStateCache equipmentStateCache;
+
+    @Autowired
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @Value("${equipment.live-stream.timeout:1800000}")
+    private long timeout = 1800000;
+
+    @Value("${equipment.live-stream.heartbeat-interval:15000}")
+    private long heartbeatInterval = 15000;
+
+    @Value("${equipment.live-stream.send-threads:4}")
+    private int sendThreads = 4;
+
+    @Value("${equipment.live-stream.max-subscribers:500}")
+    private int maxSubscribers = 500;
+
+    @Value("${equipment.live-stream.send-timeout:10000}")
+    private long sendTimeout = 10000;
+
+    /**
+     * 尚未分发的状态变化，同一设备只保留最新一次
+     */
+    private final Map<String, Change> changes = new ConcurrentHashMap<>();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private Executor sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        // 不排队：每个订阅者同时只有一个发送任务，线程数不超过订阅者上限
+        sendExecutor = new ThreadPoolExecutor(sendThreads, Math.max(sendThreads, maxSubscribers),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "equipment-live-stream");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public SseEmitter subscribe(Collection<String> locations, Collection<String> equipmentTypes,
+            Collection<EquipmentMonitor.EquipmentStatus> statuses) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many live stream subscribers: " + subscribers.size());
+        }
+        SseEmitter emitter = newEmitter(timeout);
+        Subscriber subscriber = new Subscriber(emitter, new Filter(locations, equipmentTypes, statuses));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // 先登记再读取快照，读取期间的状态变化在快照之后作为增量推送
+        subscribers.add(subscriber);
+        try {
+            List<EquipmentLiveStateDTO> snapshot = snapshot(subscriber.filter);
+            subscriber.snapshotRead(snapshot);
+            emitter.send(SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot));
+        } catch (IOException e) {
+            subscribers.remove(subscriber);
+            emitter.completeWithError(e);
+            return emitter;
+        } catch (RuntimeException e) {
+            subscribers.remove(subscriber);
+            throw e;
+        }
+        if (subscriber.finishSending()) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    @Override
+    public void publish(EquipmentMonitor equipment) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        changes.put(equipment.getEquipmentCode(), new Change(EquipmentStateCodec.encode(equipment),
+                equipment.getEquipmentType(), equipment.getLocation()));
+    }
+
+    @Override
+    public void publishRemoval(String equipmentCode) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        changes.put(equipmentCode, new Change(null, null, null));
+    }
+
+    /**
+     * 将状态变化分发给订阅者，并为有待推送内容或需要心跳的订阅者安排发送
+     */
+    @Scheduled(fixedDelayString = "${equipment.live-stream.dispatch-interval:100}")
+    public void dispatch() {
+        if (subscribers.isEmpty()) {
+            changes.clear();
+            return;
+        }
+        List<Map.Entry<String, Change>> batch = new ArrayList<>();
+        for (Map.Entry<String, Change> entry : changes.entrySet()) {
+            if (changes.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry);
+            }
+        }
+        // 每个设备只解码一次，所有订阅者共用
+        Map<String, EquipmentLiveStateDTO> states = new LinkedHashMap<>(batch.size() * 2);
+        for (Map.Entry<String, Change> entry : batch) {
+            byte[] data = entry.getValue().state;
+            states.put(entry.getKey(), data == null ? null : EquipmentStateCodec.decode(entry.getKey(), data));
+        }
+
+        long now = System.currentTimeMillis();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now, sendTimeout)) {
+                drop(subscriber);
+                continue;
+            }
+            for (Map.Entry<String, Change> entry : batch) {
+                Change change = entry.getValue();
+                subscriber.offer(entry.getKey(), states.get(entry.getKey()), change.equipmentType, change.location);
+            }
+            if (subscriber.startSending(now, heartbeatInterval)) {
+                try {
+                    sendExecutor.execute(() -> send(subscriber));
+                } catch (RejectedExecutionException e) {
+                    subscriber.finishSending();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        if (sendExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 移除发送阻塞的订阅者；emitter由阻塞的发送线程在写入返回后关闭，这里不等待它的锁
+     */
+    private void drop(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            log.warn("Live stream subscriber dropped, send blocked for more than {} ms", sendTimeout);
+            subscriber.drop();
+        }
+    }
+
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    private void send(Subscriber subscriber) {
+        boolean dropped;
+        try {
+            EquipmentLiveDeltaDTO delta = subscriber.takeDelta(System.currentTimeMillis());
+            if (delta != null) {
+                subscriber.emitter.send(SseEmitter.event().name(DELTA_EVENT).data(delta));
+            } else {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开或连接已关闭
+            log.debug("Live stream subscriber disconnected: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+            return;
+        } finally {
+            dropped = subscriber.finishSending();
+        }
+        if (dropped) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private List<EquipmentLiveStateDTO> snapshot(Filter filter) {
+        List<EquipmentLiveStateDTO> states;
+        if (filter.locations == null && filter.equipmentTypes == null) {
+            states = equipmentStateCache.getAll(null);
+        } else {
+            List<String> codes = new ArrayList<>();
+            for (EquipmentMonitorRepository.EquipmentDescriptor descriptor : equipmentMonitorRepository.findAllProjectedBy()) {
+                if (filter.matchesDescriptor(descriptor.getEquipmentType(), descriptor.getLocation())) {
+                    codes.add(descriptor.getEquipmentCode());
+                }
+            }
+            if (codes.isEmpty()) {
+                return new ArrayList<>();
+            }
+            states = equipmentStateCache.getAll(codes);
+        }
+        List<EquipmentLiveStateDTO> result = new ArrayList<>(states.size());
+        for (EquipmentLiveStateDTO state : states) {
+            if (filter.matchesStatus(state.getStatus())) {
+                result.add(state);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 设备状态变化，state为空表示设备已删除
+     */
+    private static final class Change {
+
+        private final byte[] state;
+        private final String equipmentType;
+        private final String location;
+
+        private Change(byte[] state, String equipmentType, String location) {
+            this.state = state;
+            this.equipmentType = equipmentType;
+            this.location = location;
+        }
+    }
+
+    /**
+     * 订阅条件，各条件为空表示不限
+     */
+    private static final class Filter {
+
+        private final Set<String> locations;
+        private final Set<String> equipmentTypes;
+        private final Set<EquipmentMonitor.EquipmentStatus> statuses;
+
+        private Filter(Collection<String> locations, Collection<String> equipmentTypes,
+                Collection<EquipmentMonitor.EquipmentStatus> statuses) {
+            this.locations = toSet(locations);
+            this.equipmentTypes = toSet(equipmentTypes);
+            this.statuses = toSet(statuses);
+        }
+
+        private boolean matchesDescriptor(String equipmentType, String location) {
+            return (equipmentTypes == null || equipmentTypes.contains(equipmentType))
+                    && (locations == null || locations.contains(location));
+        }
+
+        private boolean matchesStatus(EquipmentMonitor.EquipmentStatus status) {
+            return statuses == null || statuses.contains(status);
+        }
+
+        private static <T> Set<T> toSet(Collection<T> values) {
+            return values == null || values.isEmpty() ? null : new HashSet<>(values);
+        }
+    }
+
+    /**
+     * 订阅者及其待推送内容，除emitter和filter外的字段由订阅者自身加锁保护
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Filter filter;
+
+        private final Map<String, EquipmentLiveStateDTO> updates = new LinkedHashMap<>();
+        private final Set<String> removals = new LinkedHashSet<>();
+
+        /**
+         * 客户端当前显示的设备，不再符合条件时需要推送移除
+         */
+        private final Set<String> visible = new HashSet<>();
+
+        /**
+         * 快照读取完成前，不符合条件的设备都记为移除，快照读取后只保留快照中包含的设备
+         */
+        private boolean readingSnapshot = true;
+
+        private boolean sending = true;
+
+        private long sendingSince = System.currentTimeMillis();
+
+        /**
+         * 发送超时后被移除，当前发送完成后关闭连接
+         */
+        private boolean dropped;
+
+        private long lastSentAt = System.currentTimeMillis();
+
+        private Subscriber(SseEmitter emitter, Filter filter) {
+            this.emitter = emitter;
+            this.filter = filter;
+        }
+
+        private synchronized void offer(String code, EquipmentLiveStateDTO state, String equipmentType, String location) {
+            if (state != null && filter.matchesDescriptor(equipmentType, location) && filter.matchesStatus(state.getStatus())) {
+                updates.put(code, state);
+                removals.remove(code);
+                visible.add(code);
+            } else if (visible.remove(code) || readingSnapshot) {
+                updates.remove(code);
+                removals.add(code);
+            }
+        }
+
+        private synchronized void snapshotRead(List<EquipmentLiveStateDTO> snapshot) {
+            Set<String> snapshotCodes = new HashSet<>();
+            for (EquipmentLiveStateDTO state : snapshot) {
+                snapshotCodes.add(state.getEquipmentCode());
+            }
+            removals.retainAll(snapshotCodes);
+            for (String code : snapshotCodes) {
+                if (!removals.contains(code)) {
+                    visible.add(code);
+                }
+            }
+            readingSnapshot = false;
+        }
+
+        private synchronized boolean startSending(long now, long heartbeatInterval) {
+            if (sending || (updates.isEmpty() && removals.isEmpty() && now - lastSentAt < heartbeatInterval)) {
+                return false;
+            }
+            sending = true;
+            sendingSince = now;
+            return true;
+        }
+
+        private synchronized boolean isStalled(long now, long sendTimeout) {
+            return sending && now - sendingSince >= sendTimeout;
+        }
+
+        private synchronized void drop() {
+            dropped = true;
+            updates.clear();
+            removals.clear();
+        }
+
+        /**
+         * 取出待推送内容，没有内容时返回空，此时发送心跳
+         */
+        private synchronized EquipmentLiveDeltaDTO takeDelta(long now) {
+            lastSentAt = now;
+            if (updates.isEmpty() && removals.isEmpty()) {
+                return null;
+            }
+            EquipmentLiveDeltaDTO delta = new EquipmentLiveDeltaDTO();
+            delta.getUpdated().addAll(updates.values());
+            delta.getRemoved().addAll(removals);
+            updates.clear();
+            removals.clear();
+            return delta;
+        }
+
+        /**
+         * 结束发送
+         *
+         * @return 发送期间已因超时被移除时返回true，调用方需要关闭连接
+         */
+        private synchronized boolean finishSending() {
+            sending = false;
+            return dropped;
+        }
+    }
+}
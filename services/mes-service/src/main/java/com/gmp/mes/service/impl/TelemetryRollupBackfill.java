@@ -0,0 +1,88 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentTelemetryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 遥测汇总回填 - 为启用汇总之前写入的读数记录生成分钟和小时汇总
+ *
+ * 汇总随读数实时写入，启用前的读数记录没有汇总，超过原始读数窗口的趋势查询会缺少这段时间的数据。
+ * 启动时从最早的已有汇总时间段（不晚于启动时刻所在的时间段）开始按时间倒序分段回填，
+ * 已有的汇总保持不变，不会与实时写入的汇总重复累加。回填后最早的汇总时间段前移，
+ * 中断后再次启动从中断处继续，全部完成后再次启动不会再写入。
+ *
+ * @author gmp-system
+ */
+@Component
+public class TelemetryRollupBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(TelemetryRollupBackfill.class);
+
+    @Autowired
+    private EquipmentTelemetryRepository equipmentTelemetryRepository;
+
+    @Value("${equipment.trend.backfill.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 每次回填的时间跨度（小时），控制单条语句扫描的读数记录数
+     */
+    @Value("${equipment.trend.backfill.chunk-hours:24}")
+    private int chunkHours = 24;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime earliest = equipmentTelemetryRepository
+                .findEarliestRecordTime(EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR);
+        if (earliest == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (EquipmentTelemetryRollup.Resolution resolution : EquipmentTelemetryRollup.Resolution.values()) {
+            try {
+                backfill(resolution, earliest, now);
+            } catch (RuntimeException e) {
+                log.warn("Failed to backfill {} telemetry rollups, will resume on next start: {}",
+                        resolution, e.getMessage());
+            }
+        }
+    }
+
+    private void backfill(EquipmentTelemetryRollup.Resolution resolution, LocalDateTime earliest, LocalDateTime now) {
+        // 启动时刻所在及之后的时间段由实时写入维护
+        LocalDateTime until = resolution.bucketOf(now);
+        LocalDateTime firstRollup = equipmentTelemetryRepository.findEarliestRollupBucket(resolution);
+        if (firstRollup != null && firstRollup.isBefore(until)) {
+            until = firstRollup;
+        }
+        LocalDateTime from = resolution.bucketOf(earliest);
+        if (!from.isBefore(until)) {
+            return;
+        }
+
+        int inserted = 0;
+        LocalDateTime end = until;
+        while (end.isAfter(from)) {
+            LocalDateTime start = end.minusHours(Math.max(1, chunkHours));
+            if (start.isBefore(from)) {
+                start = from;
+            }
+            inserted += equipmentTelemetryRepository.backfillRollups(resolution,
+                    EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR, start, end);
+            end = start;
+        }
+        log.info("Backfilled {} {} telemetry rollups for {} - {}", inserted, resolution, from, until);
+    }
+}
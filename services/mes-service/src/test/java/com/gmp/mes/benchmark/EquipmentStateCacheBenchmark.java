@@ -0,0 +1,169 @@
+package com.gmp.mes.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.service.impl.RedisEquipmentStateCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备状态缓存编码对比：整个设备实体的JSON与实时状态的二进制哈希字段
+ *
+ * write：一台设备参数变化后生成缓存数据；readDashboard：看板一次读取全部设备并解码。
+ * Redis以内存Map模拟，结果只包含编解码和本地合并的开销，不包含网络传输；
+ * 网络传输量与每台设备的数据大小成正比，两种编码的大小由RedisEquipmentStateCacheTest断言。
+ * JSON基线注册了JavaTimeModule并忽略未知属性，否则实体中的时间字段和派生属性无法往返序列化。
+ * 运行方式：mvn test-compile 后执行本类的main方法。
+ *
+ * @author gmp-system
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EquipmentStateCacheBenchmark {
+
+    @Param({"200", "5000"})
+    private int equipmentCount;
+
+    private Jackson2JsonRedisSerializer<EquipmentMonitor> jsonSerializer;
+
+    private RedisEquipmentStateCache stateCache;
+
+    private List<EquipmentMonitor> equipment;
+
+    private List<byte[]> jsonBlobs;
+
+    private final Map<byte[], byte[]> hash = new HashMap<>();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        jsonSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, EquipmentMonitor.class);
+
+        RedisHashCommands hashCommands = mock(RedisHashCommands.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            hash.putAll(invocation.getArgument(1));
+            return null;
+        }).when(hashCommands).hMSet(any(byte[].class), anyMap());
+        when(hashCommands.hGetAll(any(byte[].class))).thenAnswer(invocation -> new HashMap<>(hash));
+        RedisConnection connection = mock(RedisConnection.class, withSettings().stubOnly());
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class, withSettings().stubOnly());
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        stateCache = new RedisEquipmentStateCache();
+        ReflectionTestUtils.setField(stateCache, "redisTemplate", redisTemplate);
+
+        equipment = new ArrayList<>(equipmentCount);
+        jsonBlobs = new ArrayList<>(equipmentCount);
+        for (int i = 0; i < equipmentCount; i++) {
+            EquipmentMonitor item = equipment("EQP-" + i, i);
+            equipment.add(item);
+            jsonBlobs.add(jsonSerializer.serialize(item));
+            stateCache.put(item);
+        }
+        stateCache.flush();
+    }
+
+    @Benchmark
+    public byte[] writeJson() {
+        return jsonSerializer.serialize(nextReading());
+    }
+
+    @Benchmark
+    public void writeBinary() {
+        stateCache.put(nextReading());
+    }
+
+    @Benchmark
+    public int readDashboardJson() {
+        int online = 0;
+        for (byte[] blob : jsonBlobs) {
+            if (jsonSerializer.deserialize(blob).getStatus() == EquipmentMonitor.EquipmentStatus.ONLINE) {
+                online++;
+            }
+        }
+        return online;
+    }
+
+    @Benchmark
+    public int readDashboardBinary() {
+        return stateCache.getAll(null).size();
+    }
+
+    private EquipmentMonitor nextReading() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        EquipmentMonitor item = equipment.get(random.nextInt(equipmentCount));
+        item.setTemperature(60 + random.nextDouble(25));
+        item.setLastUpdatedTime(LocalDateTime.now());
+        return item;
+    }
+
+    private static EquipmentMonitor equipment(String code, long id) {
+        LocalDateTime now = LocalDateTime.now();
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId(id);
+        equipment.setEquipmentCode(code);
+        equipment.setEquipmentName("提取罐" + id);
+        equipment.setEquipmentType("提取罐");
+        equipment.setLocation("前处理车间");
+        equipment.setManufacturer("GMP Equipment");
+        equipment.setModel("TQ-3000");
+        equipment.setStatus(EquipmentMonitor.EquipmentStatus.ONLINE);
+        equipment.setTemperature(65.0);
+        equipment.setPressure(2.1);
+        equipment.setHumidity(45.0);
+        equipment.setVibration(1.2);
+        equipment.setTemperatureThreshold(80.0);
+        equipment.setPressureThreshold(10.0);
+        equipment.setVibrationThreshold(5.0);
+        equipment.setLastUpdatedTime(now);
+        equipment.setCreatedAt(now.minusDays(30));
+        equipment.setUpdatedAt(now);
+        return equipment;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EquipmentStateCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
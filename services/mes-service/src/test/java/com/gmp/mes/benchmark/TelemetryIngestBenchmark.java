@@ -0,0 +1,144 @@
+package com.gmp.mes.benchmark;
+
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.repository.EquipmentTelemetryRepository;
+import com.gmp.mes.service.impl.EquipmentTelemetryServiceImpl;
+import com.gmp.mes.service.impl.RedisEquipmentStateCache;
+import com.gmp.mes.service.impl.SseEquipmentLiveStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 遥测读数接收吞吐量（结果为每秒读数条数）
+ * 
+ * 8个线程模拟采集网关并发上报，每次上报一批读数，设备编码在全部设备中随机分布。
+ * 数据库批量写入以固定延迟模拟（每1000条记录2毫秒），后台写入线程与生产环境一样定时批量写入，
+ * 写入跟不上时上报线程会因队列已满而等待，结果包含这部分背压。
+ * 运行方式：mvn test-compile 后执行本类的main方法。
+ * 
+ * @author gmp-system
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TelemetryIngestBenchmark {
+
+    private static final int READINGS_PER_REQUEST = 500;
+
+    // 模拟批量写入1000条记录的数据库耗时
+    private static final long WRITE_NANOS_PER_THOUSAND = TimeUnit.MILLISECONDS.toNanos(2);
+
+    @Param({"200", "5000"})
+    private int equipmentCount;
+
+    private EquipmentTelemetryServiceImpl telemetryService;
+
+    private ScheduledExecutorService flusher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        EquipmentMonitorRepository equipmentRepository = mock(EquipmentMonitorRepository.class, withSettings().stubOnly());
+        when(equipmentRepository.findByEquipmentCodeIn(anyCollection())).thenAnswer(invocation -> {
+            List<EquipmentMonitor> found = new ArrayList<>();
+            for (String code : invocation.<Collection<String>>getArgument(0)) {
+                found.add(equipment(code));
+            }
+            return found;
+        });
+        EquipmentTelemetryRepository telemetryRepository = mock(EquipmentTelemetryRepository.class, withSettings().stubOnly());
+        doAnswer(invocation -> {
+            LockSupport.parkNanos(WRITE_NANOS_PER_THOUSAND * invocation.<List<?>>getArgument(0).size() / 1000);
+            return null;
+        }).when(telemetryRepository).insertStatusRecords(anyList(), anyList());
+        doAnswer(invocation -> {
+            LockSupport.parkNanos(WRITE_NANOS_PER_THOUSAND * invocation.<List<?>>getArgument(0).size() / 1000);
+            return null;
+        }).when(telemetryRepository).updateLatestStates(anyList());
+
+        telemetryService = new EquipmentTelemetryServiceImpl();
+        ReflectionTestUtils.setField(telemetryService, "equipmentMonitorRepository", equipmentRepository);
+        ReflectionTestUtils.setField(telemetryService, "equipmentTelemetryRepository", telemetryRepository);
+        RedisEquipmentStateCache stateCache = new RedisEquipmentStateCache();
+        ReflectionTestUtils.setField(stateCache, "redisTemplate", mock(RedisTemplate.class, withSettings().stubOnly()));
+        ReflectionTestUtils.setField(telemetryService, "equipmentStateCache", stateCache);
+        ReflectionTestUtils.setField(telemetryService, "equipmentLiveStream", new SseEquipmentLiveStream());
+        telemetryService.init();
+
+        flusher = Executors.newScheduledThreadPool(2);
+        flusher.scheduleWithFixedDelay(telemetryService::flush, 500, 500, TimeUnit.MILLISECONDS);
+        flusher.scheduleWithFixedDelay(stateCache::flush, 200, 200, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flusher.shutdownNow();
+        telemetryService.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS_PER_REQUEST)
+    public int ingest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<TelemetryReadingDTO> readings = new ArrayList<>(READINGS_PER_REQUEST);
+        for (int i = 0; i < READINGS_PER_REQUEST; i++) {
+            readings.add(new TelemetryReadingDTO("EQP-" + random.nextInt(equipmentCount),
+                    60 + random.nextDouble(25), 2 + random.nextDouble(), 45.0, random.nextDouble(6), null));
+        }
+        return telemetryService.ingest(readings).getAccepted();
+    }
+
+    private static EquipmentMonitor equipment(String code) {
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId((long) code.hashCode());
+        equipment.setEquipmentCode(code);
+        equipment.setEquipmentName(code);
+        equipment.setEquipmentType("反应釜");
+        equipment.setStatus(EquipmentMonitor.EquipmentStatus.ONLINE);
+        equipment.setTemperatureThreshold(80.0);
+        equipment.setPressureThreshold(10.0);
+        equipment.setVibrationThreshold(5.0);
+        return equipment;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TelemetryIngestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.BatchGenealogyDTO;
+import com.gmp.mes.entity.GenealogyChangeListener;
+import com.gmp.mes.repository.BatchOperationRepository;
+import com.gmp.mes.repository.ProductionBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批次谱系服务的单元测试
+ *
+ * @author gmp-system
+ */
+class BatchGenealogyServiceTest {
+
+    @Mock
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Mock
+    private BatchOperationRepository batchOperationRepository;
+
+    @InjectMocks
+    private BatchGenealogyService batchGenealogyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testTraceOrderBuildsTreeFromOneQuery() {
+        List<ProductionBatchRepository.GenealogyRow> rows = List.of(
+                row(1L, 10L, 100L, "EQP-001", "张三"),
+                row(1L, 10L, 101L, "EQP-002", "李四"),
+                row(1L, 11L, null, null, null));
+        when(productionBatchRepository.findIdsByOrderId(1L)).thenReturn(List.of(10L, 11L));
+        when(productionBatchRepository.findGenealogyRows(anyCollection())).thenReturn(rows);
+
+        BatchGenealogyDTO genealogy = batchGenealogyService.traceOrder(1L);
+
+        assertEquals("ORDER", genealogy.getTraceType());
+        assertEquals(1, genealogy.getOrders().size());
+        List<BatchGenealogyDTO.BatchNode> batches = genealogy.getOrders().get(0).getBatches();
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).getOperations().size());
+        assertTrue(batches.get(1).getOperations().isEmpty());
+        assertEquals(2, genealogy.getBatchCount());
+        assertEquals(2, genealogy.getOperationCount());
+        assertEquals(Set.of("EQP-BATCH-10", "EQP-BATCH-11", "EQP-001", "EQP-002"), genealogy.getEquipmentIds());
+        assertEquals(Set.of("张三", "李四"), genealogy.getOperators());
+        verify(productionBatchRepository, times(1)).findGenealogyRows(anyCollection());
+    }
+
+    @Test
+    void testTraceEquipmentIsCachedUntilGenealogyChanges() {
+        when(productionBatchRepository.findIdsByEquipmentId("EQP-001")).thenReturn(List.of(10L));
+        when(batchOperationRepository.findBatchIdsByEquipmentId("EQP-001")).thenReturn(List.of(10L, 12L));
+        List<ProductionBatchRepository.GenealogyRow> rows = List.of(
+                row(1L, 10L, null, null, null), row(2L, 12L, 120L, "EQP-001", "张三"));
+        when(productionBatchRepository.findGenealogyRows(anyCollection())).thenReturn(rows);
+
+        BatchGenealogyDTO first = batchGenealogyService.traceEquipment("EQP-001");
+        BatchGenealogyDTO second = batchGenealogyService.traceEquipment("EQP-001");
+
+        assertSame(first, second);
+        assertEquals(2, first.getOrders().size());
+        verify(productionBatchRepository, times(1))
+                .findGenealogyRows(argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(10L, 12L))));
+
+        GenealogyChangeListener.markChanged();
+        batchGenealogyService.traceEquipment("EQP-001");
+
+        verify(productionBatchRepository, times(2)).findGenealogyRows(anyCollection());
+    }
+
+    @Test
+    void testLargeTraceIsQueriedInChunks() {
+        ReflectionTestUtils.setField(batchGenealogyService, "queryChunkSize", 2);
+        List<ProductionBatchRepository.GenealogyRow> firstChunk = List.of(
+                row(1L, 10L, null, null, null), row(1L, 11L, null, null, null));
+        List<ProductionBatchRepository.GenealogyRow> secondChunk = List.of(row(1L, 12L, null, null, null));
+        when(productionBatchRepository.findIdsByProductId("PROD-001")).thenReturn(List.of(12L, 10L, 11L));
+        when(productionBatchRepository.findGenealogyRows(anyCollection()))
+                .thenReturn(firstChunk)
+                .thenReturn(secondChunk);
+
+        BatchGenealogyDTO genealogy = batchGenealogyService.traceProduct("PROD-001");
+
+        assertEquals(1, genealogy.getOrders().size());
+        assertEquals(3, genealogy.getBatchCount());
+        verify(productionBatchRepository).findGenealogyRows(List.of(10L, 11L));
+        verify(productionBatchRepository).findGenealogyRows(List.of(12L));
+    }
+
+    private static ProductionBatchRepository.GenealogyRow row(Long orderId, Long batchId, Long operationId,
+            String operationEquipmentId, String operationOperator) {
+        ProductionBatchRepository.GenealogyRow row = mock(ProductionBatchRepository.GenealogyRow.class);
+        when(row.getOrderId()).thenReturn(orderId);
+        when(row.getOrderNumber()).thenReturn("ORD-" + orderId);
+        when(row.getBatchId()).thenReturn(batchId);
+        when(row.getBatchNumber()).thenReturn("BATCH-" + batchId);
+        when(row.getBatchEquipmentId()).thenReturn("EQP-BATCH-" + batchId);
+        when(row.getOperationId()).thenReturn(operationId);
+        when(row.getOperationEquipmentId()).thenReturn(operationEquipmentId);
+        when(row.getOperationOperator()).thenReturn(operationOperator);
+        return row;
+    }
+}
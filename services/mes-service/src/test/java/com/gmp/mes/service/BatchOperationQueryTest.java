@@ -0,0 +1,91 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.dto.BatchOperationSummaryDTO;
+import com.gmp.mes.entity.BatchOperation;
+import com.gmp.mes.repository.BatchOperationRepository;
+import com.gmp.mes.repository.ProductionBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 批操作查询的单元测试，查询条件和分页由数据库完成，不在内存中过滤
+ *
+ * @author gmp-system
+ */
+class BatchOperationQueryTest {
+
+    @Mock
+    private BatchOperationRepository batchOperationRepository;
+
+    @Mock
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Mock
+    private NumberingService numberingService;
+
+    @InjectMocks
+    private BatchOperationService batchOperationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(batchOperationService, "maxPageSize", 50);
+    }
+
+    @Test
+    void testGetBatchOperationByNumberUsesIndexedLookup() {
+        BatchOperation operation = new BatchOperation();
+        operation.setId(1L);
+        operation.setOperationName("OP-20240101-000001");
+        when(batchOperationRepository.findFirstByOperationNameOrderByIdAsc("OP-20240101-000001"))
+                .thenReturn(Optional.of(operation));
+
+        Optional<BatchOperation> found = batchOperationService.getBatchOperationByNumber("OP-20240101-000001");
+
+        assertTrue(found.isPresent());
+        assertEquals(1L, found.get().getId());
+        verify(batchOperationRepository, never()).findAll();
+    }
+
+    @Test
+    void testSummariesStartFromFirstRecordAndLimitPageSize() {
+        BatchOperationSummaryDTO summary = new BatchOperationSummaryDTO(1L, 10L, "OP-20240101-000001", "MIXING",
+                BatchOperation.OperationStatus.PENDING, null, null, "张三", "EQP-001");
+        when(batchOperationRepository.findSummaries(eq(0L), any())).thenReturn(List.of(summary));
+
+        List<BatchOperationSummaryDTO> summaries = batchOperationService.getBatchOperationSummaries(null, 1000);
+
+        assertEquals(List.of(summary), summaries);
+        verify(batchOperationRepository).findSummaries(0L, PageRequest.of(0, 50));
+        verify(batchOperationRepository, never()).findAll();
+    }
+
+    @Test
+    void testBatchSummariesFilterByStatusInQuery() {
+        batchOperationService.getBatchOperationSummariesByBatchId(10L, null, 5L, 20);
+        batchOperationService.getBatchOperationSummariesByBatchId(10L, BatchOperation.OperationStatus.COMPLETED, 5L, 20);
+
+        verify(batchOperationRepository).findSummariesByBatchId(10L, 5L, PageRequest.of(0, 20));
+        verify(batchOperationRepository).findSummariesByBatchIdAndStatus(10L,
+                BatchOperation.OperationStatus.COMPLETED, 5L, PageRequest.of(0, 20));
+    }
+
+    @Test
+    void testNonPositiveLimitReturnsEmptyList() {
+        assertTrue(batchOperationService.getBatchOperationSummariesByStatus(
+                BatchOperation.OperationStatus.PENDING, null, 0).isEmpty());
+        verifyNoInteractions(batchOperationRepository);
+    }
+}
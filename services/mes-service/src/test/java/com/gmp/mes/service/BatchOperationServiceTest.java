@@ -1,5 +1,6 @@
 package com.gmp.mes.service;
 
+import com.gmp.mes.dto.BatchOperationSummaryDTO;
 import com.gmp.mes.entity.BatchOperation;
 import com.gmp.mes.entity.ProductionBatch;
 import com.gmp.mes.repository.BatchOperationRepository;
@@ -8,12 +9,14 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,6 +32,9 @@ class BatchOperationServiceTest {
     @Mock
     private ProductionBatchService productionBatchService;
 
+    @Mock
+    private NumberingService numberingService;
+
     @InjectMocks
     private BatchOperationService batchOperationService;
 
@@ -38,6 +44,7 @@ class BatchOperationServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(numberingService.nextDailyNumber("OP", 6)).thenReturn("OP-20240101-000001");
         
         // 创建测试批次
         testBatch = new ProductionBatch();
@@ -100,15 +107,17 @@ class BatchOperationServiceTest {
     }
 
     @Test
-    void testGetAllBatchOperations() {
-        List<BatchOperation> operations = Arrays.asList(testOperation);
-        when(batchOperationRepository.findAll()).thenReturn(operations);
+    void testGetBatchOperationSummaries() {
+        BatchOperationSummaryDTO summary = new BatchOperationSummaryDTO(1L, 1L, "OP-2024-001", "PROCESSING",
+                BatchOperation.OperationStatus.PENDING, null, null, "操作员1", "EQP-001");
+        when(batchOperationRepository.findSummaries(eq(0L), any(Pageable.class))).thenReturn(Arrays.asList(summary));
         
-        List<BatchOperation> allOperations = batchOperationService.getAllBatchOperations();
+        List<BatchOperationSummaryDTO> summaries = batchOperationService.getBatchOperationSummaries(null, 10);
         
-        assertNotNull(allOperations);
-        assertEquals(1, allOperations.size());
-        verify(batchOperationRepository, times(1)).findAll();
+        assertNotNull(summaries);
+        assertEquals(1, summaries.size());
+        verify(batchOperationRepository, times(1)).findSummaries(eq(0L), any(Pageable.class));
+        verify(batchOperationRepository, never()).findAll();
     }
 
     @Test
@@ -226,6 +235,7 @@ class BatchOperationServiceTest {
         assertNotNull(operationNumber);
         assertTrue(operationNumber.startsWith("OP-"));
         assertTrue(operationNumber.length() > 10);
+        verify(numberingService).nextDailyNumber("OP", 6);
     }
 
     @Test
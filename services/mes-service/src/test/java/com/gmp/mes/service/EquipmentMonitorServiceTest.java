@@ -36,6 +36,18 @@ class EquipmentMonitorServiceTest {
     @Mock
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Mock
+    private EquipmentTelemetryService equipmentTelemetryService;
+
+    @Mock
+    private EquipmentTrendService equipmentTrendService;
+
+    @Mock
+    private EquipmentStateCache equipmentStateCache;
+
+    @Mock
+    private EquipmentLiveStream equipmentLiveStream;
+
     @InjectMocks
     private EquipmentMonitorService equipmentMonitorService;
 
@@ -0,0 +1,142 @@
+package com.gmp.mes.service;
+
+import com.gmp.mes.entity.ProductionBatch;
+import com.gmp.mes.entity.ProductionOrder;
+import com.gmp.mes.repository.ProductionBatchRepository;
+import com.gmp.mes.repository.ProductionOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 订单批次计数的单元测试，批次增删、完成和转移订单时维护订单的批次数和已完成批次数
+ *
+ * @author gmp-system
+ */
+class ProductionBatchOrderCountTest {
+
+    @Mock
+    private ProductionBatchRepository productionBatchRepository;
+
+    @Mock
+    private ProductionOrderRepository productionOrderRepository;
+
+    @Mock
+    private NumberingService numberingService;
+
+    @InjectMocks
+    private ProductionBatchService productionBatchService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productionBatchRepository.save(any(ProductionBatch.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void testLastCompletedBatchCompletesOrder() {
+        ProductionBatch batch = batch(1L, order(10L), ProductionBatch.BatchStatus.IN_PROGRESS);
+        when(productionBatchRepository.findByBatchNumber("BATCH-1")).thenReturn(Optional.of(batch));
+        when(productionOrderRepository.incrementCompletedBatchCount(10L)).thenReturn(1);
+        when(productionOrderRepository.completeIfAllBatchesCompleted(eq(10L), eq(ProductionOrder.OrderStatus.IN_PROGRESS),
+                eq(ProductionOrder.OrderStatus.COMPLETED), eq(ProductionBatch.BatchStatus.COMPLETED), any()))
+                .thenReturn(1);
+
+        ProductionBatch completed = productionBatchService.completeBatch("BATCH-1");
+
+        assertEquals(ProductionBatch.BatchStatus.COMPLETED, completed.getStatus());
+        InOrder inOrder = inOrder(productionOrderRepository);
+        inOrder.verify(productionOrderRepository).incrementCompletedBatchCount(10L);
+        inOrder.verify(productionOrderRepository).completeIfAllBatchesCompleted(eq(10L), any(), any(), any(), any());
+        // 计数已维护的订单不重新统计，也不加载订单的其他批次
+        verify(productionOrderRepository, never()).recountBatches(anyLong(), any());
+        verify(productionBatchRepository, never()).findByOrderId(anyLong());
+    }
+
+    @Test
+    void testLegacyOrderWithoutCountersIsRecountedOnCompletion() {
+        ProductionBatch batch = batch(1L, order(10L), ProductionBatch.BatchStatus.IN_PROGRESS);
+        when(productionBatchRepository.findById(1L)).thenReturn(Optional.of(batch));
+        // 历史订单的计数为空，原子加一不更新任何行
+        when(productionOrderRepository.incrementCompletedBatchCount(10L)).thenReturn(0);
+
+        productionBatchService.completeProductionBatch(1L, "操作员1", 100);
+
+        InOrder inOrder = inOrder(productionBatchRepository, productionOrderRepository);
+        inOrder.verify(productionBatchRepository).flush();
+        inOrder.verify(productionOrderRepository).recountBatches(10L, ProductionBatch.BatchStatus.COMPLETED);
+        inOrder.verify(productionOrderRepository).completeIfAllBatchesCompleted(eq(10L), any(), any(), any(), any());
+    }
+
+    @Test
+    void testLegacyOrderWithoutCountersIsRecountedOnCreate() {
+        ProductionBatch batch = batch(null, order(10L), null);
+        when(productionOrderRepository.incrementBatchCount(10L)).thenReturn(0);
+        when(numberingService.nextDailyNumber("BATCH", 4)).thenReturn("BATCH-20240101-0001");
+
+        productionBatchService.createBatch(batch);
+
+        verify(productionOrderRepository).recountBatches(10L, ProductionBatch.BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void testDeletingBatchRecountsOrder() {
+        ProductionBatch batch = batch(1L, order(10L), ProductionBatch.BatchStatus.COMPLETED);
+        when(productionBatchRepository.findById(1L)).thenReturn(Optional.of(batch));
+
+        productionBatchService.deleteBatch(1L);
+
+        InOrder inOrder = inOrder(productionBatchRepository, productionOrderRepository);
+        inOrder.verify(productionBatchRepository).delete(batch);
+        inOrder.verify(productionBatchRepository).flush();
+        inOrder.verify(productionOrderRepository).recountBatches(10L, ProductionBatch.BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void testMovingBatchToAnotherOrderRecountsBothOrders() {
+        ProductionBatch batch = batch(1L, order(20L), ProductionBatch.BatchStatus.COMPLETED);
+        when(productionBatchRepository.findOrderIdById(1L)).thenReturn(Optional.of(10L));
+
+        productionBatchService.updateBatch(batch);
+
+        InOrder inOrder = inOrder(productionBatchRepository);
+        inOrder.verify(productionBatchRepository).findOrderIdById(1L);
+        inOrder.verify(productionBatchRepository).save(batch);
+        verify(productionOrderRepository).recountBatches(20L, ProductionBatch.BatchStatus.COMPLETED);
+        verify(productionOrderRepository).recountBatches(10L, ProductionBatch.BatchStatus.COMPLETED);
+    }
+
+    @Test
+    void testUpdatingBatchInSameOrderRecountsOnce() {
+        ProductionBatch batch = batch(1L, order(10L), ProductionBatch.BatchStatus.COMPLETED);
+        when(productionBatchRepository.findOrderIdById(1L)).thenReturn(Optional.of(10L));
+
+        productionBatchService.updateBatch(batch);
+
+        verify(productionOrderRepository, times(1)).recountBatches(10L, ProductionBatch.BatchStatus.COMPLETED);
+    }
+
+    private static ProductionOrder order(Long id) {
+        ProductionOrder order = new ProductionOrder();
+        order.setId(id);
+        return order;
+    }
+
+    private static ProductionBatch batch(Long id, ProductionOrder order, ProductionBatch.BatchStatus status) {
+        ProductionBatch batch = new ProductionBatch();
+        batch.setId(id);
+        batch.setBatchNumber(id != null ? "BATCH-" + id : null);
+        batch.setOrder(order);
+        batch.setStatus(status);
+        return batch;
+    }
+}
@@ -29,6 +29,9 @@ class ProductionBatchServiceTest {
     @Mock
     private ProductionOrderService productionOrderService;
 
+    @Mock
+    private NumberingService numberingService;
+
     @InjectMocks
     private ProductionBatchService productionBatchService;
 
@@ -38,6 +41,7 @@ class ProductionBatchServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(numberingService.nextDailyNumber("BATCH", 4)).thenReturn("BATCH-20240101-0001");
         
         // 创建测试订单
         testOrder = new ProductionOrder();
@@ -231,6 +235,7 @@ class ProductionBatchServiceTest {
         assertNotNull(batchNumber);
         assertTrue(batchNumber.startsWith("BATCH-"));
         assertTrue(batchNumber.length() > 12);
+        verify(numberingService).nextDailyNumber("BATCH", 4);
     }
 
     @Test
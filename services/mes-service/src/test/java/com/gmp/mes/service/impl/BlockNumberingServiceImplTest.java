@@ -0,0 +1,74 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.repository.NumberSequenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 号段式编号服务的单元测试
+ * 
+ * @author gmp-system
+ */
+class BlockNumberingServiceImplTest {
+
+    @Mock
+    private NumberSequenceRepository numberSequenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BlockNumberingServiceImpl numberingService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testNextDailyNumber() {
+        String sequenceKey = "BATCH-" + LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
+        when(numberSequenceRepository.advance(eq(sequenceKey), eq(20L), any())).thenReturn(1);
+        when(numberSequenceRepository.findHighValue(sequenceKey)).thenReturn(20L);
+
+        assertEquals(sequenceKey + "-0001", numberingService.nextDailyNumber("BATCH", 4));
+        assertEquals(sequenceKey + "-0002", numberingService.nextDailyNumber("BATCH", 4));
+
+        // 同一号段内的编号不访问数据库
+        verify(numberSequenceRepository, times(1)).advance(eq(sequenceKey), eq(20L), any());
+    }
+
+    @Test
+    void testNewSequenceIsCreated() {
+        when(numberSequenceRepository.advance(eq("OP-20240101"), eq(20L), any())).thenReturn(0, 1);
+        when(numberSequenceRepository.findHighValue("OP-20240101")).thenReturn(20L);
+
+        assertEquals(1L, numberingService.next("OP-20240101"));
+
+        verify(numberSequenceRepository).insertIfAbsent(eq("OP-20240101"), eq(0L), any());
+    }
+
+    @Test
+    void testNextBlockContinuesFromHighValue() {
+        when(numberSequenceRepository.advance(eq("OP-20240101"), eq(20L), any())).thenReturn(1);
+        when(numberSequenceRepository.findHighValue("OP-20240101")).thenReturn(20L, 60L);
+
+        for (int i = 0; i < 20; i++) {
+            numberingService.next("OP-20240101");
+        }
+
+        // 其他节点已申请21~40号段，本节点的下一号段从41开始
+        assertEquals(41L, numberingService.next("OP-20240101"));
+    }
+}
@@ -0,0 +1,308 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.TelemetryIngestResultDTO;
+import com.gmp.mes.dto.TelemetryReadingDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.entity.EquipmentStatusRecord;
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.repository.EquipmentTelemetryRepository;
+import com.gmp.mes.service.EquipmentLiveStream;
+import com.gmp.mes.service.EquipmentStateCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备遥测服务的单元测试
+ * 
+ * @author gmp-system
+ */
+class EquipmentTelemetryServiceImplTest {
+
+    @Mock
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @Mock
+    private EquipmentTelemetryRepository equipmentTelemetryRepository;
+
+    @Mock
+    private EquipmentStateCache equipmentStateCache;
+
+    @Mock
+    private EquipmentLiveStream equipmentLiveStream;
+
+    @InjectMocks
+    private EquipmentTelemetryServiceImpl telemetryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        telemetryService.init();
+        when(equipmentMonitorRepository.findByEquipmentCodeIn(anyCollection()))
+                .thenReturn(List.of(equipment(1L, "EQP-001"), equipment(2L, "EQP-002")));
+    }
+
+    @Test
+    void testIngestLoadsEquipmentOnceAndBatchesHistory() {
+        List<TelemetryReadingDTO> readings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            readings.add(reading("EQP-00" + (i % 2 + 1), 60.0 + i));
+        }
+
+        TelemetryIngestResultDTO result = telemetryService.ingest(readings);
+        telemetryService.ingest(List.of(reading("EQP-001", 70.0)));
+        telemetryService.flush();
+
+        assertEquals(10, result.getAccepted());
+        assertEquals(0, result.getRejected());
+        verify(equipmentMonitorRepository, times(1)).findByEquipmentCodeIn(anyCollection());
+        verify(equipmentMonitorRepository, never()).save(any());
+        verify(equipmentTelemetryRepository, times(1))
+                .insertStatusRecords(argThat(records -> records.size() == 11), anyList());
+        verify(equipmentTelemetryRepository, times(1)).updateLatestStates(argThat(states -> states.size() == 2));
+        assertEquals(70.0, telemetryService.getLatestState("EQP-001").get().getTemperature());
+        // 每批读数中的每台设备只更新一次状态缓存和推送
+        verify(equipmentStateCache, times(3)).put(any(EquipmentMonitor.class));
+        verify(equipmentLiveStream, times(3)).publish(any(EquipmentMonitor.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testThresholdViolationChangesStatusInline() {
+        TelemetryIngestResultDTO result = telemetryService.ingest(List.of(reading("EQP-001", 95.0)));
+
+        assertEquals(1, result.getStatusChanges());
+        assertEquals(EquipmentMonitor.EquipmentStatus.ERROR, telemetryService.getLatestState("EQP-001").get().getStatus());
+
+        telemetryService.ingest(List.of(reading("EQP-001", 75.0)));
+        assertEquals(EquipmentMonitor.EquipmentStatus.ONLINE, telemetryService.getLatestState("EQP-001").get().getStatus());
+
+        telemetryService.flush();
+        ArgumentCaptor<List<EquipmentStatusRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(equipmentTelemetryRepository).insertStatusRecords(records.capture(), anyList());
+        // 两条读数记录和两条状态变更记录
+        assertEquals(4, records.getValue().size());
+        assertEquals(2, records.getValue().stream()
+                .filter(record -> EquipmentTelemetryServiceImpl.SYSTEM_OPERATOR.equals(record.getOperator())).count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHistoryWriteIncludesMinuteAndHourRollups() {
+        LocalDateTime minute = LocalDateTime.of(2024, 3, 1, 10, 15);
+        TelemetryReadingDTO first = reading("EQP-001", 60.0);
+        first.setTimestamp(minute.plusSeconds(5));
+        TelemetryReadingDTO second = reading("EQP-001", 95.0);
+        second.setTimestamp(minute.plusSeconds(20));
+        TelemetryReadingDTO nextMinute = new TelemetryReadingDTO("EQP-001", null, 3.0, null, null, minute.plusMinutes(1));
+
+        telemetryService.ingest(List.of(first, second, nextMinute));
+        telemetryService.flush();
+
+        ArgumentCaptor<List<EquipmentTelemetryRollup>> rollups = ArgumentCaptor.forClass(List.class);
+        verify(equipmentTelemetryRepository).insertStatusRecords(anyList(), rollups.capture());
+        // 两个分钟汇总和一个小时汇总，状态变更记录不计入汇总
+        assertEquals(3, rollups.getValue().size());
+        EquipmentTelemetryRollup firstMinute = rollups.getValue().get(0);
+        assertEquals(EquipmentTelemetryRollup.Resolution.MINUTE, firstMinute.getResolution());
+        assertEquals(minute, firstMinute.getBucketStart());
+        assertEquals(2, firstMinute.getSampleCount());
+        assertEquals(60.0, firstMinute.getTemperatureMin());
+        assertEquals(95.0, firstMinute.getTemperatureMax());
+        assertEquals(155.0, firstMinute.getTemperatureSum());
+        EquipmentTelemetryRollup hour = rollups.getValue().get(2);
+        assertEquals(EquipmentTelemetryRollup.Resolution.HOUR, hour.getResolution());
+        assertEquals(minute.withMinute(0), hour.getBucketStart());
+        assertEquals(3, hour.getSampleCount());
+        assertEquals(2, hour.getTemperatureCount());
+        assertEquals(3, hour.getPressureCount());
+    }
+
+    @Test
+    void testUnknownEquipmentIsRejectedAndNotQueriedAgain() {
+        when(equipmentMonitorRepository.findByEquipmentCodeIn(anyCollection())).thenReturn(List.of());
+
+        TelemetryIngestResultDTO first = telemetryService.ingest(List.of(reading("EQP-404", 20.0)));
+        TelemetryIngestResultDTO second = telemetryService.ingest(List.of(reading("EQP-404", 21.0)));
+
+        assertEquals(1, first.getRejected());
+        assertEquals(List.of("EQP-404"), second.getUnknownEquipmentCodes());
+        verify(equipmentMonitorRepository, times(1)).findByEquipmentCodeIn(anyCollection());
+    }
+
+    @Test
+    void testLateReadingDoesNotOverrideLatestState() {
+        LocalDateTime now = LocalDateTime.now();
+        TelemetryReadingDTO latest = reading("EQP-001", 65.0);
+        latest.setTimestamp(now);
+        TelemetryReadingDTO late = reading("EQP-001", 95.0);
+        late.setTimestamp(now.minusSeconds(5));
+
+        telemetryService.ingest(List.of(latest, late));
+
+        EquipmentMonitor state = telemetryService.getLatestState("EQP-001").get();
+        assertEquals(65.0, state.getTemperature());
+        assertEquals(EquipmentMonitor.EquipmentStatus.ONLINE, state.getStatus());
+    }
+
+    @Test
+    void testFailedHistoryWriteIsRetried() {
+        doThrow(new RuntimeException("database unavailable")).doNothing()
+                .when(equipmentTelemetryRepository).insertStatusRecords(anyList(), anyList());
+        telemetryService.ingest(List.of(reading("EQP-001", 60.0)));
+
+        telemetryService.flush();
+        telemetryService.flush();
+
+        verify(equipmentTelemetryRepository, times(2))
+                .insertStatusRecords(argThat(records -> records.size() == 1), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPoisonRecordIsDeadLetteredAfterRepeatedFailures() {
+        doAnswer(invocation -> {
+            List<EquipmentStatusRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(record -> Double.valueOf(66.6).equals(record.getTemperature()))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(100)");
+            }
+            return null;
+        }).when(equipmentTelemetryRepository).insertStatusRecords(anyList(), anyList());
+        telemetryService.ingest(List.of(reading("EQP-001", 60.0), reading("EQP-001", 66.6),
+                reading("EQP-001", 61.0), reading("EQP-001", 62.0)));
+
+        // 前三次整批重试，第四次拆分写入
+        for (int i = 0; i < 4; i++) {
+            telemetryService.flush();
+        }
+        telemetryService.ingest(List.of(reading("EQP-002", 50.0)));
+        telemetryService.flush();
+
+        assertEquals(1, telemetryService.getDeadLetterCount());
+        ArgumentCaptor<List<EquipmentStatusRecord>> records = ArgumentCaptor.forClass(List.class);
+        verify(equipmentTelemetryRepository, atLeastOnce()).insertStatusRecords(records.capture(), anyList());
+        List<List<EquipmentStatusRecord>> written = records.getAllValues().stream()
+                .filter(batch -> batch.stream().noneMatch(record -> Double.valueOf(66.6).equals(record.getTemperature())))
+                .toList();
+        assertEquals(4, written.stream().mapToInt(List::size).sum());
+        assertTrue(written.stream().anyMatch(records -> records.size() == 1
+                && "EQP-002".equals(records.get(0).getEquipmentCode())));
+    }
+
+    @Test
+    void testDatabaseOutageIsNotDeadLettered() {
+        doThrow(new RuntimeException("database unavailable"))
+                .when(equipmentTelemetryRepository).insertStatusRecords(anyList(), anyList());
+        telemetryService.ingest(List.of(reading("EQP-001", 60.0), reading("EQP-001", 61.0)));
+
+        for (int i = 0; i < 6; i++) {
+            telemetryService.flush();
+        }
+
+        assertEquals(0, telemetryService.getDeadLetterCount());
+    }
+
+    @Test
+    void testFullQueueRejectsRequestAfterTimeout() {
+        ReflectionTestUtils.setField(telemetryService, "queueCapacity", 2);
+        ReflectionTestUtils.setField(telemetryService, "enqueueTimeout", 10L);
+        telemetryService.init();
+
+        assertThrows(IllegalStateException.class, () -> telemetryService.ingest(
+                List.of(reading("EQP-001", 60.0), reading("EQP-001", 61.0), reading("EQP-001", 62.0))));
+    }
+
+    @Test
+    void testRejectedRequestLeavesNoPartialState() {
+        ReflectionTestUtils.setField(telemetryService, "queueCapacity", 4);
+        ReflectionTestUtils.setField(telemetryService, "enqueueTimeout", 10L);
+        telemetryService.init();
+        telemetryService.ingest(List.of(reading("EQP-001", 60.0), reading("EQP-001", 61.0)));
+
+        // 剩余空间不足以容纳整批记录，请求在修改设备状态前被拒绝
+        assertThrows(IllegalStateException.class, () -> telemetryService.ingest(
+                List.of(reading("EQP-001", 95.0), reading("EQP-001", 62.0))));
+
+        EquipmentMonitor latest = telemetryService.getLatestState("EQP-001").get();
+        assertEquals(61.0, latest.getTemperature());
+        assertEquals(EquipmentMonitor.EquipmentStatus.ONLINE, latest.getStatus());
+        verify(equipmentStateCache, times(1)).put(any(EquipmentMonitor.class));
+
+        telemetryService.flush();
+        verify(equipmentTelemetryRepository, times(1))
+                .insertStatusRecords(argThat(records -> records.size() == 2), anyList());
+
+        // 写入后归还队列空间，重试的请求被完整接受
+        TelemetryIngestResultDTO retried = telemetryService.ingest(
+                List.of(reading("EQP-001", 95.0), reading("EQP-001", 62.0)));
+        assertEquals(2, retried.getAccepted());
+    }
+
+    @Test
+    void testEvictReloadsEquipment() {
+        telemetryService.ingest(List.of(reading("EQP-001", 60.0)));
+
+        telemetryService.evict("EQP-001");
+        telemetryService.ingest(List.of(reading("EQP-001", 61.0)));
+
+        verify(equipmentMonitorRepository, times(2)).findByEquipmentCodeIn(anyCollection());
+    }
+
+    @Test
+    void testConcurrentReadingsForSameEquipmentAreSerialized() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        telemetryService.ingest(List.of(reading("EQP-001", 60.0), reading("EQP-002", 60.0)));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        telemetryService.flush();
+
+        verify(equipmentTelemetryRepository, times(8))
+                .insertStatusRecords(argThat(records -> records.size() == 1000), anyList());
+    }
+
+    private static EquipmentMonitor equipment(Long id, String code) {
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId(id);
+        equipment.setEquipmentCode(code);
+        equipment.setEquipmentName("设备" + code);
+        equipment.setEquipmentType("反应釜");
+        equipment.setStatus(EquipmentMonitor.EquipmentStatus.ONLINE);
+        equipment.setTemperatureThreshold(80.0);
+        equipment.setPressureThreshold(10.0);
+        equipment.setVibrationThreshold(5.0);
+        return equipment;
+    }
+
+    private static TelemetryReadingDTO reading(String code, double temperature) {
+        return new TelemetryReadingDTO(code, temperature, 2.0, 45.0, 1.0, null);
+    }
+}
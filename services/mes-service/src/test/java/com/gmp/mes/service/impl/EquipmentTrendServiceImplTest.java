@@ -0,0 +1,163 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.TelemetryTrendDTO;
+import com.gmp.mes.entity.EquipmentStatusRecord;
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentStatusRecordRepository;
+import com.gmp.mes.repository.EquipmentTelemetryRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备趋势服务的单元测试
+ *
+ * @author gmp-system
+ */
+class EquipmentTrendServiceImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Mock
+    private EquipmentStatusRecordRepository equipmentStatusRecordRepository;
+
+    @Mock
+    private EquipmentTelemetryRollupRepository equipmentTelemetryRollupRepository;
+
+    @InjectMocks
+    private EquipmentTrendServiceImpl trendService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testShortWindowReturnsRawReadings() {
+        ReflectionTestUtils.setField(trendService, "maxPoints", 3);
+        when(equipmentStatusRecordRepository
+                .findByEquipmentCodeAndOperatorAndTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAsc(
+                        eq("EQP-001"), eq(EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR), any(), any(),
+                        any(Pageable.class)))
+                .thenReturn(List.of(sample(START, 60.0), sample(START.plusSeconds(1), 61.0),
+                        sample(START.plusSeconds(2), 62.0)));
+
+        TelemetryTrendDTO trend = trendService.getTrend("EQP-001", START, START.plusMinutes(30));
+
+        assertEquals("RAW", trend.getResolution());
+        assertEquals(3, trend.getPoints().size());
+        assertEquals(62.0, trend.getPoints().get(2).getTemperatureAvg());
+        verify(equipmentStatusRecordRepository)
+                .findByEquipmentCodeAndOperatorAndTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAsc(
+                        any(), any(), any(), any(), argThat(pageable -> pageable.getPageSize() == 4));
+        verifyNoInteractions(equipmentTelemetryRollupRepository);
+    }
+
+    @Test
+    void testRawOverflowFallsBackToMinuteRollups() {
+        ReflectionTestUtils.setField(trendService, "maxPoints", 2);
+        when(equipmentStatusRecordRepository
+                .findByEquipmentCodeAndOperatorAndTimestampGreaterThanEqualAndTimestampLessThanOrderByTimestampAsc(
+                        any(), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of(sample(START, 60.0), sample(START.plusSeconds(1), 61.0),
+                        sample(START.plusSeconds(2), 62.0)));
+        when(equipmentTelemetryRollupRepository
+                .findByEquipmentCodeAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        eq("EQP-001"), eq(EquipmentTelemetryRollup.Resolution.MINUTE), eq(START), any()))
+                .thenReturn(List.of(rollup(START, 2, 60.0, 61.0), rollup(START.plusMinutes(29), 1, 90.0, 90.0)));
+
+        TelemetryTrendDTO trend = trendService.getTrend("EQP-001", START, START.plusMinutes(30));
+
+        // 读数超过上限时不截断，最近一分钟的汇总仍然在趋势中
+        assertEquals("MINUTE", trend.getResolution());
+        assertEquals(16 * 60, trend.getBucketSeconds());
+        assertEquals(2, trend.getPoints().size());
+        assertEquals(START.plusMinutes(16), trend.getPoints().get(1).getTime());
+        assertEquals(90.0, trend.getPoints().get(1).getTemperatureMax());
+    }
+
+    @Test
+    void testDayWindowUsesMinuteRollups() {
+        when(equipmentTelemetryRollupRepository
+                .findByEquipmentCodeAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        eq("EQP-001"), eq(EquipmentTelemetryRollup.Resolution.MINUTE), eq(START), any()))
+                .thenReturn(List.of(rollup(START, 2, 60.0, 70.0), rollup(START.plusMinutes(1), 1, 80.0, 80.0)));
+
+        TelemetryTrendDTO trend = trendService.getTrend("EQP-001", START.plusSeconds(30), START.plusDays(1));
+
+        assertEquals("MINUTE", trend.getResolution());
+        assertEquals(60, trend.getBucketSeconds());
+        assertEquals(2, trend.getPoints().size());
+        TelemetryTrendDTO.Point first = trend.getPoints().get(0);
+        assertEquals(START, first.getTime());
+        assertEquals(60.0, first.getTemperatureMin());
+        assertEquals(70.0, first.getTemperatureMax());
+        assertEquals(65.0, first.getTemperatureAvg());
+        assertNull(first.getHumidityAvg());
+        verifyNoInteractions(equipmentStatusRecordRepository);
+    }
+
+    @Test
+    void testLongWindowMergesHourRollupsWithinPointLimit() {
+        ReflectionTestUtils.setField(trendService, "maxPoints", 100);
+        List<EquipmentTelemetryRollup> hours = new ArrayList<>();
+        for (int hour = 0; hour < 24 * 30; hour++) {
+            hours.add(rollup(START.plusHours(hour), 1, hour, hour));
+        }
+        when(equipmentTelemetryRollupRepository
+                .findByEquipmentCodeAndResolutionAndBucketStartGreaterThanEqualAndBucketStartLessThanOrderByBucketStartAsc(
+                        eq("EQP-001"), eq(EquipmentTelemetryRollup.Resolution.HOUR), eq(START), any()))
+                .thenReturn(hours);
+
+        TelemetryTrendDTO trend = trendService.getTrend("EQP-001", START, START.plusDays(30));
+
+        assertEquals("HOUR", trend.getResolution());
+        // 721个小时时间段，每8小时合并为一个数据点
+        assertEquals(8 * 3600, trend.getBucketSeconds());
+        assertEquals(90, trend.getPoints().size());
+        TelemetryTrendDTO.Point second = trend.getPoints().get(1);
+        assertEquals(START.plusHours(8), second.getTime());
+        assertEquals(8, second.getSampleCount());
+        assertEquals(8.0, second.getTemperatureMin());
+        assertEquals(15.0, second.getTemperatureMax());
+        assertEquals(11.5, second.getTemperatureAvg());
+    }
+
+    @Test
+    void testInvalidRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> trendService.getTrend("EQP-001", START, START));
+    }
+
+    private static EquipmentStatusRecord sample(LocalDateTime timestamp, double temperature) {
+        EquipmentStatusRecord record = new EquipmentStatusRecord();
+        record.setEquipmentCode("EQP-001");
+        record.setTemperature(temperature);
+        record.setOperator(EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR);
+        record.setTimestamp(timestamp);
+        return record;
+    }
+
+    private static EquipmentTelemetryRollup rollup(LocalDateTime bucketStart, int count, double min, double max) {
+        EquipmentTelemetryRollup rollup = new EquipmentTelemetryRollup();
+        rollup.setEquipmentCode("EQP-001");
+        rollup.setBucketStart(bucketStart);
+        rollup.setSampleCount(count);
+        rollup.setTemperatureCount(count);
+        rollup.setTemperatureMin(min);
+        rollup.setTemperatureMax(max);
+        rollup.setTemperatureSum(count == 1 ? min : min + max);
+        return rollup;
+    }
+}
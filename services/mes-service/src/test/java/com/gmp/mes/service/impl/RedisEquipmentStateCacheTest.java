@@ -0,0 +1,252 @@
+package com.gmp.mes.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisHashCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备实时状态缓存的单元测试，Redis哈希以内存Map模拟
+ *
+ * @author gmp-system
+ */
+class RedisEquipmentStateCacheTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisConnection connection;
+
+    @Mock
+    private RedisHashCommands hashCommands;
+
+    @Mock
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @InjectMocks
+    private RedisEquipmentStateCache stateCache;
+
+    private final Map<String, byte[]> hash = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        when(connection.hashCommands()).thenReturn(hashCommands);
+        doAnswer(invocation -> {
+            Map<byte[], byte[]> values = invocation.getArgument(1);
+            values.forEach((field, value) -> hash.put(text(field), value));
+            return null;
+        }).when(hashCommands).hMSet(any(byte[].class), anyMap());
+        when(hashCommands.hGet(any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> hash.get(text(invocation.getArgument(1))));
+        when(hashCommands.hMGet(any(byte[].class), any(byte[][].class))).thenAnswer(invocation -> {
+            byte[][] fields = (byte[][]) invocation.getRawArguments()[1];
+            List<byte[]> values = new ArrayList<>(fields.length);
+            for (byte[] field : fields) {
+                values.add(hash.get(text(field)));
+            }
+            return values;
+        });
+        when(hashCommands.hSetNX(any(byte[].class), any(byte[].class), any(byte[].class))).thenAnswer(invocation ->
+                hash.putIfAbsent(text(invocation.getArgument(1)), invocation.getArgument(2)) == null);
+        when(hashCommands.hKeys(any(byte[].class))).thenAnswer(invocation -> {
+            Set<byte[]> fields = new HashSet<>();
+            hash.keySet().forEach(field -> fields.add(field.getBytes(StandardCharsets.UTF_8)));
+            return fields;
+        });
+        when(hashCommands.hGetAll(any(byte[].class))).thenAnswer(invocation -> {
+            Map<byte[], byte[]> entries = new HashMap<>();
+            hash.forEach((field, value) -> entries.put(field.getBytes(StandardCharsets.UTF_8), value));
+            return entries;
+        });
+    }
+
+    @Test
+    void testUpdatesAreCoalescedIntoOneHashWrite() {
+        stateCache.put(equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        stateCache.put(equipment("EQP-001", 61.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        stateCache.put(equipment("EQP-001", 95.0, EquipmentMonitor.EquipmentStatus.ERROR));
+        stateCache.put(equipment("EQP-002", 50.0, EquipmentMonitor.EquipmentStatus.IDLE));
+
+        // 写入缓存前读取本地待写入的状态
+        assertEquals(95.0, stateCache.get("EQP-001").get().getTemperature());
+        verify(hashCommands, never()).hGet(any(), any());
+
+        stateCache.flush();
+
+        verify(hashCommands, times(1)).hMSet(any(byte[].class), argThat(values -> values.size() == 2));
+        // ID、温度、压力、振动、更新时间和3字节头部，湿度为空不占空间
+        assertEquals(3 + 8 * 5, hash.get("EQP-001").length);
+
+        EquipmentLiveStateDTO state = stateCache.get("EQP-001").get();
+        assertEquals(1L, state.getId());
+        assertEquals(EquipmentMonitor.EquipmentStatus.ERROR, state.getStatus());
+        assertEquals(95.0, state.getTemperature());
+        assertEquals(2.0, state.getPressure());
+        assertNull(state.getHumidity());
+        assertEquals(1.5, state.getVibration());
+        assertEquals(UPDATED, state.getLastUpdatedTime());
+    }
+
+    @Test
+    void testBinaryStateIsAnOrderOfMagnitudeSmallerThanEntityJson() throws Exception {
+        EquipmentMonitor item = equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        byte[] json = objectMapper.writeValueAsBytes(item);
+
+        stateCache.put(item);
+        stateCache.flush();
+
+        // 看板读取和网络传输量与每台设备的数据大小成正比
+        byte[] binary = hash.get("EQP-001");
+        assertEquals(3 + 8 * 5, binary.length);
+        assertTrue(json.length > 10 * binary.length, "json=" + json.length + ", binary=" + binary.length);
+    }
+
+    @Test
+    void testFailedWriteIsRetried() {
+        doThrow(new RuntimeException("redis unavailable")).doAnswer(invocation -> {
+            Map<byte[], byte[]> values = invocation.getArgument(1);
+            values.forEach((field, value) -> hash.put(text(field), value));
+            return null;
+        }).when(hashCommands).hMSet(any(byte[].class), anyMap());
+        stateCache.put(equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+
+        stateCache.flush();
+        assertTrue(hash.isEmpty());
+        stateCache.flush();
+
+        assertTrue(hash.containsKey("EQP-001"));
+        verify(hashCommands, times(2)).hMSet(any(byte[].class), anyMap());
+    }
+
+    @Test
+    void testGetAllMergesPendingAndCachedStates() {
+        stateCache.put(equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        stateCache.flush();
+        stateCache.put(equipment("EQP-002", 50.0, EquipmentMonitor.EquipmentStatus.IDLE));
+
+        List<EquipmentLiveStateDTO> all = stateCache.getAll(null);
+        List<EquipmentLiveStateDTO> selected = stateCache.getAll(List.of("EQP-002", "EQP-404"));
+
+        assertEquals(Set.of("EQP-001", "EQP-002"),
+                Set.copyOf(all.stream().map(EquipmentLiveStateDTO::getEquipmentCode).toList()));
+        assertEquals(1, selected.size());
+        assertEquals(EquipmentMonitor.EquipmentStatus.IDLE, selected.get(0).getStatus());
+    }
+
+    @Test
+    void testRemoveDropsPendingState() {
+        stateCache.put(equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+
+        stateCache.remove("EQP-001");
+        stateCache.flush();
+
+        verify(hashCommands).hDel(any(byte[].class), any(byte[].class));
+        verify(hashCommands, never()).hMSet(any(), anyMap());
+        assertTrue(stateCache.get("EQP-001").isEmpty());
+    }
+
+    @Test
+    void testCacheMissReadsThroughDatabase() {
+        when(equipmentMonitorRepository.findByEquipmentCode("EQP-001"))
+                .thenReturn(Optional.of(equipment("EQP-001", 70.0, EquipmentMonitor.EquipmentStatus.RUNNING)));
+
+        EquipmentLiveStateDTO state = stateCache.get("EQP-001").get();
+
+        assertEquals(70.0, state.getTemperature());
+        // 回源的状态写入缓存，下次读取不再访问数据库
+        assertTrue(hash.containsKey("EQP-001"));
+        assertEquals(70.0, stateCache.get("EQP-001").get().getTemperature());
+        verify(equipmentMonitorRepository, times(1)).findByEquipmentCode("EQP-001");
+    }
+
+    @Test
+    void testGetAllReadsOnlyMissingEquipmentThroughDatabase() {
+        stateCache.put(equipment("EQP-001", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        stateCache.flush();
+        when(equipmentMonitorRepository.findByEquipmentCodeIn(List.of("EQP-002", "EQP-404")))
+                .thenReturn(List.of(equipment("EQP-002", 50.0, EquipmentMonitor.EquipmentStatus.IDLE)));
+
+        List<EquipmentLiveStateDTO> selected = stateCache.getAll(List.of("EQP-001", "EQP-002", "EQP-404"));
+
+        assertEquals(Set.of("EQP-001", "EQP-002"),
+                Set.copyOf(selected.stream().map(EquipmentLiveStateDTO::getEquipmentCode).toList()));
+        assertTrue(hash.containsKey("EQP-002"));
+    }
+
+    @Test
+    void testWarmUpFillsOnlyEquipmentMissingFromCache() {
+        stateCache.put(equipment("EQP-001", 95.0, EquipmentMonitor.EquipmentStatus.ERROR));
+        stateCache.flush();
+        EquipmentMonitorRepository.EquipmentLiveState stale = liveState("EQP-001", 60.0);
+        EquipmentMonitorRepository.EquipmentLiveState missing = liveState("EQP-002", 50.0);
+        when(equipmentMonitorRepository.findAllLiveStateBy()).thenReturn(List.of(stale, missing));
+
+        stateCache.warmUp();
+
+        // 缓存中已有的设备保留更新的状态，不被数据库中的状态覆盖
+        assertEquals(95.0, stateCache.get("EQP-001").get().getTemperature());
+        assertEquals(50.0, stateCache.get("EQP-002").get().getTemperature());
+        verify(hashCommands, times(1)).hSetNX(any(byte[].class), any(byte[].class), any(byte[].class));
+        verify(equipmentMonitorRepository, never()).findByEquipmentCode(anyString());
+    }
+
+    private static EquipmentMonitorRepository.EquipmentLiveState liveState(String code, double temperature) {
+        EquipmentMonitorRepository.EquipmentLiveState state = mock(EquipmentMonitorRepository.EquipmentLiveState.class);
+        when(state.getId()).thenReturn("EQP-001".equals(code) ? 1L : 2L);
+        when(state.getEquipmentCode()).thenReturn(code);
+        when(state.getStatus()).thenReturn(EquipmentMonitor.EquipmentStatus.ONLINE);
+        when(state.getTemperature()).thenReturn(temperature);
+        when(state.getLastUpdatedTime()).thenReturn(UPDATED);
+        return state;
+    }
+
+    private static EquipmentMonitor equipment(String code, double temperature, EquipmentMonitor.EquipmentStatus status) {
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId("EQP-001".equals(code) ? 1L : 2L);
+        equipment.setEquipmentCode(code);
+        equipment.setStatus(status);
+        equipment.setTemperature(temperature);
+        equipment.setPressure(2.0);
+        equipment.setVibration(1.5);
+        equipment.setLastUpdatedTime(UPDATED);
+        return equipment;
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,244 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.dto.EquipmentLiveDeltaDTO;
+import com.gmp.mes.dto.EquipmentLiveStateDTO;
+import com.gmp.mes.entity.EquipmentMonitor;
+import com.gmp.mes.repository.EquipmentMonitorRepository;
+import com.gmp.mes.service.EquipmentStateCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 设备实时状态推送的单元测试，推送线程由测试手动执行，模拟接收较慢的客户端
+ *
+ * @author gmp-system
+ */
+class SseEquipmentLiveStreamTest {
+
+    @Mock
+    private EquipmentStateCache equipmentStateCache;
+
+    @Mock
+    private EquipmentMonitorRepository equipmentMonitorRepository;
+
+    @InjectMocks
+    private SseEquipmentLiveStream liveStream = new SseEquipmentLiveStream() {
+        @Override
+        SseEmitter newEmitter(long timeout) {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    private final List<RecordingEmitter> emitters = new ArrayList<>();
+
+    private final List<Runnable> sendTasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(liveStream, "sendExecutor", (Executor) sendTasks::add);
+        ReflectionTestUtils.setField(liveStream, "heartbeatInterval", 60000L);
+    }
+
+    @Test
+    void testSnapshotIsFilteredByStatus() {
+        when(equipmentStateCache.getAll(null)).thenReturn(List.of(
+                state("EQP-001", EquipmentMonitor.EquipmentStatus.ONLINE),
+                state("EQP-002", EquipmentMonitor.EquipmentStatus.ERROR)));
+
+        liveStream.subscribe(null, null, List.of(EquipmentMonitor.EquipmentStatus.ERROR));
+
+        RecordingEmitter emitter = emitters.get(0);
+        assertEquals(SseEquipmentLiveStream.SNAPSHOT_EVENT, emitter.names.get(0));
+        List<?> snapshot = (List<?>) emitter.payloads.get(0);
+        assertEquals(1, snapshot.size());
+        assertEquals("EQP-002", ((EquipmentLiveStateDTO) snapshot.get(0)).getEquipmentCode());
+        verifyNoInteractions(equipmentMonitorRepository);
+    }
+
+    @Test
+    void testLocationFilterReadsOnlyMatchingEquipment() {
+        when(equipmentMonitorRepository.findAllProjectedBy()).thenReturn(List.of(
+                descriptor("EQP-001", "提取罐", "前处理车间"),
+                descriptor("EQP-002", "提取罐", "制剂车间")));
+        when(equipmentStateCache.getAll(anyCollection()))
+                .thenReturn(List.of(state("EQP-001", EquipmentMonitor.EquipmentStatus.ONLINE)));
+
+        liveStream.subscribe(List.of("前处理车间"), null, null);
+        liveStream.publish(equipment("EQP-002", "制剂车间", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.dispatch();
+
+        verify(equipmentStateCache).getAll(argThat(codes -> codes.size() == 1 && codes.contains("EQP-001")));
+        assertEquals(1, ((List<?>) emitters.get(0).payloads.get(0)).size());
+        // 其他车间的设备变化不推送
+        assertTrue(sendTasks.isEmpty());
+    }
+
+    @Test
+    void testSlowClientReceivesLatestStatePerEquipment() {
+        when(equipmentStateCache.getAll(null)).thenReturn(List.of());
+        liveStream.subscribe(null, null, null);
+        RecordingEmitter emitter = emitters.get(0);
+
+        liveStream.publish(equipment("EQP-001", "前处理车间", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.dispatch();
+        // 第一次推送尚未执行时又有多次变化
+        liveStream.publish(equipment("EQP-001", "前处理车间", 70.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.dispatch();
+        liveStream.publish(equipment("EQP-001", "前处理车间", 80.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.publish(equipment("EQP-002", "前处理车间", 50.0, EquipmentMonitor.EquipmentStatus.IDLE));
+        liveStream.dispatch();
+
+        assertEquals(1, sendTasks.size());
+        sendTasks.remove(0).run();
+
+        assertEquals(List.of(SseEquipmentLiveStream.SNAPSHOT_EVENT, SseEquipmentLiveStream.DELTA_EVENT), emitter.names);
+        EquipmentLiveDeltaDTO delta = (EquipmentLiveDeltaDTO) emitter.payloads.get(1);
+        assertEquals(2, delta.getUpdated().size());
+        assertEquals(80.0, delta.getUpdated().get(0).getTemperature());
+        assertTrue(delta.getRemoved().isEmpty());
+    }
+
+    @Test
+    void testEquipmentLeavingFilterIsRemoved() {
+        when(equipmentStateCache.getAll(null)).thenReturn(List.of(
+                state("EQP-001", EquipmentMonitor.EquipmentStatus.ERROR)));
+        liveStream.subscribe(null, null, List.of(EquipmentMonitor.EquipmentStatus.ERROR));
+        RecordingEmitter emitter = emitters.get(0);
+
+        liveStream.publish(equipment("EQP-001", "前处理车间", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.publish(equipment("EQP-002", "前处理车间", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.dispatch();
+        sendTasks.remove(0).run();
+
+        EquipmentLiveDeltaDTO delta = (EquipmentLiveDeltaDTO) emitter.payloads.get(1);
+        assertTrue(delta.getUpdated().isEmpty());
+        assertEquals(List.of("EQP-001"), delta.getRemoved());
+
+        liveStream.publishRemoval("EQP-002");
+        liveStream.dispatch();
+        assertTrue(sendTasks.isEmpty());
+    }
+
+    @Test
+    void testStalledSubscriberIsDroppedWithoutBlockingOthers() {
+        when(equipmentStateCache.getAll(null)).thenReturn(List.of());
+        liveStream.subscribe(null, null, null);
+        liveStream.subscribe(null, null, null);
+
+        liveStream.publish(equipment("EQP-001", "前处理车间", 60.0, EquipmentMonitor.EquipmentStatus.ONLINE));
+        liveStream.dispatch();
+        assertEquals(2, sendTasks.size());
+        // 一个客户端的发送完成，另一个客户端的发送一直阻塞
+        sendTasks.remove(0).run();
+        Runnable stalledSend = sendTasks.remove(0);
+        RecordingEmitter healthy = emitters.get(0).payloads.size() > 1 ? emitters.get(0) : emitters.get(1);
+        RecordingEmitter stalled = healthy == emitters.get(0) ? emitters.get(1) : emitters.get(0);
+        ReflectionTestUtils.setField(liveStream, "sendTimeout", 0L);
+
+        liveStream.publish(equipment("EQP-002", "前处理车间", 50.0, EquipmentMonitor.EquipmentStatus.IDLE));
+        liveStream.dispatch();
+
+        assertEquals(1, sendTasks.size());
+        sendTasks.remove(0).run();
+        EquipmentLiveDeltaDTO delta = (EquipmentLiveDeltaDTO) healthy.payloads.get(2);
+        assertEquals("EQP-002", delta.getUpdated().get(0).getEquipmentCode());
+
+        // 阻塞的写入返回后关闭连接，之后不再推送
+        stalledSend.run();
+        assertTrue(stalled.completed);
+        assertFalse(healthy.completed);
+        ReflectionTestUtils.setField(liveStream, "sendTimeout", 10000L);
+        liveStream.publish(equipment("EQP-003", "前处理车间", 40.0, EquipmentMonitor.EquipmentStatus.IDLE));
+        liveStream.dispatch();
+        assertEquals(1, sendTasks.size());
+    }
+
+    private static EquipmentLiveStateDTO state(String code, EquipmentMonitor.EquipmentStatus status) {
+        EquipmentLiveStateDTO state = new EquipmentLiveStateDTO();
+        state.setEquipmentCode(code);
+        state.setStatus(status);
+        return state;
+    }
+
+    private static EquipmentMonitor equipment(String code, String location, double temperature,
+            EquipmentMonitor.EquipmentStatus status) {
+        EquipmentMonitor equipment = new EquipmentMonitor();
+        equipment.setId(1L);
+        equipment.setEquipmentCode(code);
+        equipment.setEquipmentType("提取罐");
+        equipment.setLocation(location);
+        equipment.setStatus(status);
+        equipment.setTemperature(temperature);
+        return equipment;
+    }
+
+    private static EquipmentMonitorRepository.EquipmentDescriptor descriptor(String code, String type, String location) {
+        return new EquipmentMonitorRepository.EquipmentDescriptor() {
+            @Override
+            public String getEquipmentCode() {
+                return code;
+            }
+
+            @Override
+            public String getEquipmentType() {
+                return type;
+            }
+
+            @Override
+            public String getLocation() {
+                return location;
+            }
+        };
+    }
+
+    /**
+     * 记录发送的事件名称和数据
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> names = new ArrayList<>();
+
+        private final List<Object> payloads = new ArrayList<>();
+
+        private boolean completed;
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            Set<ResponseBodyEmitter.DataWithMediaType> parts = builder.build();
+            for (ResponseBodyEmitter.DataWithMediaType part : parts) {
+                Object data = part.getData();
+                if (data instanceof String text) {
+                    if (text.startsWith("event:")) {
+                        names.add(text.substring("event:".length(), text.indexOf('\n')));
+                    }
+                } else {
+                    payloads.add(data);
+                }
+            }
+        }
+    }
+}
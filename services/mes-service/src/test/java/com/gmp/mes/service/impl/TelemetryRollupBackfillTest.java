@@ -0,0 +1,99 @@
+package com.gmp.mes.service.impl;
+
+import com.gmp.mes.entity.EquipmentTelemetryRollup;
+import com.gmp.mes.repository.EquipmentTelemetryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 遥测汇总回填的单元测试
+ *
+ * @author gmp-system
+ */
+class TelemetryRollupBackfillTest {
+
+    private static final String TELEMETRY = EquipmentTelemetryServiceImpl.TELEMETRY_OPERATOR;
+
+    @Mock
+    private EquipmentTelemetryRepository equipmentTelemetryRepository;
+
+    @InjectMocks
+    private TelemetryRollupBackfill rollupBackfill;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testBackfillsBeforeEarliestRollupInReverseChunks() {
+        LocalDateTime firstMinute = LocalDateTime.of(2024, 3, 3, 8, 30);
+        LocalDateTime firstHour = LocalDateTime.of(2024, 3, 3, 8, 0);
+        when(equipmentTelemetryRepository.findEarliestRecordTime(TELEMETRY))
+                .thenReturn(LocalDateTime.of(2024, 3, 1, 23, 15, 42));
+        when(equipmentTelemetryRepository.findEarliestRollupBucket(EquipmentTelemetryRollup.Resolution.MINUTE))
+                .thenReturn(firstMinute);
+        when(equipmentTelemetryRepository.findEarliestRollupBucket(EquipmentTelemetryRollup.Resolution.HOUR))
+                .thenReturn(firstHour);
+
+        rollupBackfill.backfill();
+
+        // 从最早的已有汇总向前回填，每段24小时，最后一段截止到最早读数所在的时间段
+        InOrder inOrder = inOrder(equipmentTelemetryRepository);
+        inOrder.verify(equipmentTelemetryRepository).backfillRollups(EquipmentTelemetryRollup.Resolution.MINUTE,
+                TELEMETRY, firstMinute.minusHours(24), firstMinute);
+        inOrder.verify(equipmentTelemetryRepository).backfillRollups(EquipmentTelemetryRollup.Resolution.MINUTE,
+                TELEMETRY, LocalDateTime.of(2024, 3, 1, 23, 15), firstMinute.minusHours(24));
+        inOrder.verify(equipmentTelemetryRepository).backfillRollups(EquipmentTelemetryRollup.Resolution.HOUR,
+                TELEMETRY, firstHour.minusHours(24), firstHour);
+        inOrder.verify(equipmentTelemetryRepository).backfillRollups(EquipmentTelemetryRollup.Resolution.HOUR,
+                TELEMETRY, LocalDateTime.of(2024, 3, 1, 23, 0), firstHour.minusHours(24));
+        verify(equipmentTelemetryRepository, times(4)).backfillRollups(any(), anyString(), any(), any());
+    }
+
+    @Test
+    void testCompletedBackfillWritesNothing() {
+        LocalDateTime earliest = LocalDateTime.of(2024, 3, 1, 23, 15, 42);
+        when(equipmentTelemetryRepository.findEarliestRecordTime(TELEMETRY)).thenReturn(earliest);
+        when(equipmentTelemetryRepository.findEarliestRollupBucket(EquipmentTelemetryRollup.Resolution.MINUTE))
+                .thenReturn(LocalDateTime.of(2024, 3, 1, 23, 15));
+        when(equipmentTelemetryRepository.findEarliestRollupBucket(EquipmentTelemetryRollup.Resolution.HOUR))
+                .thenReturn(LocalDateTime.of(2024, 3, 1, 23, 0));
+
+        rollupBackfill.backfill();
+
+        verify(equipmentTelemetryRepository, never()).backfillRollups(any(), anyString(), any(), any());
+    }
+
+    @Test
+    void testWithoutRollupsBackfillsUpToCurrentBucket() {
+        LocalDateTime earliest = LocalDateTime.now().minusHours(2);
+        when(equipmentTelemetryRepository.findEarliestRecordTime(TELEMETRY)).thenReturn(earliest);
+
+        rollupBackfill.backfill();
+
+        // 启动时刻所在的时间段由实时写入维护，不回填
+        verify(equipmentTelemetryRepository).backfillRollups(eq(EquipmentTelemetryRollup.Resolution.MINUTE),
+                eq(TELEMETRY), eq(EquipmentTelemetryRollup.Resolution.MINUTE.bucketOf(earliest)),
+                argThat(end -> !end.isAfter(LocalDateTime.now())));
+        verify(equipmentTelemetryRepository).backfillRollups(eq(EquipmentTelemetryRollup.Resolution.HOUR),
+                eq(TELEMETRY), eq(EquipmentTelemetryRollup.Resolution.HOUR.bucketOf(earliest)), any());
+    }
+
+    @Test
+    void testNoRecordsSkipsBackfill() {
+        rollupBackfill.backfill();
+
+        verify(equipmentTelemetryRepository, never()).findEarliestRollupBucket(any());
+        verify(equipmentTelemetryRepository, never()).backfillRollups(any(), anyString(), any(), any());
+    }
+}